@@ -1,14 +1,21 @@
 package com.example.proyecto_pixelshop;
 
 import com.example.proyecto_pixelshop.model.Usuario;
+import com.example.proyecto_pixelshop.model.dto.ResultadoNormalizacionTitulos;
 import com.example.proyecto_pixelshop.model.enums.Rol;
+import com.example.proyecto_pixelshop.service.interfaz.IServicioJuego;
 import com.example.proyecto_pixelshop.service.interfaz.IServicioUsuario;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.util.List;
 
 @SpringBootApplication
+@EnableScheduling
 public class ProyectoPixelshopApplication {
 
 	public static void main(String[] args) {
@@ -16,8 +23,21 @@ public class ProyectoPixelshopApplication {
 	}
 
 	@Bean
-	CommandLineRunner initDatabase(IServicioUsuario usuarioService) {
+	CommandLineRunner initDatabase(IServicioUsuario usuarioService, IServicioJuego juegoService, JdbcTemplate jdbcTemplate) {
 		return args -> {
+			// estado_pago se creó como ENUM nativo de MySQL sin EN_PROCESO y ddl-auto=update no altera columnas existentes
+			try {
+				List<String> tipo = jdbcTemplate.queryForList(
+					"SELECT DATA_TYPE FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_SCHEMA = DATABASE() "
+						+ "AND TABLE_NAME = 'transaccion_proveedor' AND COLUMN_NAME = 'estado_pago'", String.class);
+				if (!tipo.isEmpty() && "enum".equalsIgnoreCase(tipo.get(0))) {
+					jdbcTemplate.execute("ALTER TABLE transaccion_proveedor MODIFY estado_pago VARCHAR(20) NOT NULL");
+					System.out.println("ℹ  Columna transaccion_proveedor.estado_pago convertida a VARCHAR(20)");
+				}
+			} catch (Exception e) {
+				System.err.println("  No se pudo revisar la columna transaccion_proveedor.estado_pago: " + e.getMessage());
+			}
+			
 			// Crear usuario ADMIN solo si no existe
 			if (!usuarioService.existeEmail("admin@pixelshop.com")) {
 				Usuario admin = new Usuario();
@@ -36,6 +56,15 @@ public class ProyectoPixelshopApplication {
 			} else {
 				System.out.println("ℹ  Usuario ADMIN ya existe - No se creará de nuevo");
 			}
+			
+			// Completar el título normalizado de los juegos creados antes de existir la columna
+			ResultadoNormalizacionTitulos normalizacion = juegoService.completarTitulosNormalizados();
+			if (!normalizacion.sinCambios()) {
+				System.out.println("ℹ  Títulos normalizados completados: " + normalizacion.completados());
+			}
+			if (!normalizacion.duplicados().isEmpty()) {
+				System.err.println("  Juegos con título duplicado entre los activos (revisar manualmente): " + normalizacion.duplicados());
+			}
 		};
 	}
 }
@@ -3,14 +3,21 @@ package com.example.proyecto_pixelshop.config.external;
 import com.azure.storage.blob.BlobContainerClient;
 import com.azure.storage.blob.BlobServiceClient;
 import com.azure.storage.blob.BlobServiceClientBuilder;
+import com.azure.storage.blob.models.BlobCorsRule;
+import com.azure.storage.blob.models.BlobServiceProperties;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
 /**
  * Configuración de Azure Blob Storage para almacenar imágenes, videos y archivos.
  * Azure Blob Storage permite guardar cualquier tipo de archivo (imágenes, videos, PDFs, etc.)
  * y acceder a ellos mediante URLs públicas.
+ * Para desarrollo se puede usar el emulador Azurite con la cadena de conexión "UseDevelopmentStorage=true".
  */
 @Configuration
 public class AzureBlobStorageConfig {
@@ -21,14 +28,24 @@ public class AzureBlobStorageConfig {
     @Value("${azure.storage.container-name}")
     private String containerName;
 
+    // Orígenes (separados por comas) desde los que el navegador sube directamente a Azure con URLs SAS
+    @Value("${azure.storage.cors-origenes:}")
+    private String corsOrigenes;
+
+    // Las reglas CORS son de toda la cuenta: por defecto se configuran fuera de la aplicación (portal o az cli)
+    @Value("${azure.storage.cors-configurar:false}")
+    private boolean corsConfigurar;
+
     
      //Crea el cliente de Azure Blob Service
      
     @Bean
     public BlobServiceClient blobServiceClient() {
-        return new BlobServiceClientBuilder()
+        BlobServiceClient client = new BlobServiceClientBuilder()
                 .connectionString(connectionString)
                 .buildClient();
+        configurarCors(client);
+        return client;
     }
 
     
@@ -46,4 +63,50 @@ public class AzureBlobStorageConfig {
         
         return containerClient;
     }
+
+    
+     //Permite al navegador subir por bloques con la URL SAS (PUT a otro dominio). Solo con azure.storage.cors-configurar=true:
+     //se conservan las reglas que ya tenga la cuenta (de otras aplicaciones) y solo se añade o sustituye la de estos orígenes
+    
+    private void configurarCors(BlobServiceClient client) {
+        if (!corsConfigurar || corsOrigenes == null || corsOrigenes.isBlank()) {
+            return;
+        }
+        try {
+            String origenes = corsOrigenes.replace(" ", "");
+            BlobCorsRule regla = new BlobCorsRule()
+                .setAllowedOrigins(origenes)
+                .setAllowedMethods("PUT,GET,HEAD,OPTIONS")
+                .setAllowedHeaders("content-type,x-ms-*")
+                .setExposedHeaders("etag,x-ms-*")
+                .setMaxAgeInSeconds(3600);
+            BlobServiceProperties propiedades = client.getProperties();
+            List<BlobCorsRule> reglas = new ArrayList<>();
+            if (propiedades.getCors() != null) {
+                for (BlobCorsRule existente : propiedades.getCors()) {
+                    if (mismaRegla(existente, regla)) {
+                        return; // Ya está configurada: no se reescriben las propiedades de la cuenta
+                    }
+                    if (!Objects.equals(origenes, existente.getAllowedOrigins())) {
+                        reglas.add(existente);
+                    }
+                }
+            }
+            reglas.add(regla);
+            propiedades.setCors(reglas);
+            client.setProperties(propiedades);
+            System.out.println("Regla CORS de Azure configurada para: " + origenes);
+        } catch (Exception e) {
+            // Sin CORS la subida directa falla y el navegador usa la subida a través del servidor
+            System.err.println("No se pudieron configurar las reglas CORS de Azure: " + e.getMessage());
+        }
+    }
+
+    private static boolean mismaRegla(BlobCorsRule a, BlobCorsRule b) {
+        return Objects.equals(a.getAllowedOrigins(), b.getAllowedOrigins())
+            && Objects.equals(a.getAllowedMethods(), b.getAllowedMethods())
+            && Objects.equals(a.getAllowedHeaders(), b.getAllowedHeaders())
+            && Objects.equals(a.getExposedHeaders(), b.getExposedHeaders())
+            && a.getMaxAgeInSeconds() == b.getMaxAgeInSeconds();
+    }
 }
@@ -5,11 +5,18 @@ import com.paypal.core.PayPalHttpClient;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestClient;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
 
 /**
  * Esta clase se encarga de configurar la conexión con la API de PayPal.
  * Inicializa el cliente HTTP de PayPal con las credenciales (client-id y client-secret)
  * y define el entorno (sandbox para desarrollo o live para producción).
+ * También crea las conexiones y el cliente REST compartidos para las llamadas que no cubre el SDK
+ * (token OAuth, payouts, webhooks y la creación asíncrona de órdenes).
  */
 @Configuration
 public class PayPalConfig {
@@ -23,6 +30,12 @@ public class PayPalConfig {
     @Value("${paypal.mode}")
     private String mode;
 
+    @Value("${paypal.http.timeout-conexion-ms:5000}")
+    private int timeoutConexionMs;
+
+    @Value("${paypal.http.timeout-lectura-ms:30000}")
+    private int timeoutLecturaMs;
+
     @Bean
     public PayPalHttpClient payPalHttpClient() {
         System.out.println("=== Configurando PayPal Client ===");
@@ -41,6 +54,39 @@ public class PayPalConfig {
             System.out.println("Usando entorno LIVE");
         }
         
-        return new PayPalHttpClient(environment);
+        // Sin tiempos máximos, una conexión colgada con PayPal bloquearía el hilo indefinidamente
+        PayPalHttpClient client = new PayPalHttpClient(environment);
+        client.setConnectTimeout(timeoutConexionMs);
+        client.setReadTimeout(timeoutLecturaMs);
+        return client;
+    }
+
+    // Conexiones HTTP con la API de PayPal, compartidas por el cliente REST y la creación asíncrona de órdenes:
+    // el HttpClient del JDK mantiene abiertas y reutiliza las conexiones TLS
+    @Bean
+    public HttpClient payPalConexiones() {
+        return HttpClient.newBuilder()
+            .connectTimeout(Duration.ofMillis(timeoutConexionMs))
+            .build();
+    }
+
+    // Cliente REST de PayPal compartido por todas las llamadas síncronas (token OAuth, payouts, webhooks),
+    // en lugar de un RestTemplate (y un handshake) nuevo por petición
+    @Bean
+    public RestClient payPalRestClient(HttpClient payPalConexiones) {
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(payPalConexiones);
+        requestFactory.setReadTimeout(Duration.ofMillis(timeoutLecturaMs));
+        
+        return RestClient.builder()
+            .baseUrl(urlApi(mode))
+            .requestFactory(requestFactory)
+            .build();
+    }
+
+    // URL base de la API REST de PayPal según el modo (sandbox o live)
+    public static String urlApi(String mode) {
+        return "sandbox".equalsIgnoreCase(mode)
+            ? "https://api-m.sandbox.paypal.com"
+            : "https://api-m.paypal.com";
     }
 }
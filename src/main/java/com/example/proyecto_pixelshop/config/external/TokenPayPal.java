@@ -0,0 +1,115 @@
+package com.example.proyecto_pixelshop.config.external;
+
+import com.example.proyecto_pixelshop.config.resiliencia.RegistroResiliencia;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Token OAuth de la API REST de PayPal (client credentials), cacheado hasta poco antes de que caduque.
+ * Solo un hilo lo pide a la vez: mientras se renueva, los demás siguen usando el actual si aún es válido
+ * o esperan al nuevo si ya ha caducado, así un lote de payouts hace una sola petición de token.
+ */
+@Component
+public class TokenPayPal {
+
+    @Autowired private RestClient payPalRestClient;
+    @Autowired private RegistroResiliencia registroResiliencia;
+
+    @Value("${paypal.client-id}")
+    private String clientId;
+
+    @Value("${paypal.client-secret}")
+    private String clientSecret;
+
+    // Antelación con la que se renueva el token antes de que caduque
+    @Value("${paypal.token.margen-renovacion-segundos:300}")
+    private long margenRenovacionSegundos;
+
+    private record Token(String valor, Instant caducidad) {}
+
+    private final AtomicReference<Token> actual = new AtomicReference<>();
+    private final ReentrantLock renovacion = new ReentrantLock();
+
+    // Devuelve un token válido (solo llama a PayPal si no hay ninguno o está a punto de caducar)
+    public String obtener() throws IOException {
+        Token token = actual.get();
+        Instant ahora = Instant.now();
+        if (token != null && ahora.isBefore(token.caducidad().minusSeconds(margenRenovacionSegundos))) {
+            return token.valor();
+        }
+
+        boolean vigente = token != null && ahora.isBefore(token.caducidad());
+        if (vigente) {
+            // Renovación anticipada: si otro hilo ya la está haciendo, se sigue con el token actual
+            if (!renovacion.tryLock()) {
+                return token.valor();
+            }
+        } else {
+            renovacion.lock();
+        }
+        try {
+            // Otro hilo puede haberlo renovado mientras se esperaba el cerrojo
+            Token renovado = actual.get();
+            if (renovado != null && renovado != token) {
+                return renovado.valor();
+            }
+            Token nuevo = solicitar();
+            actual.set(nuevo);
+            return nuevo.valor();
+        } catch (IOException e) {
+            if (vigente) {
+                System.err.println("No se pudo renovar el token de PayPal, se sigue usando el actual: " + e.getMessage());
+                return token.valor();
+            }
+            throw e;
+        } finally {
+            renovacion.unlock();
+        }
+    }
+
+    // Descarta el token si PayPal lo ha rechazado (401), para que la siguiente llamada pida otro
+    public void invalidar(String valor) {
+        Token token = actual.get();
+        if (token != null && token.valor().equals(valor)) {
+            actual.compareAndSet(token, null);
+        }
+    }
+
+    // ========== MÉTODOS PRIVADOS ==========
+
+    // Pedir un token se puede repetir sin efectos, así que pasa por la dependencia de PayPal con reintentos
+    @SuppressWarnings("unchecked")
+    private Token solicitar() throws IOException {
+        try {
+            Map<String, Object> respuesta = registroResiliencia.obtener(RegistroResiliencia.PAYPAL)
+                .ejecutarConReintentos(plazo -> payPalRestClient.post()
+                    .uri("/v1/oauth2/token")
+                    .headers(headers -> headers.setBasicAuth(clientId, clientSecret))
+                    .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                    .body("grant_type=client_credentials")
+                    .retrieve()
+                    .body(Map.class));
+
+            if (respuesta == null || respuesta.get("access_token") == null) {
+                throw new IOException("No se pudo obtener token de acceso");
+            }
+            long segundos = respuesta.get("expires_in") instanceof Number n ? n.longValue() : 0;
+            System.out.println("Token de PayPal renovado (válido " + Duration.ofSeconds(segundos).toMinutes() + " min)");
+            return new Token((String) respuesta.get("access_token"), Instant.now().plusSeconds(segundos));
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Error al obtener token de PayPal: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.proyecto_pixelshop.config.resiliencia;
+
+/**
+ * Parámetros de resiliencia de una dependencia externa (se leen de resiliencia.<nombre>.* en application.properties)
+ * @param maxConcurrentes Bulkhead: llamadas simultáneas como máximo
+ * @param esperaPermisoMs Tiempo máximo esperando un hueco en el bulkhead antes de rechazar la llamada
+ * @param timeoutMs Tiempo máximo de cada intento (se reduce si el plazo de quien llama es menor)
+ * @param reintentos Reintentos como máximo en las operaciones que se pueden repetir
+ * @param esperaReintentoMs Espera antes del primer reintento (se duplica en cada uno, con jitter)
+ * @param esperaReintentoMaxMs Espera máxima entre reintentos
+ * @param ventana Llamadas que tiene en cuenta el circuit breaker
+ * @param minimoLlamadas Llamadas necesarias en la ventana antes de poder abrirse
+ * @param porcentajeFallos Porcentaje de fallos en la ventana a partir del que se abre
+ * @param segundosAbierto Tiempo que permanece abierto antes de la llamada de prueba
+ */
+public record ConfiguracionDependencia(
+    int maxConcurrentes,
+    long esperaPermisoMs,
+    long timeoutMs,
+    int reintentos,
+    long esperaReintentoMs,
+    long esperaReintentoMaxMs,
+    int ventana,
+    int minimoLlamadas,
+    int porcentajeFallos,
+    long segundosAbierto
+) {}
@@ -0,0 +1,129 @@
+package com.example.proyecto_pixelshop.config.resiliencia;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Circuit breaker para las llamadas a un servicio externo.
+ * Guarda el resultado de las últimas llamadas (ventana) y, si fallan al menos el porcentaje indicado,
+ * se abre: durante tiempoAbierto las llamadas se rechazan al momento en lugar de esperar al servicio caído.
+ * Pasado ese tiempo deja pasar una sola llamada de prueba (semiabierto): si va bien se cierra y si falla se vuelve a abrir.
+ * Solo deben contarse como fallos los que indican que el servicio no está disponible (timeouts, errores 5xx...),
+ * no los errores de la propia petición.
+ */
+public class Cortocircuito {
+
+    public enum Estado { CERRADO, ABIERTO, SEMIABIERTO }
+
+    private final String nombre;
+    private final int minimoLlamadas;
+    private final int porcentajeFallos;
+    private final Duration tiempoAbierto;
+
+    // Resultados de las últimas llamadas en un buffer circular (true = fallo)
+    private final boolean[] ventana;
+    private int posicion;
+    private int llamadas;
+    private int fallos;
+
+    private Estado estado = Estado.CERRADO;
+    private Instant abiertoHasta;
+    private boolean pruebaEnCurso;
+
+    public Cortocircuito(String nombre, int tamanioVentana, int minimoLlamadas, int porcentajeFallos, Duration tiempoAbierto) {
+        this.nombre = nombre;
+        this.ventana = new boolean[tamanioVentana];
+        this.minimoLlamadas = Math.min(minimoLlamadas, tamanioVentana);
+        this.porcentajeFallos = porcentajeFallos;
+        this.tiempoAbierto = tiempoAbierto;
+    }
+
+    // Indica si se puede hacer la llamada; si devuelve true hay que registrar después el éxito o el fallo
+    public synchronized boolean permitir() {
+        if (estado == Estado.ABIERTO) {
+            if (Instant.now().isBefore(abiertoHasta)) {
+                return false;
+            }
+            estado = Estado.SEMIABIERTO;
+            pruebaEnCurso = false;
+        }
+        if (estado == Estado.SEMIABIERTO) {
+            if (pruebaEnCurso) {
+                return false;
+            }
+            pruebaEnCurso = true;
+        }
+        return true;
+    }
+
+    public synchronized void registrarExito() {
+        if (estado == Estado.SEMIABIERTO) {
+            System.out.println("Circuit breaker " + nombre + ": cerrado, el servicio vuelve a responder");
+            estado = Estado.CERRADO;
+            reiniciarVentana();
+            return;
+        }
+        registrar(false);
+    }
+
+    public synchronized void registrarFallo() {
+        if (estado == Estado.SEMIABIERTO) {
+            abrir();
+            return;
+        }
+        registrar(true);
+        if (estado == Estado.CERRADO && llamadas >= minimoLlamadas && fallos * 100 >= porcentajeFallos * llamadas) {
+            abrir();
+        }
+    }
+
+    // Una llamada permitida que no llegó a hacerse (por ejemplo, la petición era incorrecta): libera la prueba en curso
+    public synchronized void registrarIgnorada() {
+        if (estado == Estado.SEMIABIERTO) {
+            pruebaEnCurso = false;
+        }
+    }
+
+    public synchronized Estado getEstado() {
+        if (estado == Estado.ABIERTO && !Instant.now().isBefore(abiertoHasta)) {
+            return Estado.SEMIABIERTO;
+        }
+        return estado;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    // ========== MÉTODOS PRIVADOS ==========
+
+    private void registrar(boolean fallo) {
+        if (llamadas == ventana.length) {
+            if (ventana[posicion]) {
+                fallos--;
+            }
+        } else {
+            llamadas++;
+        }
+        ventana[posicion] = fallo;
+        if (fallo) {
+            fallos++;
+        }
+        posicion = (posicion + 1) % ventana.length;
+    }
+
+    private void abrir() {
+        System.err.println("Circuit breaker " + nombre + ": abierto durante " + tiempoAbierto.toSeconds()
+            + " s (" + fallos + " fallos en las últimas " + llamadas + " llamadas)");
+        estado = Estado.ABIERTO;
+        abiertoHasta = Instant.now().plus(tiempoAbierto);
+        pruebaEnCurso = false;
+        reiniciarVentana();
+    }
+
+    private void reiniciarVentana() {
+        posicion = 0;
+        llamadas = 0;
+        fallos = 0;
+    }
+}
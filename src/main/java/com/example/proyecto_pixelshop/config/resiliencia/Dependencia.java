@@ -0,0 +1,413 @@
+package com.example.proyecto_pixelshop.config.resiliencia;
+
+import com.azure.storage.blob.models.BlobStorageException;
+import com.example.proyecto_pixelshop.model.dto.EstadoDependencia;
+import jakarta.mail.SendFailedException;
+import org.springframework.mail.MailParseException;
+import org.springframework.mail.MailPreparationException;
+import org.springframework.mail.MailSendException;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Llamadas a una dependencia externa (PayPal, Azure, SMTP...) con:
+ * - bulkhead: un máximo de llamadas simultáneas, para que una dependencia lenta no ocupe todos los hilos
+ * - plazo: cada intento tiene un tiempo máximo, que se recorta al plazo de quien llama (ver Plazo). Se hace cumplir
+ *   aunque el cliente no lo admita: el intento se ejecuta en otro hilo y quien llama deja de esperarlo al agotarse
+ * - reintentos con espera exponencial y jitter, solo en las operaciones que se pueden repetir
+ * - circuit breaker: si la dependencia está fallando se rechaza la llamada al momento
+ * - métricas: llamadas, fallos, rechazos y latencias recientes
+ * Los errores de la propia petición (4xx, direcciones de email no válidas...) no cuentan como fallos de la dependencia
+ * ni se reintentan. Las excepciones de la operación se propagan tal cual; si se rechaza la llamada se lanza
+ * DependenciaNoDisponibleException.
+ */
+public class Dependencia {
+
+    // Operación que recibe el tiempo máximo que tiene (para pasarlo al cliente HTTP/SDK si lo admite)
+    @FunctionalInterface
+    public interface Operacion<T> {
+        T ejecutar(Duration plazo) throws Exception;
+    }
+
+    // Latencias que se guardan para calcular los percentiles
+    private static final int TAMANIO_MUESTRA = 1024;
+
+    private final String nombre;
+    private final ConfiguracionDependencia config;
+    private final Cortocircuito cortocircuito;
+    private final Semaphore permisos;
+
+    // Hilos virtuales para los intentos síncronos; los acota el bulkhead, porque cada intento tiene su hueco hasta que termina
+    private final ExecutorService ejecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final LongAdder llamadas = new LongAdder();
+    private final LongAdder exitos = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+    private final LongAdder erroresCliente = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder rechazadas = new LongAdder();
+    private final LongAdder reintentos = new LongAdder();
+
+    // Buffer circular con las últimas latencias (ms)
+    private final long[] latencias = new long[TAMANIO_MUESTRA];
+    private int posicionLatencia;
+    private int muestras;
+    private long latenciaMax;
+
+    public Dependencia(String nombre, ConfiguracionDependencia config) {
+        this.nombre = nombre;
+        this.config = config;
+        this.cortocircuito = new Cortocircuito(nombre, config.ventana(), config.minimoLlamadas(),
+            config.porcentajeFallos(), Duration.ofSeconds(config.segundosAbierto()));
+        this.permisos = new Semaphore(config.maxConcurrentes());
+    }
+
+    // Una sola vez: para operaciones que no se deben repetir (crear un pago, enviar emails...)
+    public <T> T ejecutar(Operacion<T> operacion) throws IOException {
+        return intentar(operacion);
+    }
+
+    // Una sola vez y en el hilo de quien llama, sin cortar la operación al agotarse el plazo: para clientes con sus propios
+    // timeouts de socket cuyo trabajo no se detiene al interrumpir el hilo (JavaMail). Cortarlo solo haría creer que no se
+    // hizo algo que sigue haciéndose en segundo plano. Pasarse del plazo cuenta como timeout en el circuit breaker
+    public <T> T ejecutarSinCorte(Operacion<T> operacion) throws IOException {
+        Duration plazo = entrar(true);
+        long inicio = System.nanoTime();
+        Instant anterior = Plazo.establecer(Instant.now().plus(plazo));
+        try {
+            T resultado = operacion.ejecutar(plazo);
+            registrarResultado(inicio, plazo, null);
+            return resultado;
+        } catch (Exception e) {
+            registrarResultado(inicio, plazo, e);
+            throw propagar(e);
+        } finally {
+            Plazo.restaurar(anterior);
+            permisos.release();
+        }
+    }
+
+    // Con reintentos ante fallos de la dependencia: solo para operaciones idempotentes
+    public <T> T ejecutarConReintentos(Operacion<T> operacion) throws IOException {
+        int intento = 0;
+        while (true) {
+            try {
+                return intentar(operacion);
+            } catch (IOException | RuntimeException e) {
+                if (intento >= config.reintentos() || e instanceof DependenciaNoDisponibleException || esErrorDelCliente(e)) {
+                    throw e;
+                }
+                long espera = esperaReintento(intento);
+                Duration restante = Plazo.restante();
+                if (restante != null && restante.toMillis() <= espera) {
+                    throw e; // No queda plazo para otro intento
+                }
+                intento++;
+                reintentos.increment();
+                try {
+                    Thread.sleep(espera);
+                } catch (InterruptedException interrupcion) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    // Versión asíncrona (una sola vez): nunca bloquea a quien llama, si el bulkhead está lleno se rechaza al momento
+    public <T> CompletableFuture<T> ejecutarAsync(Function<Duration, CompletableFuture<T>> operacion) {
+        Duration plazo;
+        try {
+            plazo = entrar(false);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        long inicio = System.nanoTime();
+        CompletableFuture<T> futuro;
+        try {
+            futuro = operacion.apply(plazo);
+        } catch (RuntimeException e) {
+            futuro = CompletableFuture.failedFuture(e);
+        }
+        return futuro
+            .orTimeout(plazo.toMillis(), TimeUnit.MILLISECONDS)
+            .whenComplete((resultado, error) -> {
+                permisos.release();
+                registrarResultado(inicio, plazo, error != null ? causaReal(error) : null);
+            });
+    }
+
+    // Abre un flujo de lectura (descargas): el hueco del bulkhead se mantiene hasta que se cierra el flujo,
+    // así el máximo de llamadas simultáneas también limita las transferencias en curso. El plazo solo cuenta para abrirlo
+    public InputStream abrirFlujo(Operacion<InputStream> operacion) throws IOException {
+        Duration plazo = entrar(true);
+        long inicio = System.nanoTime();
+        Instant anterior = Plazo.establecer(Instant.now().plus(plazo));
+        InputStream flujo;
+        try {
+            flujo = operacion.ejecutar(plazo);
+            registrarResultado(inicio, plazo, null);
+        } catch (Exception e) {
+            permisos.release();
+            registrarResultado(inicio, plazo, e);
+            throw propagar(e);
+        } finally {
+            Plazo.restaurar(anterior);
+        }
+        AtomicBoolean cerrado = new AtomicBoolean(false);
+        return new FilterInputStream(flujo) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    if (cerrado.compareAndSet(false, true)) {
+                        permisos.release();
+                    }
+                }
+            }
+        };
+    }
+
+    // false mientras el circuit breaker está abierto (para no empezar trabajo que va a fallar)
+    public boolean disponible() {
+        return cortocircuito.getEstado() != Cortocircuito.Estado.ABIERTO;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public EstadoDependencia obtenerEstado() {
+        long[] copia;
+        long maxima;
+        synchronized (latencias) {
+            copia = Arrays.copyOf(latencias, muestras);
+            maxima = latenciaMax;
+        }
+        Arrays.sort(copia);
+        long media = copia.length > 0 ? (long) Arrays.stream(copia).average().orElse(0) : 0;
+        return new EstadoDependencia(nombre, cortocircuito.getEstado().name(),
+            config.maxConcurrentes() - permisos.availablePermits(), config.maxConcurrentes(),
+            llamadas.sum(), exitos.sum(), fallos.sum(), erroresCliente.sum(), timeouts.sum(), rechazadas.sum(),
+            reintentos.sum(), media, percentil(copia, 50), percentil(copia, 95), percentil(copia, 99), maxima);
+    }
+
+    // ========== MÉTODOS PRIVADOS ==========
+
+    // El intento se ejecuta en otro hilo para que el plazo se cumpla aunque el cliente (por ejemplo, el SDK de PayPal)
+    // no admita un tiempo máximo por petición. Al agotarse se interrumpe y quien llama recibe el timeout; el hueco del
+    // bulkhead se libera cuando el intento termina de verdad, así el máximo de llamadas simultáneas sigue siendo real.
+    // Si el plazo se agota antes de que el intento empiece, el hueco lo libera quien llama: el que reclama el intento
+    // primero (el hilo que lo ejecuta o quien deja de esperarlo) es el único que libera el hueco
+    private <T> T intentar(Operacion<T> operacion) throws IOException {
+        Duration plazo = entrar(true);
+        long inicio = System.nanoTime();
+        Instant limite = Instant.now().plus(plazo);
+        AtomicBoolean reclamado = new AtomicBoolean(false);
+        Future<T> futuro;
+        try {
+            futuro = ejecutor.submit(() -> {
+                if (!reclamado.compareAndSet(false, true)) {
+                    return null; // Abandonado antes de empezar: quien llama ya ha liberado el hueco
+                }
+                Instant anterior = Plazo.establecer(limite); // Las llamadas anidadas heredan el plazo
+                try {
+                    return operacion.ejecutar(plazo);
+                } finally {
+                    Plazo.restaurar(anterior);
+                    permisos.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            permisos.release();
+            throw new DependenciaNoDisponibleException(nombre + ": no se ha podido iniciar la llamada");
+        }
+
+        try {
+            T resultado = futuro.get(plazo.toMillis(), TimeUnit.MILLISECONDS);
+            registrarResultado(inicio, plazo, null);
+            return resultado;
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            registrarResultado(inicio, plazo, causa);
+            if (causa instanceof Error error) {
+                throw error;
+            }
+            throw propagar((Exception) causa);
+        } catch (TimeoutException e) {
+            abandonar(futuro, reclamado);
+            registrarResultado(inicio, plazo, e);
+            throw new IOException(nombre + ": sin respuesta en " + plazo.toMillis() + " ms", e);
+        } catch (InterruptedException e) {
+            abandonar(futuro, reclamado);
+            registrarResultado(inicio, plazo, e);
+            throw propagar(e);
+        }
+    }
+
+    // Deja de esperar un intento: lo interrumpe si está en curso y, si ni siquiera había empezado, libera su hueco
+    private void abandonar(Future<?> futuro, AtomicBoolean reclamado) {
+        futuro.cancel(true);
+        if (reclamado.compareAndSet(false, true)) {
+            permisos.release();
+        }
+    }
+
+    // Comprueba plazo, circuit breaker y bulkhead; si se puede llamar, ocupa un hueco y devuelve el tiempo máximo
+    private Duration entrar(boolean esperarPermiso) throws DependenciaNoDisponibleException {
+        Duration plazo = Duration.ofMillis(config.timeoutMs());
+        Duration restante = Plazo.restante();
+        if (restante != null && restante.compareTo(plazo) < 0) {
+            if (restante.isNegative() || restante.isZero()) {
+                rechazadas.increment();
+                throw new DependenciaNoDisponibleException(nombre + ": plazo agotado antes de llamar");
+            }
+            plazo = restante;
+        }
+
+        if (!cortocircuito.permitir()) {
+            rechazadas.increment();
+            throw new DependenciaNoDisponibleException(nombre + " no está disponible en este momento (circuit breaker abierto)");
+        }
+
+        boolean permiso;
+        try {
+            permiso = esperarPermiso
+                ? permisos.tryAcquire(Math.min(config.esperaPermisoMs(), plazo.toMillis()), TimeUnit.MILLISECONDS)
+                : permisos.tryAcquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            permiso = false;
+        }
+        if (!permiso) {
+            cortocircuito.registrarIgnorada();
+            rechazadas.increment();
+            throw new DependenciaNoDisponibleException(nombre + ": demasiadas llamadas simultáneas");
+        }
+        llamadas.increment();
+        return plazo;
+    }
+
+    // Actualiza métricas y circuit breaker. Una llamada que termina bien pero pasado su plazo cuenta como timeout
+    private void registrarResultado(long inicioNanos, Duration plazo, Throwable error) {
+        long ms = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicioNanos);
+        synchronized (latencias) {
+            latencias[posicionLatencia] = ms;
+            posicionLatencia = (posicionLatencia + 1) % TAMANIO_MUESTRA;
+            muestras = Math.min(muestras + 1, TAMANIO_MUESTRA);
+            latenciaMax = Math.max(latenciaMax, ms);
+        }
+
+        if (error == null) {
+            if (ms > plazo.toMillis()) {
+                timeouts.increment();
+                cortocircuito.registrarFallo();
+            } else {
+                exitos.increment();
+                cortocircuito.registrarExito();
+            }
+        } else if (esErrorDelCliente(error)) {
+            // La dependencia ha respondido: está disponible aunque la petición no fuera válida
+            erroresCliente.increment();
+            cortocircuito.registrarExito();
+        } else {
+            fallos.increment();
+            if (esTimeout(error)) {
+                timeouts.increment();
+            }
+            cortocircuito.registrarFallo();
+        }
+    }
+
+    // Espera exponencial con jitter: entre la mitad y el total de base * 2^intento (sin pasar del máximo)
+    private long esperaReintento(int intento) {
+        long tope = Math.min(config.esperaReintentoMaxMs(), config.esperaReintentoMs() << Math.min(intento, 20));
+        long mitad = Math.max(tope / 2, 1);
+        return mitad + ThreadLocalRandom.current().nextLong(mitad + 1);
+    }
+
+    // Las RuntimeException se relanzan tal cual (los servicios ya las tratan); el resto como IOException
+    private IOException propagar(Exception e) {
+        if (e instanceof RuntimeException r) {
+            throw r;
+        }
+        if (e instanceof IOException io) {
+            return io;
+        }
+        if (e instanceof InterruptedException) {
+            Thread.currentThread().interrupt();
+        }
+        return new IOException(nombre + ": " + e.getMessage(), e);
+    }
+
+    // Error de la petición (4xx salvo 408 y 429, email mal formado...): reintentar no serviría de nada
+    static boolean esErrorDelCliente(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            Integer estado = null;
+            if (t instanceof RestClientResponseException r) {
+                estado = r.getStatusCode().value();
+            } else if (t instanceof com.paypal.http.exceptions.HttpException h) {
+                estado = h.statusCode();
+            } else if (t instanceof BlobStorageException b) {
+                estado = b.getStatusCode();
+            } else if (t instanceof MailParseException || t instanceof MailPreparationException) {
+                return true;
+            } else if (t instanceof MailSendException m) {
+                // Solo si todos los fallos son de destinatarios rechazados (no de conexión o autenticación)
+                Exception[] causas = m.getMessageExceptions();
+                return causas.length > 0 && Arrays.stream(causas).allMatch(c -> c instanceof SendFailedException);
+            }
+            if (estado != null) {
+                return estado >= 400 && estado < 500 && estado != 408 && estado != 429;
+            }
+        }
+        return false;
+    }
+
+    private static boolean esTimeout(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            if (t instanceof TimeoutException || t instanceof SocketTimeoutException || t instanceof HttpTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Throwable causaReal(Throwable error) {
+        if ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            return error.getCause();
+        }
+        return error;
+    }
+
+    private static long percentil(long[] ordenadas, int percentil) {
+        if (ordenadas.length == 0) {
+            return 0;
+        }
+        int indice = (int) Math.ceil(percentil / 100.0 * ordenadas.length) - 1;
+        return ordenadas[Math.max(0, Math.min(indice, ordenadas.length - 1))];
+    }
+}
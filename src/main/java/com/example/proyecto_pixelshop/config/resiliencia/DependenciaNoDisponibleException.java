@@ -0,0 +1,16 @@
+package com.example.proyecto_pixelshop.config.resiliencia;
+
+import java.io.IOException;
+
+/**
+ * La llamada no se ha hecho: circuit breaker abierto, bulkhead lleno o plazo agotado.
+ * Es una IOException para que los servicios que ya la declaran (PayPal, Azure...) la propaguen sin cambios
+ */
+public class DependenciaNoDisponibleException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public DependenciaNoDisponibleException(String mensaje) {
+        super(mensaje);
+    }
+}
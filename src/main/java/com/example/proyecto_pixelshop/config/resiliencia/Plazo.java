@@ -0,0 +1,51 @@
+package com.example.proyecto_pixelshop.config.resiliencia;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Plazo (deadline) de la operación en curso en este hilo.
+ * Cada llamada a una dependencia recibe como tiempo máximo lo que quede del plazo de quien la hace, y las llamadas
+ * anidadas heredan el suyo: así una petición con 10 s no lanza un reintento que necesitaría 30.
+ * Uso: Plazo.Limite limite = Plazo.limitar(Duration.ofSeconds(10)); try { ... } finally { limite.close(); }
+ */
+public final class Plazo {
+
+    private static final ThreadLocal<Instant> ACTUAL = new ThreadLocal<>();
+
+    private Plazo() {}
+
+    // Restaura el plazo anterior al cerrarse
+    public interface Limite extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    // Limita el tiempo del bloque (sin ampliar un plazo más corto que ya hubiera)
+    public static Limite limitar(Duration duracion) {
+        Instant anterior = establecer(Instant.now().plus(duracion));
+        return () -> restaurar(anterior);
+    }
+
+    // Tiempo que queda del plazo actual; null si no hay plazo
+    public static Duration restante() {
+        Instant limite = ACTUAL.get();
+        return limite != null ? Duration.between(Instant.now(), limite) : null;
+    }
+
+    // ========== USO INTERNO (Dependencia) ==========
+
+    static Instant establecer(Instant limite) {
+        Instant anterior = ACTUAL.get();
+        ACTUAL.set(anterior != null && anterior.isBefore(limite) ? anterior : limite);
+        return anterior;
+    }
+
+    static void restaurar(Instant anterior) {
+        if (anterior == null) {
+            ACTUAL.remove();
+        } else {
+            ACTUAL.set(anterior);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.proyecto_pixelshop.config.resiliencia;
+
+import com.example.proyecto_pixelshop.model.dto.EstadoDependencia;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Registro central de las dependencias externas y su configuración de resiliencia.
+ * Cada dependencia se configura con resiliencia.<nombre>.* y lo que no se indique se toma de resiliencia.defecto.*
+ */
+@Component
+public class RegistroResiliencia {
+
+    public static final String PAYPAL = "paypal";
+    public static final String PAYPAL_CHECKOUT = "paypal-checkout";
+    public static final String AZURE_BLOB = "azure-blob";
+    public static final String SMTP = "smtp";
+    public static final String DESCARGAS = "descargas";
+
+    @Autowired private Environment entorno;
+
+    private final Map<String, Dependencia> dependencias = new ConcurrentSkipListMap<>();
+
+    // Dependencia por nombre (se crea la primera vez con su configuración)
+    public Dependencia obtener(String nombre) {
+        return dependencias.computeIfAbsent(nombre, n -> new Dependencia(n, leerConfiguracion(n)));
+    }
+
+    // Estado del circuit breaker y métricas de todas las dependencias usadas
+    public List<EstadoDependencia> obtenerEstado() {
+        return dependencias.values().stream().map(Dependencia::obtenerEstado).toList();
+    }
+
+    // ========== MÉTODOS PRIVADOS ==========
+
+    private ConfiguracionDependencia leerConfiguracion(String nombre) {
+        return new ConfiguracionDependencia(
+            (int) valor(nombre, "max-concurrentes", 20),
+            valor(nombre, "espera-permiso-ms", 100),
+            valor(nombre, "timeout-ms", 10000),
+            (int) valor(nombre, "reintentos", 2),
+            valor(nombre, "espera-reintento-ms", 200),
+            valor(nombre, "espera-reintento-max-ms", 2000),
+            (int) valor(nombre, "cortocircuito.ventana", 20),
+            (int) valor(nombre, "cortocircuito.minimo-llamadas", 10),
+            (int) valor(nombre, "cortocircuito.porcentaje-fallos", 50),
+            valor(nombre, "cortocircuito.segundos-abierto", 30));
+    }
+
+    private long valor(String nombre, String clave, long porDefecto) {
+        Long general = entorno.getProperty("resiliencia.defecto." + clave, Long.class, porDefecto);
+        return entorno.getProperty("resiliencia." + nombre + "." + clave, Long.class, general);
+    }
+}
@@ -3,10 +3,9 @@ package com.example.proyecto_pixelshop.config.security;
 import com.example.proyecto_pixelshop.model.enums.Rol;
 import com.example.proyecto_pixelshop.model.Usuario;
 import com.example.proyecto_pixelshop.repository.UsuarioRepository;
-import com.example.proyecto_pixelshop.service.interfaz.IServicioEmail;
+import com.example.proyecto_pixelshop.service.interfaz.IServicioUsuario;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.oauth2.client.userinfo.DefaultOAuth2UserService;
 import org.springframework.security.oauth2.client.userinfo.OAuth2UserRequest;
 import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
@@ -24,8 +23,7 @@ import java.util.UUID;
 public class GoogleOAuth2UserService extends DefaultOAuth2UserService {
 
     @Autowired private UsuarioRepository usuarioRepository;
-    @Autowired private IServicioEmail emailService;
-    @Autowired private PasswordEncoder passwordEncoder;
+    @Autowired private IServicioUsuario usuarioService;
 
     @Override
     public OAuth2User loadUser(OAuth2UserRequest userRequest) throws OAuth2AuthenticationException {
@@ -48,22 +46,12 @@ public class GoogleOAuth2UserService extends DefaultOAuth2UserService {
             usuario = new Usuario();
             usuario.setEmail(email);
             usuario.setNombre(nombre);
-            usuario.setPassword(passwordEncoder.encode(randomPassword));
+            usuario.setPassword(randomPassword); // El servicio la encripta
             usuario.setRol(Rol.CLIENTE);
             usuario.setIdGoogle(googleId);
-            usuario.setActivo(true);
             
-            usuarioRepository.save(usuario);
-            
-            // Enviar email de bienvenida
-            try {
-                System.out.println(" [OAuth2] Intentando enviar email de bienvenida a: " + usuario.getEmail());
-                emailService.enviarEmailBienvenida(usuario);
-                System.out.println(" [OAuth2] Email de bienvenida enviado correctamente");
-            } catch (Exception e) {
-                System.err.println(" [OAuth2] Error al enviar email de bienvenida: " + e.getMessage());
-                e.printStackTrace();
-            }
+            // Guardar y poner en cola el email de bienvenida (el primer login no espera al SMTP)
+            usuario = usuarioService.registrarConBienvenida(usuario);
             
             System.out.println(" Nuevo usuario creado vía Google OAuth2: " + email + " (ID: " + usuario.getId() + ")");
         } else {
@@ -25,6 +25,8 @@ public class SecurityConfig {
         http
             .authorizeHttpRequests(auth -> auth
                 .requestMatchers("/login", "/register", "/css/**", "/js/**", "/images/**", "/static/**").permitAll()
+                // Webhook de PayPal: lo llama PayPal sin sesión; la autenticidad se comprueba con la firma del evento
+                .requestMatchers("/paypal/webhook").permitAll()
                 .requestMatchers("/", "/juego/**", "/buscar").authenticated()
                 //  CRÍTICO: Solo CLIENTE y PROVEEDOR pueden comprar
                 .requestMatchers("/compra/**").hasAnyRole("CLIENTE", "PROVEEDOR")
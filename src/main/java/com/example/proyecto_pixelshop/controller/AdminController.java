@@ -1,8 +1,10 @@
 package com.example.proyecto_pixelshop.controller;
 
+import com.example.proyecto_pixelshop.config.resiliencia.RegistroResiliencia;
 import com.example.proyecto_pixelshop.model.Usuario;
 import com.example.proyecto_pixelshop.model.Compra;
 import com.example.proyecto_pixelshop.model.TransaccionPlataforma;
+import com.example.proyecto_pixelshop.model.dto.EstadoDependencia;
 import com.example.proyecto_pixelshop.model.enums.Rol;
 import com.example.proyecto_pixelshop.service.interfaz.*;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,6 +17,7 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 import java.util.List;
+import java.util.Map;
 
 @Controller
 @RequestMapping("/admin")
@@ -25,6 +28,11 @@ public class AdminController {
     @Autowired private IServicioCompra compraService;
     @Autowired private IServicioTransaccionPlataforma transaccionPlataformaService;
     @Autowired private IServicioJuego juegoService;
+    @Autowired private IServicioBusqueda busquedaService;
+    @Autowired private IServicioBandejaSalida bandejaSalidaService;
+    @Autowired private IServicioLiquidacionProveedores liquidacionService;
+    @Autowired private IServicioWebhookPayPal webhookPayPalService;
+    @Autowired private RegistroResiliencia registroResiliencia;
     
     @GetMapping("/usuarios")
     public String listarUsuarios(Model model) {
@@ -82,4 +90,69 @@ public class AdminController {
         
         return "admin/movimientos";
     }
+    
+    // Estadísticas de la caché del catálogo (para comprobar su comportamiento bajo carga)
+    @GetMapping("/cache/catalogo")
+    @ResponseBody
+    public Map<String, Long> estadisticasCacheCatalogo() {
+        return juegoService.obtenerEstadisticasCache();
+    }
+    
+    // Estadísticas del índice de búsqueda
+    @GetMapping("/buscador")
+    @ResponseBody
+    public Map<String, Long> estadisticasBuscador() {
+        return busquedaService.obtenerEstadisticas();
+    }
+    
+    // Reconstruye el índice de búsqueda desde la BD (por si se modificaron datos fuera de la aplicación)
+    @PostMapping("/buscador/reconstruir")
+    @ResponseBody
+    public Map<String, Long> reconstruirBuscador() {
+        busquedaService.reconstruir();
+        return busquedaService.obtenerEstadisticas();
+    }
+    
+    // Estado de la bandeja de salida de emails (pendientes, enviados, fallidos...)
+    @GetMapping("/emails")
+    @ResponseBody
+    public Map<String, Object> estadisticasEmails() {
+        return bandejaSalidaService.obtenerEstadisticas();
+    }
+    
+    // Vuelve a poner en cola los emails que agotaron sus reintentos (por ejemplo, tras arreglar la configuración SMTP)
+    @PostMapping("/emails/reintentar-fallidos")
+    @ResponseBody
+    public Map<String, Object> reintentarEmailsFallidos() {
+        bandejaSalidaService.reintentarFallidos();
+        return bandejaSalidaService.obtenerEstadisticas();
+    }
+    
+    // Lanza la liquidación de ganancias a proveedores sin esperar a la ejecución nocturna
+    @PostMapping("/pagos/liquidar")
+    @ResponseBody
+    public Map<String, Integer> liquidarPagosProveedores() {
+        return Map.of("enviados", liquidacionService.liquidarPendientes());
+    }
+    
+    // Consulta en PayPal el resultado de los lotes de pagos en proceso
+    @PostMapping("/pagos/conciliar")
+    @ResponseBody
+    public Map<String, Integer> conciliarPagosProveedores() {
+        return Map.of("resueltos", liquidacionService.conciliar());
+    }
+    
+    // Estado de los eventos recibidos por el webhook de PayPal (pendientes, procesados, fallidos...)
+    @GetMapping("/webhooks")
+    @ResponseBody
+    public Map<String, Object> estadoWebhooks() {
+        return webhookPayPalService.obtenerEstadisticas();
+    }
+    
+    // Estado del circuit breaker, llamadas en curso y latencias de cada dependencia externa (PayPal, Azure, SMTP...)
+    @GetMapping("/resiliencia")
+    @ResponseBody
+    public List<EstadoDependencia> estadoResiliencia() {
+        return registroResiliencia.obtenerEstado();
+    }
 }
@@ -3,7 +3,6 @@ package com.example.proyecto_pixelshop.controller;
 import com.example.proyecto_pixelshop.model.Usuario;
 import com.example.proyecto_pixelshop.model.enums.Rol;
 import com.example.proyecto_pixelshop.service.interfaz.IServicioUsuario;
-import com.example.proyecto_pixelshop.service.interfaz.IServicioEmail;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -25,7 +24,6 @@ import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 public class AuthController {
     
     @Autowired private IServicioUsuario usuarioService;
-    @Autowired private IServicioEmail emailService;
     @Autowired private AuthenticationManager authenticationManager;
     
     // Repositorio para guardar el contexto de seguridad en la sesión HTTP
@@ -63,18 +61,8 @@ public class AuthController {
         // Guardar la contraseña sin encriptar temporalmente (necesaria para autenticación)
         String passwordSinEncriptar = usuario.getPassword();
         
-        // Registrar el usuario (esto encripta la contraseña automáticamente)
-        Usuario usuarioRegistrado = usuarioService.registrar(usuario);
-        
-        // Enviar email de bienvenida
-        try {
-            System.out.println(" Intentando enviar email de bienvenida a: " + usuario.getEmail());
-            emailService.enviarEmailBienvenida(usuario);
-            System.out.println(" Email de bienvenida enviado correctamente");
-        } catch (Exception e) {
-            System.err.println(" Error al enviar email de bienvenida: " + e.getMessage());
-            e.printStackTrace();
-        }
+        // Registrar el usuario (esto encripta la contraseña automáticamente) y poner en cola el email de bienvenida
+        Usuario usuarioRegistrado = usuarioService.registrarConBienvenida(usuario);
         
         // Autenticar automáticamente al usuario después del registro
         try {
@@ -2,10 +2,15 @@ package com.example.proyecto_pixelshop.controller;
 
 import com.example.proyecto_pixelshop.model.Juego;
 import com.example.proyecto_pixelshop.model.Usuario;
-import com.example.proyecto_pixelshop.model.Compra;
+import com.example.proyecto_pixelshop.model.dto.FiltroCatalogo;
+import com.example.proyecto_pixelshop.model.dto.JuegoResumen;
+import com.example.proyecto_pixelshop.model.dto.JuegosAdquiridos;
+import com.example.proyecto_pixelshop.model.dto.PaginaCatalogo;
+import com.example.proyecto_pixelshop.model.dto.Sugerencia;
 import com.example.proyecto_pixelshop.model.enums.Rol;
 import com.example.proyecto_pixelshop.service.interfaz.IServicioJuego;
-import com.example.proyecto_pixelshop.service.interfaz.IServicioCompra;
+import com.example.proyecto_pixelshop.service.interfaz.IServicioPropiedadJuegos;
+import com.example.proyecto_pixelshop.service.interfaz.IServicioSugerencias;
 import com.example.proyecto_pixelshop.service.interfaz.IServicioUsuario;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.Authentication;
@@ -14,41 +19,37 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 @Controller
 public class CatalogoController extends BaseController {
     
     @Autowired private IServicioJuego juegoService;
-    @Autowired private IServicioCompra compraService;
+    @Autowired private IServicioPropiedadJuegos propiedadService;
     @Autowired private IServicioUsuario usuarioService;
+    @Autowired private IServicioSugerencias sugerenciasService;
+    
+    // Juegos por página del catálogo (la siguiente se carga con scroll infinito desde /catalogo/pagina)
+    private static final int TAMANIO_PAGINA = 24;
     
     @GetMapping("/")
-    public String index(Model model, Authentication authentication) {
-        List<Juego> juegos = juegoService.listarActivos();
-        model.addAttribute("juegos", juegos);
+    public String index(@RequestParam(required = false) String genero,
+                        @RequestParam(required = false) Double precioMin,
+                        @RequestParam(required = false) Double precioMax,
+                        Model model, Authentication authentication) {
+        FiltroCatalogo filtro = new FiltroCatalogo(genero, precioMin, precioMax, null);
+        PaginaCatalogo pagina = juegoService.listarCatalogoPaginado(filtro, null, TAMANIO_PAGINA);
+        model.addAttribute("juegos", pagina.juegos());
+        model.addAttribute("siguienteCursor", pagina.siguienteCursor());
+        model.addAttribute("filtro", filtro);
         
-        // Si hay usuario logueado, obtener sus juegos comprados (solo CLIENTE y PROVEEDOR)
-        if (authentication != null && authentication.isAuthenticated() && !"anonymousUser".equals(authentication.getPrincipal().toString())) {
-            String email = obtenerEmailDelUsuario(authentication);
-            Usuario usuario = usuarioService.buscarPorEmail(email).orElse(null);
-            if (usuario != null && usuario.getRol() != Rol.ADMIN) {
-                List<Compra> compras = compraService.listarPorUsuario(usuario);
-                
-                // Obtener IDs de juegos comprados
-                List<Integer> juegosCompradosIds = compras.stream()
-                    .map(c -> c.getJuego().getId())
-                    .collect(Collectors.toList());
-                
-                // Obtener NOMBRES de juegos comprados (para comparar por nombre)
-                List<String> juegosCompradosNombres = compras.stream()
-                    .map(c -> c.getJuego().getTitulo().toLowerCase())
-                    .collect(Collectors.toList());
-                
-                model.addAttribute("juegosComprados", juegosCompradosIds);
-                model.addAttribute("juegosCompradosNombres", juegosCompradosNombres);
-            }
+        // Si hay usuario logueado, marcar sus juegos comprados (solo CLIENTE y PROVEEDOR)
+        Usuario usuario = obtenerUsuarioLogueado(authentication);
+        if (usuario != null && usuario.getRol() != Rol.ADMIN) {
+            model.addAttribute("juegosAdquiridos", propiedadService.obtenerAdquiridos(usuario));
         }
         
         return "catalogo/index";
@@ -63,21 +64,16 @@ public class CatalogoController extends BaseController {
         model.addAttribute("juego", juego);
         
         // Verificar si el usuario ya compró este juego O un juego con el mismo nombre (solo para CLIENTE y PROVEEDOR)
-        if (authentication != null && authentication.isAuthenticated() && !"anonymousUser".equals(authentication.getPrincipal().toString())) {
-            String email = obtenerEmailDelUsuario(authentication);
-            Usuario usuario = usuarioService.buscarPorEmail(email).orElse(null);
-            if (usuario != null) {
-                // Los ADMIN nunca pueden "haber comprado" porque no pueden comprar
-                boolean yaComprado = false;
-                if (usuario.getRol() != Rol.ADMIN) {
-                    // Verificar si compró este juego específico O un juego con el mismo nombre
-                    List<Compra> compras = compraService.listarPorUsuario(usuario);
-                    yaComprado = compras.stream()
-                        .anyMatch(c -> c.getJuego().getId().equals(juego.getId()) || 
-                                      c.getJuego().getTitulo().equalsIgnoreCase(juego.getTitulo()));
-                }
-                model.addAttribute("yaComprado", yaComprado);
+        Usuario usuario = obtenerUsuarioLogueado(authentication);
+        if (usuario != null) {
+            // Los ADMIN nunca pueden "haber comprado" porque no pueden comprar
+            boolean yaComprado = false;
+            if (usuario.getRol() != Rol.ADMIN) {
+                // El índice incluye también los juegos con el mismo título que uno comprado
+                JuegosAdquiridos adquiridos = propiedadService.obtenerAdquiridos(usuario);
+                yaComprado = adquiridos.contiene(juego.getId());
             }
+            model.addAttribute("yaComprado", yaComprado);
         }
         
         return "catalogo/juego-detalle";
@@ -85,32 +81,63 @@ public class CatalogoController extends BaseController {
     
     @GetMapping("/buscar")
     public String buscar(@RequestParam String q, Model model, Authentication authentication) {
-        List<Juego> juegos = juegoService.buscarPorTitulo(q);
+        List<JuegoResumen> juegos = juegoService.buscarEnCatalogo(q);
         model.addAttribute("juegos", juegos);
         model.addAttribute("busqueda", q);
         
-        // Si hay usuario logueado, obtener sus juegos comprados (solo CLIENTE y PROVEEDOR)
-        if (authentication != null && authentication.isAuthenticated() && !"anonymousUser".equals(authentication.getPrincipal().toString())) {
-            String email = obtenerEmailDelUsuario(authentication);
-            Usuario usuario = usuarioService.buscarPorEmail(email).orElse(null);
-            if (usuario != null && usuario.getRol() != Rol.ADMIN) {
-                List<Compra> compras = compraService.listarPorUsuario(usuario);
-                
-                // Obtener IDs de juegos comprados
-                List<Integer> juegosCompradosIds = compras.stream()
-                    .map(c -> c.getJuego().getId())
-                    .collect(Collectors.toList());
-                
-                // Obtener NOMBRES de juegos comprados (para comparar por nombre)
-                List<String> juegosCompradosNombres = compras.stream()
-                    .map(c -> c.getJuego().getTitulo().toLowerCase())
-                    .collect(Collectors.toList());
-                
-                model.addAttribute("juegosComprados", juegosCompradosIds);
-                model.addAttribute("juegosCompradosNombres", juegosCompradosNombres);
-            }
+        // Si hay usuario logueado, marcar sus juegos comprados (solo CLIENTE y PROVEEDOR)
+        Usuario usuario = obtenerUsuarioLogueado(authentication);
+        if (usuario != null && usuario.getRol() != Rol.ADMIN) {
+            model.addAttribute("juegosAdquiridos", propiedadService.obtenerAdquiridos(usuario));
         }
         
         return "catalogo/index";
     }
+    
+    // Sugerencias de autocompletado para el buscador (una llamada por tecla, sin renderizar plantilla)
+    @GetMapping("/buscar/sugerencias")
+    @ResponseBody
+    public List<Sugerencia> sugerencias(@RequestParam(defaultValue = "") String q,
+                                        @RequestParam(defaultValue = "8") int limite) {
+        return sugerenciasService.sugerir(q, Math.min(limite, IServicioSugerencias.MAX_SUGERENCIAS));
+    }
+    
+    // Página siguiente del catálogo en JSON (scroll infinito). Acepta los mismos filtros que la portada
+    // más el texto del título, e incluye qué juegos de la página ya tiene el usuario
+    @GetMapping("/catalogo/pagina")
+    @ResponseBody
+    public Map<String, Object> paginaCatalogo(@RequestParam(required = false) String cursor,
+                                              @RequestParam(required = false) String genero,
+                                              @RequestParam(required = false) Double precioMin,
+                                              @RequestParam(required = false) Double precioMax,
+                                              @RequestParam(required = false) String q,
+                                              Authentication authentication) {
+        FiltroCatalogo filtro = new FiltroCatalogo(genero, precioMin, precioMax, q);
+        PaginaCatalogo pagina = juegoService.listarCatalogoPaginado(filtro, cursor, TAMANIO_PAGINA);
+        
+        List<Integer> adquiridosEnPagina = List.of();
+        Usuario usuario = obtenerUsuarioLogueado(authentication);
+        if (usuario != null && usuario.getRol() != Rol.ADMIN) {
+            JuegosAdquiridos adquiridos = propiedadService.obtenerAdquiridos(usuario);
+            adquiridosEnPagina = pagina.juegos().stream()
+                .map(JuegoResumen::getId)
+                .filter(adquiridos::contiene)
+                .toList();
+        }
+        
+        Map<String, Object> respuesta = new LinkedHashMap<>();
+        respuesta.put("juegos", pagina.juegos());
+        respuesta.put("siguienteCursor", pagina.siguienteCursor());
+        respuesta.put("adquiridos", adquiridosEnPagina);
+        return respuesta;
+    }
+    
+    // Devuelve el usuario autenticado o null si la petición es anónima
+    private Usuario obtenerUsuarioLogueado(Authentication authentication) {
+        if (authentication == null || !authentication.isAuthenticated() || "anonymousUser".equals(authentication.getPrincipal().toString())) {
+            return null;
+        }
+        String email = obtenerEmailDelUsuario(authentication);
+        return usuarioService.buscarPorEmail(email).orElse(null);
+    }
 }
@@ -21,7 +21,6 @@ public class CompraController extends BaseController {
     @Autowired private IServicioCompra compraService;
     @Autowired private IServicioJuego juegoService;
     @Autowired private IServicioUsuario usuarioService;
-    @Autowired private IServicioEmail emailService;
     
     // Confirma la compra y la registra en la base de datos (DEPRECADO - usar PayPal)
     @GetMapping("/confirmar/{juegoId}")
@@ -52,15 +51,7 @@ public class CompraController extends BaseController {
         Compra compra = compraService.crear(usuario, juego, juego.getPrecio(), "Pago Online", null);
         compraService.completar(compra.getId());
         
-        // Enviar email de confirmación
-        try {
-            System.out.println(" Intentando enviar email de confirmación a: " + usuario.getEmail());
-            emailService.enviarConfirmacionCompra(compra);
-            System.out.println(" Email enviado correctamente");
-        } catch (Exception e) {
-            System.err.println(" Error al enviar email de confirmación: " + e.getMessage());
-            e.printStackTrace();
-        }
+        // El email de confirmación lo pone en cola compraService.completar (se envía en segundo plano)
         
         redirectAttributes.addFlashAttribute("success", "¡Compra realizada! El juego está en tu biblioteca");
         return "redirect:/mi-biblioteca";
@@ -1,16 +1,20 @@
 package com.example.proyecto_pixelshop.controller;
 
+import com.example.proyecto_pixelshop.config.resiliencia.Plazo;
 import com.example.proyecto_pixelshop.model.Compra;
 import com.example.proyecto_pixelshop.model.Juego;
 import com.example.proyecto_pixelshop.model.Usuario;
 import com.example.proyecto_pixelshop.service.interfaz.IServicioPayPal;
-import com.example.proyecto_pixelshop.service.interfaz.IServicioEmail;
 import com.example.proyecto_pixelshop.service.interfaz.IServicioJuego;
 import com.example.proyecto_pixelshop.service.interfaz.IServicioUsuario;
 import com.example.proyecto_pixelshop.service.interfaz.IServicioCompra;
+import com.example.proyecto_pixelshop.service.interfaz.IServicioWebhookPayPal;
 import com.paypal.orders.Order;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -18,6 +22,10 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Controller
 @RequestMapping("/paypal")
@@ -27,10 +35,10 @@ public class PayPalController extends BaseController {
     @Autowired private IServicioJuego juegoService;
     @Autowired private IServicioUsuario usuarioService;
     @Autowired private IServicioCompra compraService;
-    @Autowired private IServicioEmail emailService;
+    @Autowired private IServicioWebhookPayPal webhookPayPalService;
     
-    @Value("${app.base-url}")
-    private String baseUrl;
+    @Value("${paypal.confirmacion.plazo-ms:20000}")
+    private long plazoConfirmacionMs;
     
     // Muestra la página de checkout con opciones de pago
     @GetMapping("/checkout/{juegoId}")
@@ -59,31 +67,26 @@ public class PayPalController extends BaseController {
         return "checkout/payment-options";
     }
 
-    // Crea una orden de pago con PayPal
+    // Crea una orden de pago con PayPal. La respuesta es asíncrona: el hilo de Tomcat queda libre mientras PayPal
+    // responde, y si PayPal está caído o lento se contesta 503 enseguida en lugar de acumular peticiones esperando
     @PostMapping("/create-order/{juegoId}")
     @ResponseBody
-    public String createOrder(@PathVariable Integer juegoId) {
-        try {
-            System.out.println("=== Creando orden PayPal para juego ID: " + juegoId);
-            
-            Juego juego = juegoService.buscarPorId(juegoId)
-                .orElseThrow(() -> new RuntimeException("Juego no encontrado"));
-
-            System.out.println("Juego encontrado: " + juego.getTitulo() + " - Precio: " + juego.getPrecio());
-            
-            String returnUrl = baseUrl + "/paypal/success?juegoId=" + juegoId;
-            String cancelUrl = baseUrl + "/paypal/cancel?juegoId=" + juegoId;
-
-            String orderId = payPalService.crearOrden(juego, returnUrl, cancelUrl);
-            
-            System.out.println("Orden PayPal creada exitosamente: " + orderId);
-            return orderId;
+    public CompletableFuture<ResponseEntity<String>> createOrder(@PathVariable Integer juegoId, Authentication authentication) {
+        Juego juego = juegoService.buscarPorId(juegoId)
+            .orElseThrow(() -> new RuntimeException("Juego no encontrado"));
+        Usuario usuario = usuarioService.buscarPorEmail(obtenerEmailDelUsuario(authentication))
+            .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
 
-        } catch (Exception e) {
-            System.err.println("ERROR al crear orden de PayPal: " + e.getMessage());
-            e.printStackTrace();
-            throw new RuntimeException("Error al crear orden de PayPal: " + e.getMessage());
-        }
+        return payPalService.crearOrden(juego, usuario.getId())
+            .handle((orderId, error) -> {
+                if (error != null) {
+                    Throwable causa = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    System.err.println("ERROR al crear orden de PayPal para el juego " + juegoId + ": " + causa.getMessage());
+                    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(causa.getMessage());
+                }
+                System.out.println("Orden PayPal creada: " + orderId + " (juego " + juegoId + ")");
+                return ResponseEntity.ok(orderId);
+            });
     }
 
     // Maneja el retorno exitoso desde PayPal
@@ -97,8 +100,21 @@ public class PayPalController extends BaseController {
             System.out.println("Token PayPal: " + token);
             System.out.println("Juego ID: " + juegoId);
             
-            // Capturar el pago
-            Order order = payPalService.capturarPago(token);
+            // Reintento (doble clic, recarga): la orden ya está registrada y no se vuelve a capturar
+            if (compraService.buscarPorOrdenPaypal(token).isPresent()) {
+                System.out.println(" Orden ya registrada, no se vuelve a procesar");
+                redirectAttributes.addFlashAttribute("success", "¡Compra realizada! El juego está en tu biblioteca");
+                return "redirect:/mi-biblioteca";
+            }
+            
+            // Capturar el pago, con un plazo para la captura y sus reintentos: el comprador está esperando
+            Order order;
+            Plazo.Limite limite = Plazo.limitar(Duration.ofMillis(plazoConfirmacionMs));
+            try {
+                order = payPalService.capturarPago(token);
+            } finally {
+                limite.close();
+            }
             System.out.println(" Pago capturado exitosamente");
 
             if (payPalService.esPaymentCompletado(order)) {
@@ -106,35 +122,49 @@ public class PayPalController extends BaseController {
                 
                 // Obtener datos
                 String email = obtenerEmailDelUsuario(authentication);
-                System.out.println("Usuario email: " + email);
-                
                 Usuario usuario = usuarioService.buscarPorEmail(email)
                     .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
-                System.out.println(" Usuario encontrado ID: " + usuario.getId());
 
                 Juego juego = juegoService.buscarPorId(juegoId)
                     .orElseThrow(() -> new RuntimeException("Juego no encontrado"));
-                System.out.println(" Juego encontrado: " + juego.getTitulo());
 
-                // Usar el precio del juego como monto pagado (más confiable que parsear respuesta de PayPal)
-                Double montoPagado = juego.getPrecio();
-                System.out.println(" Monto pagado: " + montoPagado + "€");
+                // La orden dice de qué juego y de qué comprador es; el juegoId de la URL no basta.
+                // Si no coinciden no se registra aquí: el webhook registrará la compra con los datos de la orden
+                Integer juegoOrden = payPalService.extraerJuegoId(order);
+                Integer usuarioOrden = payPalService.extraerUsuarioId(order);
+                if (!juego.getId().equals(juegoOrden) || !usuario.getId().equals(usuarioOrden)) {
+                    System.err.println(" La orden " + order.id() + " es del juego " + juegoOrden + " y el usuario " + usuarioOrden
+                        + ", no del juego " + juego.getId() + " y el usuario " + usuario.getId());
+                    redirectAttributes.addFlashAttribute("error", "El pago no corresponde a este juego o a tu cuenta");
+                    return "redirect:/juego/" + juegoId;
+                }
+
+                // Solo se registra si la captura está COMPLETED y cubre el importe de la orden: una orden COMPLETED puede
+                // tener la captura PENDING (revisión de PayPal) y se registraría con 0 €. La registrará el webhook
+                // cuando llegue PAYMENT.CAPTURE.COMPLETED
+                if (!payPalService.estaCobrada(order)) {
+                    System.err.println(" La orden " + order.id() + " está COMPLETED pero la captura no cubre el importe todavía");
+                    redirectAttributes.addFlashAttribute("warning",
+                        "PayPal está revisando el pago; el juego aparecerá en tu biblioteca cuando se complete");
+                    return "redirect:/juego/" + juegoId;
+                }
 
-                // Crear y completar compra directamente (auto-crea transacciones)
-                System.out.println(" Creando compra en BD...");
-                Compra compra = compraService.crear(usuario, juego, montoPagado, "Pago Online", order.id());
-                System.out.println(" Compra creada ID: " + compra.getId() + " - Estado: " + compra.getEstado());
-                
-                System.out.println(" Completando compra...");
-                compraService.completar(compra.getId());
-                System.out.println(" Compra completada exitosamente");
-                
-                // Enviar email de confirmación
+                // Se registra lo que PayPal ha capturado de verdad, no el precio actual del catálogo
+                Double montoPagado = payPalService.extraerMontoPagado(order);
+                if (Math.abs(montoPagado - juego.getPrecio()) >= 0.005) {
+                    System.err.println(" Importe capturado (" + montoPagado + "€) distinto del precio actual (" + juego.getPrecio() + "€)");
+                }
+
+                // Registrar compra, transacciones y emails en una sola transacción (idempotente por orden)
                 try {
-                    emailService.enviarConfirmacionCompra(compra);
-                    System.out.println(" Email de confirmación enviado correctamente");
-                } catch (Exception e) {
-                    System.err.println(" Error al enviar email de confirmación: " + e.getMessage());
+                    Compra compra = compraService.finalizarPagoPayPal(usuario, juego, montoPagado, order.id());
+                    System.out.println(" Compra completada ID: " + compra.getId() + " - " + montoPagado + "€");
+                } catch (DataIntegrityViolationException e) {
+                    // Otra petición con la misma orden la ha registrado a la vez: ya está hecha
+                    if (compraService.buscarPorOrdenPaypal(order.id()).isEmpty()) {
+                        throw e;
+                    }
+                    System.out.println(" Orden registrada por una petición simultánea");
                 }
                 
                 System.out.println("=== FIN PayPal Success (ÉXITO) ===");
@@ -156,6 +186,26 @@ public class PayPalController extends BaseController {
         }
     }
 
+    // Recibe los eventos de PayPal (orden aprobada, captura completada). Solo los guarda y responde enseguida;
+    // la compra se registra en segundo plano si el comprador no ha vuelto a /paypal/success
+    @PostMapping("/webhook")
+    @ResponseBody
+    public ResponseEntity<Void> webhook(@RequestHeader Map<String, String> cabeceras, @RequestBody String cuerpo) {
+        try {
+            if (!webhookPayPalService.recibir(cabeceras, cuerpo)) {
+                System.out.println("Webhook PayPal: evento repetido, se ignora");
+            }
+            return ResponseEntity.ok().build();
+        } catch (IllegalArgumentException e) {
+            System.err.println("Webhook PayPal rechazado: " + e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (IOException e) {
+            // No se ha podido verificar la firma: PayPal reintentará el envío más tarde
+            System.err.println("Webhook PayPal: no se pudo verificar la firma: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
     // Maneja la cancelación del pago
     @GetMapping("/cancel")
     public String paymentCancel(@RequestParam Integer juegoId,
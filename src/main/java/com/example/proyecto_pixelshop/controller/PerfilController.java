@@ -40,7 +40,7 @@ public class PerfilController extends BaseController {
         
         usuario.setNombre(usuarioActualizado.getNombre());
         
-        // Si es proveedor, permitir actualizar cifNif y email PayPal
+        // Si es proveedor, permitir actualizar cifNif, email PayPal y frecuencia de los emails de ventas
         if (usuario.getRol() == Rol.PROVEEDOR) {
             if (usuarioActualizado.getCifNif() != null) {
                 usuario.setCifNif(usuarioActualizado.getCifNif());
@@ -48,6 +48,9 @@ public class PerfilController extends BaseController {
             if (usuarioActualizado.getEmailPaypal() != null) {
                 usuario.setEmailPaypal(usuarioActualizado.getEmailPaypal());
             }
+            // Frecuencia del resumen de ventas (vacío = valor por defecto, 0 = un email por venta)
+            Integer minutosResumen = usuarioActualizado.getMinutosResumenVentas();
+            usuario.setMinutosResumenVentas(minutosResumen != null && minutosResumen >= 0 ? minutosResumen : null);
         }
         
         usuarioService.actualizar(usuario);
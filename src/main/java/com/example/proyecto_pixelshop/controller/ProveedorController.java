@@ -1,10 +1,20 @@
 package com.example.proyecto_pixelshop.controller;
 
 import com.example.proyecto_pixelshop.model.*;
+import com.example.proyecto_pixelshop.model.dto.ImagenCargada;
+import com.example.proyecto_pixelshop.model.dto.ImagenPreparada;
+import com.example.proyecto_pixelshop.model.dto.MetadatosImagen;
+import com.example.proyecto_pixelshop.model.dto.SubidaArchivo;
+import com.example.proyecto_pixelshop.model.dto.SubidaBlob;
 import com.example.proyecto_pixelshop.model.enums.EstadoPago;
+import com.example.proyecto_pixelshop.model.enums.TipoSubida;
 import com.example.proyecto_pixelshop.repository.*;
 import com.example.proyecto_pixelshop.service.interfaz.IAzureBlobStorageService;
+import com.example.proyecto_pixelshop.service.interfaz.IServicioImagen;
 import com.example.proyecto_pixelshop.service.interfaz.IServicioJuego;
+import com.example.proyecto_pixelshop.service.interfaz.IServicioLiquidacionProveedores;
+import com.example.proyecto_pixelshop.service.interfaz.IServicioSubidaArchivo;
+import com.example.proyecto_pixelshop.service.interfaz.IServicioTransaccionProveedor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
@@ -14,11 +24,9 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 import org.springframework.web.multipart.MultipartFile;
+import java.util.ArrayList;
 import java.util.List;
 import java.io.IOException;
-import java.awt.image.BufferedImage;
-import javax.imageio.ImageIO;
-import java.io.ByteArrayInputStream;
 
 @Controller
 @RequestMapping("/proveedor")
@@ -32,7 +40,10 @@ public class ProveedorController extends BaseController {
     @Autowired private IAzureBlobStorageService azureStorageService;
     @Autowired private PasswordEncoder passwordEncoder;
     @Autowired private IServicioJuego juegoService;
-    @Autowired private com.example.proyecto_pixelshop.service.interfaz.IServicioPayPal paypalService;
+    @Autowired private IServicioImagen imagenService;
+    @Autowired private IServicioSubidaArchivo subidaArchivoService;
+    @Autowired private IServicioLiquidacionProveedores liquidacionService;
+    @Autowired private IServicioTransaccionProveedor transaccionProveedorService;
     
     @GetMapping("/publicar")
     public String mostrarFormularioPublicar(Model model) {
@@ -51,6 +62,7 @@ public class ProveedorController extends BaseController {
                                 @RequestParam("imagen3") MultipartFile imagen3,
                                 @RequestParam("imagen4") MultipartFile imagen4,
                                 @RequestParam(value = "archivoJuego", required = false) MultipartFile archivoJuego,
+                                @RequestParam(value = "archivoSubidaId", required = false) String archivoSubidaId,
                                 Authentication authentication,
                                 RedirectAttributes redirectAttributes) {
         
@@ -59,61 +71,25 @@ public class ProveedorController extends BaseController {
             .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
         
         try {
-            // Validar y subir imágenes a Azure
-            String url1 = null, url2 = null, url3 = null, url4 = null;
-            
-            // Guardar imagen 1
-            if (!imagen1.isEmpty()) {
-                String validationResult = validateImage(imagen1, "Imagen 1");
-                if (validationResult != null) {
-                    redirectAttributes.addFlashAttribute("error", validationResult);
-                    return "redirect:/proveedor/publicar";
-                }
-                url1 = azureStorageService.uploadFile(imagen1, "juegos");
-            }
-            
-            // Guardar imagen 2
-            if (!imagen2.isEmpty()) {
-                String validationResult2 = validateImage(imagen2, "Imagen 2");
-                if (validationResult2 != null) {
-                    redirectAttributes.addFlashAttribute("error", validationResult2);
+            // Leer y validar las 4 imágenes antes de subir nada
+            MultipartFile[] imagenes = {imagen1, imagen2, imagen3, imagen4};
+            ImagenCargada[] cargadas = new ImagenCargada[imagenes.length];
+            for (int i = 0; i < imagenes.length; i++) {
+                if (imagenes[i] == null || imagenes[i].isEmpty()) {
+                    redirectAttributes.addFlashAttribute("error", "Debes subir las 4 imágenes obligatorias (1 portada + 3 capturas)");
                     return "redirect:/proveedor/publicar";
                 }
-                url2 = azureStorageService.uploadFile(imagen2, "juegos");
-            }
-            
-            // Guardar imagen 3
-            if (!imagen3.isEmpty()) {
-                String validationResult3 = validateImage(imagen3, "Imagen 3");
-                if (validationResult3 != null) {
-                    redirectAttributes.addFlashAttribute("error", validationResult3);
-                    return "redirect:/proveedor/publicar";
-                }
-                url3 = azureStorageService.uploadFile(imagen3, "juegos");
-            }
-            
-            // Guardar imagen 4
-            if (!imagen4.isEmpty()) {
-                String validationResult4 = validateImage(imagen4, "Imagen 4");
-                if (validationResult4 != null) {
-                    redirectAttributes.addFlashAttribute("error", validationResult4);
+                cargadas[i] = imagenService.cargar(imagenes[i]);
+                String validationResult = validateImage(cargadas[i], "Imagen " + (i + 1));
+                if (validationResult != null) {
+                    redirectAttributes.addFlashAttribute("error", validationResult);
                     return "redirect:/proveedor/publicar";
                 }
-                url4 = azureStorageService.uploadFile(imagen4, "juegos");
-            }
-            
-            // Validar que se hayan subido las 4 imágenes
-            if (url1 == null || url2 == null || url3 == null || url4 == null) {
-                redirectAttributes.addFlashAttribute("error", "Debes subir las 4 imágenes obligatorias (1 portada + 3 capturas)");
-                return "redirect:/proveedor/publicar";
             }
             
-            // Subir archivo del juego (ZIP) si se proporcionó
-            String archivoUrl = null;
-            String archivoNombre = null;
-            Integer archivoTamanio = null;
-            
-            if (archivoJuego != null && !archivoJuego.isEmpty()) {
+            // Validar archivo del juego (ZIP) si se proporcionó
+            boolean hayArchivo = archivoJuego != null && !archivoJuego.isEmpty();
+            if (hayArchivo) {
                 // Validar tamaño (500MB máximo)
                 long maxSize = 500L * 1024 * 1024; // 500MB
                 if (archivoJuego.getSize() > maxSize) {
@@ -127,34 +103,68 @@ public class ProveedorController extends BaseController {
                     redirectAttributes.addFlashAttribute("error", "El archivo debe ser .zip, .rar o .7z");
                     return "redirect:/proveedor/publicar";
                 }
-                
-                // Subir a Azure Blob Storage
-                archivoUrl = azureStorageService.uploadFile(archivoJuego, "juegos-archivos");
-                archivoNombre = archivoJuego.getOriginalFilename();
-                archivoTamanio = (int) (archivoJuego.getSize() / (1024 * 1024)); // Convertir a MB
-                
-                System.out.println(" Archivo subido: " + archivoNombre + " (" + archivoTamanio + " MB)");
             }
             
-            // Crear el juego
-            Juego juego = new Juego();
-            juego.setTitulo(titulo);
-            juego.setPrecio(precio);
-            juego.setDescripcion(descripcion);
-            juego.setGenero(genero);
-            juego.setVideoPromocionalUrl(videoUrl);
-            juego.setImagenPortadaUrl(url1);
-            juego.setImagen2Url(url2);
-            juego.setImagen3Url(url3);
-            juego.setImagen4Url(url4);
-            juego.setArchivoDescargableUrl(archivoUrl);
-            juego.setArchivoNombre(archivoNombre);
-            juego.setArchivoTamanioBytes(archivoTamanio);
-            juego.setProveedor(proveedor);
-            juego.setMontoPublicacion(25.00);
+            // Preparar un único lote (imágenes con sus variantes + archivo del juego) y subirlo en paralelo:
+            // la publicación tarda lo que la subida más lenta, no la suma de todas
+            List<SubidaBlob> lote = new ArrayList<>();
+            ImagenPreparada[] preparadas = new ImagenPreparada[cargadas.length];
+            boolean conVariantes = true;
+            for (int i = 0; i < cargadas.length; i++) {
+                preparadas[i] = imagenService.preparar(cargadas[i], "juegos");
+                lote.addAll(preparadas[i].subidas());
+                conVariantes &= preparadas[i].conVariantes();
+            }
+            SubidaBlob subidaArchivo = hayArchivo ? SubidaBlob.deArchivo(archivoJuego, "juegos-archivos") : null;
+            if (subidaArchivo != null) {
+                lote.add(subidaArchivo);
+            }
             
-            // Publicar usando el servicio (incluye validación de nombre único)
-            juegoService.publicar(juego);
+            // Archivo ya subido desde el navegador, por bloques o directamente a Azure (ver SubidaArchivoController)
+            SubidaArchivo archivoPorBloques = null;
+            if (!hayArchivo && archivoSubidaId != null && !archivoSubidaId.isBlank()) {
+                try {
+                    archivoPorBloques = subidaArchivoService.consumir(archivoSubidaId, proveedor.getId(), TipoSubida.ARCHIVO);
+                } catch (RuntimeException e) {
+                    redirectAttributes.addFlashAttribute("error", e.getMessage());
+                    return "redirect:/proveedor/publicar";
+                }
+            }
+            List<String> subidas = subirLote(lote, archivoPorBloques);
+            
+            try {
+                // Crear el juego
+                Juego juego = new Juego();
+                juego.setTitulo(titulo);
+                juego.setPrecio(precio);
+                juego.setDescripcion(descripcion);
+                juego.setGenero(genero);
+                juego.setVideoPromocionalUrl(videoUrl);
+                juego.setImagenPortadaUrl(azureStorageService.getBlobUrl(preparadas[0].blobOriginal()));
+                juego.setImagen2Url(azureStorageService.getBlobUrl(preparadas[1].blobOriginal()));
+                juego.setImagen3Url(azureStorageService.getBlobUrl(preparadas[2].blobOriginal()));
+                juego.setImagen4Url(azureStorageService.getBlobUrl(preparadas[3].blobOriginal()));
+                juego.setImagenesDerivadas(conVariantes);
+                if (subidaArchivo != null) {
+                    juego.setArchivoDescargableUrl(azureStorageService.getBlobUrl(subidaArchivo.blobName()));
+                    juego.setArchivoNombre(archivoJuego.getOriginalFilename());
+                    juego.setArchivoTamanioBytes((int) (archivoJuego.getSize() / (1024 * 1024))); // Convertir a MB
+                    System.out.println(" Archivo subido: " + juego.getArchivoNombre() + " (" + juego.getArchivoTamanioBytes() + " MB)");
+                } else if (archivoPorBloques != null) {
+                    juego.setArchivoDescargableUrl(archivoPorBloques.url());
+                    juego.setArchivoNombre(archivoPorBloques.nombreArchivo());
+                    juego.setArchivoTamanioBytes((int) (archivoPorBloques.tamanio() / (1024 * 1024))); // Convertir a MB
+                }
+                juego.setProveedor(proveedor);
+                juego.setMontoPublicacion(25.00);
+                
+                // Publicar usando el servicio (incluye validación de nombre único)
+                juegoService.publicar(juego);
+            } catch (RuntimeException e) {
+                // Si el juego no se ha podido guardar, no dejar los archivos subidos huérfanos en Azure
+                azureStorageService.deleteMultipleFiles(subidas);
+                throw e;
+            }
             
             // La transacción ya se crea automáticamente en juegoService.publicar()
             
@@ -316,6 +326,7 @@ public class ProveedorController extends BaseController {
                               @RequestParam(value = "imagen3", required = false) MultipartFile imagen3,
                               @RequestParam(value = "imagen4", required = false) MultipartFile imagen4,
                               @RequestParam(value = "archivoJuego", required = false) MultipartFile archivoJuego,
+                              @RequestParam(value = "archivoSubidaId", required = false) String archivoSubidaId,
                               Authentication authentication,
                               RedirectAttributes redirectAttributes) {
         
@@ -332,119 +343,120 @@ public class ProveedorController extends BaseController {
         }
         
         try {
-            // Actualizar imágenes en Azure Blob Storage
-            
-            // Actualizar imagen 1 (si se sube nueva)
-            if (imagen1 != null && !imagen1.isEmpty()) {
-                String validationResult = validateImage(imagen1, "Imagen 1");
-                if (validationResult != null) {
-                    redirectAttributes.addFlashAttribute("error", validationResult);
-                    return "redirect:/proveedor/editar/" + id;
-                }
-                System.out.println("=== Actualizando imagen 1 ===");
-                System.out.println("URL anterior: " + juego.getImagenPortadaUrl());
-                String url1 = azureStorageService.updateFile(juego.getImagenPortadaUrl(), imagen1, "juegos");
-                System.out.println("Nueva URL: " + url1);
-                if (url1 != null) {
-                    juego.setImagenPortadaUrl(url1);
-                } else {
-                    redirectAttributes.addFlashAttribute("error", "Error al subir Imagen 1 a Azure");
-                    return "redirect:/proveedor/editar/" + id;
+            // Leer y validar las imágenes nuevas (las que no se suben se mantienen) antes de subir nada
+            MultipartFile[] imagenes = {imagen1, imagen2, imagen3, imagen4};
+            ImagenCargada[] cargadas = new ImagenCargada[imagenes.length];
+            for (int i = 0; i < imagenes.length; i++) {
+                if (imagenes[i] != null && !imagenes[i].isEmpty()) {
+                    cargadas[i] = imagenService.cargar(imagenes[i]);
+                    String validationResult = validateImage(cargadas[i], "Imagen " + (i + 1));
+                    if (validationResult != null) {
+                        redirectAttributes.addFlashAttribute("error", validationResult);
+                        return "redirect:/proveedor/editar/" + id;
+                    }
                 }
             }
             
-            // Actualizar imagen 2 (si se sube nueva)
-            if (imagen2 != null && !imagen2.isEmpty()) {
-                String validationResult2 = validateImage(imagen2, "Imagen 2");
-                if (validationResult2 != null) {
-                    redirectAttributes.addFlashAttribute("error", validationResult2);
+            // Validar archivo del juego (ZIP) si se proporcionó uno nuevo
+            boolean hayArchivo = archivoJuego != null && !archivoJuego.isEmpty();
+            if (hayArchivo) {
+                // Validar tamaño (500MB máximo)
+                long maxSize = 500L * 1024 * 1024; // 500MB
+                if (archivoJuego.getSize() > maxSize) {
+                    redirectAttributes.addFlashAttribute("error", "El archivo del juego es demasiado grande. Máximo: 500MB");
                     return "redirect:/proveedor/editar/" + id;
                 }
-                System.out.println("=== Actualizando imagen 2 ===");
-                System.out.println("URL anterior: " + juego.getImagen2Url());
-                String url2 = azureStorageService.updateFile(juego.getImagen2Url(), imagen2, "juegos");
-                System.out.println("Nueva URL: " + url2);
-                if (url2 != null) {
-                    juego.setImagen2Url(url2);
-                } else {
-                    redirectAttributes.addFlashAttribute("error", "Error al subir Imagen 2 a Azure");
+                
+                // Validar extensión
+                String fileName = archivoJuego.getOriginalFilename();
+                if (fileName == null || !fileName.matches(".*\\.(zip|rar|7z)$")) {
+                    redirectAttributes.addFlashAttribute("error", "El archivo debe ser .zip, .rar o .7z");
                     return "redirect:/proveedor/editar/" + id;
                 }
             }
             
-            // Actualizar imagen 3 (si se sube nueva)
-            if (imagen3 != null && !imagen3.isEmpty()) {
-                String validationResult3 = validateImage(imagen3, "Imagen 3");
-                if (validationResult3 != null) {
-                    redirectAttributes.addFlashAttribute("error", validationResult3);
-                    return "redirect:/proveedor/editar/" + id;
-                }
-                System.out.println("=== Actualizando imagen 3 ===");
-                System.out.println("URL anterior: " + juego.getImagen3Url());
-                String url3 = azureStorageService.updateFile(juego.getImagen3Url(), imagen3, "juegos");
-                System.out.println("Nueva URL: " + url3);
-                if (url3 != null) {
-                    juego.setImagen3Url(url3);
-                } else {
-                    redirectAttributes.addFlashAttribute("error", "Error al subir Imagen 3 a Azure");
-                    return "redirect:/proveedor/editar/" + id;
+            // Subir en un único lote paralelo las imágenes nuevas (con variantes) y el archivo nuevo
+            List<SubidaBlob> lote = new ArrayList<>();
+            ImagenPreparada[] preparadas = new ImagenPreparada[cargadas.length];
+            for (int i = 0; i < cargadas.length; i++) {
+                if (cargadas[i] != null) {
+                    preparadas[i] = imagenService.preparar(cargadas[i], "juegos");
+                    lote.addAll(preparadas[i].subidas());
                 }
             }
+            SubidaBlob subidaArchivo = hayArchivo ? SubidaBlob.deArchivo(archivoJuego, "juegos-archivos") : null;
+            if (subidaArchivo != null) {
+                lote.add(subidaArchivo);
+            }
             
-            // Actualizar imagen 4 (si se sube nueva)
-            if (imagen4 != null && !imagen4.isEmpty()) {
-                String validationResult4 = validateImage(imagen4, "Imagen 4");
-                if (validationResult4 != null) {
-                    redirectAttributes.addFlashAttribute("error", validationResult4);
-                    return "redirect:/proveedor/editar/" + id;
-                }
-                System.out.println("=== Actualizando imagen 4 ===");
-                System.out.println("URL anterior: " + juego.getImagen4Url());
-                String url4 = azureStorageService.updateFile(juego.getImagen4Url(), imagen4, "juegos");
-                System.out.println("Nueva URL: " + url4);
-                if (url4 != null) {
-                    juego.setImagen4Url(url4);
-                } else {
-                    redirectAttributes.addFlashAttribute("error", "Error al subir Imagen 4 a Azure");
+            // Archivo ya subido desde el navegador, por bloques o directamente a Azure (ver SubidaArchivoController)
+            SubidaArchivo archivoPorBloques = null;
+            if (!hayArchivo && archivoSubidaId != null && !archivoSubidaId.isBlank()) {
+                try {
+                    archivoPorBloques = subidaArchivoService.consumir(archivoSubidaId, proveedor.getId(), TipoSubida.ARCHIVO);
+                } catch (RuntimeException e) {
+                    redirectAttributes.addFlashAttribute("error", e.getMessage());
                     return "redirect:/proveedor/editar/" + id;
                 }
             }
-            
-            // Actualizar campos permitidos
-            juego.setDescripcion(descripcion);
-            juego.setVideoPromocionalUrl(videoUrl);
-            
-            // Actualizar archivo del juego (ZIP) si se proporcionó uno nuevo
-            if (archivoJuego != null && !archivoJuego.isEmpty()) {
-                // Validar tamaño (500MB máximo)
-                long maxSize = 500L * 1024 * 1024; // 500MB
-                if (archivoJuego.getSize() > maxSize) {
-                    redirectAttributes.addFlashAttribute("error", "El archivo del juego es demasiado grande. Máximo: 500MB");
-                    return "redirect:/proveedor/editar/" + id;
+            List<String> subidas = subirLote(lote, archivoPorBloques);
+            
+            // URLs de las imágenes (y del archivo o vídeo) sustituidos, que se borran solo cuando el juego se ha guardado
+            List<String> imagenesAnteriores = new ArrayList<>();
+            List<String> archivosAnteriores = new ArrayList<>();
+            try {
+                String[] urlsActuales = {juego.getImagenPortadaUrl(), juego.getImagen2Url(), juego.getImagen3Url(), juego.getImagen4Url()};
+                String[] urlsNuevas = urlsActuales.clone();
+                for (int i = 0; i < preparadas.length; i++) {
+                    if (preparadas[i] != null) {
+                        urlsNuevas[i] = azureStorageService.getBlobUrl(preparadas[i].blobOriginal());
+                        System.out.println("=== Imagen " + (i + 1) + " actualizada: " + urlsActuales[i] + " -> " + urlsNuevas[i] + " ===");
+                        if (urlsActuales[i] != null) {
+                            imagenesAnteriores.add(urlsActuales[i]);
+                        }
+                        if (!preparadas[i].conVariantes()) {
+                            juego.setImagenesDerivadas(false);
+                        }
+                    }
                 }
+                juego.setImagenPortadaUrl(urlsNuevas[0]);
+                juego.setImagen2Url(urlsNuevas[1]);
+                juego.setImagen3Url(urlsNuevas[2]);
+                juego.setImagen4Url(urlsNuevas[3]);
                 
-                // Validar extensión
-                String fileName = archivoJuego.getOriginalFilename();
-                if (fileName == null || !fileName.matches(".*\\.(zip|rar|7z)$")) {
-                    redirectAttributes.addFlashAttribute("error", "El archivo debe ser .zip, .rar o .7z");
-                    return "redirect:/proveedor/editar/" + id;
+                // Actualizar campos permitidos
+                juego.setDescripcion(descripcion);
+                if (juego.getVideoPromocionalUrl() != null && !juego.getVideoPromocionalUrl().equals(videoUrl)) {
+                    archivosAnteriores.add(juego.getVideoPromocionalUrl()); // Vídeo subido a Azure sustituido
+                }
+                juego.setVideoPromocionalUrl(videoUrl);
+                if ((subidaArchivo != null || archivoPorBloques != null) && juego.getArchivoDescargableUrl() != null) {
+                    archivosAnteriores.add(juego.getArchivoDescargableUrl());
                 }
                 
-                // Si ya existe un archivo, eliminarlo primero (opcional - Azure sobrescribe automáticamente)
-                // Subir nuevo archivo a Azure Blob Storage
-                String archivoUrl = azureStorageService.uploadFile(archivoJuego, "juegos-archivos");
-                String archivoNombre = archivoJuego.getOriginalFilename();
-                Integer archivoTamanio = (int) (archivoJuego.getSize() / (1024 * 1024)); // Convertir a MB
-                
-                juego.setArchivoDescargableUrl(archivoUrl);
-                juego.setArchivoNombre(archivoNombre);
-                juego.setArchivoTamanioBytes(archivoTamanio);
+                if (subidaArchivo != null) {
+                    juego.setArchivoDescargableUrl(azureStorageService.getBlobUrl(subidaArchivo.blobName()));
+                    juego.setArchivoNombre(archivoJuego.getOriginalFilename());
+                    juego.setArchivoTamanioBytes((int) (archivoJuego.getSize() / (1024 * 1024))); // Convertir a MB
+                    System.out.println(" Archivo actualizado: " + juego.getArchivoNombre() + " (" + juego.getArchivoTamanioBytes() + " MB)");
+                } else if (archivoPorBloques != null) {
+                    juego.setArchivoDescargableUrl(archivoPorBloques.url());
+                    juego.setArchivoNombre(archivoPorBloques.nombreArchivo());
+                    juego.setArchivoTamanioBytes((int) (archivoPorBloques.tamanio() / (1024 * 1024))); // Convertir a MB
+                }
                 
-                System.out.println(" Archivo actualizado: " + archivoNombre + " (" + archivoTamanio + " MB)");
+                // NO ACTUALIZAR: título, precio, proveedor, fecha publicación
+                // Se guarda a través del servicio para que el catálogo en memoria se actualice
+                juegoService.guardar(juego);
+            } catch (RuntimeException e) {
+                // Si no se ha podido guardar, eliminar lo recién subido y conservar lo anterior
+                azureStorageService.deleteMultipleFiles(subidas);
+                throw e;
             }
             
-            // NO ACTUALIZAR: título, precio, proveedor, fecha publicación
-            juegoRepository.save(juego);
+            // Guardado correcto: ya se pueden eliminar las imágenes sustituidas (y sus variantes)
+            imagenesAnteriores.forEach(imagenService::eliminarConVariantes);
+            azureStorageService.deleteMultipleFiles(archivosAnteriores); // Ignora las URLs que no son de Azure (YouTube)
             
             redirectAttributes.addFlashAttribute("success", "Juego actualizado correctamente");
             return "redirect:/proveedor/mis-juegos";
@@ -456,50 +468,63 @@ public class ProveedorController extends BaseController {
         }
     }
     
+    // Sube el lote en paralelo y añade el archivo que el navegador ya subió por bloques. Si el lote falla, ese archivo
+    // también se elimina: la sesión de subida ya se ha consumido y quedaría huérfano en Azure
+    private List<String> subirLote(List<SubidaBlob> lote, SubidaArchivo archivoPorBloques) throws IOException {
+        List<String> subidas;
+        try {
+            subidas = new ArrayList<>(azureStorageService.uploadBatch(lote));
+        } catch (IOException | RuntimeException e) {
+            if (archivoPorBloques != null) {
+                azureStorageService.deleteMultipleFiles(List.of(archivoPorBloques.url()));
+            }
+            throw e;
+        }
+        if (archivoPorBloques != null) {
+            subidas.add(archivoPorBloques.url());
+        }
+        return subidas;
+    }
+    
     /**
-     * Valida una imagen y devuelve información sobre sus dimensiones y tamaño
-     * @param file Archivo de imagen a validar
+     * Valida una imagen a partir de su cabecera (formato y dimensiones) sin decodificar los píxeles
+     * @param imagen Imagen con la cabecera ya leída (ver IServicioImagen.cargar)
      * @param imageName Nombre descriptivo de la imagen
      * @return null si es válida, mensaje de error si no es válida
      */
-    private String validateImage(MultipartFile file, String imageName) {
-        try {
-            // Validar tamaño del archivo (10MB máximo)
-            long maxSize = 10 * 1024 * 1024; // 10MB en bytes
-            if (file.getSize() > maxSize) {
-                return imageName + " es demasiado grande. Máximo: 10MB. Tu archivo: " + 
-                       String.format("%.2f MB", file.getSize() / (1024.0 * 1024.0));
-            }
-            
-            // Leer dimensiones de la imagen
-            BufferedImage image = ImageIO.read(new ByteArrayInputStream(file.getBytes()));
-            if (image == null) {
-                return imageName + " no es un archivo de imagen válido";
-            }
-            
-            int width = image.getWidth();
-            int height = image.getHeight();
-            
-            // Información para el usuario (no es error, solo informativo)
-            // Recomendaciones: ancho mínimo 300px, máximo 2000px
-            if (width < 200 || height < 200) {
-                return imageName + " es muy pequeña. Mínimo recomendado: 200x200px. " +
-                       "Tu imagen: " + width + "x" + height + "px (" + 
-                       String.format("%.0f KB", file.getSize() / 1024.0) + ")";
-            }
-            
-            if (width > 3000 || height > 3000) {
-                return imageName + " es muy grande. Máximo recomendado: 3000x3000px. " +
-                       "Tu imagen: " + width + "x" + height + "px (" + 
-                       String.format("%.0f KB", file.getSize() / 1024.0) + ")";
-            }
-            
-            // Todo OK - imagen válida
-            return null;
-            
-        } catch (IOException e) {
-            return "Error al procesar " + imageName + ". Verifica que sea un archivo de imagen válido (JPG, PNG, WEBP).";
+    private String validateImage(ImagenCargada imagen, String imageName) {
+        // Validar tamaño del archivo (10MB máximo)
+        long maxSize = 10 * 1024 * 1024; // 10MB en bytes
+        if (imagen.tamanio() > maxSize) {
+            return imageName + " es demasiado grande. Máximo: 10MB. Tu archivo: " + 
+                   String.format("%.2f MB", imagen.tamanio() / (1024.0 * 1024.0));
+        }
+        
+        // Formato y dimensiones leídos de la cabecera
+        MetadatosImagen metadatos = imagen.metadatos();
+        if (metadatos == null) {
+            return imageName + " no es un archivo de imagen válido. Verifica que sea JPG, PNG, GIF o WEBP.";
         }
+        
+        int width = metadatos.ancho();
+        int height = metadatos.alto();
+        
+        // Información para el usuario (no es error, solo informativo)
+        // Recomendaciones: ancho mínimo 300px, máximo 2000px
+        if (width < 200 || height < 200) {
+            return imageName + " es muy pequeña. Mínimo recomendado: 200x200px. " +
+                   "Tu imagen: " + width + "x" + height + "px (" + 
+                   String.format("%.0f KB", imagen.tamanio() / 1024.0) + ")";
+        }
+        
+        if (width > 3000 || height > 3000) {
+            return imageName + " es muy grande. Máximo recomendado: 3000x3000px. " +
+                   "Tu imagen: " + width + "x" + height + "px (" + 
+                   String.format("%.0f KB", imagen.tamanio() / 1024.0) + ")";
+        }
+        
+        // Todo OK - imagen válida
+        return null;
     }
     
     // Procesar cobro de ganancias pendientes (individual o todas)
@@ -558,27 +583,21 @@ public class ProveedorController extends BaseController {
                     return "redirect:/proveedor/ventas";
                 }
                 
-                // Enviar payout mediante PayPal
-                String descripcion = transaccionesPendientes.size() == 1
-                    ? "Pago de ganancia de PixelShop - 1 transacción"
-                    : String.format("Pago de ganancias de PixelShop - %d transacciones", transaccionesPendientes.size());
-                
-                String payoutId = paypalService.enviarPagoProveedor(emailPaypal, totalPendiente, descripcion);
-                
-                // Marcar transacciones como pagadas
-                for (TransaccionProveedor transaccion : transaccionesPendientes) {
-                    transaccion.setEstadoPago(EstadoPago.PAGADO);
-                    transaccion.setFechaPago(java.time.LocalDateTime.now());
-                    transaccionProveedorRepository.save(transaccion);
-                }
-                
-                // Actualizar email de PayPal del proveedor
+                // Actualizar email de PayPal del proveedor (el lote se paga al email guardado)
                 proveedor.setEmailPaypal(emailPaypal);
                 usuarioRepository.save(proveedor);
                 
+                // Enviar las transacciones en un lote de payouts; pasan a PAGADO cuando PayPal confirma cada pago
+                List<Integer> ids = transaccionesPendientes.stream().map(TransaccionProveedor::getId).toList();
+                int enviadas = liquidacionService.liquidar(ids);
+                if (enviadas == 0) {
+                    redirectAttributes.addFlashAttribute("error", "No se ha podido enviar el pago a PayPal. Revisa tu email de PayPal o inténtalo más tarde");
+                    return "redirect:/proveedor/ventas";
+                }
+                
                 String mensajeExito = transaccionesPendientes.size() == 1
-                    ? String.format(" Pago de %.2f€ enviado exitosamente a %s mediante PayPal", totalPendiente, emailPaypal)
-                    : String.format(" Pago de %.2f€ (%d transacciones) enviado exitosamente a %s mediante PayPal", 
+                    ? String.format(" Pago de %.2f€ enviado a PayPal (%s). Aparecerá como cobrado cuando PayPal lo confirme", totalPendiente, emailPaypal)
+                    : String.format(" Pago de %.2f€ (%d transacciones) enviado a PayPal (%s). Aparecerá como cobrado cuando PayPal lo confirme", 
                         totalPendiente, transaccionesPendientes.size(), emailPaypal);
                 
                 redirectAttributes.addFlashAttribute("success", mensajeExito);
@@ -591,12 +610,9 @@ public class ProveedorController extends BaseController {
                     return "redirect:/proveedor/ventas";
                 }
                 
-                // Marcar transacciones como pagadas (transferencia manual)
-                for (TransaccionProveedor transaccion : transaccionesPendientes) {
-                    transaccion.setEstadoPago(EstadoPago.PAGADO);
-                    transaccion.setFechaPago(java.time.LocalDateTime.now());
-                    transaccionProveedorRepository.save(transaccion);
-                }
+                // Marcar transacciones como pagadas (transferencia manual), en bloque
+                List<Integer> ids = transaccionesPendientes.stream().map(TransaccionProveedor::getId).toList();
+                transaccionProveedorService.marcarComoPagadas(ids, EstadoPago.PENDIENTE, null);
                 
                 redirectAttributes.addFlashAttribute("success", 
                     String.format(" Solicitud de transferencia de %.2f€ registrada. Se procesará en 2-3 días hábiles a la cuenta: %s", 
@@ -0,0 +1,140 @@
+package com.example.proyecto_pixelshop.controller;
+
+import com.example.proyecto_pixelshop.model.Juego;
+import com.example.proyecto_pixelshop.model.Usuario;
+import com.example.proyecto_pixelshop.model.dto.SubidaArchivo;
+import com.example.proyecto_pixelshop.model.dto.TicketSubida;
+import com.example.proyecto_pixelshop.model.enums.TipoSubida;
+import com.example.proyecto_pixelshop.repository.UsuarioRepository;
+import com.example.proyecto_pixelshop.service.interfaz.FirmaNoDisponibleException;
+import com.example.proyecto_pixelshop.service.interfaz.IServicioSubidaArchivo;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// API de subida de archivos grandes (la usan los formularios de publicar y editar).
+// Subida directa: POST /ticket da una URL SAS, el cliente sube a Azure y POST /{id}/completar verifica el blob.
+// Subida a través del servidor (si no hay SAS): el cuerpo del PUT se envía tal cual (application/octet-stream), sin multipart
+@RestController
+@RequestMapping("/proveedor/archivos")
+@PreAuthorize("hasAnyRole('PROVEEDOR', 'ADMIN')")
+public class SubidaArchivoController extends BaseController {
+    
+    @Autowired private IServicioSubidaArchivo subidaService;
+    @Autowired private UsuarioRepository usuarioRepository;
+    
+    // Abre una subida y devuelve su ID y el tamaño de bloque
+    @PostMapping
+    public ResponseEntity<?> iniciar(@RequestParam String nombre, @RequestParam long tamanio, Authentication authentication) {
+        try {
+            SubidaArchivo subida = subidaService.iniciar(obtenerProveedorId(authentication), nombre, tamanio);
+            return ResponseEntity.ok(estado(subida.id(), 0, null));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    // Recibe el contenido (o el resto, a partir de "desde") y lo envía a Azure por bloques
+    @PutMapping("/{subidaId}")
+    public ResponseEntity<?> recibir(@PathVariable String subidaId,
+                                     @RequestParam(defaultValue = "0") long desde,
+                                     HttpServletRequest request,
+                                     Authentication authentication) {
+        Integer proveedorId = obtenerProveedorId(authentication);
+        try {
+            subidaService.recibir(subidaId, proveedorId, request.getInputStream(), desde);
+            return ResponseEntity.ok(estado(subidaId, subidaService.bytesRecibidos(subidaId, proveedorId), null));
+        } catch (IOException e) {
+            // Se devuelve lo recibido hasta ahora para que el cliente pueda reanudar
+            Map<String, Object> respuesta = estado(subidaId, subidaService.bytesRecibidos(subidaId, proveedorId), null);
+            respuesta.put("error", e.getMessage());
+            return ResponseEntity.status(503).body(respuesta);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    // Estado de la subida (bytes contiguos recibidos) para reanudarla
+    @GetMapping("/{subidaId}")
+    public ResponseEntity<?> estado(@PathVariable String subidaId, Authentication authentication) {
+        try {
+            return ResponseEntity.ok(estado(subidaId, subidaService.bytesRecibidos(subidaId, obtenerProveedorId(authentication)), null));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(404).body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    // Confirma los bloques; a partir de aquí el ID se puede enviar en el formulario del juego
+    @PostMapping("/{subidaId}/confirmar")
+    public ResponseEntity<?> confirmar(@PathVariable String subidaId, Authentication authentication) {
+        try {
+            SubidaArchivo subida = subidaService.confirmar(subidaId, obtenerProveedorId(authentication));
+            return ResponseEntity.ok(estado(subidaId, subida.tamanio(), subida.url()));
+        } catch (IOException | RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    // Emite una URL SAS para subir el archivo (tipo ARCHIVO o VIDEO) directamente a Azure
+    @PostMapping("/ticket")
+    public ResponseEntity<?> ticket(@RequestParam String nombre,
+                                    @RequestParam long tamanio,
+                                    @RequestParam(defaultValue = "ARCHIVO") TipoSubida tipo,
+                                    Authentication authentication) {
+        try {
+            TicketSubida ticket = subidaService.emitirTicket(obtenerProveedorId(authentication), tipo, nombre, tamanio);
+            return ResponseEntity.ok(ticket);
+        } catch (FirmaNoDisponibleException e) {
+            // Sin clave de cuenta no se pueden firmar URLs: el cliente debe usar la subida a través del servidor
+            return ResponseEntity.status(503).body(Map.of("error", e.getMessage()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    // Verifica el blob subido directamente; con juegoId, además lo asocia a ese juego (si no, se envía el ID en el formulario)
+    @PostMapping("/{subidaId}/completar")
+    public ResponseEntity<?> completar(@PathVariable String subidaId,
+                                       @RequestParam(required = false) Integer juegoId,
+                                       Authentication authentication) {
+        Integer proveedorId = obtenerProveedorId(authentication);
+        try {
+            SubidaArchivo subida = subidaService.completar(subidaId, proveedorId);
+            Map<String, Object> respuesta = estado(subidaId, subida.tamanio(), subida.url());
+            if (juegoId != null) {
+                Juego juego = subidaService.adjuntar(subidaId, proveedorId, juegoId);
+                respuesta.put("juegoId", juego.getId());
+            }
+            return ResponseEntity.ok(respuesta);
+        } catch (IOException | RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    // ========== MÉTODOS PRIVADOS ==========
+    
+    private Map<String, Object> estado(String subidaId, long bytesRecibidos, String url) {
+        Map<String, Object> estado = new LinkedHashMap<>();
+        estado.put("subidaId", subidaId);
+        estado.put("tamanioBloque", subidaService.tamanioBloque());
+        estado.put("bytesRecibidos", bytesRecibidos);
+        if (url != null) {
+            estado.put("url", url);
+        }
+        return estado;
+    }
+    
+    private Integer obtenerProveedorId(Authentication authentication) {
+        String email = obtenerEmailDelUsuario(authentication);
+        Usuario proveedor = usuarioRepository.findByEmail(email)
+            .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+        return proveedor.getId();
+    }
+}
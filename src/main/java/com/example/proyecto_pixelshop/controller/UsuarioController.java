@@ -1,23 +1,42 @@
 package com.example.proyecto_pixelshop.controller;
 
+import com.example.proyecto_pixelshop.config.resiliencia.DependenciaNoDisponibleException;
+import com.example.proyecto_pixelshop.config.resiliencia.RegistroResiliencia;
 import com.example.proyecto_pixelshop.model.Compra;
-import com.example.proyecto_pixelshop.model.Juego;
 import com.example.proyecto_pixelshop.model.Usuario;
+import com.example.proyecto_pixelshop.model.dto.DerechoDescarga;
+import com.example.proyecto_pixelshop.model.dto.PropiedadesBlob;
+import com.example.proyecto_pixelshop.model.enums.ModoDescarga;
+import com.example.proyecto_pixelshop.service.interfaz.FirmaNoDisponibleException;
 import com.example.proyecto_pixelshop.service.interfaz.IServicioCompra;
+import com.example.proyecto_pixelshop.service.interfaz.IServicioDerechoDescarga;
 import com.example.proyecto_pixelshop.service.interfaz.IServicioUsuario;
 import com.example.proyecto_pixelshop.service.interfaz.IAzureBlobStorageService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpRange;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import java.util.List;
-import java.net.URL;
+import java.net.URI;
+import java.net.URLConnection;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.UUID;
+import java.time.Duration;
 import org.springframework.core.io.InputStreamResource;
 
 @Controller
@@ -26,6 +45,22 @@ public class UsuarioController extends BaseController {
     @Autowired private IServicioCompra compraService;
     @Autowired private IServicioUsuario usuarioService;
     @Autowired private IAzureBlobStorageService azureStorageService;
+    @Autowired private IServicioDerechoDescarga derechoDescargaService;
+    @Autowired private RegistroResiliencia registroResiliencia;
+    
+    // REDIRECCION (por defecto) o PROXY
+    @Value("${descargas.modo:REDIRECCION}")
+    private ModoDescarga modoDescarga;
+    
+    // Tiempo para empezar la descarga con el enlace firmado (luego hay que volver a pedirlo desde la biblioteca)
+    @Value("${descargas.validez-enlace-minutos:5}")
+    private int validezEnlaceMinutos;
+    
+    // Tiempo máximo de espera entre datos en el modo PROXY (el de conexión es el plazo de resiliencia.descargas)
+    private static final int TIMEOUT_LECTURA_MS = 30_000;
+    
+    // Con más rangos se ignora la cabecera Range y se envía el archivo completo (cada rango es una lectura a Azure)
+    private static final int MAX_RANGOS = 16;
     
     @GetMapping("/mi-biblioteca")
     public String miBiblioteca(Model model, Authentication authentication) {
@@ -42,51 +77,233 @@ public class UsuarioController extends BaseController {
     
     @GetMapping("/descargar-juego/{juegoId}")
     public ResponseEntity<?> descargarJuego(@PathVariable Integer juegoId, 
-                                             Authentication authentication) {
+                                             Authentication authentication,
+                                             HttpServletRequest request,
+                                             HttpServletResponse response) {
         try {
-            String email = obtenerEmailDelUsuario(authentication);
-            Usuario usuario = usuarioService.buscarPorEmail(email)
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+            // Verificar que el usuario ha comprado el juego (una consulta como mucho; después, desde la sesión)
+            DerechoDescarga derecho = derechoDescargaService.comprobar(obtenerEmailDelUsuario(authentication), juegoId)
+                .orElse(null);
             
-            // Verificar que el usuario ha comprado el juego
-            boolean haComprado = compraService.obtenerBiblioteca(usuario).stream()
-                .anyMatch(compra -> compra.getJuego().getId().equals(juegoId));
-            
-            if (!haComprado) {
+            if (derecho == null) {
                 return ResponseEntity.status(403)
                     .body("No tienes permiso para descargar este juego");
             }
             
-            // Obtener el juego
-            Juego juego = compraService.obtenerBiblioteca(usuario).stream()
-                .filter(c -> c.getJuego().getId().equals(juegoId))
-                .map(Compra::getJuego)
-                .findFirst()
-                .orElseThrow(() -> new RuntimeException("Juego no encontrado"));
-            
             // Verificar que el juego tiene archivo
-            if (juego.getArchivoDescargableUrl() == null || juego.getArchivoDescargableUrl().isEmpty()) {
+            if (!derecho.tieneArchivo()) {
                 return ResponseEntity.status(404)
                     .body("Este juego no tiene archivo disponible para descarga");
             }
             
-            // Descargar archivo desde Azure
-            URL url = new URL(juego.getArchivoDescargableUrl());
-            InputStream inputStream = url.openStream();
+            // Redirigir a Azure con un enlace de solo lectura: la descarga no ocupa un hilo ni una conexión del servidor
+            String blobName = azureStorageService.isAzureBlobUrl(derecho.archivoUrl())
+                ? azureStorageService.getBlobName(derecho.archivoUrl())
+                : null;
+            if (modoDescarga == ModoDescarga.REDIRECCION && blobName != null) {
+                try {
+                    String enlace = azureStorageService.generateDownloadUrl(blobName,
+                        Duration.ofMinutes(validezEnlaceMinutos), derecho.archivoNombre());
+                    return ResponseEntity.status(302)
+                        .location(URI.create(enlace))
+                        .cacheControl(CacheControl.noStore()) // El enlace es personal y caduca
+                        .build();
+                } catch (FirmaNoDisponibleException e) {
+                    System.err.println("Descarga por redirección no disponible, se usa el modo proxy: " + e.getMessage());
+                }
+            }
+            
+            // Modo proxy: se reenvía desde Azure respetando Range, así que las descargas se pueden reanudar
+            if (blobName != null) {
+                return servirBlob(blobName, derecho.archivoNombre(), request, response);
+            }
+            
+            // Archivo fuera de nuestro contenedor: descargar y reenviar completo
+            // (el hueco del bulkhead de descargas se libera cuando Spring cierra el flujo al terminar la respuesta)
+            URLConnection conexion = URI.create(derecho.archivoUrl()).toURL().openConnection();
+            conexion.setReadTimeout(TIMEOUT_LECTURA_MS);
+            InputStream inputStream = registroResiliencia.obtener(RegistroResiliencia.DESCARGAS).abrirFlujo(plazo -> {
+                conexion.setConnectTimeout((int) plazo.toMillis());
+                return conexion.getInputStream();
+            });
             
             // Preparar respuesta con el archivo
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-            headers.setContentDispositionFormData("attachment", juego.getArchivoNombre());
+            headers.setContentDispositionFormData("attachment", derecho.archivoNombre());
+            if (conexion.getContentLengthLong() >= 0) {
+                headers.setContentLength(conexion.getContentLengthLong());
+            }
             
             return ResponseEntity.ok()
                 .headers(headers)
                 .body(new InputStreamResource(inputStream));
                 
+        } catch (DependenciaNoDisponibleException e) {
+            // Demasiadas descargas en curso o almacenamiento caído: mejor reintentar en un momento que esperar
+            if (response.isCommitted()) {
+                System.err.println("Descarga interrumpida del juego " + juegoId + ": " + e.getMessage());
+                return null;
+            }
+            return ResponseEntity.status(503)
+                .header(HttpHeaders.RETRY_AFTER, "30")
+                .body("Hay demasiadas descargas en curso, inténtalo de nuevo en unos segundos");
         } catch (Exception e) {
+            if (response.isCommitted()) {
+                // La descarga ya había empezado (normalmente, el cliente ha cortado la conexión): puede reanudarla con Range
+                System.err.println("Descarga interrumpida del juego " + juegoId + ": " + e.getMessage());
+                return null;
+            }
             e.printStackTrace();
             return ResponseEntity.status(500)
                 .body("Error al descargar el archivo: " + e.getMessage());
         }
     }
+    
+    // ========== MÉTODOS PRIVADOS ==========
+    
+    /**
+     * Sirve un blob a través de la aplicación con soporte de Range (uno o varios rangos), If-Range, ETag y Content-Length.
+     * Cada rango se pide a Azure como lectura parcial, así que reanudar no vuelve a transferir lo ya descargado
+     */
+    private ResponseEntity<?> servirBlob(String blobName, String nombreArchivo, HttpServletRequest request,
+                                         HttpServletResponse response) throws IOException {
+        PropiedadesBlob blob = azureStorageService.getBlobProperties(blobName);
+        if (blob == null) {
+            return ResponseEntity.status(404).body("Este juego no tiene archivo disponible para descarga");
+        }
+        long total = blob.tamanio();
+        
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.ETAG, blob.etag());
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, blob.ultimaModificacion());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noStore().getHeaderValue());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+            ContentDisposition.attachment().filename(nombreArchivo, StandardCharsets.UTF_8).build().toString());
+        boolean conCuerpo = !"HEAD".equalsIgnoreCase(request.getMethod());
+        
+        List<long[]> rangos = rangosSolicitados(request, blob);
+        if (rangos == null) {
+            response.setStatus(416);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + total);
+            return null;
+        }
+        
+        // Sin Range (o If-Range no coincide): archivo completo
+        if (rangos.isEmpty()) {
+            response.setStatus(200);
+            response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            response.setContentLengthLong(total);
+            if (conCuerpo && total > 0) {
+                copiarRango(blobName, blob, 0, total, response.getOutputStream());
+            }
+            return null;
+        }
+        
+        response.setStatus(206);
+        
+        // Un rango: el cuerpo es directamente ese trozo
+        if (rangos.size() == 1) {
+            long inicio = rangos.get(0)[0];
+            long fin = rangos.get(0)[1];
+            response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + inicio + "-" + fin + "/" + total);
+            response.setContentLengthLong(fin - inicio + 1);
+            if (conCuerpo) {
+                copiarRango(blobName, blob, inicio, fin - inicio + 1, response.getOutputStream());
+            }
+            return null;
+        }
+        
+        // Varios rangos: multipart/byteranges, con la longitud total calculada de antemano
+        String separador = UUID.randomUUID().toString().replace("-", "");
+        List<byte[]> cabecerasParte = new ArrayList<>(rangos.size());
+        long longitud = 0;
+        for (long[] rango : rangos) {
+            byte[] cabecera = ("\r\n--" + separador + "\r\n"
+                + "Content-Type: " + MediaType.APPLICATION_OCTET_STREAM_VALUE + "\r\n"
+                + "Content-Range: bytes " + rango[0] + "-" + rango[1] + "/" + total + "\r\n\r\n")
+                .getBytes(StandardCharsets.US_ASCII);
+            cabecerasParte.add(cabecera);
+            longitud += cabecera.length + (rango[1] - rango[0] + 1);
+        }
+        byte[] cierre = ("\r\n--" + separador + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        longitud += cierre.length;
+        
+        response.setContentType("multipart/byteranges; boundary=" + separador);
+        response.setContentLengthLong(longitud);
+        if (conCuerpo) {
+            OutputStream salida = response.getOutputStream();
+            for (int i = 0; i < rangos.size(); i++) {
+                salida.write(cabecerasParte.get(i));
+                copiarRango(blobName, blob, rangos.get(i)[0], rangos.get(i)[1] - rangos.get(i)[0] + 1, salida);
+            }
+            salida.write(cierre);
+        }
+        return null;
+    }
+    
+    /**
+     * Rangos pedidos como pares {inicio, fin} (inclusive), validados contra el tamaño del blob.
+     * Lista vacía = enviar el archivo completo; null = ningún rango es satisfacible (416)
+     */
+    private List<long[]> rangosSolicitados(HttpServletRequest request, PropiedadesBlob blob) {
+        String cabecera = request.getHeader(HttpHeaders.RANGE);
+        if (cabecera == null || !coincideIfRange(request, blob)) {
+            return List.of();
+        }
+        List<HttpRange> pedidos;
+        try {
+            pedidos = HttpRange.parseRanges(cabecera);
+        } catch (IllegalArgumentException e) {
+            return List.of(); // Cabecera mal formada: se ignora
+        }
+        if (pedidos.isEmpty() || pedidos.size() > MAX_RANGOS) {
+            return List.of();
+        }
+        
+        List<long[]> rangos = new ArrayList<>(pedidos.size());
+        for (HttpRange pedido : pedidos) {
+            try {
+                long inicio = pedido.getRangeStart(blob.tamanio());
+                long fin = pedido.getRangeEnd(blob.tamanio());
+                if (inicio <= fin) {
+                    rangos.add(new long[] {inicio, fin});
+                }
+            } catch (IllegalArgumentException e) {
+                // Empieza después del final del archivo: este rango no se puede servir
+            }
+        }
+        return rangos.isEmpty() ? null : rangos;
+    }
+    
+    /**
+     * If-Range: el rango solo se aplica si el archivo no ha cambiado (ETag fuerte igual, o misma fecha de modificación)
+     */
+    private boolean coincideIfRange(HttpServletRequest request, PropiedadesBlob blob) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(blob.etag());
+        }
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) == blob.ultimaModificacion() / 1000 * 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+    
+    /**
+     * Copia un rango del blob a la respuesta; si el blob cambia a mitad, la lectura falla en vez de mezclar versiones
+     */
+    private void copiarRango(String blobName, PropiedadesBlob blob, long inicio, long cantidad, OutputStream salida)
+            throws IOException {
+        // Cada rango ocupa un hueco del bulkhead de descargas mientras se transfiere
+        try (InputStream entrada = registroResiliencia.obtener(RegistroResiliencia.DESCARGAS)
+                .abrirFlujo(plazo -> azureStorageService.openBlobRange(blobName, inicio, cantidad, blob.etag()))) {
+            entrada.transferTo(salida);
+        }
+    }
 }
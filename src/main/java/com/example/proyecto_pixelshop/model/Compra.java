@@ -6,7 +6,12 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "compra", uniqueConstraints = {
-    @UniqueConstraint(name = "uk_usuario_juego", columnNames = {"usuario_id", "juego_id"})
+    @UniqueConstraint(name = "uk_usuario_juego", columnNames = {"usuario_id", "juego_id"}),
+    // Una orden de PayPal solo puede registrar una compra (finalizar dos veces la misma orden no duplica nada)
+    @UniqueConstraint(name = "uk_compra_orden_paypal", columnNames = {"id_orden_paypal"})
+}, indexes = {
+    // Comprobación de derecho de descarga (usuario, juego, COMPLETADA) resuelta solo con el índice
+    @Index(name = "idx_compra_usuario_juego_estado", columnList = "usuario_id, juego_id, estado")
 })
 public class Compra {
     
@@ -0,0 +1,97 @@
+package com.example.proyecto_pixelshop.model;
+
+import com.example.proyecto_pixelshop.model.enums.EstadoEmail;
+import com.example.proyecto_pixelshop.model.enums.TipoEmail;
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Email de la bandeja de salida. Se guarda ya renderizado en la misma transacción que el cambio que lo provoca
+ * (una compra, un registro...) y lo envía después el despachador en segundo plano (ver IServicioBandejaSalida).
+ */
+@Entity
+@Table(name = "email_pendiente", indexes = {
+    // El despachador busca los PENDIENTE cuyo siguiente intento ya ha llegado
+    @Index(name = "idx_email_estado_siguiente", columnList = "estado, siguiente_intento")
+})
+public class EmailPendiente {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 30)
+    private TipoEmail tipo;
+    
+    @Column(nullable = false, length = 100)
+    private String destinatario;
+    
+    @Column(nullable = false, length = 255)
+    private String asunto;
+    
+    @Column(name = "cuerpo_html", nullable = false, columnDefinition = "TEXT")
+    private String cuerpoHtml;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private EstadoEmail estado = EstadoEmail.PENDIENTE;
+    
+    @Column(nullable = false)
+    private Integer intentos = 0;
+    
+    // Cuándo puede intentarse el envío (en ENVIANDO, hasta cuándo dura el bloqueo del despachador)
+    @Column(name = "siguiente_intento", nullable = false)
+    private LocalDateTime siguienteIntento;
+    
+    @Column(name = "ultimo_error", length = 500)
+    private String ultimoError;
+    
+    @Column(name = "fecha_creacion", updatable = false)
+    private LocalDateTime fechaCreacion;
+    
+    @Column(name = "fecha_envio")
+    private LocalDateTime fechaEnvio;
+    
+    // Constructores
+    public EmailPendiente() {}
+    
+    public EmailPendiente(TipoEmail tipo, String destinatario, String asunto, String cuerpoHtml) {
+        this.tipo = tipo;
+        this.destinatario = destinatario;
+        this.asunto = asunto;
+        this.cuerpoHtml = cuerpoHtml;
+    }
+    
+    @PrePersist
+    protected void onCreate() {
+        this.fechaCreacion = LocalDateTime.now();
+        if (this.siguienteIntento == null) {
+            this.siguienteIntento = this.fechaCreacion;
+        }
+    }
+    
+    // Getters y Setters
+    public Integer getId() {return id;}
+    public void setId(Integer id) {this.id = id;}
+    public TipoEmail getTipo() {return tipo;}
+    public void setTipo(TipoEmail tipo) {this.tipo = tipo;}
+    public String getDestinatario() {return destinatario;}
+    public void setDestinatario(String destinatario) {this.destinatario = destinatario;}
+    public String getAsunto() {return asunto;}
+    public void setAsunto(String asunto) {this.asunto = asunto;}
+    public String getCuerpoHtml() {return cuerpoHtml;}
+    public void setCuerpoHtml(String cuerpoHtml) {this.cuerpoHtml = cuerpoHtml;}
+    public EstadoEmail getEstado() {return estado;}
+    public void setEstado(EstadoEmail estado) {this.estado = estado;}
+    public Integer getIntentos() {return intentos;}
+    public void setIntentos(Integer intentos) {this.intentos = intentos;}
+    public LocalDateTime getSiguienteIntento() {return siguienteIntento;}
+    public void setSiguienteIntento(LocalDateTime siguienteIntento) {this.siguienteIntento = siguienteIntento;}
+    public String getUltimoError() {return ultimoError;}
+    public void setUltimoError(String ultimoError) {this.ultimoError = ultimoError;}
+    public LocalDateTime getFechaCreacion() {return fechaCreacion;}
+    public void setFechaCreacion(LocalDateTime fechaCreacion) {this.fechaCreacion = fechaCreacion;}
+    public LocalDateTime getFechaEnvio() {return fechaEnvio;}
+    public void setFechaEnvio(LocalDateTime fechaEnvio) {this.fechaEnvio = fechaEnvio;}
+}
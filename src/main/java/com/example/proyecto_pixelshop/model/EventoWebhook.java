@@ -0,0 +1,97 @@
+package com.example.proyecto_pixelshop.model;
+
+import com.example.proyecto_pixelshop.model.enums.EstadoEventoWebhook;
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Evento recibido por el webhook de PayPal. Se guarda tal cual llega (una vez verificada la firma) y se procesa
+ * después en segundo plano (ver IServicioWebhookPayPal). El ID del evento es único: PayPal reenvía
+ * los eventos hasta recibir un 2xx, y los repetidos no se vuelven a guardar.
+ */
+@Entity
+@Table(name = "evento_webhook", indexes = {
+    // El procesador busca los PENDIENTE cuyo siguiente intento ya ha llegado
+    @Index(name = "idx_webhook_estado_siguiente", columnList = "estado, siguiente_intento")
+})
+public class EventoWebhook {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+    
+    @Column(name = "id_evento", nullable = false, unique = true, length = 100)
+    private String idEvento;
+    
+    @Column(nullable = false, length = 60)
+    private String tipo;
+    
+    // Orden de PayPal a la que se refiere el evento
+    @Column(name = "id_orden", length = 100)
+    private String idOrden;
+    
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payload;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private EstadoEventoWebhook estado = EstadoEventoWebhook.PENDIENTE;
+    
+    @Column(nullable = false)
+    private Integer intentos = 0;
+    
+    // Cuándo puede procesarse (en PROCESANDO, hasta cuándo dura el bloqueo del procesador)
+    @Column(name = "siguiente_intento", nullable = false)
+    private LocalDateTime siguienteIntento;
+    
+    @Column(name = "ultimo_error", length = 500)
+    private String ultimoError;
+    
+    @Column(name = "fecha_recepcion", updatable = false)
+    private LocalDateTime fechaRecepcion;
+    
+    @Column(name = "fecha_procesado")
+    private LocalDateTime fechaProcesado;
+    
+    // Constructores
+    public EventoWebhook() {}
+    
+    public EventoWebhook(String idEvento, String tipo, String idOrden, String payload) {
+        this.idEvento = idEvento;
+        this.tipo = tipo;
+        this.idOrden = idOrden;
+        this.payload = payload;
+    }
+    
+    @PrePersist
+    protected void onCreate() {
+        this.fechaRecepcion = LocalDateTime.now();
+        if (this.siguienteIntento == null) {
+            this.siguienteIntento = this.fechaRecepcion;
+        }
+    }
+    
+    // Getters y Setters
+    public Integer getId() {return id;}
+    public void setId(Integer id) {this.id = id;}
+    public String getIdEvento() {return idEvento;}
+    public void setIdEvento(String idEvento) {this.idEvento = idEvento;}
+    public String getTipo() {return tipo;}
+    public void setTipo(String tipo) {this.tipo = tipo;}
+    public String getIdOrden() {return idOrden;}
+    public void setIdOrden(String idOrden) {this.idOrden = idOrden;}
+    public String getPayload() {return payload;}
+    public void setPayload(String payload) {this.payload = payload;}
+    public EstadoEventoWebhook getEstado() {return estado;}
+    public void setEstado(EstadoEventoWebhook estado) {this.estado = estado;}
+    public Integer getIntentos() {return intentos;}
+    public void setIntentos(Integer intentos) {this.intentos = intentos;}
+    public LocalDateTime getSiguienteIntento() {return siguienteIntento;}
+    public void setSiguienteIntento(LocalDateTime siguienteIntento) {this.siguienteIntento = siguienteIntento;}
+    public String getUltimoError() {return ultimoError;}
+    public void setUltimoError(String ultimoError) {this.ultimoError = ultimoError;}
+    public LocalDateTime getFechaRecepcion() {return fechaRecepcion;}
+    public void setFechaRecepcion(LocalDateTime fechaRecepcion) {this.fechaRecepcion = fechaRecepcion;}
+    public LocalDateTime getFechaProcesado() {return fechaProcesado;}
+    public void setFechaProcesado(LocalDateTime fechaProcesado) {this.fechaProcesado = fechaProcesado;}
+}
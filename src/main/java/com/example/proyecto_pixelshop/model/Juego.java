@@ -1,14 +1,25 @@
 package com.example.proyecto_pixelshop.model;
 
+import com.example.proyecto_pixelshop.model.enums.VarianteImagen;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
 @Entity
-@Table(name = "juego")
+@Table(name = "juego", uniqueConstraints = {
+    // Un solo juego ACTIVO por título (la columna es null en los inactivos, que no cuentan para la unicidad)
+    @UniqueConstraint(name = Juego.UK_TITULO_ACTIVO, columnNames = "titulo_normalizado_activo")
+}, indexes = {
+    // Índices compuestos para la paginación por clave del catálogo (ver JuegoRepository)
+    @Index(name = "idx_juego_catalogo", columnList = "activo, fecha_publicacion, id"),
+    @Index(name = "idx_juego_genero_catalogo", columnList = "activo, genero, fecha_publicacion, id")
+})
 public class Juego {
     
+    public static final String UK_TITULO_ACTIVO = "uk_juego_titulo_activo";
+    
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Integer id;
@@ -20,6 +31,10 @@ public class Juego {
     @Column(nullable = false, length = 200)
     private String titulo;
     
+    // Título normalizado (minúsculas, sin espacios extremos) solo mientras el juego está activo; lo mantiene la propia entidad
+    @Column(name = "titulo_normalizado_activo", length = 200)
+    private String tituloNormalizadoActivo;
+    
     @Column(columnDefinition = "TEXT")
     private String descripcion;
     
@@ -45,6 +60,10 @@ public class Juego {
     @Column(name = "imagen_4_url", length = 255)
     private String imagen4Url;
     
+    // Si las imágenes tienen variantes redimensionadas (ver VarianteImagen). Los juegos antiguos solo tienen el original
+    @Column(name = "imagenes_derivadas")
+    private Boolean imagenesDerivadas = false;
+    
     // Archivo descargable (ZIP)
     @Column(name = "archivo_descargable_url", length = 500)
     private String archivoDescargableUrl;
@@ -102,11 +121,22 @@ public class Juego {
         if (this.montoPublicacion == null) {
             this.montoPublicacion = 25.00;
         }
+        actualizarTituloNormalizado();
     }
     
     @PreUpdate
     protected void onUpdate() {
         this.fechaActualizacion = LocalDateTime.now();
+        actualizarTituloNormalizado();
+    }
+    
+    private void actualizarTituloNormalizado() {
+        this.tituloNormalizadoActivo = Boolean.TRUE.equals(this.activo) ? normalizarTitulo(this.titulo) : null;
+    }
+    
+    // Forma del título usada para comprobar duplicados (misma regla que equalsIgnoreCase)
+    public static String normalizarTitulo(String titulo) {
+        return titulo == null ? null : titulo.trim().toLowerCase(Locale.ROOT);
     }
     
     // Getters y Setters
@@ -116,6 +146,7 @@ public class Juego {
     public void setProveedor(Usuario proveedor) {this.proveedor = proveedor;}
     public String getTitulo() {return titulo;}
     public void setTitulo(String titulo) {this.titulo = titulo;}
+    public String getTituloNormalizadoActivo() {return tituloNormalizadoActivo;}
     public String getDescripcion() {return descripcion;}
     public void setDescripcion(String descripcion) {this.descripcion = descripcion;}
     public Double getPrecio() {return precio;}
@@ -132,6 +163,8 @@ public class Juego {
     public void setImagen3Url(String imagen3Url) {this.imagen3Url = imagen3Url;}
     public String getImagen4Url() {return imagen4Url;}
     public void setImagen4Url(String imagen4Url) {this.imagen4Url = imagen4Url;}
+    public Boolean getImagenesDerivadas() {return imagenesDerivadas;}
+    public void setImagenesDerivadas(Boolean imagenesDerivadas) {this.imagenesDerivadas = imagenesDerivadas;}
     public String getArchivoDescargableUrl() {return archivoDescargableUrl;}
     public void setArchivoDescargableUrl(String archivoDescargableUrl) {this.archivoDescargableUrl = archivoDescargableUrl;}
     public String getArchivoNombre() {return archivoNombre;}
@@ -150,4 +183,23 @@ public class Juego {
     public void setFechaActualizacion(LocalDateTime fechaActualizacion) {this.fechaActualizacion = fechaActualizacion;}
     public List<Compra> getCompras() {return compras;}
     public void setCompras(List<Compra> compras) {this.compras = compras;}
+    
+    // URL de una variante de la imagen (MINIATURA, TARJETA o DETALLE); si no hay variantes, el original
+    public String urlVariante(String urlImagen, String variante) {
+        if (urlImagen == null || !Boolean.TRUE.equals(imagenesDerivadas)) {
+            return urlImagen;
+        }
+        return VarianteImagen.valueOf(variante).nombreDe(urlImagen);
+    }
+    
+    // Atributo srcset de una imagen (null si el juego no tiene variantes, y Thymeleaf omite el atributo)
+    public String srcset(String urlImagen) {
+        return Boolean.TRUE.equals(imagenesDerivadas) ? VarianteImagen.srcset(urlImagen) : null;
+    }
+    
+    // El vídeo promocional puede ser un enlace de YouTube o un vídeo subido a Azure (se muestra con <video>)
+    public boolean esVideoYoutube() {
+        return videoPromocionalUrl != null
+            && (videoPromocionalUrl.contains("youtube.com") || videoPromocionalUrl.contains("youtu.be"));
+    }
 }
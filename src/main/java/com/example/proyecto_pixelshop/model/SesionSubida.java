@@ -0,0 +1,74 @@
+package com.example.proyecto_pixelshop.model;
+
+import com.example.proyecto_pixelshop.model.dto.SubidaArchivo;
+import com.example.proyecto_pixelshop.model.enums.TipoSubida;
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Subida de un archivo grande abierta por un proveedor (ver IServicioSubidaArchivo), guardada por su ID.
+ * Sobrevive a reinicios y es compartida entre instancias, así que una subida se puede reanudar, completar
+ * o consumir desde cualquiera de ellas. url es null hasta que el archivo está confirmado en Azure.
+ */
+@Entity
+@Table(name = "subida_archivo", indexes = {
+    // La purga elimina las sesiones abandonadas por antigüedad
+    @Index(name = "idx_subida_fecha_creacion", columnList = "fecha_creacion")
+})
+public class SesionSubida {
+    
+    @Id
+    @Column(length = 36)
+    private String id;
+    
+    @Column(name = "proveedor_id", nullable = false)
+    private Integer proveedorId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private TipoSubida tipo;
+    
+    @Column(name = "blob_name", nullable = false, length = 255)
+    private String blobName;
+    
+    @Column(name = "nombre_archivo", nullable = false, length = 255)
+    private String nombreArchivo;
+    
+    @Column(name = "content_type", nullable = false, length = 100)
+    private String contentType;
+    
+    @Column(nullable = false)
+    private Long tamanio;
+    
+    @Column(length = 500)
+    private String url;
+    
+    @Column(name = "fecha_creacion", nullable = false, updatable = false)
+    private LocalDateTime fechaCreacion;
+    
+    // Constructores
+    public SesionSubida() {}
+    
+    public SesionSubida(SubidaArchivo subida) {
+        this.id = subida.id();
+        this.proveedorId = subida.proveedorId();
+        this.tipo = subida.tipo();
+        this.blobName = subida.blobName();
+        this.nombreArchivo = subida.nombreArchivo();
+        this.contentType = subida.contentType();
+        this.tamanio = subida.tamanio();
+        this.url = subida.url();
+        this.fechaCreacion = subida.fechaCreacion();
+    }
+    
+    // Vista inmutable con la que trabaja el servicio
+    public SubidaArchivo aSubida() {
+        return new SubidaArchivo(id, proveedorId, tipo, blobName, nombreArchivo, contentType, tamanio, url, fechaCreacion);
+    }
+    
+    // Getters
+    public String getId() {return id;}
+    public Integer getProveedorId() {return proveedorId;}
+    public String getUrl() {return url;}
+    public LocalDateTime getFechaCreacion() {return fechaCreacion;}
+}
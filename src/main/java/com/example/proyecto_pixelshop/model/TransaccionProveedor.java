@@ -5,7 +5,10 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "transaccion_proveedor")
+@Table(name = "transaccion_proveedor", indexes = {
+    // La liquidación busca por estado y por lote de payouts
+    @Index(name = "idx_tp_estado_lote", columnList = "estado_pago, lote_liquidacion")
+})
 public class TransaccionProveedor {
     
     @Id
@@ -36,8 +39,9 @@ public class TransaccionProveedor {
     @Column(name = "importe_neto", nullable = false)
     private Double importeNeto;
     
+    // VARCHAR y no ENUM nativo de MySQL: así añadir un estado (como EN_PROCESO) no exige alterar la columna
     @Enumerated(EnumType.STRING)
-    @Column(name = "estado_pago", nullable = false)
+    @Column(name = "estado_pago", nullable = false, columnDefinition = "VARCHAR(20)")
     private EstadoPago estadoPago = EstadoPago.PENDIENTE;
     
     @Column(name = "fecha_venta")
@@ -46,6 +50,18 @@ public class TransaccionProveedor {
     @Column(name = "fecha_pago")
     private LocalDateTime fechaPago;
     
+    // Lote de payouts de PayPal en el que se ha enviado (sender_batch_id nuestro y payout_batch_id de PayPal)
+    @Column(name = "lote_liquidacion", length = 40)
+    private String loteLiquidacion;
+    
+    @Column(name = "payout_batch_id", length = 50)
+    private String payoutBatchId;
+    
+    // Motivo por el que PayPal rechazó el pago (o por el que no se puede enviar). Mientras tenga valor,
+    // la liquidación nocturna no la incluye; se vuelve a intentar cuando el proveedor pide cobrarla
+    @Column(name = "error_liquidacion", length = 255)
+    private String errorLiquidacion;
+    
     // Constructores
     public TransaccionProveedor() {}
     
@@ -87,4 +103,10 @@ public class TransaccionProveedor {
     public void setFechaVenta(LocalDateTime fechaVenta) {this.fechaVenta = fechaVenta;}
     public LocalDateTime getFechaPago() {return fechaPago;}
     public void setFechaPago(LocalDateTime fechaPago) {this.fechaPago = fechaPago;}
+    public String getLoteLiquidacion() {return loteLiquidacion;}
+    public void setLoteLiquidacion(String loteLiquidacion) {this.loteLiquidacion = loteLiquidacion;}
+    public String getPayoutBatchId() {return payoutBatchId;}
+    public void setPayoutBatchId(String payoutBatchId) {this.payoutBatchId = payoutBatchId;}
+    public String getErrorLiquidacion() {return errorLiquidacion;}
+    public void setErrorLiquidacion(String errorLiquidacion) {this.errorLiquidacion = errorLiquidacion;}
 }
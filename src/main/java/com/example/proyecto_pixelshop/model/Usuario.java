@@ -34,6 +34,10 @@ public class Usuario {
     @Column(name = "email_paypal", length = 100)
     private String emailPaypal;
     
+    // Cada cuántos minutos se envía el resumen de ventas (0 = un email por venta, null = valor por defecto)
+    @Column(name = "minutos_resumen_ventas")
+    private Integer minutosResumenVentas;
+    
     // Google OAuth
     @Column(name = "id_google", length = 100)
     private String idGoogle;
@@ -103,6 +107,8 @@ public class Usuario {
     public void setEmailPaypal(String emailPaypal) {this.emailPaypal = emailPaypal;}
     public String getIdGoogle() {return idGoogle;}
     public void setIdGoogle(String idGoogle) {this.idGoogle = idGoogle;}
+    public Integer getMinutosResumenVentas() {return minutosResumenVentas;}
+    public void setMinutosResumenVentas(Integer minutosResumenVentas) {this.minutosResumenVentas = minutosResumenVentas;}
     public Boolean getActivo() {return activo;}
     public void setActivo(Boolean activo) {this.activo = activo;}
     public LocalDateTime getFechaRegistro() {return fechaRegistro;}
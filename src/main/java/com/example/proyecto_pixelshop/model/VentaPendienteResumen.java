@@ -0,0 +1,61 @@
+package com.example.proyecto_pixelshop.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Venta que todavía no se ha notificado al proveedor: se acumulan hasta que termina su ventana de resumen
+ * y entonces se envía un único email con todas (ver IServicioResumenVentas).
+ * Guarda una copia de los datos de la venta en lugar de relaciones, para no bloquear el borrado de compras o usuarios.
+ */
+@Entity
+@Table(name = "venta_pendiente_resumen", indexes = {
+    @Index(name = "idx_venta_resumen_proveedor", columnList = "proveedor_id, fecha_venta")
+})
+public class VentaPendienteResumen {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+    
+    @Column(name = "proveedor_id", nullable = false)
+    private Integer proveedorId;
+    
+    // Una compra solo se notifica una vez
+    @Column(name = "compra_id", nullable = false, unique = true)
+    private Integer compraId;
+    
+    @Column(name = "titulo_juego", nullable = false, length = 200)
+    private String tituloJuego;
+    
+    @Column(name = "precio_pagado", nullable = false)
+    private Double precioPagado;
+    
+    @Column(name = "fecha_venta", nullable = false)
+    private LocalDateTime fechaVenta;
+    
+    // Constructores
+    public VentaPendienteResumen() {}
+    
+    public VentaPendienteResumen(Compra compra) {
+        this.proveedorId = compra.getJuego().getProveedor().getId();
+        this.compraId = compra.getId();
+        this.tituloJuego = compra.getJuego().getTitulo();
+        this.precioPagado = compra.getPrecioPagado();
+        this.fechaVenta = LocalDateTime.now(); // Cuando se completa, no cuando se creó la compra pendiente
+    }
+    
+    // Getters y Setters
+    public Integer getId() {return id;}
+    public void setId(Integer id) {this.id = id;}
+    public Integer getProveedorId() {return proveedorId;}
+    public void setProveedorId(Integer proveedorId) {this.proveedorId = proveedorId;}
+    public Integer getCompraId() {return compraId;}
+    public void setCompraId(Integer compraId) {this.compraId = compraId;}
+    public String getTituloJuego() {return tituloJuego;}
+    public void setTituloJuego(String tituloJuego) {this.tituloJuego = tituloJuego;}
+    public Double getPrecioPagado() {return precioPagado;}
+    public void setPrecioPagado(Double precioPagado) {this.precioPagado = precioPagado;}
+    public LocalDateTime getFechaVenta() {return fechaVenta;}
+    public void setFechaVenta(LocalDateTime fechaVenta) {this.fechaVenta = fechaVenta;}
+}
@@ -0,0 +1,38 @@
+package com.example.proyecto_pixelshop.model.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Posición de la paginación por clave (keyset) del catálogo: último (fechaPublicacion, id) entregado.
+ * Viaja al cliente como un token opaco en Base64 URL-safe. Un juego sin fecha de publicación se codifica
+ * con la fecha vacía ("|id"), y la consulta keyset continúa entonces por los juegos sin fecha.
+ */
+public record CursorCatalogo(LocalDateTime fechaPublicacion, Integer id) {
+
+    public static CursorCatalogo de(JuegoResumen juego) {
+        return new CursorCatalogo(juego.getFechaPublicacion(), juego.getId());
+    }
+
+    public String codificar() {
+        String plano = (fechaPublicacion != null ? fechaPublicacion.toString() : "") + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(plano.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Decodifica el token recibido; devuelve null si está vacío o no es válido (se empieza desde el principio)
+    public static CursorCatalogo decodificar(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String plano = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separador = plano.indexOf('|');
+            String fecha = plano.substring(0, separador);
+            return new CursorCatalogo(fecha.isEmpty() ? null : LocalDateTime.parse(fecha),
+                                      Integer.valueOf(plano.substring(separador + 1)));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+}
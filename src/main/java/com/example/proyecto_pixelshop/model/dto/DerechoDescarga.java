@@ -0,0 +1,14 @@
+package com.example.proyecto_pixelshop.model.dto;
+
+import java.io.Serializable;
+
+/**
+ * Resultado de comprobar que un usuario puede descargar un juego: dónde está el archivo y con qué nombre se descarga.
+ * archivoUrl es null si el juego no tiene archivo. Serializable porque se guarda en la sesión HTTP.
+ */
+public record DerechoDescarga(Integer juegoId, String archivoUrl, String archivoNombre) implements Serializable {
+
+    public boolean tieneArchivo() {
+        return archivoUrl != null && !archivoUrl.isEmpty();
+    }
+}
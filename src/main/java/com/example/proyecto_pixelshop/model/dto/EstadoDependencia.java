@@ -0,0 +1,24 @@
+package com.example.proyecto_pixelshop.model.dto;
+
+/**
+ * Estado y métricas de una dependencia externa (panel de administración).
+ * Las latencias se calculan sobre las últimas llamadas, no sobre todo el histórico
+ */
+public record EstadoDependencia(
+    String nombre,
+    String cortocircuito,
+    int enCurso,
+    int maxConcurrentes,
+    long llamadas,
+    long exitos,
+    long fallos,
+    long erroresCliente,
+    long timeouts,
+    long rechazadas,
+    long reintentos,
+    long latenciaMediaMs,
+    long latenciaP50Ms,
+    long latenciaP95Ms,
+    long latenciaP99Ms,
+    long latenciaMaxMs
+) {}
@@ -0,0 +1,49 @@
+package com.example.proyecto_pixelshop.model.dto;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Filtros combinables del catálogo paginado. Cualquier campo a null (o vacío) no filtra.
+ */
+public record FiltroCatalogo(String genero, Double precioMin, Double precioMax, String titulo) {
+
+    // Marcas diacríticas que quedan separadas de su letra tras la descomposición NFD
+    private static final Pattern DIACRITICOS = Pattern.compile("\\p{M}+");
+
+    public FiltroCatalogo {
+        genero = (genero == null || genero.isBlank()) ? null : genero.trim();
+        titulo = (titulo == null || titulo.isBlank()) ? null : titulo.trim();
+    }
+
+    public static FiltroCatalogo sinFiltros() {
+        return new FiltroCatalogo(null, null, null, null);
+    }
+
+    public boolean vacio() {
+        return genero == null && precioMin == null && precioMax == null && titulo == null;
+    }
+
+    // Indica si el juego cumple todos los filtros (usado al paginar sobre la caché en memoria).
+    // Compara igual que la consulta de la BD, para que un mismo cursor dé la misma página con o sin caché
+    public boolean admite(JuegoResumen juego) {
+        if (genero != null && (juego.getGenero() == null || !normalizar(genero).equals(normalizar(juego.getGenero())))) {
+            return false;
+        }
+        if (precioMin != null && juego.getPrecio() < precioMin) {
+            return false;
+        }
+        if (precioMax != null && juego.getPrecio() > precioMax) {
+            return false;
+        }
+        return titulo == null || (juego.getTitulo() != null && normalizar(juego.getTitulo()).contains(normalizar(titulo)));
+    }
+
+    // Minúsculas independientes del idioma del servidor y sin acentos: lo mismo que hace MySQL al comparar con la
+    // intercalación de las columnas (utf8mb4_0900_ai_ci, que no distingue mayúsculas ni acentos)
+    public static String normalizar(String texto) {
+        String sinAcentos = DIACRITICOS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return sinAcentos.toLowerCase(Locale.ROOT);
+    }
+}
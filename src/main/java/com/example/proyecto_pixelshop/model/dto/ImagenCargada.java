@@ -0,0 +1,19 @@
+package com.example.proyecto_pixelshop.model.dto;
+
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Imagen subida por el usuario con el formato y las dimensiones ya leídos de su cabecera.
+ * El contenido no se copia a memoria: las variantes se decodifican y el original se sube en streaming
+ * desde el propio archivo subido. metadatos es null si no es una imagen JPEG, PNG, GIF o WebP reconocible.
+ */
+public record ImagenCargada(MultipartFile archivo, MetadatosImagen metadatos) {
+
+    public long tamanio() {
+        return archivo.getSize();
+    }
+
+    public boolean esValida() {
+        return metadatos != null;
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.proyecto_pixelshop.model.dto;
+
+import java.util.List;
+
+/**
+ * Imagen lista para subir: el original y sus variantes ya codificadas, con los nombres de blob decididos.
+ * Las subidas se añaden a un lote junto con el resto de archivos del juego (ver IAzureBlobStorageService.uploadBatch).
+ */
+public record ImagenPreparada(String blobOriginal, boolean conVariantes, List<SubidaBlob> subidas) {
+}
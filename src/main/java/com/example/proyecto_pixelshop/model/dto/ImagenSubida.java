@@ -0,0 +1,8 @@
+package com.example.proyecto_pixelshop.model.dto;
+
+/**
+ * Resultado de subir una imagen de un juego: URL del original y si se han podido generar sus variantes
+ * (no se generan para formatos que Java no sabe decodificar, como WebP; en ese caso se sirve el original).
+ */
+public record ImagenSubida(String url, boolean conVariantes) {
+}
@@ -0,0 +1,42 @@
+package com.example.proyecto_pixelshop.model.dto;
+
+import java.util.regex.Pattern;
+
+/**
+ * Un elemento de un lote de payouts de PayPal: el pago de una TransaccionProveedor a su proveedor.
+ * El sender_item_id se deriva del ID de la transacción, así el resultado de PayPal se asocia a la fila sin ambigüedad
+ */
+public record ItemPago(Integer transaccionId, String receptor, Double importe) {
+
+    private static final String PREFIJO = "TP-";
+
+    // Comprobación básica del email de PayPal (PayPal rechaza el lote entero si un receptor no es un email)
+    private static final Pattern EMAIL = Pattern.compile("^[^@\\s]+@[^@\\s]+\\.[^@\\s]+$");
+
+    // Motivo por el que PayPal rechazaría este pago, o null si se puede enviar
+    public String motivoRechazo() {
+        if (receptor == null || receptor.length() > 127 || !EMAIL.matcher(receptor).matches()) {
+            return "El email de PayPal del proveedor no es válido";
+        }
+        if (importe == null || Math.round(importe * 100.0) < 1) {
+            return "El importe a pagar debe ser de al menos 0.01 EUR";
+        }
+        return null;
+    }
+
+    public String senderItemId() {
+        return PREFIJO + transaccionId;
+    }
+
+    // ID de la transacción a partir del sender_item_id (null si no es uno nuestro)
+    public static Integer transaccionIdDe(String senderItemId) {
+        if (senderItemId == null || !senderItemId.startsWith(PREFIJO)) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(senderItemId.substring(PREFIJO.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.proyecto_pixelshop.model.dto;
+
+import com.example.proyecto_pixelshop.model.enums.VarianteImagen;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+
+/**
+ * Modelo de lectura para los listados del catálogo.
+ * Solo contiene las columnas que pinta la tarjeta de un juego: se construye directamente desde la consulta
+ * (sin hidratar la entidad Juego, su descripción completa ni el proveedor) y es inmutable,
+ * por lo que puede compartirse entre peticiones desde la caché del catálogo.
+ */
+public final class JuegoResumen {
+
+    // Orden del catálogo: más recientes primero y, a igual fecha, mayor ID primero (sin fecha al final)
+    public static final Comparator<JuegoResumen> ORDEN_CATALOGO = Comparator
+        .comparing(JuegoResumen::getFechaPublicacion, Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder()))
+        .thenComparing(JuegoResumen::getId)
+        .reversed();
+
+    // Longitud de descripción que se trae de la BD (la tarjeta la abrevia a 80 caracteres)
+    public static final int LONGITUD_DESCRIPCION = 100;
+
+    private final Integer id;
+    private final String titulo;
+    private final Double precio;
+    private final String genero;
+    private final String imagenPortadaUrl;
+    private final String descripcionCorta;
+    private final LocalDateTime fechaPublicacion;
+    private final boolean imagenesDerivadas;
+
+    public JuegoResumen(Integer id, String titulo, Double precio, String genero,
+                        String imagenPortadaUrl, String descripcionCorta, LocalDateTime fechaPublicacion,
+                        Boolean imagenesDerivadas) {
+        this.id = id;
+        this.titulo = titulo;
+        this.precio = precio;
+        this.genero = genero;
+        this.imagenPortadaUrl = imagenPortadaUrl;
+        this.descripcionCorta = descripcionCorta;
+        this.fechaPublicacion = fechaPublicacion;
+        this.imagenesDerivadas = Boolean.TRUE.equals(imagenesDerivadas);
+    }
+
+    // Getters
+    public Integer getId() {return id;}
+    public String getTitulo() {return titulo;}
+    public Double getPrecio() {return precio;}
+    public String getGenero() {return genero;}
+    public String getImagenPortadaUrl() {return imagenPortadaUrl;}
+    public String getDescripcionCorta() {return descripcionCorta;}
+    public LocalDateTime getFechaPublicacion() {return fechaPublicacion;}
+
+    // Portada al tamaño de la tarjeta del catálogo (el original si el juego no tiene variantes)
+    public String getImagenPortadaTarjetaUrl() {
+        return imagenesDerivadas ? VarianteImagen.TARJETA.nombreDe(imagenPortadaUrl) : imagenPortadaUrl;
+    }
+
+    // srcset de la portada para que el navegador elija el tamaño (null si no hay variantes)
+    public String getImagenPortadaSrcset() {
+        return imagenesDerivadas ? VarianteImagen.srcset(imagenPortadaUrl) : null;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.proyecto_pixelshop.model.dto;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Conjunto inmutable y compacto de IDs de juegos que posee un usuario.
+ * Internamente es un int[] ordenado: la comprobación por tarjeta del catálogo es una búsqueda binaria
+ * y no se carga ninguna entidad Compra ni Juego.
+ */
+public final class JuegosAdquiridos {
+
+    private static final JuegosAdquiridos VACIO = new JuegosAdquiridos(new int[0]);
+
+    private final int[] ids;
+
+    private JuegosAdquiridos(int[] idsOrdenados) {
+        this.ids = idsOrdenados;
+    }
+
+    public static JuegosAdquiridos vacio() {
+        return VACIO;
+    }
+
+    // Crea el conjunto a partir de una colección de IDs (con o sin duplicados)
+    public static JuegosAdquiridos de(Collection<Integer> idsJuegos) {
+        if (idsJuegos == null || idsJuegos.isEmpty()) {
+            return VACIO;
+        }
+        int[] ordenados = idsJuegos.stream().mapToInt(Integer::intValue).sorted().distinct().toArray();
+        return new JuegosAdquiridos(ordenados);
+    }
+
+    // Indica si el juego está en la biblioteca del usuario (usado desde las plantillas)
+    public boolean contiene(Integer juegoId) {
+        return juegoId != null && Arrays.binarySearch(ids, juegoId) >= 0;
+    }
+
+    // Devuelve un nuevo conjunto con el juego añadido (copy-on-write)
+    public JuegosAdquiridos con(int juegoId) {
+        int posicion = Arrays.binarySearch(ids, juegoId);
+        if (posicion >= 0) {
+            return this;
+        }
+        int insercion = -posicion - 1;
+        int[] nuevos = new int[ids.length + 1];
+        System.arraycopy(ids, 0, nuevos, 0, insercion);
+        nuevos[insercion] = juegoId;
+        System.arraycopy(ids, insercion, nuevos, insercion + 1, ids.length - insercion);
+        return new JuegosAdquiridos(nuevos);
+    }
+
+    // Devuelve un nuevo conjunto con todos los juegos añadidos
+    public JuegosAdquiridos conTodos(Collection<Integer> juegosIds) {
+        JuegosAdquiridos resultado = this;
+        for (Integer juegoId : juegosIds) {
+            resultado = resultado.con(juegoId);
+        }
+        return resultado;
+    }
+
+    public int tamanio() {
+        return ids.length;
+    }
+}
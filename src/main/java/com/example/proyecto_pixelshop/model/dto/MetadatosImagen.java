@@ -0,0 +1,18 @@
+package com.example.proyecto_pixelshop.model.dto;
+
+/**
+ * Formato y dimensiones de una imagen, leídos solo de su cabecera (sin decodificar los píxeles).
+ * formato es "jpeg", "png", "gif" o "webp".
+ */
+public record MetadatosImagen(String formato, int ancho, int alto) {
+
+    // Tipo MIME correspondiente al formato detectado
+    public String contentType() {
+        return "image/" + formato;
+    }
+
+    // Extensión con la que se guarda el blob
+    public String extension() {
+        return "jpeg".equals(formato) ? ".jpg" : "." + formato;
+    }
+}
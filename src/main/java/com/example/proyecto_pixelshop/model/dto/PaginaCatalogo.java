@@ -0,0 +1,13 @@
+package com.example.proyecto_pixelshop.model.dto;
+
+import java.util.List;
+
+/**
+ * Página del catálogo y cursor para pedir la siguiente (null si no hay más resultados).
+ */
+public record PaginaCatalogo(List<JuegoResumen> juegos, String siguienteCursor) {
+
+    public boolean hayMas() {
+        return siguienteCursor != null;
+    }
+}
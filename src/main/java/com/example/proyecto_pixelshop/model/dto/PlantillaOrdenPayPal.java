@@ -0,0 +1,20 @@
+package com.example.proyecto_pixelshop.model.dto;
+
+import java.util.Objects;
+
+/**
+ * Cuerpo JSON de la orden de PayPal de un juego, ya generado, a falta solo del comprador (custom_id).
+ * Se guarda por juego junto con el precio, el título y la descripción con los que se generó, para regenerarlo si cambian.
+ */
+public record PlantillaOrdenPayPal(Double precio, String titulo, String descripcion, String inicio, String fin) {
+
+    // Comprueba que la plantilla sigue correspondiendo al juego
+    public boolean vigentePara(Double precioActual, String tituloActual, String descripcionActual) {
+        return precio.equals(precioActual) && titulo.equals(tituloActual) && Objects.equals(descripcion, descripcionActual);
+    }
+
+    // Cuerpo completo de la orden para un comprador (el ID es numérico, no necesita escaparse)
+    public String cuerpo(Integer usuarioId) {
+        return inicio + usuarioId + fin;
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.proyecto_pixelshop.model.dto;
+
+/**
+ * Propiedades de un blob ya guardado en Azure, para verificarlo o servirlo sin descargarlo.
+ * md5 es el Content-MD5 que guarda Azure (Base64), o null si no lo tiene.
+ * etag va entre comillas, tal como lo devuelve Azure; ultimaModificacion en milisegundos desde epoch.
+ */
+public record PropiedadesBlob(long tamanio, String contentType, String md5, String etag, long ultimaModificacion) {
+}
@@ -0,0 +1,14 @@
+package com.example.proyecto_pixelshop.model.dto;
+
+import java.util.List;
+
+/**
+ * Resultado de rellenar el título normalizado de los juegos activos antiguos:
+ * cuántos se completaron y qué juegos chocan con otro activo del mismo título (a revisar a mano)
+ */
+public record ResultadoNormalizacionTitulos(int completados, List<Integer> duplicados) {
+
+    public boolean sinCambios() {
+        return completados == 0 && duplicados.isEmpty();
+    }
+}
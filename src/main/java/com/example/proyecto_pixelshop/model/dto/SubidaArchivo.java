@@ -0,0 +1,22 @@
+package com.example.proyecto_pixelshop.model.dto;
+
+import com.example.proyecto_pixelshop.model.enums.TipoSubida;
+
+import java.time.LocalDateTime;
+
+/**
+ * Subida de un archivo grande en curso (ver IServicioSubidaArchivo), ya sea por bloques a través del servidor
+ * o directamente a Azure con una URL SAS.
+ * url es null hasta que el archivo está confirmado.
+ */
+public record SubidaArchivo(String id, Integer proveedorId, TipoSubida tipo, String blobName, String nombreArchivo,
+                            String contentType, long tamanio, String url, LocalDateTime fechaCreacion) {
+
+    public boolean confirmada() {
+        return url != null;
+    }
+
+    public SubidaArchivo conUrl(String url) {
+        return new SubidaArchivo(id, proveedorId, tipo, blobName, nombreArchivo, contentType, tamanio, url, fechaCreacion);
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.proyecto_pixelshop.model.dto;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.UUID;
+
+/**
+ * Un archivo a subir dentro de un lote (ver IAzureBlobStorageService.uploadBatch).
+ * El contenido viene o de bytes ya generados en memoria (imágenes y variantes) o de un archivo subido
+ * por el usuario que se envía en streaming (el ZIP del juego). El nombre del blob se fija al crearla,
+ * así que la URL final se conoce antes de subir.
+ */
+public record SubidaBlob(String blobName, String contentType, byte[] contenido, MultipartFile archivo) {
+
+    public static SubidaBlob deBytes(byte[] contenido, String blobName, String contentType) {
+        return new SubidaBlob(blobName, contentType, contenido, null);
+    }
+
+    // Genera un nombre único dentro de la carpeta conservando la extensión original
+    public static SubidaBlob deArchivo(MultipartFile archivo, String folder) {
+        String originalFilename = archivo.getOriginalFilename();
+        String extension = originalFilename != null && originalFilename.contains(".")
+            ? originalFilename.substring(originalFilename.lastIndexOf("."))
+            : "";
+        return new SubidaBlob(folder + "/" + UUID.randomUUID() + extension, archivo.getContentType(), null, archivo);
+    }
+
+    // Archivo subido por el usuario con un nombre de blob y tipo ya decididos (el original de una imagen)
+    public static SubidaBlob deArchivo(MultipartFile archivo, String blobName, String contentType) {
+        return new SubidaBlob(blobName, contentType, null, archivo);
+    }
+
+    public long tamanio() {
+        return contenido != null ? contenido.length : archivo.getSize();
+    }
+}
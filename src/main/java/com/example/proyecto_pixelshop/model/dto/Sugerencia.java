@@ -0,0 +1,11 @@
+package com.example.proyecto_pixelshop.model.dto;
+
+/**
+ * Sugerencia de autocompletado del buscador.
+ * tipo es "JUEGO" (juegoId apunta al juego) o "GENERO" (juegoId es null).
+ */
+public record Sugerencia(String texto, String tipo, Integer juegoId) {
+
+    public static final String TIPO_JUEGO = "JUEGO";
+    public static final String TIPO_GENERO = "GENERO";
+}
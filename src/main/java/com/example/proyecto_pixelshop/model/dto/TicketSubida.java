@@ -0,0 +1,12 @@
+package com.example.proyecto_pixelshop.model.dto;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Permiso para subir un archivo directamente a Azure sin pasar por el servidor.
+ * urlSubida es la URL del blob con una firma SAS de solo escritura que caduca en "caducidad";
+ * el cliente debe guardar el blob con el contentType indicado y después avisar para completar la subida.
+ */
+public record TicketSubida(String subidaId, String urlSubida, String contentType, int tamanioBloque,
+                           OffsetDateTime caducidad) {
+}
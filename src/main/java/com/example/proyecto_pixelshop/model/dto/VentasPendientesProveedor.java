@@ -0,0 +1,9 @@
+package com.example.proyecto_pixelshop.model.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Proveedor con ventas sin notificar y fecha de la más antigua (su ventana de resumen empieza ahí)
+ */
+public record VentasPendientesProveedor(Integer proveedorId, LocalDateTime primeraVenta) {
+}
@@ -0,0 +1,9 @@
+package com.example.proyecto_pixelshop.model.enums;
+
+// Estado de un email en la bandeja de salida
+public enum EstadoEmail {
+    PENDIENTE, // Esperando a ser enviado (o a su siguiente reintento)
+    ENVIANDO,  // Reclamado por un despachador; si este se cae, vuelve a PENDIENTE al caducar el bloqueo
+    ENVIADO,
+    FALLIDO    // Agotó los reintentos: queda guardado para revisarlo y reintentarlo a mano
+}
@@ -0,0 +1,10 @@
+package com.example.proyecto_pixelshop.model.enums;
+
+// Estados de un evento de webhook de PayPal en la cola de procesamiento
+public enum EstadoEventoWebhook {
+    PENDIENTE,
+    PROCESANDO,
+    PROCESADO,
+    DESCARTADO, // Evento que no requiere acción (tipo no gestionado, orden sin datos de PixelShop...)
+    FALLIDO     // Agotó los reintentos
+}
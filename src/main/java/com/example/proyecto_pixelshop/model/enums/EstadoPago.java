@@ -2,5 +2,6 @@ package com.example.proyecto_pixelshop.model.enums;
 
 public enum EstadoPago {
     PENDIENTE,
+    EN_PROCESO, // Enviado a PayPal en un lote de payouts, a la espera de que se confirme
     PAGADO
 }
@@ -0,0 +1,7 @@
+package com.example.proyecto_pixelshop.model.enums;
+
+// Cómo se entrega el archivo de un juego comprado (propiedad descargas.modo)
+public enum ModoDescarga {
+    REDIRECCION, // Redirige a una URL firmada de Azure de corta duración: los bytes no pasan por la aplicación
+    PROXY        // La aplicación lee el archivo de Azure y lo reenvía (para cuentas sin clave con la que firmar)
+}
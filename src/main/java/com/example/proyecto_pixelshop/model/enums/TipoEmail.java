@@ -0,0 +1,11 @@
+package com.example.proyecto_pixelshop.model.enums;
+
+// Tipos de email transaccional que se envían desde la bandeja de salida
+public enum TipoEmail {
+    BIENVENIDA,
+    CONFIRMACION_COMPRA,
+    NOTIFICACION_VENTA,
+    RECUPERACION_PASSWORD,
+    NOTIFICACION_ENVIO,
+    RESUMEN_VENTAS
+}
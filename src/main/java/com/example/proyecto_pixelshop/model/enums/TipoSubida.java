@@ -0,0 +1,92 @@
+package com.example.proyecto_pixelshop.model.enums;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Tipos de archivo grande que un proveedor puede subir aparte del formulario (por bloques o directamente a Azure).
+// Cada tipo tiene su carpeta en el contenedor, su tamaño máximo y las extensiones admitidas con su tipo MIME
+public enum TipoSubida {
+    ARCHIVO("juegos-archivos", 500L * 1024 * 1024,
+        "zip", "application/zip",
+        "rar", "application/x-rar-compressed",
+        "7z", "application/x-7z-compressed"),
+    VIDEO("juegos-videos", 100L * 1024 * 1024,
+        "mp4", "video/mp4",
+        "webm", "video/webm",
+        "mov", "video/quicktime");
+    
+    private final String carpeta;
+    private final long tamanioMaximo;
+    private final Map<String, String> tiposPorExtension;
+    
+    // extensionesYTipos: pares extensión, tipo MIME (en el orden en que se muestran en los mensajes)
+    TipoSubida(String carpeta, long tamanioMaximo, String... extensionesYTipos) {
+        this.carpeta = carpeta;
+        this.tamanioMaximo = tamanioMaximo;
+        this.tiposPorExtension = new LinkedHashMap<>();
+        for (int i = 0; i < extensionesYTipos.length; i += 2) {
+            tiposPorExtension.put(extensionesYTipos[i], extensionesYTipos[i + 1]);
+        }
+    }
+    
+    public String getCarpeta() {return carpeta;}
+    public long getTamanioMaximo() {return tamanioMaximo;}
+    
+    // Extensión en minúsculas (sin punto) si está admitida para este tipo; null si no
+    public String extensionDe(String nombreArchivo) {
+        if (nombreArchivo == null || nombreArchivo.lastIndexOf('.') < 0) {
+            return null;
+        }
+        String extension = nombreArchivo.substring(nombreArchivo.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+        return tiposPorExtension.containsKey(extension) ? extension : null;
+    }
+    
+    // Tipo MIME con el que se guarda el archivo (según su extensión)
+    public String contentTypeDe(String nombreArchivo) {
+        String extension = extensionDe(nombreArchivo);
+        return extension != null ? tiposPorExtension.get(extension) : null;
+    }
+    
+    // Comprueba los primeros bytes del archivo (al menos 12) contra la firma del formato de su extensión,
+    // para no aceptar como .zip o .mp4 algo que no lo es
+    public boolean cabeceraValida(String nombreArchivo, byte[] inicio) {
+        String extension = extensionDe(nombreArchivo);
+        if (extension == null) {
+            return false;
+        }
+        return switch (extension) {
+            // Archivo local, archivo vacío o archivo dividido
+            case "zip" -> empiezaPor(inicio, 0, 'P', 'K', 3, 4) || empiezaPor(inicio, 0, 'P', 'K', 5, 6)
+                || empiezaPor(inicio, 0, 'P', 'K', 7, 8);
+            case "rar" -> empiezaPor(inicio, 0, 'R', 'a', 'r', '!', 0x1A, 0x07);
+            case "7z" -> empiezaPor(inicio, 0, '7', 'z', 0xBC, 0xAF, 0x27, 0x1C);
+            case "webm" -> empiezaPor(inicio, 0, 0x1A, 0x45, 0xDF, 0xA3);
+            // ISO BMFF: el primer átomo va tras su tamaño (4 bytes); los .mov antiguos pueden no empezar por ftyp
+            case "mp4" -> empiezaPor(inicio, 4, 'f', 't', 'y', 'p');
+            case "mov" -> empiezaPor(inicio, 4, 'f', 't', 'y', 'p') || empiezaPor(inicio, 4, 'm', 'o', 'o', 'v')
+                || empiezaPor(inicio, 4, 'm', 'd', 'a', 't') || empiezaPor(inicio, 4, 'w', 'i', 'd', 'e')
+                || empiezaPor(inicio, 4, 'f', 'r', 'e', 'e');
+            default -> false;
+        };
+    }
+    
+    private static boolean empiezaPor(byte[] datos, int desde, int... firma) {
+        if (datos == null || datos.length < desde + firma.length) {
+            return false;
+        }
+        for (int i = 0; i < firma.length; i++) {
+            if ((datos[desde + i] & 0xFF) != firma[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    // Texto para los mensajes de error: ".zip, .rar o .7z"
+    public String extensionesPermitidas() {
+        List<String> extensiones = tiposPorExtension.keySet().stream().map(e -> "." + e).toList();
+        return String.join(", ", extensiones.subList(0, extensiones.size() - 1)) + " o " + extensiones.getLast();
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.proyecto_pixelshop.model.enums;
+
+// Tamaños derivados que se generan de cada imagen de un juego al subirla.
+// Se guardan junto al original con el sufijo del ancho: juegos/abc.png -> juegos/abc_w640.jpg
+public enum VarianteImagen {
+    MINIATURA(320),
+    TARJETA(640),
+    DETALLE(1280);
+    
+    private final int ancho;
+    
+    VarianteImagen(int ancho) {
+        this.ancho = ancho;
+    }
+    
+    public int getAncho() {return ancho;}
+    
+    // Nombre (o URL) de la variante a partir del nombre (o URL) del original
+    public String nombreDe(String original) {
+        if (original == null) {
+            return null;
+        }
+        int barra = original.lastIndexOf('/');
+        int punto = original.lastIndexOf('.');
+        String base = punto > barra ? original.substring(0, punto) : original;
+        return base + "_w" + ancho + ".jpg";
+    }
+    
+    // Valor del atributo srcset con todas las variantes de una imagen
+    public static String srcset(String original) {
+        if (original == null) {
+            return null;
+        }
+        StringBuilder srcset = new StringBuilder();
+        for (VarianteImagen variante : values()) {
+            if (srcset.length() > 0) {
+                srcset.append(", ");
+            }
+            srcset.append(variante.nombreDe(original)).append(' ').append(variante.ancho).append('w');
+        }
+        return srcset.toString();
+    }
+}
@@ -3,6 +3,7 @@ package com.example.proyecto_pixelshop.repository;
 import com.example.proyecto_pixelshop.model.Compra;
 import com.example.proyecto_pixelshop.model.Usuario;
 import com.example.proyecto_pixelshop.model.Juego;
+import com.example.proyecto_pixelshop.model.dto.DerechoDescarga;
 import com.example.proyecto_pixelshop.model.enums.EstadoCompra;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -30,6 +31,16 @@ public interface CompraRepository extends JpaRepository<Compra, Integer> {
     // Buscar compra específica
     Optional<Compra> findByUsuarioAndJuego(Usuario usuario, Juego juego);
 
+    // Buscar la compra registrada para una orden de PayPal
+    Optional<Compra> findByIdOrdenPaypal(String idOrdenPaypal);
+
+    // En una sola consulta, las compras que afectan a la finalización de un pago:
+    // la ya registrada para la misma orden de PayPal y la del mismo usuario y juego
+    @Query("SELECT c FROM Compra c WHERE c.idOrdenPaypal = :idOrdenPaypal " +
+           "OR (c.usuario.id = :usuarioId AND c.juego.id = :juegoId)")
+    List<Compra> findParaFinalizar(@Param("idOrdenPaypal") String idOrdenPaypal,
+                                   @Param("usuarioId") Integer usuarioId, @Param("juegoId") Integer juegoId);
+
     // Buscar por usuario y estado (biblioteca = COMPLETADA)
     List<Compra> findByUsuarioAndEstado(Usuario usuario, EstadoCompra estado);
 
@@ -56,6 +67,28 @@ public interface CompraRepository extends JpaRepository<Compra, Integer> {
     @Query("SELECT SUM(c.precioPagado) FROM Compra c WHERE c.juego.proveedor = :proveedor AND c.estado = 'COMPLETADA'")
     Double sumarVentasPorProveedor(@Param("proveedor") Usuario proveedor);
 
+    // IDs de los juegos que ha comprado un usuario (compras completadas). Solo devuelve enteros, sin cargar entidades
+    @Query("SELECT DISTINCT c.juego.id FROM Compra c WHERE c.usuario.id = :usuarioId AND c.estado = 'COMPLETADA'")
+    List<Integer> findIdsJuegosAdquiridos(@Param("usuarioId") Integer usuarioId);
+
+    // Usuarios que han comprado un juego con el mismo título que el indicado, si está activo (un juego republicado
+    // con el título de otro ya comprado también es suyo). Misma regla que Juego.normalizarTitulo
+    @Query("SELECT DISTINCT c.usuario.id FROM Compra c WHERE c.estado = 'COMPLETADA' AND c.juego.id IN " +
+           "(SELECT j.id FROM Juego j, Juego nuevo WHERE nuevo.id = :juegoId AND nuevo.activo = true " +
+           "AND LOWER(TRIM(j.titulo)) = LOWER(TRIM(nuevo.titulo)))")
+    List<Integer> findUsuariosConTituloAdquirido(@Param("juegoId") Integer juegoId);
+
+    // Títulos de los juegos que ha comprado un usuario (para reconocer como suyos los juegos republicados)
+    @Query("SELECT DISTINCT j.titulo FROM Compra c JOIN c.juego j WHERE c.usuario.id = :usuarioId AND c.estado = 'COMPLETADA'")
+    List<String> findTitulosJuegosAdquiridos(@Param("usuarioId") Integer usuarioId);
+
+    // Derecho de descarga de un juego: existe si el usuario (por email) tiene la compra COMPLETADA.
+    // Una sola consulta por índice que devuelve solo la ubicación del archivo, sin cargar la biblioteca
+    @Query("SELECT new com.example.proyecto_pixelshop.model.dto.DerechoDescarga(j.id, j.archivoDescargableUrl, j.archivoNombre) " +
+           "FROM Compra c JOIN c.juego j JOIN c.usuario u " +
+           "WHERE u.email = :email AND j.id = :juegoId AND c.estado = 'COMPLETADA'")
+    Optional<DerechoDescarga> findDerechoDescarga(@Param("email") String email, @Param("juegoId") Integer juegoId);
+
     // Buscar compras de un proveedor (a través de sus juegos)
     @Query("SELECT c FROM Compra c WHERE c.juego.proveedor = :proveedor ORDER BY c.fechaCompra DESC")
     List<Compra> findComprasPorProveedor(@Param("proveedor") Usuario proveedor);
@@ -0,0 +1,46 @@
+package com.example.proyecto_pixelshop.repository;
+
+import com.example.proyecto_pixelshop.model.EmailPendiente;
+import com.example.proyecto_pixelshop.model.enums.EstadoEmail;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface EmailPendienteRepository extends JpaRepository<EmailPendiente, Integer> {
+    
+    // IDs de los emails listos para enviar, los más antiguos primero (usa idx_email_estado_siguiente)
+    @Query("SELECT e.id FROM EmailPendiente e WHERE e.estado = 'PENDIENTE' AND e.siguienteIntento <= :ahora " +
+           "ORDER BY e.siguienteIntento")
+    List<Integer> findIdsListos(@Param("ahora") LocalDateTime ahora, Pageable limite);
+    
+    // Reclama un email para enviarlo. Devuelve 0 si otro despachador (u otra instancia) se lo ha llevado antes
+    @Modifying
+    @Transactional
+    @Query("UPDATE EmailPendiente e SET e.estado = 'ENVIANDO', e.siguienteIntento = :bloqueoHasta " +
+           "WHERE e.id = :id AND e.estado = 'PENDIENTE'")
+    int reclamar(@Param("id") Integer id, @Param("bloqueoHasta") LocalDateTime bloqueoHasta);
+    
+    // Devuelve a PENDIENTE los emails cuyo despachador se cayó a mitad de envío (bloqueo caducado)
+    @Modifying
+    @Transactional
+    @Query("UPDATE EmailPendiente e SET e.estado = 'PENDIENTE' WHERE e.estado = 'ENVIANDO' AND e.siguienteIntento < :ahora")
+    int liberarBloqueosCaducados(@Param("ahora") LocalDateTime ahora);
+    
+    // Vuelve a poner en cola los emails que agotaron sus reintentos
+    @Modifying
+    @Transactional
+    @Query("UPDATE EmailPendiente e SET e.estado = 'PENDIENTE', e.intentos = 0, e.siguienteIntento = :ahora " +
+           "WHERE e.estado = 'FALLIDO'")
+    int reintentarFallidos(@Param("ahora") LocalDateTime ahora);
+    
+    // Contar por estado
+    long countByEstado(EstadoEmail estado);
+}
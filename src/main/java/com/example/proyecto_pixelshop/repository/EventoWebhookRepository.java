@@ -0,0 +1,42 @@
+package com.example.proyecto_pixelshop.repository;
+
+import com.example.proyecto_pixelshop.model.EventoWebhook;
+import com.example.proyecto_pixelshop.model.enums.EstadoEventoWebhook;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface EventoWebhookRepository extends JpaRepository<EventoWebhook, Integer> {
+    
+    // Evento ya recibido (PayPal reenvía el mismo evento si no recibe respuesta a tiempo)
+    boolean existsByIdEvento(String idEvento);
+    
+    // IDs de los eventos listos para procesar, los más antiguos primero (usa idx_webhook_estado_siguiente)
+    @Query("SELECT e.id FROM EventoWebhook e WHERE e.estado = 'PENDIENTE' AND e.siguienteIntento <= :ahora " +
+           "ORDER BY e.siguienteIntento")
+    List<Integer> findIdsListos(@Param("ahora") LocalDateTime ahora, Pageable limite);
+    
+    // Reclama un evento para procesarlo. Devuelve 0 si otro procesador (u otra instancia) se lo ha llevado antes
+    @Modifying
+    @Transactional
+    @Query("UPDATE EventoWebhook e SET e.estado = 'PROCESANDO', e.siguienteIntento = :bloqueoHasta " +
+           "WHERE e.id = :id AND e.estado = 'PENDIENTE'")
+    int reclamar(@Param("id") Integer id, @Param("bloqueoHasta") LocalDateTime bloqueoHasta);
+    
+    // Devuelve a PENDIENTE los eventos cuyo procesador se cayó a mitad (bloqueo caducado)
+    @Modifying
+    @Transactional
+    @Query("UPDATE EventoWebhook e SET e.estado = 'PENDIENTE' WHERE e.estado = 'PROCESANDO' AND e.siguienteIntento < :ahora")
+    int liberarBloqueosCaducados(@Param("ahora") LocalDateTime ahora);
+    
+    // Contar por estado
+    long countByEstado(EstadoEventoWebhook estado);
+}
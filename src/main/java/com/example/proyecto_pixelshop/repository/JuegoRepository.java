@@ -2,19 +2,75 @@ package com.example.proyecto_pixelshop.repository;
 
 import com.example.proyecto_pixelshop.model.Juego;
 import com.example.proyecto_pixelshop.model.Usuario;
+import com.example.proyecto_pixelshop.model.dto.JuegoResumen;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface JuegoRepository extends JpaRepository<Juego, Integer> {
+public interface JuegoRepository extends JpaRepository<Juego, Integer>, JuegoRepositoryCatalogo {
 
     // Busca todos los juegos activos
     List<Juego> findByActivoTrue();
 
+    // Proyección común de las consultas de catálogo (solo las columnas de la tarjeta, sin JOIN al proveedor)
+    String SELECT_RESUMEN = "SELECT new com.example.proyecto_pixelshop.model.dto.JuegoResumen(" +
+        "j.id, j.titulo, j.precio, j.genero, j.imagenPortadaUrl, " +
+        "SUBSTRING(j.descripcion, 1, " + JuegoResumen.LONGITUD_DESCRIPCION + "), j.fechaPublicacion, j.imagenesDerivadas) ";
+
+    // Resúmenes de los juegos activos para el catálogo
+    @Query(SELECT_RESUMEN +
+           "FROM Juego j WHERE j.activo = true")
+    List<JuegoResumen> findResumenesActivos();
+
+    // Resumen de un juego concreto si está activo (para actualizar la caché del catálogo)
+    @Query(SELECT_RESUMEN +
+           "FROM Juego j WHERE j.id = :id AND j.activo = true")
+    Optional<JuegoResumen> findResumenActivoById(Integer id);
+
+    // Resúmenes de juegos activos por ID (para los resultados del índice de búsqueda)
+    @Query(SELECT_RESUMEN +
+           "FROM Juego j WHERE j.id IN :ids AND j.activo = true")
+    List<JuegoResumen> findResumenesActivosPorIds(List<Integer> ids);
+
+    // Juegos activos con su proveedor en una sola consulta (para construir el índice de búsqueda)
+    @Query("SELECT j FROM Juego j JOIN FETCH j.proveedor WHERE j.activo = true")
+    List<Juego> findActivosConProveedor();
+
+    // Un juego activo con su proveedor (para reindexarlo en la búsqueda)
+    @Query("SELECT j FROM Juego j JOIN FETCH j.proveedor WHERE j.id = :id AND j.activo = true")
+    Optional<Juego> findActivoConProveedor(Integer id);
+
+    // Comprueba si hay un juego activo con ese título normalizado (consulta por índice único, una fila como mucho)
+    boolean existsByTituloNormalizadoActivo(String tituloNormalizado);
+
+    // Igual que la anterior pero excluyendo el propio juego (al editar)
+    boolean existsByTituloNormalizadoActivoAndIdNot(String tituloNormalizado, Integer id);
+
+    // Título de un juego (sin cargar la entidad)
+    @Query("SELECT j.titulo FROM Juego j WHERE j.id = :id")
+    Optional<String> findTituloById(Integer id);
+
+    // IDs de los juegos activos con alguno de esos títulos normalizados (búsqueda por el índice único)
+    @Query("SELECT j.id FROM Juego j WHERE j.tituloNormalizadoActivo IN :titulos")
+    List<Integer> findIdsActivosPorTitulosNormalizados(Collection<String> titulos);
+
+    // Juegos activos a los que aún no se les ha calculado el título normalizado (datos anteriores a la columna)
+    @Query("SELECT j FROM Juego j WHERE j.activo = true AND j.tituloNormalizadoActivo IS NULL")
+    List<Juego> findActivosSinTituloNormalizado();
+
+    // Guarda el título normalizado (calculado en Java con Juego.normalizarTitulo) de un juego activo
+    @Modifying
+    @Transactional
+    @Query("UPDATE Juego j SET j.tituloNormalizadoActivo = :tituloNormalizado WHERE j.id = :id AND j.activo = true")
+    int completarTituloNormalizado(Integer id, String tituloNormalizado);
+
     // Busca todos los juegos de un proveedor específico
     List<Juego> findByProveedor(Usuario proveedor);
 
@@ -0,0 +1,14 @@
+package com.example.proyecto_pixelshop.repository;
+
+import com.example.proyecto_pixelshop.model.dto.CursorCatalogo;
+import com.example.proyecto_pixelshop.model.dto.FiltroCatalogo;
+import com.example.proyecto_pixelshop.model.dto.JuegoResumen;
+
+import java.util.List;
+
+// Consultas del catálogo paginado cuyos predicados dependen de los filtros recibidos (ver JuegoRepositoryCatalogoImpl)
+public interface JuegoRepositoryCatalogo {
+
+    // Página del catálogo filtrado, ordenada por (fechaPublicacion, id) descendente y a continuación del cursor (si lo hay)
+    List<JuegoResumen> buscarPaginaCatalogo(FiltroCatalogo filtro, CursorCatalogo desde, int limite);
+}
@@ -0,0 +1,81 @@
+package com.example.proyecto_pixelshop.repository;
+
+import com.example.proyecto_pixelshop.model.Juego;
+import com.example.proyecto_pixelshop.model.dto.CursorCatalogo;
+import com.example.proyecto_pixelshop.model.dto.FiltroCatalogo;
+import com.example.proyecto_pixelshop.model.dto.JuegoResumen;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Construye la consulta keyset del catálogo con Criteria: solo se añaden los predicados de los filtros presentes,
+// de modo que el optimizador ve "activo = ? AND genero = ?" y puede recorrer idx_juego_catalogo /
+// idx_juego_genero_catalogo en el orden de la página y parar al llegar al límite
+public class JuegoRepositoryCatalogoImpl implements JuegoRepositoryCatalogo {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<JuegoResumen> buscarPaginaCatalogo(FiltroCatalogo filtro, CursorCatalogo desde, int limite) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<JuegoResumen> consulta = cb.createQuery(JuegoResumen.class);
+        Root<Juego> j = consulta.from(Juego.class);
+        Path<LocalDateTime> fecha = j.get("fechaPublicacion");
+        Path<Integer> id = j.get("id");
+
+        consulta.select(cb.construct(JuegoResumen.class,
+            id, j.get("titulo"), j.get("precio"), j.get("genero"), j.get("imagenPortadaUrl"),
+            cb.substring(j.get("descripcion"), 1, JuegoResumen.LONGITUD_DESCRIPCION),
+            fecha, j.get("imagenesDerivadas")));
+
+        List<Predicate> predicados = new ArrayList<>();
+        predicados.add(cb.isTrue(j.get("activo")));
+        if (filtro.genero() != null) {
+            predicados.add(cb.equal(j.get("genero"), filtro.genero()));
+        }
+        if (filtro.precioMin() != null) {
+            predicados.add(cb.greaterThanOrEqualTo(j.get("precio"), filtro.precioMin()));
+        }
+        if (filtro.precioMax() != null) {
+            predicados.add(cb.lessThanOrEqualTo(j.get("precio"), filtro.precioMax()));
+        }
+        if (filtro.titulo() != null) {
+            // "Contiene" no puede usar índice, pero se evalúa como filtro residual sobre las filas que ya
+            // llegan ordenadas por el índice del catálogo, sin ordenar ni leer la tabla completa.
+            // Misma normalización que FiltroCatalogo.admite (la intercalación ignora acentos en la columna)
+            String patron = "%" + FiltroCatalogo.normalizar(filtro.titulo()) + "%";
+            predicados.add(cb.like(cb.lower(j.get("titulo")), patron));
+        }
+        if (desde != null) {
+            predicados.add(despuesDe(cb, fecha, id, desde));
+        }
+
+        consulta.where(predicados.toArray(Predicate[]::new))
+            .orderBy(cb.desc(fecha), cb.desc(id));
+        return entityManager.createQuery(consulta)
+            .setMaxResults(limite)
+            .getResultList();
+    }
+
+    // Predicado keyset "posterior al cursor" en orden descendente, donde los juegos sin fecha van al final
+    // (igual que ORDER BY ... DESC en MySQL y que JuegoResumen.ORDEN_CATALOGO)
+    private static Predicate despuesDe(CriteriaBuilder cb, Path<LocalDateTime> fecha, Path<Integer> id,
+                                       CursorCatalogo desde) {
+        if (desde.fechaPublicacion() == null) {
+            return cb.and(cb.isNull(fecha), cb.lessThan(id, desde.id()));
+        }
+        return cb.or(
+            cb.lessThan(fecha, desde.fechaPublicacion()),
+            cb.and(cb.equal(fecha, desde.fechaPublicacion()), cb.lessThan(id, desde.id())),
+            cb.isNull(fecha));
+    }
+}
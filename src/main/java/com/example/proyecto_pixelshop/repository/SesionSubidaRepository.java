@@ -0,0 +1,34 @@
+package com.example.proyecto_pixelshop.repository;
+
+import com.example.proyecto_pixelshop.model.SesionSubida;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface SesionSubidaRepository extends JpaRepository<SesionSubida, String> {
+    
+    // Guarda la URL del archivo ya confirmado en Azure
+    @Modifying
+    @Transactional
+    @Query("UPDATE SesionSubida s SET s.url = :url WHERE s.id = :id")
+    int marcarConfirmada(@Param("id") String id, @Param("url") String url);
+    
+    // Retira una subida confirmada del proveedor. Devuelve 0 si no existe o si otra petición ya la ha consumido,
+    // de modo que el mismo archivo no se puede asociar a dos juegos
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM SesionSubida s WHERE s.id = :id AND s.proveedorId = :proveedorId AND s.url IS NOT NULL")
+    int consumir(@Param("id") String id, @Param("proveedorId") Integer proveedorId);
+    
+    // Olvida las subidas abandonadas (usa idx_subida_fecha_creacion)
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM SesionSubida s WHERE s.fechaCreacion < :limite")
+    int eliminarCaducadas(@Param("limite") LocalDateTime limite);
+}
@@ -2,12 +2,17 @@ package com.example.proyecto_pixelshop.repository;
 
 import com.example.proyecto_pixelshop.model.TransaccionProveedor;
 import com.example.proyecto_pixelshop.model.Usuario;
+import com.example.proyecto_pixelshop.model.dto.ItemPago;
 import com.example.proyecto_pixelshop.model.enums.EstadoPago;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -40,4 +45,87 @@ public interface TransaccionProveedorRepository extends JpaRepository<Transaccio
     
     @Query("SELECT SUM(t.importeComision) FROM TransaccionProveedor t WHERE t.usuario = :usuario")
     Double sumarImporteComisionPorUsuario(@Param("usuario") Usuario usuario);
+    
+    // ========== LIQUIDACIÓN POR LOTES (PayPal Payouts) ==========
+    
+    // Transacciones pendientes de proveedores activos con email de PayPal, listas para un lote (sin cargar entidades).
+    // Las apartadas por un rechazo de PayPal no entran hasta que el proveedor vuelve a pedir el cobro
+    @Query("SELECT new com.example.proyecto_pixelshop.model.dto.ItemPago(t.id, u.emailPaypal, t.importeNeto) " +
+           "FROM TransaccionProveedor t JOIN t.usuario u " +
+           "WHERE t.estadoPago = 'PENDIENTE' AND t.errorLiquidacion IS NULL " +
+           "AND u.activo = true AND u.emailPaypal IS NOT NULL AND u.emailPaypal <> '' " +
+           "ORDER BY t.id")
+    List<ItemPago> findItemsPendientes(Pageable pageable);
+    
+    // Elementos de un lote ya reservado (para enviarlo o reenviarlo)
+    @Query("SELECT new com.example.proyecto_pixelshop.model.dto.ItemPago(t.id, u.emailPaypal, t.importeNeto) " +
+           "FROM TransaccionProveedor t JOIN t.usuario u " +
+           "WHERE t.loteLiquidacion = :lote AND t.estadoPago = 'EN_PROCESO' ORDER BY t.id")
+    List<ItemPago> findItemsPorLote(@Param("lote") String lote);
+    
+    // Reserva las transacciones que sigan pendientes para un lote; devuelve cuántas ha reservado
+    @Modifying
+    @Transactional
+    @Query("UPDATE TransaccionProveedor t SET t.estadoPago = :enProceso, t.loteLiquidacion = :lote, t.errorLiquidacion = null " +
+           "WHERE t.id IN :ids AND t.estadoPago = :pendiente")
+    int reservarParaLote(@Param("ids") List<Integer> ids, @Param("lote") String lote,
+                         @Param("pendiente") EstadoPago pendiente, @Param("enProceso") EstadoPago enProceso);
+    
+    // Guarda el payout_batch_id que PayPal ha asignado al lote
+    @Modifying
+    @Transactional
+    @Query("UPDATE TransaccionProveedor t SET t.payoutBatchId = :payoutBatchId WHERE t.loteLiquidacion = :lote")
+    int registrarPayoutBatch(@Param("lote") String lote, @Param("payoutBatchId") String payoutBatchId);
+    
+    // Lotes reservados cuyo envío a PayPal no llegó a confirmarse (caída o error de red a mitad).
+    // Los marcados con error ya constan en PayPal pero no se pudo averiguar su payout_batch_id: se revisan a mano
+    @Query("SELECT DISTINCT t.loteLiquidacion FROM TransaccionProveedor t " +
+           "WHERE t.estadoPago = 'EN_PROCESO' AND t.payoutBatchId IS NULL AND t.errorLiquidacion IS NULL")
+    List<String> findLotesSinEnviar();
+    
+    // Lotes enviados a PayPal con elementos todavía sin resultado
+    @Query("SELECT DISTINCT t.payoutBatchId FROM TransaccionProveedor t " +
+           "WHERE t.estadoPago = 'EN_PROCESO' AND t.payoutBatchId IS NOT NULL")
+    List<String> findPayoutBatchIdsEnProceso();
+    
+    // Marca como pagadas en una sola sentencia las transacciones que sigan en estadoActual
+    // (si payoutBatchId es null se conserva el que tuvieran); devuelve cuántas ha actualizado
+    @Modifying
+    @Transactional
+    @Query("UPDATE TransaccionProveedor t SET t.estadoPago = :pagado, t.fechaPago = :fecha, " +
+           "t.payoutBatchId = COALESCE(:payoutBatchId, t.payoutBatchId) " +
+           "WHERE t.id IN :ids AND t.estadoPago = :estadoActual")
+    int marcarPagadas(@Param("ids") List<Integer> ids, @Param("fecha") LocalDateTime fecha, @Param("payoutBatchId") String payoutBatchId,
+                      @Param("estadoActual") EstadoPago estadoActual, @Param("pagado") EstadoPago pagado);
+    
+    // Devuelve a PENDIENTE las transacciones cuyo pago ha fallado o rechazado PayPal (entran en la siguiente liquidación)
+    @Modifying
+    @Transactional
+    @Query("UPDATE TransaccionProveedor t SET t.estadoPago = :pendiente, t.loteLiquidacion = null, t.payoutBatchId = null " +
+           "WHERE t.id IN :ids AND t.estadoPago = :enProceso")
+    int devolverAPendiente(@Param("ids") List<Integer> ids,
+                           @Param("enProceso") EstadoPago enProceso, @Param("pendiente") EstadoPago pendiente);
+    
+    // Aparta de la liquidación nocturna transacciones que PayPal ha rechazado (o que no se pueden enviar), con el motivo
+    @Modifying
+    @Transactional
+    @Query("UPDATE TransaccionProveedor t SET t.estadoPago = :pendiente, t.loteLiquidacion = null, t.payoutBatchId = null, " +
+           "t.errorLiquidacion = :motivo WHERE t.id IN :ids AND t.estadoPago <> :pagado")
+    int apartar(@Param("ids") List<Integer> ids, @Param("motivo") String motivo,
+                @Param("pendiente") EstadoPago pendiente, @Param("pagado") EstadoPago pagado);
+    
+    // Anota un error en un lote reservado que se queda EN_PROCESO (para que no se reenvíe y se revise a mano)
+    @Modifying
+    @Transactional
+    @Query("UPDATE TransaccionProveedor t SET t.errorLiquidacion = :motivo " +
+           "WHERE t.loteLiquidacion = :lote AND t.estadoPago = :enProceso")
+    int anotarErrorLote(@Param("lote") String lote, @Param("motivo") String motivo, @Param("enProceso") EstadoPago enProceso);
+    
+    // Libera un lote entero que PayPal ha rechazado
+    @Modifying
+    @Transactional
+    @Query("UPDATE TransaccionProveedor t SET t.estadoPago = :pendiente, t.loteLiquidacion = null, t.payoutBatchId = null " +
+           "WHERE t.loteLiquidacion = :lote AND t.estadoPago = :enProceso")
+    int liberarLote(@Param("lote") String lote,
+                    @Param("enProceso") EstadoPago enProceso, @Param("pendiente") EstadoPago pendiente);
 }
@@ -0,0 +1,29 @@
+package com.example.proyecto_pixelshop.repository;
+
+import com.example.proyecto_pixelshop.model.VentaPendienteResumen;
+import com.example.proyecto_pixelshop.model.dto.VentasPendientesProveedor;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface VentaPendienteResumenRepository extends JpaRepository<VentaPendienteResumen, Integer> {
+    
+    // Proveedores con ventas pendientes de resumen y la fecha de la primera (una fila por proveedor)
+    @Query("SELECT new com.example.proyecto_pixelshop.model.dto.VentasPendientesProveedor(v.proveedorId, MIN(v.fechaVenta)) " +
+           "FROM VentaPendienteResumen v GROUP BY v.proveedorId")
+    List<VentasPendientesProveedor> findProveedoresConVentasPendientes();
+    
+    // Ventas pendientes de un proveedor, de la más antigua a la más reciente
+    List<VentaPendienteResumen> findByProveedorIdOrderByFechaVentaAsc(Integer proveedorId);
+    
+    // Elimina las ventas ya incluidas en un resumen; devuelve cuántas ha borrado
+    // (menos de las esperadas si otra instancia las ha enviado a la vez)
+    @Modifying
+    @Query("DELETE FROM VentaPendienteResumen v WHERE v.id IN :ids")
+    int eliminarPorIds(@Param("ids") List<Integer> ids);
+}
@@ -0,0 +1,18 @@
+package com.example.proyecto_pixelshop.service.evento;
+
+/**
+ * Evento que se publica cada vez que cambia un juego visible (o potencialmente visible) en el catálogo.
+ * Los componentes que mantienen datos del catálogo en memoria lo escuchan tras el commit para actualizarse.
+ * Si juegoId es null, el cambio afecta a varios juegos y hay que descartar todo lo cacheado.
+ */
+public record EventoCatalogoModificado(Integer juegoId) {
+
+    // Evento para cambios masivos (por ejemplo, al desactivar todos los juegos de un proveedor)
+    public static EventoCatalogoModificado todos() {
+        return new EventoCatalogoModificado(null);
+    }
+
+    public boolean afectaATodos() {
+        return juegoId == null;
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.proyecto_pixelshop.service.evento;
+
+/**
+ * Evento que se publica cuando una compra pasa a COMPLETADA.
+ * Los listeners que mantienen datos en memoria (biblioteca de cada usuario) lo procesan tras el commit.
+ */
+public record EventoCompraCompletada(Integer compraId, Integer usuarioId, Integer juegoId) {
+}
@@ -1,31 +1,100 @@
 package com.example.proyecto_pixelshop.service.impl;
 
+import com.azure.core.util.BinaryData;
 import com.azure.storage.blob.BlobClient;
 import com.azure.storage.blob.BlobContainerClient;
 import com.azure.storage.blob.models.BlobHttpHeaders;
+import com.azure.storage.blob.models.BlobProperties;
+import com.azure.storage.blob.models.BlobRange;
+import com.azure.storage.blob.models.BlobRequestConditions;
+import com.azure.storage.blob.models.BlobStorageException;
+import com.azure.storage.blob.models.Block;
+import com.azure.storage.blob.models.BlockList;
+import com.azure.storage.blob.models.BlockListType;
+import com.azure.storage.blob.options.BlockBlobCommitBlockListOptions;
+import com.azure.storage.blob.options.BlockBlobStageBlockOptions;
+import com.azure.storage.blob.specialized.BlockBlobClient;
+import com.azure.storage.blob.options.BlobInputStreamOptions;
+import com.azure.storage.blob.options.BlobParallelUploadOptions;
+import com.azure.storage.blob.sas.BlobSasPermission;
+import com.azure.storage.blob.sas.BlobServiceSasSignatureValues;
+import com.example.proyecto_pixelshop.config.resiliencia.Dependencia;
+import com.example.proyecto_pixelshop.config.resiliencia.RegistroResiliencia;
+import com.example.proyecto_pixelshop.model.dto.PropiedadesBlob;
+import com.example.proyecto_pixelshop.model.dto.SubidaBlob;
+import com.example.proyecto_pixelshop.service.interfaz.FirmaNoDisponibleException;
 import com.example.proyecto_pixelshop.service.interfaz.IAzureBlobStorageService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 public class AzureBlobStorageServiceImpl implements IAzureBlobStorageService {
 
     @Autowired private BlobContainerClient blobContainerClient;
-
-    @Value("${azure.storage.blob-endpoint}")
-    private String blobEndpoint;
+    @Autowired private RegistroResiliencia registroResiliencia;
 
     @Value("${azure.storage.container-name}")
     private String containerName;
 
+    // Máximo de subidas/borrados simultáneos contra Azure (por instancia de la aplicación)
+    @Value("${azure.storage.operaciones-paralelas:8}")
+    private int operacionesParalelas;
+
+    // Subida por bloques: tamaño de cada bloque y máximo de bloques en memoria por subida
+    @Value("${azure.storage.tamanio-bloque-mb:8}")
+    private int tamanioBloqueMb;
+
+    @Value("${azure.storage.bloques-en-vuelo:4}")
+    private int bloquesEnVuelo;
+
+    // Tamaño de cada lectura a Azure al servir un rango (memoria por descarga en curso)
+    private static final int TAMANIO_LECTURA = 4 * 1024 * 1024;
+
+    // Hilos virtuales: las operaciones son E/S bloqueante y el límite real lo pone el semáforo
+    private final ExecutorService ejecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private Semaphore permisos;
+
+    // Cada llamada a Azure pasa por aquí: bulkhead, tiempo máximo, reintentos y circuit breaker (resiliencia.azure-blob.*)
+    private Dependencia azure;
+
+    @PostConstruct
+    void iniciar() {
+        permisos = new Semaphore(operacionesParalelas);
+        azure = registroResiliencia.obtener(RegistroResiliencia.AZURE_BLOB);
+    }
+
+    @PreDestroy
+    void cerrar() {
+        ejecutor.shutdown();
+    }
+
     // Tipos de archivo permitidos
     private static final List<String> ALLOWED_IMAGE_TYPES = Arrays.asList(
         "image/jpeg", "image/jpg", "image/png", "image/webp", "image/gif"
@@ -42,60 +111,69 @@ public class AzureBlobStorageServiceImpl implements IAzureBlobStorageService {
 
     @Override
     public String uploadFile(MultipartFile file, String folder) throws IOException {
-        if (file == null || file.isEmpty()) {
-            throw new IOException("El archivo está vacío");
-        }
+        validarArchivo(file, file.getContentType());
+        return subir(SubidaBlob.deArchivo(file, folder));
+    }
 
-        // Validar tipo de archivo
-        String contentType = file.getContentType();
-        if (!isValidFileType(contentType)) {
-            throw new IOException("Tipo de archivo no permitido: " + contentType);
+    @Override
+    public List<String> uploadBatch(List<SubidaBlob> subidas) throws IOException {
+        // Validar todo antes de empezar a subir nada
+        for (SubidaBlob subida : subidas) {
+            if (subida.archivo() != null) {
+                validarArchivo(subida.archivo(), subida.contentType());
+            }
         }
 
-        // Validar tamaño según tipo de archivo
-        // Videos: máx 100MB, Archivos ZIP: máx 500MB, Imágenes: máx 10MB
-        long maxSize;
-        if (contentType.startsWith("video/")) {
-            maxSize = 100 * 1024 * 1024; // 100MB
-        } else if (ALLOWED_ARCHIVE_TYPES.contains(contentType)) {
-            maxSize = 500L * 1024 * 1024; // 500MB
-        } else {
-            maxSize = 10 * 1024 * 1024; // 10MB
-        }
-        
-        if (file.getSize() > maxSize) {
-            throw new IOException("El archivo excede el tamaño máximo permitido (" + (maxSize / 1024 / 1024) + "MB)");
+        AtomicBoolean fallo = new AtomicBoolean(false);
+        List<Future<String>> futuros = new ArrayList<>(subidas.size());
+        for (SubidaBlob subida : subidas) {
+            futuros.add(enParalelo(() -> {
+                // Si otra subida del lote ya ha fallado, no tiene sentido empezar esta
+                if (fallo.get()) {
+                    return null;
+                }
+                try {
+                    return subir(subida);
+                } catch (IOException e) {
+                    fallo.set(true);
+                    throw e;
+                }
+            }));
         }
 
-        try {
-            // Generar nombre único para el archivo
-            String originalFilename = file.getOriginalFilename();
-            String extension = originalFilename != null && originalFilename.contains(".") 
-                ? originalFilename.substring(originalFilename.lastIndexOf(".")) 
-                : "";
-            String fileName = folder + "/" + UUID.randomUUID().toString() + extension;
-
-            // Obtener el cliente del blob
-            BlobClient blobClient = blobContainerClient.getBlobClient(fileName);
-
-            // Configurar headers HTTP para el blob
-            BlobHttpHeaders headers = new BlobHttpHeaders()
-                .setContentType(contentType)
-                .setContentDisposition("inline"); // Para que se muestre en el navegador
-
-            // Subir el archivo
-            blobClient.upload(file.getInputStream(), file.getSize(), true);
-            blobClient.setHttpHeaders(headers);
-
-            // Retornar la URL pública (decodificada para que funcione en <img src>)
-            String encodedUrl = blobClient.getBlobUrl();
-            // Decodificar solo el path, no toda la URL
-            String decodedUrl = encodedUrl.replace("%2F", "/");
-            return decodedUrl;
+        // Se espera a todas (también tras un fallo) para no dejar subidas en curso sin limpiar
+        List<String> urls = new ArrayList<>(subidas.size());
+        IOException error = null;
+        for (Future<String> futuro : futuros) {
+            try {
+                String url = futuro.get();
+                if (url != null) {
+                    urls.add(url);
+                }
+            } catch (ExecutionException e) {
+                if (error == null) {
+                    error = e.getCause() instanceof IOException io ? io : new IOException(e.getCause().getMessage(), e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fallo.set(true);
+                if (error == null) {
+                    error = new IOException("Subida interrumpida", e);
+                }
+            }
+        }
 
-        } catch (Exception e) {
-            throw new IOException("Error al subir el archivo a Azure: " + e.getMessage(), e);
+        if (error != null) {
+            deleteMultipleFiles(urls);
+            throw error;
         }
+        return urls;
+    }
+
+    @Override
+    public String getBlobUrl(String blobName) {
+        // Decodificada para que funcione en <img src>
+        return blobContainerClient.getBlobClient(blobName).getBlobUrl().replace("%2F", "/");
     }
 
     @Override
@@ -106,15 +184,22 @@ public class AzureBlobStorageServiceImpl implements IAzureBlobStorageService {
             return urls;
         }
 
+        List<Future<String>> futuros = new ArrayList<>();
         for (MultipartFile file : files) {
             if (file != null && !file.isEmpty()) {
-                try {
-                    String url = uploadFile(file, folder);
-                    urls.add(url);
-                } catch (IOException e) {
-                    System.err.println("Error al subir archivo: " + e.getMessage());
-                    // Continuar con los demás archivos
-                }
+                futuros.add(enParalelo(() -> uploadFile(file, folder)));
+            }
+        }
+
+        for (Future<String> futuro : futuros) {
+            try {
+                urls.add(futuro.get());
+            } catch (ExecutionException e) {
+                System.err.println("Error al subir archivo: " + e.getCause().getMessage());
+                // Continuar con los demás archivos
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Subida interrumpida", e);
             }
         }
 
@@ -134,8 +219,9 @@ public class AzureBlobStorageServiceImpl implements IAzureBlobStorageService {
             if (blobName != null) {
                 BlobClient blobClient = blobContainerClient.getBlobClient(blobName);
                 
-                if (blobClient.exists()) {
-                    blobClient.delete();
+                boolean eliminado = azure.ejecutarConReintentos(
+                    plazo -> blobClient.deleteIfExistsWithResponse(null, null, plazo, null).getValue());
+                if (eliminado) {
                     System.out.println("Archivo eliminado de Azure: " + blobName);
                 }
             }
@@ -150,21 +236,33 @@ public class AzureBlobStorageServiceImpl implements IAzureBlobStorageService {
             return;
         }
 
+        List<Future<?>> futuros = new ArrayList<>();
         for (String url : fileUrls) {
             if (url != null && !url.isEmpty()) {
-                try {
+                futuros.add(enParalelo(() -> {
                     deleteFile(url);
-                } catch (IOException e) {
-                    System.err.println("Error al eliminar archivo: " + e.getMessage());
-                    // Continuar con los demás archivos
-                }
+                    return null;
+                }));
+            }
+        }
+
+        for (Future<?> futuro : futuros) {
+            try {
+                futuro.get();
+            } catch (ExecutionException e) {
+                System.err.println("Error al eliminar archivo: " + e.getCause().getMessage());
+                // Continuar con los demás archivos
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
             }
         }
     }
 
     @Override
     public boolean isAzureBlobUrl(String url) {
-        return url != null && url.contains("blob.core.windows.net");
+        // Se compara con la URL real del contenedor para que también funcione con Azurite (http://127.0.0.1:10000/...)
+        return url != null && url.startsWith(blobContainerClient.getBlobContainerUrl() + "/");
     }
 
     @Override
@@ -197,8 +295,327 @@ public class AzureBlobStorageServiceImpl implements IAzureBlobStorageService {
         return newUrl;
     }
 
+    @Override
+    public String uploadBytes(byte[] contenido, String blobName, String contentType) throws IOException {
+        return subir(SubidaBlob.deBytes(contenido, blobName, contentType));
+    }
+
+    @Override
+    public String getBlobName(String fileUrl) {
+        return extractBlobNameFromUrl(fileUrl);
+    }
+
+    // ========== SUBIDA POR BLOQUES ==========
+
+    @Override
+    public int getBlockSize() {
+        return tamanioBloqueMb * 1024 * 1024;
+    }
+
+    @Override
+    public long stageBlocks(String blobName, InputStream data, int firstBlock, long maxBytes) throws IOException {
+        BlockBlobClient blockBlobClient = blobContainerClient.getBlobClient(blobName).getBlockBlobClient();
+        int blockSize = getBlockSize();
+        // Cada bloque en vuelo ocupa un buffer: la memoria usada está acotada a bloquesEnVuelo * blockSize
+        Semaphore enVuelo = new Semaphore(bloquesEnVuelo);
+        AtomicReference<Exception> error = new AtomicReference<>();
+        List<Future<?>> futuros = new ArrayList<>();
+        long leidos = 0;
+        int indice = firstBlock;
+
+        try {
+            while (error.get() == null) {
+                enVuelo.acquire();
+                byte[] buffer = new byte[blockSize];
+                int longitud = data.readNBytes(buffer, 0, blockSize);
+                if (longitud == 0) {
+                    enVuelo.release();
+                    break;
+                }
+                leidos += longitud;
+                if (leidos > maxBytes) {
+                    enVuelo.release();
+                    throw new IOException("El archivo supera el tamaño declarado");
+                }
+
+                String blockId = blockId(indice++);
+                futuros.add(enParalelo(() -> {
+                    try {
+                        // Reintentar un bloque es seguro: Azure sustituye el bloque con el mismo ID.
+                        // Con el MD5 del bloque, Azure rechaza el que llegue alterado en lugar de guardarlo
+                        byte[] contenido = Arrays.copyOf(buffer, longitud);
+                        byte[] md5 = md5(contenido);
+                        BinaryData bloque = BinaryData.fromBytes(contenido);
+                        azure.ejecutarConReintentos(plazo -> blockBlobClient.stageBlockWithResponse(
+                            new BlockBlobStageBlockOptions(blockId, bloque).setContentMd5(md5), plazo, null));
+                    } catch (Exception e) {
+                        error.compareAndSet(null, e);
+                    } finally {
+                        enVuelo.release();
+                    }
+                    return null;
+                }));
+                if (longitud < blockSize) {
+                    break; // Último bloque
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Subida interrumpida", e);
+        } finally {
+            // Esperar a los bloques en vuelo antes de responder, para que el estado sea consistente al reanudar
+            for (Future<?> futuro : futuros) {
+                try {
+                    futuro.get();
+                } catch (Exception ignorada) {
+                    // El error ya queda registrado en "error"
+                }
+            }
+        }
+
+        if (error.get() != null) {
+            throw new IOException("Error al subir un bloque a Azure: " + error.get().getMessage(), error.get());
+        }
+        return leidos;
+    }
+
+    @Override
+    public Map<Integer, Long> getStagedBlocks(String blobName) {
+        BlockBlobClient blockBlobClient = blobContainerClient.getBlobClient(blobName).getBlockBlobClient();
+        Map<Integer, Long> bloques = new TreeMap<>();
+        try {
+            BlockList lista = sinComprobar(plazo ->
+                blockBlobClient.listBlocksWithResponse(BlockListType.UNCOMMITTED, null, plazo, null).getValue());
+            for (Block bloque : lista.getUncommittedBlocks()) {
+                String id = new String(Base64.getDecoder().decode(bloque.getName()), StandardCharsets.US_ASCII);
+                bloques.put(Integer.parseInt(id), bloque.getSizeLong());
+            }
+        } catch (BlobStorageException e) {
+            // El blob aún no existe (no se ha enviado ningún bloque)
+            if (e.getStatusCode() != 404) {
+                throw e;
+            }
+        }
+        return bloques;
+    }
+
+    @Override
+    public String commitBlocks(String blobName, int blockCount, String contentType) throws IOException {
+        try {
+            BlockBlobClient blockBlobClient = blobContainerClient.getBlobClient(blobName).getBlockBlobClient();
+            List<String> ids = new ArrayList<>(blockCount);
+            for (int i = 0; i < blockCount; i++) {
+                ids.add(blockId(i));
+            }
+            BlobHttpHeaders headers = cabecerasPublicas(contentType);
+            // Confirmar la misma lista de bloques dos veces da el mismo blob, así que se puede reintentar
+            azure.ejecutarConReintentos(plazo -> blockBlobClient.commitBlockListWithResponse(
+                new BlockBlobCommitBlockListOptions(ids).setHeaders(headers), plazo, null));
+            return getBlobUrl(blobName);
+        } catch (Exception e) {
+            throw new IOException("Error al confirmar el archivo en Azure: " + e.getMessage(), e);
+        }
+    }
+
+    // ========== SUBIDA DIRECTA (SAS) ==========
+
+    @Override
+    public String generateUploadUrl(String blobName, Duration validez) throws FirmaNoDisponibleException {
+        BlobClient blobClient = blobContainerClient.getBlobClient(blobName);
+        // Solo crear y escribir este blob (incluye Put Block y Put Block List)
+        BlobSasPermission permisos = new BlobSasPermission()
+            .setCreatePermission(true)
+            .setWritePermission(true);
+        BlobServiceSasSignatureValues valores = new BlobServiceSasSignatureValues(OffsetDateTime.now().plus(validez), permisos)
+            .setStartTime(OffsetDateTime.now().minusMinutes(5)); // Margen por diferencias de reloj con Azure
+        try {
+            return blobClient.getBlobUrl() + "?" + blobClient.generateSas(valores);
+        } catch (IllegalStateException e) {
+            // El cliente no tiene la clave de la cuenta (por ejemplo, si la cadena de conexión usa un token SAS)
+            throw new FirmaNoDisponibleException("La subida directa no está disponible con la configuración actual de Azure", e);
+        }
+    }
+
+    @Override
+    public String generateDownloadUrl(String blobName, Duration validez, String nombreDescarga) throws FirmaNoDisponibleException {
+        BlobClient blobClient = blobContainerClient.getBlobClient(blobName);
+        BlobServiceSasSignatureValues valores = new BlobServiceSasSignatureValues(
+                OffsetDateTime.now().plus(validez), new BlobSasPermission().setReadPermission(true))
+            .setStartTime(OffsetDateTime.now().minusMinutes(5))
+            .setContentDisposition(contentDispositionDescarga(nombreDescarga));
+        try {
+            return blobClient.getBlobUrl() + "?" + blobClient.generateSas(valores);
+        } catch (IllegalStateException e) {
+            throw new FirmaNoDisponibleException("Las URLs de descarga firmadas no están disponibles con la configuración actual de Azure", e);
+        }
+    }
+
+    @Override
+    public PropiedadesBlob getBlobProperties(String blobName) {
+        try {
+            BlobClient blobClient = blobContainerClient.getBlobClient(blobName);
+            BlobProperties propiedades = sinComprobar(plazo -> blobClient.getPropertiesWithResponse(null, plazo, null).getValue());
+            byte[] md5 = propiedades.getContentMd5();
+            return new PropiedadesBlob(propiedades.getBlobSize(), propiedades.getContentType(),
+                md5 != null ? Base64.getEncoder().encodeToString(md5) : null,
+                propiedades.getETag(), propiedades.getLastModified().toInstant().toEpochMilli());
+        } catch (BlobStorageException e) {
+            if (e.getStatusCode() == 404) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void setBlobHeaders(String blobName, String contentType, String etag) throws IOException {
+        try {
+            BlobClient blobClient = blobContainerClient.getBlobClient(blobName);
+            BlobRequestConditions condiciones = new BlobRequestConditions().setIfMatch(etag);
+            azure.ejecutarConReintentos(plazo ->
+                blobClient.setHttpHeadersWithResponse(cabecerasPublicas(contentType), condiciones, plazo, null));
+        } catch (Exception e) {
+            throw new IOException("Error al actualizar las cabeceras del archivo en Azure: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public InputStream openBlobRange(String blobName, long offset, long count, String etag) {
+        BlobInputStreamOptions opciones = new BlobInputStreamOptions()
+            .setRange(new BlobRange(offset, count))
+            .setBlockSize(TAMANIO_LECTURA)
+            .setRequestConditions(new BlobRequestConditions().setIfMatch(etag));
+        // Solo la apertura (que ya consulta el blob a Azure) pasa por la dependencia; las lecturas usan los reintentos del SDK
+        BlobClient blobClient = blobContainerClient.getBlobClient(blobName);
+        return sinComprobar(plazo -> blobClient.openInputStream(opciones));
+    }
+
     // ========== MÉTODOS PRIVADOS ==========
 
+    /**
+     * Content-Disposition de descarga: nombre ASCII para navegadores antiguos y filename* (RFC 5987) con el original
+     */
+    private static String contentDispositionDescarga(String nombre) {
+        if (nombre == null || nombre.isBlank()) {
+            return "attachment";
+        }
+        String ascii = nombre.replaceAll("[^\\x20-\\x7E]", "_").replace("\"", "_").replace("\\", "_");
+        String codificado = java.net.URLEncoder.encode(nombre, StandardCharsets.UTF_8).replace("+", "%20");
+        return "attachment; filename=\"" + ascii + "\"; filename*=UTF-8''" + codificado;
+    }
+
+    /**
+     * Cabeceras de los blobs públicos. Los nombres llevan un UUID y nunca se reescriben, así que se cachean para siempre
+     */
+    private static BlobHttpHeaders cabecerasPublicas(String contentType) {
+        return new BlobHttpHeaders()
+            .setContentType(contentType)
+            .setContentDisposition("inline") // Para que se muestre en el navegador
+            .setCacheControl("public, max-age=31536000, immutable");
+    }
+
+    /**
+     * MD5 de un bloque, para que Azure compruebe que ha llegado íntegro
+     */
+    private static byte[] md5(byte[] contenido) {
+        try {
+            return MessageDigest.getInstance("MD5").digest(contenido);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // Toda JVM incluye MD5
+        }
+    }
+
+    /**
+     * Identificador de bloque: Azure exige que todos los de un blob tengan la misma longitud
+     */
+    private static String blockId(int indice) {
+        return Base64.getEncoder().encodeToString(String.format("%06d", indice).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Llamada a Azure con reintentos para los métodos de la interfaz que no declaran IOException
+     */
+    private <T> T sinComprobar(Dependencia.Operacion<T> operacion) {
+        try {
+            return azure.ejecutarConReintentos(operacion);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Sube un archivo con su nombre ya decidido. Contenido y cabeceras van en la misma petición
+     */
+    private String subir(SubidaBlob subida) throws IOException {
+        try {
+            BlobClient blobClient = blobContainerClient.getBlobClient(subida.blobName());
+
+            BlobHttpHeaders headers = cabecerasPublicas(subida.contentType());
+
+            // El nombre es único, así que repetir la subida no pisa nada; el contenido se vuelve a leer en cada intento
+            // (y el flujo de cada intento se cierra al terminarlo)
+            azure.ejecutarConReintentos(plazo -> {
+                if (subida.contenido() != null) {
+                    BinaryData datos = BinaryData.fromBytes(subida.contenido());
+                    return blobClient.uploadWithResponse(new BlobParallelUploadOptions(datos).setHeaders(headers), plazo, null);
+                }
+                try (InputStream entrada = subida.archivo().getInputStream()) {
+                    BinaryData datos = BinaryData.fromStream(entrada, subida.archivo().getSize());
+                    return blobClient.uploadWithResponse(new BlobParallelUploadOptions(datos).setHeaders(headers), plazo, null);
+                }
+            });
+
+            // Retornar la URL pública (decodificada para que funcione en <img src>)
+            return blobClient.getBlobUrl().replace("%2F", "/");
+        } catch (Exception e) {
+            throw new IOException("Error al subir el archivo a Azure: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Ejecuta una operación de Azure en un hilo virtual, respetando el máximo de operaciones simultáneas
+     */
+    private <T> Future<T> enParalelo(Callable<T> operacion) {
+        return ejecutor.submit(() -> {
+            permisos.acquire();
+            try {
+                return operacion.call();
+            } finally {
+                permisos.release();
+            }
+        });
+    }
+
+    /**
+     * Valida tipo y tamaño de un archivo subido por el usuario
+     * Videos: máx 100MB, Archivos ZIP: máx 500MB, Imágenes: máx 10MB
+     * contentType es el que se guardará en el blob (el detectado en la cabecera para las imágenes)
+     */
+    private void validarArchivo(MultipartFile file, String contentType) throws IOException {
+        if (file == null || file.isEmpty()) {
+            throw new IOException("El archivo está vacío");
+        }
+
+        // Validar tipo de archivo
+        if (!isValidFileType(contentType)) {
+            throw new IOException("Tipo de archivo no permitido: " + contentType);
+        }
+
+        // Validar tamaño según tipo de archivo
+        long maxSize;
+        if (contentType.startsWith("video/")) {
+            maxSize = 100 * 1024 * 1024; // 100MB
+        } else if (ALLOWED_ARCHIVE_TYPES.contains(contentType)) {
+            maxSize = 500L * 1024 * 1024; // 500MB
+        } else {
+            maxSize = 10 * 1024 * 1024; // 10MB
+        }
+        
+        if (file.getSize() > maxSize) {
+            throw new IOException("El archivo excede el tamaño máximo permitido (" + (maxSize / 1024 / 1024) + "MB)");
+        }
+    }
+
     /**
      * Verifica si un tipo de archivo es válido
      */
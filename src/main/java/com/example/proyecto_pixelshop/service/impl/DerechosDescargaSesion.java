@@ -0,0 +1,33 @@
+package com.example.proyecto_pixelshop.service.impl;
+
+import com.example.proyecto_pixelshop.model.dto.DerechoDescarga;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.SessionScope;
+
+import java.io.Serializable;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Derechos de descarga ya comprobados en la sesión HTTP del usuario (uno por juego).
+ * Cada entrada recuerda la versión del catálogo con la que se cargó, para volver a consultarla si el juego ha cambiado
+ * (por ejemplo, si el proveedor ha subido un archivo nuevo), y cuándo se cargó, para que una compra o un usuario eliminados
+ * (quizá desde otra instancia) dejen de dar acceso al caducar. Desaparece al cerrar sesión.
+ */
+@Component
+@SessionScope
+public class DerechosDescargaSesion implements Serializable {
+    
+    private static final long serialVersionUID = 1L;
+    
+    record Entrada(String email, DerechoDescarga derecho, long version, long cargadaMs) implements Serializable {}
+    
+    private final ConcurrentHashMap<Integer, Entrada> porJuego = new ConcurrentHashMap<>();
+    
+    Entrada obtener(Integer juegoId) {
+        return porJuego.get(juegoId);
+    }
+    
+    void guardar(Integer juegoId, Entrada entrada) {
+        porJuego.put(juegoId, entrada);
+    }
+}
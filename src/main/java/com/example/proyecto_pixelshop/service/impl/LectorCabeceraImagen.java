@@ -0,0 +1,123 @@
+package com.example.proyecto_pixelshop.service.impl;
+
+import com.example.proyecto_pixelshop.model.dto.MetadatosImagen;
+
+/**
+ * Lee formato y dimensiones de JPEG, PNG, GIF y WebP recorriendo solo la cabecera del archivo.
+ * No reserva memoria para los píxeles: como mucho recorre los segmentos JPEG hasta el SOF.
+ */
+final class LectorCabeceraImagen {
+    
+    private LectorCabeceraImagen() {}
+    
+    // Devuelve null si el contenido no es uno de los formatos admitidos o la cabecera está truncada
+    static MetadatosImagen leer(byte[] d) {
+        if (d == null || d.length < 12) {
+            return null;
+        }
+        if ((d[0] & 0xFF) == 0xFF && (d[1] & 0xFF) == 0xD8) {
+            return leerJpeg(d);
+        }
+        if ((d[0] & 0xFF) == 0x89 && d[1] == 'P' && d[2] == 'N' && d[3] == 'G') {
+            return leerPng(d);
+        }
+        if (d[0] == 'G' && d[1] == 'I' && d[2] == 'F' && d[3] == '8') {
+            return crear("gif", u16le(d, 6), u16le(d, 8));
+        }
+        if (d[0] == 'R' && d[1] == 'I' && d[2] == 'F' && d[3] == 'F'
+                && d[8] == 'W' && d[9] == 'E' && d[10] == 'B' && d[11] == 'P') {
+            return leerWebp(d);
+        }
+        return null;
+    }
+    
+    // PNG: el primer chunk siempre es IHDR, con ancho y alto en big-endian
+    private static MetadatosImagen leerPng(byte[] d) {
+        if (d.length < 24 || d[12] != 'I' || d[13] != 'H' || d[14] != 'D' || d[15] != 'R') {
+            return null;
+        }
+        return crear("png", u32be(d, 16), u32be(d, 20));
+    }
+    
+    // JPEG: se saltan los segmentos hasta el primer SOFn, que contiene alto y ancho
+    private static MetadatosImagen leerJpeg(byte[] d) {
+        int i = 2;
+        while (i + 3 < d.length) {
+            if ((d[i] & 0xFF) != 0xFF) {
+                return null;
+            }
+            int marcador = d[i + 1] & 0xFF;
+            if (marcador == 0xFF) {
+                i++; // Relleno entre marcadores
+                continue;
+            }
+            // Marcadores sin longitud (RSTn, TEM)
+            if ((marcador >= 0xD0 && marcador <= 0xD7) || marcador == 0x01) {
+                i += 2;
+                continue;
+            }
+            if (marcador == 0xD9 || marcador == 0xDA) {
+                return null; // Fin de imagen o inicio de datos sin haber encontrado el SOF
+            }
+            int longitud = u16be(d, i + 2);
+            boolean esSof = marcador >= 0xC0 && marcador <= 0xCF
+                && marcador != 0xC4 && marcador != 0xC8 && marcador != 0xCC;
+            if (esSof) {
+                if (i + 9 > d.length) {
+                    return null;
+                }
+                return crear("jpeg", u16be(d, i + 7), u16be(d, i + 5));
+            }
+            i += 2 + longitud;
+        }
+        return null;
+    }
+    
+    // WebP: tres variantes de cabecera según el primer chunk (con pérdida, sin pérdida o extendida)
+    private static MetadatosImagen leerWebp(byte[] d) {
+        if (d.length < 30 || d[12] != 'V' || d[13] != 'P' || d[14] != '8') {
+            return null;
+        }
+        switch (d[15]) {
+            case ' ':
+                // VP8: dimensiones de 14 bits tras el código de inicio 9D 01 2A
+                return crear("webp", u16le(d, 26) & 0x3FFF, u16le(d, 28) & 0x3FFF);
+            case 'L':
+                // VP8L: firma 0x2F y después ancho-1 y alto-1 empaquetados en 14 bits cada uno
+                if ((d[20] & 0xFF) != 0x2F) {
+                    return null;
+                }
+                int bits = u32le(d, 21);
+                return crear("webp", (bits & 0x3FFF) + 1, ((bits >>> 14) & 0x3FFF) + 1);
+            case 'X':
+                // VP8X: tamaño del lienzo (menos uno) en 24 bits little-endian
+                return crear("webp", u24le(d, 24) + 1, u24le(d, 27) + 1);
+            default:
+                return null;
+        }
+    }
+    
+    private static MetadatosImagen crear(String formato, int ancho, int alto) {
+        return ancho > 0 && alto > 0 ? new MetadatosImagen(formato, ancho, alto) : null;
+    }
+    
+    private static int u16be(byte[] d, int i) {
+        return ((d[i] & 0xFF) << 8) | (d[i + 1] & 0xFF);
+    }
+    
+    private static int u32be(byte[] d, int i) {
+        return ((d[i] & 0xFF) << 24) | ((d[i + 1] & 0xFF) << 16) | ((d[i + 2] & 0xFF) << 8) | (d[i + 3] & 0xFF);
+    }
+    
+    private static int u16le(byte[] d, int i) {
+        return (d[i] & 0xFF) | ((d[i + 1] & 0xFF) << 8);
+    }
+    
+    private static int u24le(byte[] d, int i) {
+        return (d[i] & 0xFF) | ((d[i + 1] & 0xFF) << 8) | ((d[i + 2] & 0xFF) << 16);
+    }
+    
+    private static int u32le(byte[] d, int i) {
+        return u24le(d, i) | ((d[i + 3] & 0xFF) << 24);
+    }
+}
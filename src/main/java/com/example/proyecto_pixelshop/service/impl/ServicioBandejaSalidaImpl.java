@@ -0,0 +1,236 @@
+package com.example.proyecto_pixelshop.service.impl;
+
+import com.example.proyecto_pixelshop.config.resiliencia.Dependencia;
+import com.example.proyecto_pixelshop.config.resiliencia.DependenciaNoDisponibleException;
+import com.example.proyecto_pixelshop.config.resiliencia.RegistroResiliencia;
+import com.example.proyecto_pixelshop.model.EmailPendiente;
+import com.example.proyecto_pixelshop.model.enums.EstadoEmail;
+import com.example.proyecto_pixelshop.repository.EmailPendienteRepository;
+import com.example.proyecto_pixelshop.service.interfaz.IServicioBandejaSalida;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Despachador de la bandeja de salida: cada pocos segundos reclama los emails pendientes y los envía por SMTP
+ * en lotes que comparten conexión, con un número fijo de hilos (el servidor SMTP limita las conexiones simultáneas).
+ * Si un envío falla se reintenta con espera exponencial (1, 2, 4, 8... minutos); al agotar los reintentos
+ * el email queda FALLIDO en la tabla, sin perderse, hasta que un administrador lo vuelva a poner en cola.
+ */
+@Service
+public class ServicioBandejaSalidaImpl implements IServicioBandejaSalida {
+    
+    @Autowired private EmailPendienteRepository emailPendienteRepository;
+    @Autowired private JavaMailSender mailSender;
+    @Autowired private RegistroResiliencia registroResiliencia;
+    
+    @Value("${email.from}")
+    private String fromEmail;
+    
+    @Value("${email.bandeja.hilos:2}")
+    private int hilos;
+    
+    @Value("${email.bandeja.lote:50}")
+    private int tamanioLote;
+    
+    @Value("${email.bandeja.max-intentos:6}")
+    private int maxIntentos;
+    
+    @Value("${email.bandeja.mensajes-por-conexion:20}")
+    private int mensajesPorConexion;
+    
+    // Tiempo que un despachador tiene reservado un email; si se cae a mitad, otro lo recupera pasado este tiempo
+    private static final int MINUTOS_BLOQUEO = 10;
+    private static final int MAX_MINUTOS_ESPERA = 60;
+    
+    private ExecutorService ejecutor;
+    
+    // Servidor SMTP: bulkhead y circuit breaker (resiliencia.smtp.*); los reintentos son los de la bandeja.
+    // El envío no se corta al agotar resiliencia.smtp.timeout-ms: lo acotan los timeouts de JavaMail (spring.mail.properties.*)
+    private Dependencia smtp;
+    
+    @PostConstruct
+    void iniciar() {
+        ejecutor = Executors.newFixedThreadPool(hilos);
+        smtp = registroResiliencia.obtener(RegistroResiliencia.SMTP);
+    }
+    
+    @PreDestroy
+    void cerrar() {
+        ejecutor.shutdown();
+    }
+    
+    // Una pasada cada email.bandeja.intervalo-ms; la siguiente no empieza hasta que termina esta
+    @Override
+    @Scheduled(fixedDelayString = "${email.bandeja.intervalo-ms:5000}", initialDelayString = "${email.bandeja.intervalo-ms:5000}")
+    public void procesarPendientes() {
+        LocalDateTime ahora = LocalDateTime.now();
+        int liberados = emailPendienteRepository.liberarBloqueosCaducados(ahora);
+        if (liberados > 0) {
+            System.out.println("Bandeja de salida: " + liberados + " emails recuperados de un envío interrumpido");
+        }
+        
+        // Con el servidor SMTP caído no se reclama nada: los emails esperan sin gastar intentos
+        if (!smtp.disponible()) {
+            return;
+        }
+        
+        List<Integer> reclamados = new ArrayList<>();
+        for (Integer id : emailPendienteRepository.findIdsListos(ahora, PageRequest.of(0, tamanioLote))) {
+            // Solo se envía si este despachador consigue reclamarlo (evita duplicados entre instancias)
+            if (emailPendienteRepository.reclamar(id, ahora.plusMinutes(MINUTOS_BLOQUEO)) == 1) {
+                reclamados.add(id);
+            }
+        }
+        
+        // Cada lote sale por una sola conexión SMTP (un handshake STARTTLS y un login por lote, no por email)
+        List<Future<?>> envios = new ArrayList<>();
+        for (int i = 0; i < reclamados.size(); i += mensajesPorConexion) {
+            List<Integer> lote = reclamados.subList(i, Math.min(i + mensajesPorConexion, reclamados.size()));
+            envios.add(ejecutor.submit(() -> enviarLote(lote)));
+        }
+        for (Future<?> envio : envios) {
+            try {
+                envio.get();
+            } catch (Exception e) {
+                System.err.println("Bandeja de salida: error inesperado en un envío: " + e.getMessage());
+            }
+        }
+    }
+    
+    @Override
+    public int reintentarFallidos() {
+        return emailPendienteRepository.reintentarFallidos(LocalDateTime.now());
+    }
+    
+    @Override
+    public Map<String, Object> obtenerEstadisticas() {
+        Map<String, Object> estadisticas = new LinkedHashMap<>();
+        for (EstadoEmail estado : EstadoEmail.values()) {
+            estadisticas.put(estado.name(), emailPendienteRepository.countByEstado(estado));
+        }
+        return estadisticas;
+    }
+    
+    // ========== MÉTODOS PRIVADOS ==========
+    
+    // Envía un lote de emails ya reclamados por una misma conexión y guarda el resultado de cada uno
+    private void enviarLote(List<Integer> ids) {
+        List<EmailPendiente> emails = emailPendienteRepository.findAllById(ids);
+        Map<MimeMessage, EmailPendiente> mensajes = new LinkedHashMap<>();
+        for (EmailPendiente email : emails) {
+            try {
+                mensajes.put(construirMensaje(email), email);
+            } catch (Exception e) {
+                // Un email mal formado (por ejemplo, una dirección inválida) no impide enviar el resto del lote
+                registrarFallo(email, e);
+            }
+        }
+        
+        Map<Object, Exception> fallidos = Map.of();
+        if (!mensajes.isEmpty()) {
+            try {
+                // JavaMailSender abre una única conexión para todos los mensajes de la llamada. Sin corte por plazo:
+                // el lote seguiría saliendo en segundo plano y, marcado como fallido, se enviaría dos veces
+                MimeMessage[] lote = mensajes.keySet().toArray(new MimeMessage[0]);
+                smtp.ejecutarSinCorte(plazo -> {
+                    mailSender.send(lote);
+                    return null;
+                });
+            } catch (DependenciaNoDisponibleException e) {
+                // No se ha intentado el envío (circuit breaker abierto): vuelven a la cola sin contar el intento
+                LocalDateTime ahora = LocalDateTime.now();
+                for (EmailPendiente email : mensajes.values()) {
+                    email.setEstado(EstadoEmail.PENDIENTE);
+                    email.setSiguienteIntento(ahora);
+                }
+                emailPendienteRepository.saveAll(emails);
+                System.err.println("Bandeja de salida: " + e.getMessage() + ", " + mensajes.size() + " emails siguen pendientes");
+                return;
+            } catch (IOException e) {
+                Map<Object, Exception> todos = new HashMap<>();
+                mensajes.keySet().forEach(mensaje -> todos.put(mensaje, e));
+                fallidos = todos;
+            } catch (MailSendException e) {
+                // Indica qué mensajes fallaron (todos si no se pudo conectar); los demás se enviaron
+                fallidos = e.getFailedMessages();
+            } catch (MailException e) {
+                // Error de autenticación o similar: no ha salido ninguno
+                Map<Object, Exception> todos = new HashMap<>();
+                mensajes.keySet().forEach(mensaje -> todos.put(mensaje, e));
+                fallidos = todos;
+            }
+        }
+        
+        LocalDateTime ahora = LocalDateTime.now();
+        for (Map.Entry<MimeMessage, EmailPendiente> entrada : mensajes.entrySet()) {
+            EmailPendiente email = entrada.getValue();
+            Exception error = fallidos.get(entrada.getKey());
+            if (error == null) {
+                email.setEstado(EstadoEmail.ENVIADO);
+                email.setFechaEnvio(ahora);
+                email.setUltimoError(null);
+            } else {
+                registrarFallo(email, error);
+            }
+        }
+        emailPendienteRepository.saveAll(emails);
+        System.out.println("Bandeja de salida: lote de " + emails.size() + " emails procesado ("
+            + (mensajes.size() - fallidos.size()) + " enviados)");
+    }
+    
+    private MimeMessage construirMensaje(EmailPendiente email) throws Exception {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+        helper.setFrom(fromEmail);
+        helper.setTo(email.getDestinatario());
+        helper.setSubject(email.getAsunto());
+        helper.setText(email.getCuerpoHtml(), true);
+        return message;
+    }
+    
+    // Programa el siguiente reintento con espera exponencial o marca el email como FALLIDO si ya no quedan
+    private void registrarFallo(EmailPendiente email, Exception e) {
+        int intentos = email.getIntentos() + 1;
+        email.setIntentos(intentos);
+        email.setUltimoError(recortar(e.getMessage()));
+        if (intentos >= maxIntentos) {
+            email.setEstado(EstadoEmail.FALLIDO);
+            System.err.println("Email " + email.getTipo() + " a " + email.getDestinatario()
+                + " FALLIDO tras " + intentos + " intentos: " + e.getMessage());
+        } else {
+            long espera = Math.min(1L << (intentos - 1), MAX_MINUTOS_ESPERA);
+            email.setEstado(EstadoEmail.PENDIENTE);
+            email.setSiguienteIntento(LocalDateTime.now().plusMinutes(espera));
+            System.err.println("Error al enviar email " + email.getTipo() + " a " + email.getDestinatario()
+                + " (intento " + intentos + ", reintento en " + espera + " min): " + e.getMessage());
+        }
+    }
+    
+    private static String recortar(String mensaje) {
+        if (mensaje == null) {
+            return null;
+        }
+        return mensaje.length() > 500 ? mensaje.substring(0, 500) : mensaje;
+    }
+}
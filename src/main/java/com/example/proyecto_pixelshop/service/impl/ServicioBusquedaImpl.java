@@ -0,0 +1,409 @@
+package com.example.proyecto_pixelshop.service.impl;
+
+import com.example.proyecto_pixelshop.model.Juego;
+import com.example.proyecto_pixelshop.repository.JuegoRepository;
+import com.example.proyecto_pixelshop.service.evento.EventoCatalogoModificado;
+import com.example.proyecto_pixelshop.service.interfaz.IServicioBusqueda;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice invertido en memoria sobre los juegos activos.
+ * Cada término apunta a los juegos que lo contienen con un peso según el campo donde aparece
+ * (título > género > proveedor > descripción). Admite coincidencia exacta, por prefijo y con una o dos
+ * erratas, y se mantiene al día con los eventos de catálogo, por lo que /buscar no depende del tamaño de la BD.
+ * Cada lectura de la BD va en su propia transacción de solo lectura, para que un juego reindexado tras una
+ * reconstrucción no se lea de la misma instantánea (REPEATABLE READ) que la reconstrucción.
+ */
+@Service
+public class ServicioBusquedaImpl implements IServicioBusqueda {
+    
+    @Autowired private JuegoRepository juegoRepository;
+    @Autowired private PlatformTransactionManager transactionManager;
+    
+    private TransactionTemplate lecturaNueva;
+    
+    // Peso de cada campo en la puntuación
+    private static final float PESO_TITULO = 4.0f;
+    private static final float PESO_GENERO = 2.0f;
+    private static final float PESO_PROVEEDOR = 1.5f;
+    private static final float PESO_DESCRIPCION = 1.0f;
+    
+    // Penalización de las coincidencias no exactas
+    private static final float FACTOR_PREFIJO = 0.7f;
+    private static final float FACTOR_ERRATA = 0.5f;
+    
+    // Palabras vacías que no se indexan
+    private static final Set<String> PALABRAS_VACIAS = Set.of(
+        "de", "del", "la", "las", "el", "los", "un", "una", "y", "o", "en", "con", "por", "para", "a",
+        "the", "of", "and", "or", "in", "on", "to", "an"
+    );
+    
+    // Término -> (juegoId -> peso acumulado). TreeMap para poder recorrer rangos de prefijo
+    private final TreeMap<String, Map<Integer, Float>> postings = new TreeMap<>();
+    // juegoId -> términos indexados (para poder desindexar un juego)
+    private final Map<Integer, Set<String>> terminosPorJuego = new HashMap<>();
+    // Bigrama -> términos que lo contienen. Limita los candidatos de las erratas sin recorrer todo el vocabulario
+    private final Map<String, Set<String>> terminosPorBigrama = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    // Juegos modificados mientras se reconstruye el índice (null si no hay reconstrucción en curso).
+    // Se reindexan después del intercambio porque la carga completa pudo leerlos antes de su commit
+    private Set<Integer> modificadosDuranteReconstruccion;
+    
+    private volatile boolean inicializado = false;
+    private final AtomicLong busquedas = new AtomicLong();
+    private final AtomicLong reconstrucciones = new AtomicLong();
+    private final AtomicLong actualizaciones = new AtomicLong();
+    
+    @PostConstruct
+    public void iniciar() {
+        lecturaNueva = new TransactionTemplate(transactionManager);
+        lecturaNueva.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        lecturaNueva.setReadOnly(true);
+    }
+    
+    // Busca por texto: todos los términos de la consulta deben coincidir (exacto, prefijo o errata)
+    @Override
+    public List<Integer> buscar(String texto, int maxResultados) {
+        asegurarInicializado();
+        busquedas.incrementAndGet();
+        
+        List<String> terminos = tokenizar(texto);
+        if (terminos.isEmpty()) {
+            return List.of();
+        }
+        
+        Map<Integer, Float> puntuaciones = null;
+        lock.readLock().lock();
+        try {
+            int totalJuegos = Math.max(1, terminosPorJuego.size());
+            for (String termino : terminos) {
+                Map<Integer, Float> coincidencias = puntuarTermino(termino, totalJuegos);
+                if (puntuaciones == null) {
+                    puntuaciones = coincidencias;
+                } else {
+                    // Intersección: se conservan solo los juegos que cumplen todos los términos
+                    Map<Integer, Float> interseccion = new HashMap<>();
+                    for (Map.Entry<Integer, Float> e : puntuaciones.entrySet()) {
+                        Float otra = coincidencias.get(e.getKey());
+                        if (otra != null) {
+                            interseccion.put(e.getKey(), e.getValue() + otra);
+                        }
+                    }
+                    puntuaciones = interseccion;
+                }
+                if (puntuaciones.isEmpty()) {
+                    return List.of();
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        
+        return puntuaciones.entrySet().stream()
+            .sorted(Map.Entry.<Integer, Float>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+            .limit(maxResultados)
+            .map(Map.Entry::getKey)
+            .toList();
+    }
+    
+    // Reindexa un juego leyendo su estado actual de la BD
+    @Override
+    public void indexarJuego(Integer juegoId) {
+        lock.writeLock().lock();
+        try {
+            if (modificadosDuranteReconstruccion != null) {
+                modificadosDuranteReconstruccion.add(juegoId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (!inicializado) {
+            return; // La primera reconstrucción (o la repetición de los pendientes tras ella) ya lo incluirá
+        }
+        
+        Map<String, Float> documento = lecturaNueva.execute(estado -> {
+            Juego juego = juegoRepository.findActivoConProveedor(juegoId).orElse(null);
+            return juego != null ? construirDocumento(juego) : null;
+        });
+        
+        lock.writeLock().lock();
+        try {
+            desindexar(juegoId);
+            if (documento != null) {
+                indexar(juegoId, documento);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        actualizaciones.incrementAndGet();
+    }
+    
+    // Reconstruye el índice completo desde la BD (también disponible como comando desde el panel de admin).
+    // Las reconstrucciones se serializan; los eventos que llegan mientras tanto se reaplican al terminar
+    @Override
+    public synchronized void reconstruir() {
+        lock.writeLock().lock();
+        try {
+            modificadosDuranteReconstruccion = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        
+        // Los documentos se preparan fuera del bloqueo; solo el intercambio bloquea las búsquedas
+        Map<Integer, Map<String, Float>> documentos = null;
+        Set<Integer> pendientes;
+        try {
+            documentos = lecturaNueva.execute(estado -> {
+                Map<Integer, Map<String, Float>> cargados = new HashMap<>();
+                for (Juego juego : juegoRepository.findActivosConProveedor()) {
+                    cargados.put(juego.getId(), construirDocumento(juego));
+                }
+                return cargados;
+            });
+        } finally {
+            lock.writeLock().lock();
+            try {
+                pendientes = modificadosDuranteReconstruccion;
+                modificadosDuranteReconstruccion = null;
+                if (documentos != null) {
+                    postings.clear();
+                    terminosPorJuego.clear();
+                    terminosPorBigrama.clear();
+                    documentos.forEach(this::indexar);
+                    inicializado = true;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        
+        for (Integer juegoId : pendientes) {
+            indexarJuego(juegoId);
+        }
+        reconstrucciones.incrementAndGet();
+        System.out.println("Índice de búsqueda reconstruido: " + documentos.size() + " juegos (reaplicados: " + pendientes.size() + ")");
+    }
+    
+    @Override
+    public Map<String, Long> obtenerEstadisticas() {
+        Map<String, Long> estadisticas = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            estadisticas.put("juegos", (long) terminosPorJuego.size());
+            estadisticas.put("terminos", (long) postings.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+        estadisticas.put("busquedas", busquedas.get());
+        estadisticas.put("actualizaciones", actualizaciones.get());
+        estadisticas.put("reconstrucciones", reconstrucciones.get());
+        return estadisticas;
+    }
+    
+    // Mantiene el índice al día con cada cambio confirmado del catálogo
+    @Order(2)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogoModificado(EventoCatalogoModificado evento) {
+        if (evento.afectaATodos()) {
+            if (inicializado) {
+                reconstruir();
+            }
+        } else {
+            indexarJuego(evento.juegoId());
+        }
+    }
+    
+    // ========== MÉTODOS PRIVADOS ==========
+    
+    // Construye el índice la primera vez que se usa
+    private void asegurarInicializado() {
+        if (!inicializado) {
+            synchronized (this) {
+                if (!inicializado) {
+                    reconstruir();
+                }
+            }
+        }
+    }
+    
+    // Convierte un juego en su lista de términos con peso
+    private Map<String, Float> construirDocumento(Juego juego) {
+        Map<String, Float> documento = new HashMap<>();
+        sumarCampo(documento, juego.getTitulo(), PESO_TITULO);
+        sumarCampo(documento, juego.getGenero(), PESO_GENERO);
+        if (juego.getProveedor() != null) {
+            sumarCampo(documento, juego.getProveedor().getNombre(), PESO_PROVEEDOR);
+        }
+        sumarCampo(documento, juego.getDescripcion(), PESO_DESCRIPCION);
+        return documento;
+    }
+    
+    private void sumarCampo(Map<String, Float> documento, String texto, float peso) {
+        for (String termino : tokenizar(texto)) {
+            documento.merge(termino, peso, Float::sum);
+        }
+    }
+    
+    // Debe llamarse con el bloqueo de escritura
+    private void indexar(Integer juegoId, Map<String, Float> documento) {
+        documento.forEach((termino, peso) -> postings.computeIfAbsent(termino, t -> {
+            for (String bigrama : bigramas(t)) {
+                terminosPorBigrama.computeIfAbsent(bigrama, b -> new HashSet<>()).add(t);
+            }
+            return new HashMap<>();
+        }).put(juegoId, peso));
+        terminosPorJuego.put(juegoId, new HashSet<>(documento.keySet()));
+    }
+    
+    // Debe llamarse con el bloqueo de escritura
+    private void desindexar(Integer juegoId) {
+        Set<String> terminos = terminosPorJuego.remove(juegoId);
+        if (terminos == null) {
+            return;
+        }
+        for (String termino : terminos) {
+            Map<Integer, Float> juegos = postings.get(termino);
+            if (juegos != null) {
+                juegos.remove(juegoId);
+                if (juegos.isEmpty()) {
+                    postings.remove(termino);
+                    for (String bigrama : bigramas(termino)) {
+                        Set<String> conBigrama = terminosPorBigrama.get(bigrama);
+                        if (conBigrama != null && conBigrama.remove(termino) && conBigrama.isEmpty()) {
+                            terminosPorBigrama.remove(bigrama);
+                        }
+                    }
+                }
+            }
+        }
+    }
+    
+    // Puntúa un término de la consulta: exacto, prefijo (términos que empiezan por él) o con erratas
+    // Debe llamarse con el bloqueo de lectura
+    private Map<Integer, Float> puntuarTermino(String termino, int totalJuegos) {
+        Map<Integer, Float> resultado = new HashMap<>();
+        
+        Map<Integer, Float> exactos = postings.get(termino);
+        if (exactos != null) {
+            acumular(resultado, exactos, 1.0f, totalJuegos);
+        }
+        
+        for (Map.Entry<String, Map<Integer, Float>> e : postings.subMap(termino, false, termino + Character.MAX_VALUE, false).entrySet()) {
+            acumular(resultado, e.getValue(), FACTOR_PREFIJO, totalJuegos);
+        }
+        
+        // Las erratas solo se consideran si no hay coincidencias exactas ni por prefijo
+        if (resultado.isEmpty() && termino.length() >= 4) {
+            int maxDistancia = termino.length() >= 8 ? 2 : 1;
+            for (String candidato : candidatosErrata(termino, maxDistancia)) {
+                if (distanciaEdicion(termino, candidato, maxDistancia) <= maxDistancia) {
+                    acumular(resultado, postings.get(candidato), FACTOR_ERRATA, totalJuegos);
+                }
+            }
+        }
+        return resultado;
+    }
+    
+    // Términos que pueden estar a maxDistancia ediciones o menos: cada edición rompe como mucho dos bigramas,
+    // así que un candidato debe compartir al menos (bigramas del término - 2 * maxDistancia) y tener longitud parecida.
+    // Debe llamarse con el bloqueo de lectura
+    private List<String> candidatosErrata(String termino, int maxDistancia) {
+        Set<String> propios = bigramas(termino);
+        int minimoComunes = Math.max(1, propios.size() - 2 * maxDistancia);
+        Map<String, Integer> comunes = new HashMap<>();
+        for (String bigrama : propios) {
+            for (String candidato : terminosPorBigrama.getOrDefault(bigrama, Set.of())) {
+                if (Math.abs(candidato.length() - termino.length()) <= maxDistancia) {
+                    comunes.merge(candidato, 1, Integer::sum);
+                }
+            }
+        }
+        List<String> candidatos = new ArrayList<>();
+        comunes.forEach((candidato, n) -> {
+            if (n >= minimoComunes) {
+                candidatos.add(candidato);
+            }
+        });
+        return candidatos;
+    }
+    
+    // Pares de caracteres consecutivos (distintos) de un término
+    private static Set<String> bigramas(String termino) {
+        Set<String> bigramas = new HashSet<>();
+        for (int i = 0; i + 2 <= termino.length(); i++) {
+            bigramas.add(termino.substring(i, i + 2));
+        }
+        return bigramas;
+    }
+    
+    // Suma la puntuación peso * idf de cada juego, quedándose con la mejor coincidencia del término
+    private void acumular(Map<Integer, Float> resultado, Map<Integer, Float> juegos, float factor, int totalJuegos) {
+        float idf = (float) Math.log(1.0 + (double) totalJuegos / juegos.size());
+        for (Map.Entry<Integer, Float> e : juegos.entrySet()) {
+            resultado.merge(e.getKey(), e.getValue() * idf * factor, Math::max);
+        }
+    }
+    
+    // Distancia de Levenshtein con corte: deja de calcular en cuanto supera maxDistancia
+    private static int distanciaEdicion(String a, String b, int maxDistancia) {
+        int[] anterior = new int[b.length() + 1];
+        int[] actual = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            anterior[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            actual[0] = i;
+            int minimoFila = actual[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int coste = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                actual[j] = Math.min(Math.min(actual[j - 1] + 1, anterior[j] + 1), anterior[j - 1] + coste);
+                minimoFila = Math.min(minimoFila, actual[j]);
+            }
+            if (minimoFila > maxDistancia) {
+                return maxDistancia + 1;
+            }
+            int[] temporal = anterior;
+            anterior = actual;
+            actual = temporal;
+        }
+        return anterior[b.length()];
+    }
+    
+    // Normaliza (minúsculas, sin acentos) y separa en términos, descartando palabras vacías
+    static List<String> tokenizar(String texto) {
+        List<String> terminos = new ArrayList<>();
+        if (texto == null || texto.isBlank()) {
+            return terminos;
+        }
+        String normalizado = Normalizer.normalize(texto, Normalizer.Form.NFD)
+            .replaceAll("\\p{M}", "")
+            .toLowerCase(Locale.ROOT);
+        for (String termino : normalizado.split("[^\\p{L}\\p{N}]+")) {
+            if (!termino.isEmpty() && !PALABRAS_VACIAS.contains(termino)) {
+                terminos.add(termino);
+            }
+        }
+        return terminos;
+    }
+}
@@ -5,10 +5,14 @@ import com.example.proyecto_pixelshop.model.Juego;
 import com.example.proyecto_pixelshop.model.Usuario;
 import com.example.proyecto_pixelshop.model.enums.EstadoCompra;
 import com.example.proyecto_pixelshop.repository.CompraRepository;
+import com.example.proyecto_pixelshop.service.evento.EventoCompraCompletada;
 import com.example.proyecto_pixelshop.service.interfaz.IServicioCompra;
+import com.example.proyecto_pixelshop.service.interfaz.IServicioEmail;
+import com.example.proyecto_pixelshop.service.interfaz.IServicioResumenVentas;
 import com.example.proyecto_pixelshop.service.interfaz.IServicioTransaccionProveedor;
 import com.example.proyecto_pixelshop.service.interfaz.IServicioTransaccionPlataforma;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -23,6 +27,9 @@ public class ServicioCompraImpl implements IServicioCompra {
     @Autowired private CompraRepository compraRepository;
     @Autowired private IServicioTransaccionProveedor transaccionProveedorService;
     @Autowired private IServicioTransaccionPlataforma transaccionPlataformaService;
+    @Autowired private ApplicationEventPublisher eventPublisher;
+    @Autowired private IServicioEmail emailService;
+    @Autowired private IServicioResumenVentas resumenVentasService;
     
     // Busca una compra por su ID en la base de datos
     @Override
@@ -130,24 +137,46 @@ public class ServicioCompraImpl implements IServicioCompra {
         compra.setEstado(EstadoCompra.COMPLETADA);
         Compra compraActualizada = compraRepository.save(compra);
         
-        // Calcular comisión (15% plataforma, 85% proveedor)
-        Double precioPagado = compraActualizada.getPrecioPagado();
-        Double comisionPlataforma = Math.round(precioPagado * 0.15 * 100.0) / 100.0;
+        registrarVenta(compraActualizada);
         
-        System.out.println("-Registrando transacciones para compra ID: " + compraActualizada.getId());
-        System.out.println(" - Precio pagado: " + precioPagado );
-        System.out.println(" - Comisión plataforma (15%): " + comisionPlataforma );
-        System.out.println(" - Monto proveedor (85%): " + (precioPagado * 0.85) );
-        
-        // Crear transacción de proveedor (85% para proveedor)
-        transaccionProveedorService.crear(compraActualizada);
-        System.out.println(" TransaccionProveedor creada");
+        return compraActualizada;
+    }
+    
+    // Registra un pago de PayPal ya capturado con un número fijo de sentencias en una sola transacción:
+    // una consulta para detectar reintentos y compras previas, y los INSERT de la compra (ya COMPLETADA),
+    // sus dos transacciones y los emails. Si la orden ya se registró (doble clic, recarga), devuelve esa compra
+    @Override
+    public Compra finalizarPagoPayPal(Usuario usuario, Juego juego, Double precioPagado, String idOrdenPaypal) {
+        Compra pendiente = null;
+        for (Compra existente : compraRepository.findParaFinalizar(idOrdenPaypal, usuario.getId(), juego.getId())) {
+            if (existente.getEstado() == EstadoCompra.COMPLETADA) {
+                if (idOrdenPaypal.equals(existente.getIdOrdenPaypal())) {
+                    return existente;
+                }
+                throw new RuntimeException("El usuario ya compró este juego");
+            }
+            // Compra PENDIENTE anterior (un pago que no llegó a completarse): se reutiliza la fila
+            pendiente = existente;
+        }
         
-        // Crear transacción de plataforma (15% comisión)
-        transaccionPlataformaService.registrarComisionVenta(compraActualizada.getId(), comisionPlataforma);
-        System.out.println(" TransaccionPlataforma (comisión) creada");
+        Compra compra = pendiente != null ? pendiente : new Compra();
+        compra.setUsuario(usuario);
+        compra.setJuego(juego);
+        compra.setPrecioPagado(precioPagado);
+        compra.setMetodoPago("Pago Online");
+        compra.setIdOrdenPaypal(idOrdenPaypal);
+        compra.setEstado(EstadoCompra.COMPLETADA);
+        compra.setFechaCompra(LocalDateTime.now());
+        Compra compraPagada = compraRepository.save(compra);
         
-        return compraActualizada;
+        registrarVenta(compraPagada);
+        return compraPagada;
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Compra> buscarPorOrdenPaypal(String idOrdenPaypal) {
+        return compraRepository.findByIdOrdenPaypal(idOrdenPaypal);
     }
     
     // Reembolsa una compra: cambia el estado a PENDIENTE (REEMBOLSADA eliminado)
@@ -197,4 +226,40 @@ public class ServicioCompraImpl implements IServicioCompra {
     public long contarPorEstado(EstadoCompra estado) {
         return compraRepository.countByEstado(estado);
     }
+    
+    // ========== MÉTODOS PRIVADOS ==========
+    
+    // Efectos de una compra completada, en la transacción actual: transacciones de proveedor y plataforma,
+    // emails y evento para la biblioteca en memoria
+    private void registrarVenta(Compra compraActualizada) {
+        // Calcular comisión (15% plataforma, 85% proveedor)
+        Double precioPagado = compraActualizada.getPrecioPagado();
+        Double comisionPlataforma = Math.round(precioPagado * 0.15 * 100.0) / 100.0;
+        
+        System.out.println("-Registrando transacciones para compra ID: " + compraActualizada.getId());
+        System.out.println(" - Precio pagado: " + precioPagado );
+        System.out.println(" - Comisión plataforma (15%): " + comisionPlataforma );
+        System.out.println(" - Monto proveedor (85%): " + (precioPagado * 0.85) );
+        
+        // Crear transacción de proveedor (85% para proveedor)
+        transaccionProveedorService.crear(compraActualizada);
+        System.out.println(" TransaccionProveedor creada");
+        
+        // Crear transacción de plataforma (15% comisión)
+        transaccionPlataformaService.registrarComisionVenta(compraActualizada, comisionPlataforma);
+        System.out.println(" TransaccionPlataforma (comisión) creada");
+        
+        // Email de confirmación en la bandeja de salida: sale solo si la compra se confirma, y sin esperar al SMTP
+        emailService.enviarConfirmacionCompra(compraActualizada);
+        
+        // Notificación al proveedor (acumulada en su resumen de ventas o inmediata, según su configuración)
+        resumenVentasService.registrarVenta(compraActualizada);
+        
+        // Actualizar la biblioteca en memoria del usuario cuando se confirme la transacción
+        eventPublisher.publishEvent(new EventoCompraCompletada(
+            compraActualizada.getId(),
+            compraActualizada.getUsuario().getId(),
+            compraActualizada.getJuego().getId()
+        ));
+    }
 }
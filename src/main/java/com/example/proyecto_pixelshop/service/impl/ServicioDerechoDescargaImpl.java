@@ -0,0 +1,51 @@
+package com.example.proyecto_pixelshop.service.impl;
+
+import com.example.proyecto_pixelshop.model.dto.DerechoDescarga;
+import com.example.proyecto_pixelshop.repository.CompraRepository;
+import com.example.proyecto_pixelshop.service.evento.EventoCatalogoModificado;
+import com.example.proyecto_pixelshop.service.interfaz.IServicioDerechoDescarga;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+public class ServicioDerechoDescargaImpl implements IServicioDerechoDescarga {
+    
+    @Autowired private CompraRepository compraRepository;
+    @Autowired private DerechosDescargaSesion sesion;
+    
+    // Tiempo máximo que se reutiliza un derecho ya comprobado: acota cuánto sigue descargando un usuario
+    // cuya compra o cuenta se ha eliminado (la versión del catálogo es de esta instancia y no se entera)
+    @Value("${descargas.derecho-cache-segundos:60}")
+    private long cacheSegundos;
+    
+    // Se incrementa con cada cambio del catálogo: las entradas de sesión de una versión anterior se vuelven a consultar
+    private final AtomicLong versionCatalogo = new AtomicLong();
+    
+    // Desde la sesión si ya se comprobó; si no, una única consulta por índice (usuario, juego, estado)
+    @Override
+    public Optional<DerechoDescarga> comprobar(String email, Integer juegoId) {
+        long version = versionCatalogo.get();
+        long ahora = System.currentTimeMillis();
+        DerechosDescargaSesion.Entrada entrada = sesion.obtener(juegoId);
+        if (entrada != null && entrada.version() == version && entrada.email().equals(email)
+                && ahora - entrada.cargadaMs() < cacheSegundos * 1000) {
+            return Optional.of(entrada.derecho());
+        }
+        
+        Optional<DerechoDescarga> derecho = compraRepository.findDerechoDescarga(email, juegoId);
+        // Solo se guardan los positivos: quien aún no lo ha comprado puede hacerlo en cualquier momento
+        derecho.ifPresent(d -> sesion.guardar(juegoId, new DerechosDescargaSesion.Entrada(email, d, version, ahora)));
+        return derecho;
+    }
+    
+    // Un juego editado puede tener otro archivo: invalida lo guardado en las sesiones
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogoModificado(EventoCatalogoModificado evento) {
+        versionCatalogo.incrementAndGet();
+    }
+}
@@ -1,94 +1,107 @@
 package com.example.proyecto_pixelshop.service.impl;
 
 import com.example.proyecto_pixelshop.model.Compra;
+import com.example.proyecto_pixelshop.model.EmailPendiente;
 import com.example.proyecto_pixelshop.model.Usuario;
+import com.example.proyecto_pixelshop.model.VentaPendienteResumen;
+import com.example.proyecto_pixelshop.model.enums.TipoEmail;
+import com.example.proyecto_pixelshop.repository.EmailPendienteRepository;
 import com.example.proyecto_pixelshop.service.interfaz.IServicioEmail;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.thymeleaf.TemplateEngine;
 import org.thymeleaf.context.Context;
-import jakarta.mail.internet.MimeMessage;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
 
 import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
+// Renderiza los emails y los deja en la bandeja de salida (se une a la transacción de quien llama).
+// Solo se capturan los fallos al renderizar: si falla encolar, la excepción llega a quien llama, porque capturarla aquí
+// dejaría su transacción marcada como rollback-only sin que lo sepa.
+// El envío por SMTP lo hace ServicioBandejaSalidaImpl en segundo plano
 @Service
+@Transactional
 public class ServicioEmailImpl implements IServicioEmail {
 
-    @Autowired private JavaMailSender mailSender;
-    @Autowired private TemplateEngine templateEngine;
+    @Autowired private EmailPendienteRepository emailPendienteRepository;
 
-    @Value("${email.from}")
-    private String fromEmail;
-    
     @Value("${app.base-url}")
     private String baseUrl;
 
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+    
+    // Plantillas que se analizan al arrancar (las demás se analizan y cachean la primera vez que se usan)
+    private static final List<String> PLANTILLAS = List.of("bienvenida", "confirmacion-compra", "notificacion-venta", "resumen-ventas");
+    
+    // Motor propio para los emails: las plantillas se analizan una vez y quedan en caché siempre
+    // (el de las vistas web no cachea en desarrollo con devtools) y las expresiones SpEL se compilan
+    private final TemplateEngine templateEngine = crearMotorPlantillas();
+    
+    // Analiza las plantillas de email al arrancar para que el primer envío no pague el análisis
+    @PostConstruct
+    void precargarPlantillas() {
+        for (String plantilla : PLANTILLAS) {
+            try {
+                templateEngine.process(plantilla, new Context());
+            } catch (Exception e) {
+                System.err.println("No se pudo precargar la plantilla de email " + plantilla + ": " + e.getMessage());
+            }
+        }
+    }
 
     // Envía un email de bienvenida al usuario cuando se registra en la plataforma
     @Override
     public void enviarEmailBienvenida(Usuario usuario) {
+        String htmlContent;
         try {
             System.out.println("Construyendo email de bienvenida para: " + usuario.getEmail());
             
             Context context = new Context();
             context.setVariable("nombre", usuario.getNombre());
-            String htmlContent = templateEngine.process("email/bienvenida", context);
-            
-            System.out.println("Enviando email via Gmail SMTP...");
-            System.out.println("  From: " + fromEmail);
-            System.out.println("  To: " + usuario.getEmail());
-            
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-            helper.setFrom(fromEmail);
-            helper.setTo(usuario.getEmail());
-            helper.setSubject("Bienvenido a PixelShop");
-            helper.setText(htmlContent, true);
-            
-            mailSender.send(message);
-            System.out.println("Email de bienvenida enviado correctamente");
-            
-        } catch (Exception e) {
-            System.err.println("Error al enviar email de bienvenida: " + e.getMessage());
-            e.printStackTrace();
+            htmlContent = templateEngine.process("bienvenida", context);
+        } catch (RuntimeException e) {
+            System.err.println("Error al preparar email de bienvenida: " + e.getMessage());
+            return;
         }
+        
+        encolar(TipoEmail.BIENVENIDA, usuario.getEmail(), "Bienvenido a PixelShop", htmlContent);
+        System.out.println("Email de bienvenida en cola");
     }
 
     // Envía un email de confirmación al usuario cuando completa una compra
     @Override
     public void enviarConfirmacionCompra(Compra compra) {
+        String htmlContent;
         try {
             Context context = new Context();
             context.setVariable("nombreUsuario", compra.getUsuario().getNombre());
             context.setVariable("tituloJuego", compra.getJuego().getTitulo());
             context.setVariable("fecha", compra.getFechaCompra().format(DATE_FORMATTER));
             context.setVariable("precio", String.format("%.2f", compra.getPrecioPagado()));
-            String htmlContent = templateEngine.process("email/confirmacion-compra", context);
-            
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-            helper.setFrom(fromEmail);
-            helper.setTo(compra.getUsuario().getEmail());
-            helper.setSubject("Confirmación de compra - " + compra.getJuego().getTitulo());
-            helper.setText(htmlContent, true);
-            
-            mailSender.send(message);
-            System.out.println("Email de confirmación enviado correctamente");
-            
-        } catch (Exception e) {
-            System.err.println("Error al enviar confirmación de compra: " + e.getMessage());
+            htmlContent = templateEngine.process("confirmacion-compra", context);
+        } catch (RuntimeException e) {
+            System.err.println("Error al preparar confirmación de compra: " + e.getMessage());
+            return;
         }
+        
+        encolar(TipoEmail.CONFIRMACION_COMPRA, compra.getUsuario().getEmail(), "Confirmación de compra - " + compra.getJuego().getTitulo(), htmlContent);
+        System.out.println("Email de confirmación en cola");
     }
 
     // Envía un email al proveedor notificándole que su juego fue vendido
     @Override
     public void enviarNotificacionVenta(Compra compra) {
+        Usuario proveedor = compra.getJuego().getProveedor();
+        String htmlContent;
         try {
-            Usuario proveedor = compra.getJuego().getProveedor();
             Double gananciaProveedor = compra.getPrecioPagado() * 0.85;
             
             Context context = new Context();
@@ -97,70 +110,110 @@ public class ServicioEmailImpl implements IServicioEmail {
             context.setVariable("precioVenta", String.format("%.2f", compra.getPrecioPagado()));
             context.setVariable("gananciaProveedor", String.format("%.2f", gananciaProveedor));
             context.setVariable("fecha", compra.getFechaCompra().format(DATE_FORMATTER));
-            String htmlContent = templateEngine.process("email/notificacion-venta", context);
-            
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-            helper.setFrom(fromEmail);
-            helper.setTo(proveedor.getEmail());
-            helper.setSubject("Nueva venta - " + compra.getJuego().getTitulo());
-            helper.setText(htmlContent, true);
-            
-            mailSender.send(message);
-            System.out.println("Email de notificación de venta enviado a proveedor");
+            htmlContent = templateEngine.process("notificacion-venta", context);
+        } catch (RuntimeException e) {
+            System.err.println("Error al preparar notificación de venta: " + e.getMessage());
+            return;
+        }
+        
+        encolar(TipoEmail.NOTIFICACION_VENTA, proveedor.getEmail(), "Nueva venta - " + compra.getJuego().getTitulo(), htmlContent);
+        System.out.println("Email de notificación de venta en cola");
+    }
+
+    // Envía al proveedor el resumen de las ventas acumuladas (agrupadas por juego) en lugar de un email por venta
+    @Override
+    public void enviarResumenVentas(Usuario proveedor, List<VentaPendienteResumen> ventas) {
+        String htmlContent;
+        try {
+            // Por juego: [unidades, importe]; en el orden de la primera venta de cada uno
+            Map<String, double[]> porJuego = new LinkedHashMap<>();
+            double total = 0;
+            for (VentaPendienteResumen venta : ventas) {
+                double[] acumulado = porJuego.computeIfAbsent(venta.getTituloJuego(), titulo -> new double[2]);
+                acumulado[0]++;
+                acumulado[1] += venta.getPrecioPagado();
+                total += venta.getPrecioPagado();
+            }
+            List<Map<String, String>> lineas = porJuego.entrySet().stream()
+                .map(entrada -> Map.of(
+                    "titulo", entrada.getKey(),
+                    "unidades", String.valueOf((int) entrada.getValue()[0]),
+                    "importe", String.format("%.2f", entrada.getValue()[1])))
+                .toList();
             
-        } catch (Exception e) {
-            System.err.println("Error al enviar notificación de venta: " + e.getMessage());
+            Context context = new Context();
+            context.setVariable("nombreProveedor", proveedor.getNombre());
+            context.setVariable("numeroVentas", ventas.size());
+            context.setVariable("lineas", lineas);
+            context.setVariable("totalVentas", String.format("%.2f", total));
+            context.setVariable("gananciaProveedor", String.format("%.2f", total * 0.85));
+            context.setVariable("desde", ventas.get(0).getFechaVenta().format(DATE_FORMATTER));
+            context.setVariable("hasta", ventas.get(ventas.size() - 1).getFechaVenta().format(DATE_FORMATTER));
+            htmlContent = templateEngine.process("resumen-ventas", context);
+        } catch (RuntimeException e) {
+            System.err.println("Error al preparar resumen de ventas: " + e.getMessage());
+            return;
         }
+        
+        String asunto = ventas.size() == 1 ? "Nueva venta - " + ventas.get(0).getTituloJuego() : ventas.size() + " nuevas ventas en PixelShop";
+        encolar(TipoEmail.RESUMEN_VENTAS, proveedor.getEmail(), asunto, htmlContent);
+        System.out.println("Resumen de " + ventas.size() + " ventas en cola para: " + proveedor.getEmail());
     }
 
     // Envía un email de recuperación de contraseña con un token temporal (expira en 1 hora)
     public void enviarRecuperacionPassword(String email, String nombreUsuario, String token) {
+        String htmlContent;
         try {
             String enlaceRecuperacion = baseUrl + "/auth/reset-password?token=" + token;
             
             Context context = new Context();
             context.setVariable("nombreUsuario", nombreUsuario);
             context.setVariable("enlaceRecuperacion", enlaceRecuperacion);
-            String htmlContent = templateEngine.process("email/recuperacion-password", context);
-            
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-            helper.setFrom(fromEmail);
-            helper.setTo(email);
-            helper.setSubject("Recuperación de contraseña - PixelShop");
-            helper.setText(htmlContent, true);
-            
-            mailSender.send(message);
-            System.out.println("Email de recuperación enviado correctamente");
-            
-        } catch (Exception e) {
-            System.err.println("Error al enviar email de recuperación: " + e.getMessage());
+            htmlContent = templateEngine.process("recuperacion-password", context);
+        } catch (RuntimeException e) {
+            System.err.println("Error al preparar email de recuperación: " + e.getMessage());
+            return;
         }
+        
+        encolar(TipoEmail.RECUPERACION_PASSWORD, email, "Recuperación de contraseña - PixelShop", htmlContent);
+        System.out.println("Email de recuperación en cola");
     }
 
     // Envía un email al usuario con el número de seguimiento de su pedido
     public void enviarNotificacionEnvio(Compra compra, String numeroSeguimiento) {
+        String htmlContent;
         try {
             Context context = new Context();
             context.setVariable("nombreUsuario", compra.getUsuario().getNombre());
             context.setVariable("tituloJuego", compra.getJuego().getTitulo());
             context.setVariable("numeroSeguimiento", numeroSeguimiento);
-            String htmlContent = templateEngine.process("email/notificacion-envio", context);
-            
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-            helper.setFrom(fromEmail);
-            helper.setTo(compra.getUsuario().getEmail());
-            helper.setSubject("Tu juego está en camino - " + compra.getJuego().getTitulo());
-            helper.setText(htmlContent, true);
-            
-            mailSender.send(message);
-            System.out.println("Email de notificación de envío enviado correctamente");
-            
-        } catch (Exception e) {
-            System.err.println("Error al enviar notificación de envío: " + e.getMessage());
+            htmlContent = templateEngine.process("notificacion-envio", context);
+        } catch (RuntimeException e) {
+            System.err.println("Error al preparar notificación de envío: " + e.getMessage());
+            return;
         }
+        
+        encolar(TipoEmail.NOTIFICACION_ENVIO, compra.getUsuario().getEmail(), "Tu juego está en camino - " + compra.getJuego().getTitulo(), htmlContent);
+        System.out.println("Email de notificación de envío en cola");
     }
-}
 
+    private static TemplateEngine crearMotorPlantillas() {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/email/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding("UTF-8");
+        resolver.setCacheable(true);
+        resolver.setCacheTTLMs(null); // Sin caducidad: las plantillas van dentro del jar
+        
+        SpringTemplateEngine motor = new SpringTemplateEngine();
+        motor.setTemplateResolver(resolver);
+        motor.setEnableSpringELCompiler(true);
+        return motor;
+    }
+
+    // Guarda el email ya renderizado en la bandeja de salida
+    private void encolar(TipoEmail tipo, String destinatario, String asunto, String htmlContent) {
+        emailPendienteRepository.save(new EmailPendiente(tipo, destinatario, asunto, htmlContent));
+    }
+}
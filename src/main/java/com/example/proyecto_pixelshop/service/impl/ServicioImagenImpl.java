@@ -0,0 +1,221 @@
+package com.example.proyecto_pixelshop.service.impl;
+
+import com.example.proyecto_pixelshop.model.dto.ImagenCargada;
+import com.example.proyecto_pixelshop.model.dto.ImagenPreparada;
+import com.example.proyecto_pixelshop.model.dto.ImagenSubida;
+import com.example.proyecto_pixelshop.model.dto.MetadatosImagen;
+import com.example.proyecto_pixelshop.model.dto.SubidaBlob;
+import com.example.proyecto_pixelshop.model.enums.VarianteImagen;
+import com.example.proyecto_pixelshop.service.interfaz.IAzureBlobStorageService;
+import com.example.proyecto_pixelshop.service.interfaz.IServicioImagen;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Genera y guarda las variantes redimensionadas de las imágenes de los juegos.
+ * El catálogo pinta la variante TARJETA (con srcset) en lugar del original de hasta 3000px,
+ * y la ficha del juego usa DETALLE. Las variantes se codifican en JPEG con la calidad configurada.
+ */
+@Service
+public class ServicioImagenImpl implements IServicioImagen {
+    
+    @Autowired private IAzureBlobStorageService azureStorageService;
+    
+    // Calidad JPEG de las variantes (0.0 - 1.0)
+    @Value("${imagenes.calidad-jpeg:0.82}")
+    private float calidadJpeg;
+    
+    // Bytes iniciales que se leen para la cabecera; si un JPEG trae segmentos EXIF/ICC grandes antes del SOF
+    // se reintenta con un máximo mayor en lugar de leer el archivo entero
+    private static final int BYTES_CABECERA = 64 * 1024;
+    private static final int MAX_BYTES_CABECERA = 1024 * 1024;
+    
+    @Override
+    public ImagenCargada cargar(MultipartFile imagen) throws IOException {
+        MetadatosImagen metadatos = leerMetadatos(leerInicio(imagen, BYTES_CABECERA));
+        if (metadatos == null && imagen.getSize() > BYTES_CABECERA) {
+            metadatos = leerMetadatos(leerInicio(imagen, MAX_BYTES_CABECERA));
+        }
+        return new ImagenCargada(imagen, metadatos);
+    }
+    
+    @Override
+    public MetadatosImagen leerMetadatos(byte[] datos) {
+        return LectorCabeceraImagen.leer(datos);
+    }
+    
+    @Override
+    public Map<VarianteImagen, byte[]> generarVariantes(ImagenCargada original) throws IOException {
+        if (!original.esValida()) {
+            return Map.of();
+        }
+        BufferedImage imagen = leerReducida(original.archivo(), original.metadatos().ancho(), VarianteImagen.DETALLE.getAncho());
+        if (imagen == null) {
+            return Map.of();
+        }
+        
+        // Se redimensiona de mayor a menor partiendo siempre de la variante anterior (menos trabajo y mejor calidad)
+        Map<VarianteImagen, byte[]> variantes = new EnumMap<>(VarianteImagen.class);
+        BufferedImage anterior = aRgb(imagen);
+        VarianteImagen[] tamanios = VarianteImagen.values();
+        for (int i = tamanios.length - 1; i >= 0; i--) {
+            BufferedImage redimensionada = redimensionar(anterior, tamanios[i].getAncho());
+            variantes.put(tamanios[i], codificarJpeg(redimensionada));
+            anterior = redimensionada;
+        }
+        return variantes;
+    }
+    
+    @Override
+    public ImagenPreparada preparar(ImagenCargada imagen, String carpeta) throws IOException {
+        if (!imagen.esValida()) {
+            throw new IOException("El archivo no es una imagen JPG, PNG, GIF o WEBP válida");
+        }
+        // Primero se generan las variantes: si la imagen no se puede procesar no se sube nada
+        Map<VarianteImagen, byte[]> variantes = generarVariantes(imagen);
+        
+        // El original se sube en streaming desde el archivo subido, con el tipo detectado en la cabecera
+        String blobOriginal = carpeta + "/" + UUID.randomUUID() + imagen.metadatos().extension();
+        List<SubidaBlob> subidas = new ArrayList<>();
+        subidas.add(SubidaBlob.deArchivo(imagen.archivo(), blobOriginal, imagen.metadatos().contentType()));
+        for (Map.Entry<VarianteImagen, byte[]> variante : variantes.entrySet()) {
+            subidas.add(SubidaBlob.deBytes(variante.getValue(), variante.getKey().nombreDe(blobOriginal), "image/jpeg"));
+        }
+        return new ImagenPreparada(blobOriginal, !variantes.isEmpty(), subidas);
+    }
+    
+    @Override
+    public ImagenSubida subirConVariantes(ImagenCargada imagen, String carpeta) throws IOException {
+        ImagenPreparada preparada = preparar(imagen, carpeta);
+        azureStorageService.uploadBatch(preparada.subidas());
+        return new ImagenSubida(azureStorageService.getBlobUrl(preparada.blobOriginal()), preparada.conVariantes());
+    }
+    
+    @Override
+    public void eliminarConVariantes(String url) {
+        if (url == null) {
+            return;
+        }
+        List<String> urls = new ArrayList<>();
+        urls.add(url);
+        for (VarianteImagen variante : VarianteImagen.values()) {
+            urls.add(variante.nombreDe(url));
+        }
+        // deleteFile ignora los blobs que no existen (imágenes antiguas sin variantes)
+        azureStorageService.deleteMultipleFiles(urls);
+    }
+    
+    // ========== MÉTODOS PRIVADOS ==========
+    
+    // Primeros bytes del archivo (como mucho "maximo")
+    private static byte[] leerInicio(MultipartFile archivo, int maximo) throws IOException {
+        try (InputStream entrada = archivo.getInputStream()) {
+            return entrada.readNBytes(maximo);
+        }
+    }
+    
+    // Decodifica la imagen una sola vez, en streaming desde el archivo subido y submuestreando al leer si es mucho
+    // mayor que la variante más grande, para no tener en memoria los píxeles de una imagen de 3000x3000 a tamaño
+    // completo. Las variantes se obtienen después en cascada a partir de este bitmap
+    private BufferedImage leerReducida(MultipartFile original, int ancho, int anchoMaximo) throws IOException {
+        try (InputStream datos = original.getInputStream();
+             ImageInputStream entrada = ImageIO.createImageInputStream(datos)) {
+            Iterator<ImageReader> lectores = ImageIO.getImageReaders(entrada);
+            if (!lectores.hasNext()) {
+                return null; // Formato sin decodificador en ImageIO (p. ej. WebP)
+            }
+            ImageReader lector = lectores.next();
+            try {
+                lector.setInput(entrada, true, true);
+                ImageReadParam parametros = lector.getDefaultReadParam();
+                int factor = Math.max(1, ancho / anchoMaximo);
+                if (factor > 1) {
+                    parametros.setSourceSubsampling(factor, factor, 0, 0);
+                }
+                return lector.read(0, parametros);
+            } finally {
+                lector.dispose();
+            }
+        }
+    }
+    
+    // JPEG no admite transparencia: se pinta sobre fondo blanco
+    private BufferedImage aRgb(BufferedImage imagen) {
+        if (imagen.getType() == BufferedImage.TYPE_INT_RGB) {
+            return imagen;
+        }
+        BufferedImage rgb = new BufferedImage(imagen.getWidth(), imagen.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rgb.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, imagen.getWidth(), imagen.getHeight());
+            g.drawImage(imagen, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        return rgb;
+    }
+    
+    // Reduce al ancho indicado manteniendo la proporción (nunca amplía). Si hay que reducir más de la mitad
+    // se hace por pasos de 1/2 para evitar el aliasing del escalado bilineal en un solo paso
+    private BufferedImage redimensionar(BufferedImage imagen, int anchoObjetivo) {
+        BufferedImage actual = imagen;
+        while (actual.getWidth() > anchoObjetivo) {
+            int ancho = Math.max(anchoObjetivo, actual.getWidth() / 2);
+            int alto = Math.max(1, (int) Math.round((double) actual.getHeight() * ancho / actual.getWidth()));
+            BufferedImage siguiente = new BufferedImage(ancho, alto, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = siguiente.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(actual, 0, 0, ancho, alto, null);
+            } finally {
+                g.dispose();
+            }
+            actual = siguiente;
+        }
+        return actual;
+    }
+    
+    private byte[] codificarJpeg(BufferedImage imagen) throws IOException {
+        ImageWriter escritor = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        try (ImageOutputStream destino = ImageIO.createImageOutputStream(salida)) {
+            escritor.setOutput(destino);
+            ImageWriteParam parametros = escritor.getDefaultWriteParam();
+            parametros.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            parametros.setCompressionQuality(calidadJpeg);
+            if (parametros.canWriteProgressive()) {
+                parametros.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            }
+            escritor.write(null, new IIOImage(imagen, null, null), parametros);
+        } finally {
+            escritor.dispose();
+        }
+        return salida.toByteArray();
+    }
+}
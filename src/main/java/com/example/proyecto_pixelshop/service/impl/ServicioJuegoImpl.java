@@ -2,16 +2,36 @@ package com.example.proyecto_pixelshop.service.impl;
 
 import com.example.proyecto_pixelshop.model.Juego;
 import com.example.proyecto_pixelshop.model.Usuario;
+import com.example.proyecto_pixelshop.model.dto.CursorCatalogo;
+import com.example.proyecto_pixelshop.model.dto.FiltroCatalogo;
+import com.example.proyecto_pixelshop.model.dto.JuegoResumen;
+import com.example.proyecto_pixelshop.model.dto.PaginaCatalogo;
+import com.example.proyecto_pixelshop.model.dto.ResultadoNormalizacionTitulos;
 import com.example.proyecto_pixelshop.repository.JuegoRepository;
+import com.example.proyecto_pixelshop.service.evento.EventoCatalogoModificado;
+import com.example.proyecto_pixelshop.service.interfaz.IServicioBusqueda;
 import com.example.proyecto_pixelshop.service.interfaz.IServicioJuego;
 import com.example.proyecto_pixelshop.service.interfaz.IServicioTransaccionPlataforma;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 @Transactional
@@ -19,6 +39,30 @@ public class ServicioJuegoImpl implements IServicioJuego {
     
     @Autowired private JuegoRepository juegoRepository;
     @Autowired private IServicioTransaccionPlataforma transaccionPlataformaService;
+    @Autowired private ApplicationEventPublisher eventPublisher;
+    @Autowired private IServicioBusqueda busquedaService;
+    
+    // Máximo de juegos que se mantienen en memoria; si el catálogo es mayor se consulta siempre la BD
+    @Value("${catalogo.cache.max-juegos:5000}")
+    private int maxJuegosCache;
+    
+    // Máximo de resultados que devuelve la búsqueda de texto
+    private static final int MAX_RESULTADOS_BUSQUEDA = 200;
+    
+    // Máximo de juegos por página del catálogo paginado
+    private static final int MAX_TAMANIO_PAGINA = 100;
+    
+    // ========== CACHÉ DEL CATÁLOGO ==========
+    // Instantánea inmutable de los resúmenes de juegos activos, en el orden del catálogo (ORDEN_CATALOGO).
+    // Se reconstruye bajo demanda y se parchea juego a juego tras el commit de cada escritura (ver onCatalogoModificado)
+    private record InstantaneaCatalogo(long version, List<JuegoResumen> juegos) {}
+    
+    private final AtomicReference<InstantaneaCatalogo> instantanea = new AtomicReference<>();
+    private final AtomicLong versionCatalogo = new AtomicLong();
+    private final AtomicLong aciertosCache = new AtomicLong();
+    private final AtomicLong fallosCache = new AtomicLong();
+    private final AtomicLong reconstruccionesCache = new AtomicLong();
+    private final AtomicLong parchesCache = new AtomicLong();
     
     // Busca un juego por su ID en la base de datos
     @Override
@@ -34,6 +78,50 @@ public class ServicioJuegoImpl implements IServicioJuego {
         return juegoRepository.findByActivoTrue();
     }
     
+    // Lista los resúmenes de los juegos activos para el catálogo (servido desde la caché en memoria).
+    // Sin transacción propia: un acierto no toca la BD y la reconstrucción es una única consulta del repositorio
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<JuegoResumen> listarCatalogo() {
+        InstantaneaCatalogo actual = instantanea.get();
+        if (actual != null) {
+            aciertosCache.incrementAndGet();
+            return actual.juegos();
+        }
+        fallosCache.incrementAndGet();
+        return reconstruirInstantanea();
+    }
+    
+    // Devuelve una página del catálogo filtrado usando paginación por clave (fechaPublicacion, id).
+    // Si el catálogo está en memoria se pagina sobre la instantánea; si no, la primera página sin filtros (la portada)
+    // la reconstruye, y el resto va directamente a la consulta keyset de la BD
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public PaginaCatalogo listarCatalogoPaginado(FiltroCatalogo filtro, String cursor, int tamanio) {
+        FiltroCatalogo filtros = filtro != null ? filtro : FiltroCatalogo.sinFiltros();
+        CursorCatalogo desde = CursorCatalogo.decodificar(cursor);
+        int porPagina = Math.clamp(tamanio, 1, MAX_TAMANIO_PAGINA);
+        
+        // Se pide un elemento de más para saber si existe una página siguiente
+        InstantaneaCatalogo actual = instantanea.get();
+        List<JuegoResumen> encontrados;
+        if (actual != null) {
+            aciertosCache.incrementAndGet();
+            encontrados = paginarEnMemoria(actual.juegos(), filtros, desde, porPagina + 1);
+        } else if (desde == null && filtros.vacio()) {
+            fallosCache.incrementAndGet();
+            encontrados = paginarEnMemoria(reconstruirInstantanea(), filtros, null, porPagina + 1);
+        } else {
+            encontrados = juegoRepository.buscarPaginaCatalogo(filtros, desde, porPagina + 1);
+        }
+        
+        if (encontrados.size() > porPagina) {
+            List<JuegoResumen> pagina = encontrados.subList(0, porPagina);
+            return new PaginaCatalogo(List.copyOf(pagina), CursorCatalogo.de(pagina.get(porPagina - 1)).codificar());
+        }
+        return new PaginaCatalogo(List.copyOf(encontrados), null);
+    }
+    
     // Obtiene la lista completa de todos los juegos (activos e inactivos)
     @Override
     @Transactional(readOnly = true)
@@ -62,6 +150,49 @@ public class ServicioJuegoImpl implements IServicioJuego {
         return juegoRepository.findByTituloContainingIgnoreCaseAndActivoTrue(titulo);
     }
     
+    // Busca en el catálogo por texto completo (título, descripción, género y proveedor), ordenado por relevancia.
+    // El índice devuelve los IDs; los resúmenes salen de la caché si está disponible o de la BD en una sola consulta
+    @Override
+    @Transactional(readOnly = true)
+    public List<JuegoResumen> buscarEnCatalogo(String texto) {
+        List<Integer> ids = busquedaService.buscar(texto, MAX_RESULTADOS_BUSQUEDA);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        
+        Map<Integer, Integer> posiciones = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            posiciones.put(ids.get(i), i);
+        }
+        
+        // Sin instantánea no se reconstruye aquí: con el catálogo por encima de maxJuegosCache se cargaría entero
+        // para descartarlo. Basta con los resúmenes de los IDs encontrados
+        InstantaneaCatalogo actual = instantanea.get();
+        List<JuegoResumen> activos;
+        if (actual != null) {
+            aciertosCache.incrementAndGet();
+            activos = actual.juegos();
+        } else {
+            activos = juegoRepository.findResumenesActivosPorIds(ids);
+        }
+        
+        JuegoResumen[] ordenados = new JuegoResumen[ids.size()];
+        for (JuegoResumen juego : activos) {
+            Integer posicion = posiciones.get(juego.getId());
+            if (posicion != null) {
+                ordenados[posicion] = juego;
+            }
+        }
+        
+        List<JuegoResumen> resultado = new ArrayList<>(ids.size());
+        for (JuegoResumen juego : ordenados) {
+            if (juego != null) {
+                resultado.add(juego);
+            }
+        }
+        return resultado;
+    }
+    
     // Busca juegos activos por género (Acción, Aventura, RPG, etc.)
     @Override
     @Transactional(readOnly = true)
@@ -74,7 +205,9 @@ public class ServicioJuegoImpl implements IServicioJuego {
     public Juego guardar(Juego juego) {
         // Validar que no exista otro juego ACTIVO con el mismo nombre
         validarNombreUnico(juego);
-        return juegoRepository.save(juego);
+        Juego guardado = guardarConTituloUnico(juego);
+        notificarCambio(guardado.getId());
+        return guardado;
     }
     
     // Publica un juego: establece fecha de publicación, activa el juego y registra el pago de 25€ a la plataforma
@@ -93,7 +226,7 @@ public class ServicioJuegoImpl implements IServicioJuego {
         }
         
         // Guardar el juego
-        Juego juegoGuardado = juegoRepository.save(juego);
+        Juego juegoGuardado = guardarConTituloUnico(juego);
         
         // Registrar transacción de plataforma por pago de publicación
         transaccionPlataformaService.registrarPagoPublicacion(
@@ -101,6 +234,7 @@ public class ServicioJuegoImpl implements IServicioJuego {
             juegoGuardado.getMontoPublicacion()
         );
         
+        notificarCambio(juegoGuardado.getId());
         return juegoGuardado;
     }
     
@@ -130,13 +264,16 @@ public class ServicioJuegoImpl implements IServicioJuego {
         existente.setArchivoTamanioBytes(juego.getArchivoTamanioBytes());
         existente.setActivo(juego.getActivo());
         
-        return juegoRepository.save(existente);
+        Juego actualizado = guardarConTituloUnico(existente);
+        notificarCambio(actualizado.getId());
+        return actualizado;
     }
     
     // Elimina un juego de la base de datos por su ID
     @Override
     public void eliminar(Integer id) {
         juegoRepository.deleteById(id);
+        notificarCambio(id);
     }
     
     // Activa o desactiva un juego (mostrarlo u ocultarlo del catálogo)
@@ -145,7 +282,8 @@ public class ServicioJuegoImpl implements IServicioJuego {
         Juego juego = juegoRepository.findById(id)
             .orElseThrow(() -> new RuntimeException("Juego no encontrado con ID: " + id));
         juego.setActivo(activo);
-        juegoRepository.save(juego);
+        guardarConTituloUnico(juego);
+        notificarCambio(id);
     }
     
     // Actualiza las URLs de las 4 imágenes de un juego (portada y capturas)
@@ -160,6 +298,7 @@ public class ServicioJuegoImpl implements IServicioJuego {
         if (imagen4 != null) juego.setImagen4Url(imagen4);
         
         juegoRepository.save(juego);
+        notificarCambio(id);
     }
     
     // Actualiza la información del archivo ZIP del juego (URL, nombre y tamaño)
@@ -173,6 +312,7 @@ public class ServicioJuegoImpl implements IServicioJuego {
         juego.setArchivoTamanioBytes(archivoTamanio != null ? archivoTamanio.intValue() : null);
         
         juegoRepository.save(juego);
+        notificarCambio(id);
     }
     
     // Calcula el total de pagos por publicación (25â‚¬ por juego) que ha realizado un proveedor
@@ -192,19 +332,50 @@ public class ServicioJuegoImpl implements IServicioJuego {
     
     // Valida que no exista otro juego ACTIVO con el mismo nombre (ignora mayúsculas/minúsculas)
     private void validarNombreUnico(Juego juego) {
-        List<Juego> juegosActivos = juegoRepository.findByActivoTrue();
-        
-        for (Juego juegoExistente : juegosActivos) {
-            // Si es el mismo juego (mismo ID), no validar
-            if (juego.getId() != null && juegoExistente.getId().equals(juego.getId())) {
-                continue;
+        String tituloNormalizado = Juego.normalizarTitulo(juego.getTitulo());
+        boolean existe = juego.getId() == null
+            ? juegoRepository.existsByTituloNormalizadoActivo(tituloNormalizado)
+            : juegoRepository.existsByTituloNormalizadoActivoAndIdNot(tituloNormalizado, juego.getId());
+        if (existe) {
+            throw new RuntimeException(mensajeNombreDuplicado(juego.getTitulo()));
+        }
+    }
+    
+    // Guarda y fuerza el INSERT/UPDATE para que, si otro proveedor ha publicado el mismo título a la vez,
+    // el índice único salte aquí y se devuelva el mismo mensaje que la validación previa
+    private Juego guardarConTituloUnico(Juego juego) {
+        try {
+            return juegoRepository.saveAndFlush(juego);
+        } catch (DataIntegrityViolationException e) {
+            String causa = String.valueOf(e.getMostSpecificCause().getMessage());
+            if (causa.contains(Juego.UK_TITULO_ACTIVO)) {
+                throw new RuntimeException(mensajeNombreDuplicado(juego.getTitulo()));
             }
-            
-            // Si hay otro juego activo con el mismo nombre (ignorando mayúsculas)
-            if (juegoExistente.getTitulo().equalsIgnoreCase(juego.getTitulo())) {
-                throw new RuntimeException("Ya existe un juego activo con el nombre '" + juego.getTitulo() + "'. Por favor, elige otro nombre.");
+            throw e;
+        }
+    }
+    
+    private static String mensajeNombreDuplicado(String titulo) {
+        return "Ya existe un juego activo con el nombre '" + titulo + "'. Por favor, elige otro nombre.";
+    }
+    
+    // Rellena el título normalizado de los juegos activos anteriores a la columna (una vez, al arrancar).
+    // Cada juego se actualiza en su propia transacción para que un duplicado antiguo no bloquee al resto;
+    // el título se normaliza en Java (Juego.normalizarTitulo), igual que al guardar, y el resultado lo informa quien llama
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ResultadoNormalizacionTitulos completarTitulosNormalizados() {
+        int completados = 0;
+        List<Integer> duplicados = new ArrayList<>();
+        for (Juego juego : juegoRepository.findActivosSinTituloNormalizado()) {
+            try {
+                completados += juegoRepository.completarTituloNormalizado(
+                    juego.getId(), Juego.normalizarTitulo(juego.getTitulo()));
+            } catch (DataIntegrityViolationException e) {
+                duplicados.add(juego.getId());
             }
         }
+        return new ResultadoNormalizacionTitulos(completados, List.copyOf(duplicados));
     }
     
     // Cuenta cuántos juegos están activos en el sistema
@@ -213,4 +384,115 @@ public class ServicioJuegoImpl implements IServicioJuego {
     public long contarActivos() {
         return juegoRepository.countByActivoTrue();
     }
+    
+    // Devuelve los contadores de la caché del catálogo (aciertos, fallos, reconstrucciones, parches...)
+    @Override
+    public Map<String, Long> obtenerEstadisticasCache() {
+        InstantaneaCatalogo actual = instantanea.get();
+        Map<String, Long> estadisticas = new LinkedHashMap<>();
+        estadisticas.put("aciertos", aciertosCache.get());
+        estadisticas.put("fallos", fallosCache.get());
+        estadisticas.put("reconstrucciones", reconstruccionesCache.get());
+        estadisticas.put("parches", parchesCache.get());
+        estadisticas.put("version", versionCatalogo.get());
+        estadisticas.put("juegosEnCache", actual != null ? (long) actual.juegos().size() : 0L);
+        return estadisticas;
+    }
+    
+    // Actualiza la caché cuando una escritura sobre juegos se ha confirmado en la BD.
+    // Se parchea solo el juego afectado; si el evento afecta a todo el catálogo se descarta la instantánea
+    @Order(1)
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onCatalogoModificado(EventoCatalogoModificado evento) {
+        long nuevaVersion = versionCatalogo.incrementAndGet();
+        
+        if (evento.afectaATodos()) {
+            instantanea.set(null);
+            return;
+        }
+        
+        JuegoResumen recargado = juegoRepository.findResumenActivoById(evento.juegoId()).orElse(null);
+        
+        InstantaneaCatalogo actual;
+        InstantaneaCatalogo nueva;
+        do {
+            actual = instantanea.get();
+            if (actual == null) {
+                return; // Nada cacheado: la próxima lectura reconstruye
+            }
+            List<JuegoResumen> juegos = new ArrayList<>(actual.juegos().size() + 1);
+            for (JuegoResumen juego : actual.juegos()) {
+                if (!juego.getId().equals(evento.juegoId())) {
+                    juegos.add(juego);
+                }
+            }
+            if (recargado != null) {
+                juegos.add(posicionEnCatalogo(juegos, recargado), recargado);
+            }
+            nueva = juegos.size() <= maxJuegosCache
+                ? new InstantaneaCatalogo(nuevaVersion, List.copyOf(juegos))
+                : null;
+        } while (!instantanea.compareAndSet(actual, nueva));
+        
+        parchesCache.incrementAndGet();
+    }
+    
+    // ========== MÉTODOS PRIVADOS ==========
+    
+    // Carga los juegos activos desde la BD y los instala como instantánea si nadie ha modificado el catálogo mientras tanto.
+    // La versión se vuelve a comprobar después del CAS: si un evento llegó entre la comprobación y la instalación
+    // (y vio la caché vacía, por lo que no la parcheó) la instantánea recién instalada puede estar obsoleta y se retira
+    private List<JuegoResumen> reconstruirInstantanea() {
+        long versionInicial = versionCatalogo.get();
+        List<JuegoResumen> juegos = juegoRepository.findResumenesActivos().stream()
+            .sorted(JuegoResumen.ORDEN_CATALOGO)
+            .toList();
+        
+        if (juegos.size() > maxJuegosCache || versionCatalogo.get() != versionInicial) {
+            return juegos;
+        }
+        InstantaneaCatalogo nueva = new InstantaneaCatalogo(versionInicial, juegos);
+        if (instantanea.compareAndSet(null, nueva)) {
+            if (versionCatalogo.get() != versionInicial) {
+                instantanea.compareAndSet(nueva, null);
+            } else {
+                reconstruccionesCache.incrementAndGet();
+            }
+        }
+        return juegos;
+    }
+    
+    // Posición donde insertar un juego para mantener la lista en el orden del catálogo
+    private static int posicionEnCatalogo(List<JuegoResumen> juegos, JuegoResumen juego) {
+        int posicion = Collections.binarySearch(juegos, juego, JuegoResumen.ORDEN_CATALOGO);
+        return posicion >= 0 ? posicion : -posicion - 1;
+    }
+    
+    // Recorre la instantánea (ya ordenada) desde el cursor aplicando los filtros hasta llenar la página
+    private List<JuegoResumen> paginarEnMemoria(List<JuegoResumen> catalogo, FiltroCatalogo filtro,
+                                                CursorCatalogo desde, int limite) {
+        List<JuegoResumen> resultado = new ArrayList<>(limite);
+        int inicio = 0;
+        if (desde != null) {
+            // Búsqueda binaria del primer juego posterior al cursor
+            JuegoResumen referencia = new JuegoResumen(desde.id(), null, null, null, null, null, desde.fechaPublicacion(), false);
+            int posicion = Collections.binarySearch(catalogo, referencia, JuegoResumen.ORDEN_CATALOGO);
+            inicio = posicion >= 0 ? posicion + 1 : -posicion - 1;
+        }
+        for (JuegoResumen juego : catalogo.subList(inicio, catalogo.size())) {
+            if (filtro.admite(juego)) {
+                resultado.add(juego);
+                if (resultado.size() == limite) {
+                    break;
+                }
+            }
+        }
+        return resultado;
+    }
+    
+    // Publica el evento de cambio; los listeners se ejecutan después del commit
+    private void notificarCambio(Integer juegoId) {
+        eventPublisher.publishEvent(new EventoCatalogoModificado(juegoId));
+    }
 }
@@ -0,0 +1,202 @@
+package com.example.proyecto_pixelshop.service.impl;
+
+import com.example.proyecto_pixelshop.model.dto.ItemPago;
+import com.example.proyecto_pixelshop.model.enums.EstadoPago;
+import com.example.proyecto_pixelshop.repository.TransaccionProveedorRepository;
+import com.example.proyecto_pixelshop.service.interfaz.IServicioLiquidacionProveedores;
+import com.example.proyecto_pixelshop.service.interfaz.IServicioPayPal;
+import com.example.proyecto_pixelshop.service.interfaz.IServicioTransaccionProveedor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Liquidación de ganancias a proveedores con lotes de PayPal Payouts.
+ * 1. Las transacciones PENDIENTES se reservan (EN_PROCESO) con un sender_batch_id propio antes de llamar a PayPal.
+ * 2. El lote se envía en una sola petición, con un pago por transacción (sender_item_id = "TP-" + id).
+ * 3. La conciliación consulta los lotes y marca PAGADAS las que PayPal confirma, o devuelve a PENDIENTE las que fallan.
+ * Si el envío se interrumpe, el lote queda reservado y se reenvía con el mismo sender_batch_id (PayPal no lo paga dos veces).
+ * Si PayPal rechaza la petición por un pago que no acepta, el lote se divide hasta aislarlo: ese pago se aparta con el motivo
+ * (no vuelve a entrar en la liquidación nocturna hasta que el proveedor pide cobrarlo) y el resto se paga.
+ */
+@Service
+public class ServicioLiquidacionProveedoresImpl implements IServicioLiquidacionProveedores {
+    
+    @Autowired private TransaccionProveedorRepository transaccionRepository;
+    @Autowired private IServicioPayPal paypalService;
+    @Autowired private IServicioTransaccionProveedor transaccionProveedorService;
+    
+    // Máximo de pagos por lote (PayPal admite hasta 15.000)
+    @Value("${pagos.liquidacion.max-items-lote:15000}")
+    private int maxItemsLote;
+    
+    // Estados finales de un pago en PayPal que no son un éxito: la transacción vuelve a estar pendiente
+    private static final Set<String> ESTADOS_FALLIDOS = Set.of("FAILED", "RETURNED", "BLOCKED", "REFUNDED", "REVERSED", "DENIED");
+    private static final DateTimeFormatter FORMATO_LOTE = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+    
+    // Liquidación nocturna (pagos.liquidacion.cron)
+    @Override
+    @Scheduled(cron = "${pagos.liquidacion.cron:0 0 3 * * *}")
+    public int liquidarPendientes() {
+        int enviadas = reenviarLotesSinEnviar();
+        
+        while (true) {
+            List<ItemPago> pendientes = transaccionRepository.findItemsPendientes(PageRequest.of(0, maxItemsLote));
+            if (pendientes.isEmpty()) {
+                break;
+            }
+            int enviadasLote = reservarYEnviar(pendientes.stream().map(ItemPago::transaccionId).toList());
+            if (enviadasLote == 0) {
+                // PayPal no está disponible o no ha aceptado nada de esta página: se reintenta en la siguiente ejecución
+                break;
+            }
+            enviadas += enviadasLote;
+        }
+        
+        if (enviadas > 0) {
+            System.out.println("Liquidación a proveedores: " + enviadas + " pagos enviados a PayPal");
+        }
+        return enviadas;
+    }
+    
+    @Override
+    public int liquidar(List<Integer> transaccionIds) {
+        int enviadas = 0;
+        for (int i = 0; i < transaccionIds.size(); i += maxItemsLote) {
+            enviadas += reservarYEnviar(transaccionIds.subList(i, Math.min(i + maxItemsLote, transaccionIds.size())));
+        }
+        return enviadas;
+    }
+    
+    @Override
+    @Scheduled(fixedDelayString = "${pagos.conciliacion.intervalo-ms:900000}", initialDelayString = "${pagos.conciliacion.intervalo-ms:900000}")
+    public int conciliar() {
+        int resueltas = 0;
+        for (String payoutBatchId : transaccionRepository.findPayoutBatchIdsEnProceso()) {
+            try {
+                List<Integer> pagadas = new ArrayList<>();
+                List<Integer> fallidas = new ArrayList<>();
+                for (Map.Entry<String, String> estado : paypalService.consultarLotePagos(payoutBatchId).entrySet()) {
+                    Integer transaccionId = ItemPago.transaccionIdDe(estado.getKey());
+                    if (transaccionId == null) {
+                        continue;
+                    }
+                    if ("SUCCESS".equals(estado.getValue())) {
+                        pagadas.add(transaccionId);
+                    } else if (ESTADOS_FALLIDOS.contains(estado.getValue())) {
+                        fallidas.add(transaccionId);
+                    }
+                    // PENDING, UNCLAIMED, ONHOLD...: se vuelve a consultar en la siguiente conciliación
+                }
+                
+                if (!pagadas.isEmpty()) {
+                    resueltas += transaccionProveedorService.marcarComoPagadas(pagadas, EstadoPago.EN_PROCESO, payoutBatchId);
+                }
+                if (!fallidas.isEmpty()) {
+                    resueltas += transaccionProveedorService.devolverAPendientes(fallidas);
+                    System.err.println("Lote de payouts " + payoutBatchId + ": " + fallidas.size() + " pagos fallidos vuelven a pendientes");
+                }
+            } catch (Exception e) {
+                System.err.println("Error al conciliar el lote de payouts " + payoutBatchId + ": " + e.getMessage());
+            }
+        }
+        return resueltas;
+    }
+    
+    // ========== MÉTODOS PRIVADOS ==========
+    
+    // Reserva las transacciones que sigan pendientes en un lote nuevo y lo envía; devuelve cuántas se han enviado
+    private int reservarYEnviar(List<Integer> transaccionIds) {
+        if (transaccionIds.isEmpty()) {
+            return 0;
+        }
+        // Con el tamaño, las mitades de un lote dividido no repiten su sender_batch_id
+        String lote = "PX-" + LocalDateTime.now().format(FORMATO_LOTE) + "-" + transaccionIds.get(0) + "-" + transaccionIds.size();
+        if (transaccionRepository.reservarParaLote(transaccionIds, lote, EstadoPago.PENDIENTE, EstadoPago.EN_PROCESO) == 0) {
+            return 0;
+        }
+        return enviarLote(lote);
+    }
+    
+    // Lotes que se reservaron pero cuyo envío no llegó a confirmarse (la aplicación se cayó o PayPal no respondió)
+    private int reenviarLotesSinEnviar() {
+        int enviadas = 0;
+        for (String lote : transaccionRepository.findLotesSinEnviar()) {
+            enviadas += enviarLote(lote);
+        }
+        return enviadas;
+    }
+    
+    private int enviarLote(String lote) {
+        List<ItemPago> items = apartarNoEnviables(transaccionRepository.findItemsPorLote(lote));
+        if (items.isEmpty()) {
+            return 0;
+        }
+        try {
+            String payoutBatchId = paypalService.enviarLotePagos(lote, items);
+            transaccionRepository.registrarPayoutBatch(lote, payoutBatchId);
+            return items.size();
+        } catch (IOException e) {
+            if (!(e.getCause() instanceof HttpClientErrorException rechazo)) {
+                // Resultado desconocido (error de red o de PayPal): se queda reservado y se reenvía en la siguiente ejecución
+                System.err.println("Lote de payouts " + lote + " pendiente de confirmar: " + e.getMessage());
+                return 0;
+            }
+            if (esLoteDuplicado(rechazo)) {
+                // Ya se envió, pero PayPal no ha dicho con qué payout_batch_id: no se reenvía y se revisa en su panel
+                transaccionRepository.anotarErrorLote(lote, "Lote ya enviado a PayPal; conciliar a mano por sender_batch_id " + lote,
+                    EstadoPago.EN_PROCESO);
+                System.err.println("Lote de payouts " + lote + " ya enviado y sin payout_batch_id: revisar en PayPal");
+                return 0;
+            }
+            
+            // PayPal ha rechazado la petición (no se ha pagado nada): las transacciones vuelven a pendientes
+            transaccionRepository.liberarLote(lote, EstadoPago.EN_PROCESO, EstadoPago.PENDIENTE);
+            int estado = rechazo.getStatusCode().value();
+            if (estado != 400 && estado != 422) {
+                // Credenciales, permisos o límite de peticiones: no depende de los pagos, se reintenta en la siguiente ejecución
+                System.err.println("PayPal ha rechazado el lote de payouts " + lote + " (" + estado + "): " + rechazo.getResponseBodyAsString());
+                return 0;
+            }
+            List<Integer> ids = items.stream().map(ItemPago::transaccionId).toList();
+            if (ids.size() == 1) {
+                transaccionProveedorService.apartarDeLiquidacion(ids, "PayPal ha rechazado el pago: " + rechazo.getResponseBodyAsString());
+                System.err.println("PayPal ha rechazado el pago de la transacción " + ids.get(0) + ": se aparta de la liquidación");
+                return 0;
+            }
+            // Se divide el lote para aislar los pagos que PayPal no acepta sin retener los demás
+            int mitad = ids.size() / 2;
+            return reservarYEnviar(ids.subList(0, mitad)) + reservarYEnviar(ids.subList(mitad, ids.size()));
+        }
+    }
+    
+    // Aparta los pagos que PayPal rechazaría seguro (email o importe no válidos) y devuelve los demás
+    private List<ItemPago> apartarNoEnviables(List<ItemPago> items) {
+        List<ItemPago> enviables = new ArrayList<>(items.size());
+        for (ItemPago item : items) {
+            String motivo = item.motivoRechazo();
+            if (motivo == null) {
+                enviables.add(item);
+            } else {
+                transaccionProveedorService.apartarDeLiquidacion(List.of(item.transaccionId()), motivo);
+                System.err.println("Transacción " + item.transaccionId() + " apartada de la liquidación: " + motivo);
+            }
+        }
+        return enviables;
+    }
+    
+    private static boolean esLoteDuplicado(HttpClientErrorException rechazo) {
+        return rechazo.getResponseBodyAsString().contains("SENDER_BATCH_ID");
+    }
+}
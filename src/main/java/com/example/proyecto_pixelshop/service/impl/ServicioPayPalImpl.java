@@ -1,100 +1,171 @@
 package com.example.proyecto_pixelshop.service.impl;
 
+import com.example.proyecto_pixelshop.config.external.PayPalConfig;
+import com.example.proyecto_pixelshop.config.external.TokenPayPal;
+import com.example.proyecto_pixelshop.config.resiliencia.Dependencia;
+import com.example.proyecto_pixelshop.config.resiliencia.DependenciaNoDisponibleException;
+import com.example.proyecto_pixelshop.config.resiliencia.RegistroResiliencia;
 import com.example.proyecto_pixelshop.model.Juego;
+import com.example.proyecto_pixelshop.model.dto.ItemPago;
+import com.example.proyecto_pixelshop.model.dto.PlantillaOrdenPayPal;
+import com.example.proyecto_pixelshop.service.evento.EventoCatalogoModificado;
 import com.example.proyecto_pixelshop.service.interfaz.IServicioPayPal;
 import com.paypal.core.PayPalHttpClient;
 import com.paypal.http.HttpResponse;
 import com.paypal.orders.*;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.http.*;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.client.RestClient;
+import org.springframework.http.MediaType;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
 
 import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.time.Duration;
 import java.util.*;
-import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Service
 public class ServicioPayPalImpl implements IServicioPayPal {
 
     @Autowired private PayPalHttpClient payPalHttpClient;
+    @Autowired private HttpClient payPalConexiones;
+    @Autowired private RestClient payPalRestClient;
+    @Autowired private TokenPayPal tokenPayPal;
+    @Autowired private JsonMapper jsonMapper;
+    @Autowired private RegistroResiliencia registroResiliencia;
 
-    // Crea una orden de pago en PayPal para un juego y retorna el ID de la orden
+    @Value("${paypal.mode}")
+    private String mode;
+
+    @Value("${app.base-url}")
+    private String baseUrl;
+
+    @Value("${paypal.webhook.id:}")
+    private String webhookId;
+
+    // Número máximo de juegos con la plantilla de orden en memoria (se expulsa la menos usada)
+    @Value("${paypal.plantillas.max-juegos:2000}")
+    private int maxPlantillas;
+
+    // Cuerpo de la orden de cada juego, generado una vez (solo cambia el comprador). Mapa LRU protegido por su monitor
+    private final Map<Integer, PlantillaOrdenPayPal> plantillasOrden = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, PlantillaOrdenPayPal> eldest) {
+            return size() > maxPlantillas;
+        }
+    };
+
+    // Marca que ocupa el lugar del ID del comprador al generar la plantilla
+    private static final String MARCA_COMPRADOR = "@@comprador@@";
+
+    // Longitud máxima (en caracteres) de la descripción de un artículo en una orden de PayPal
+    private static final int MAX_DESCRIPCION = 127;
+
+    // Máximo de elementos por página que admite el detalle de un lote de payouts
+    private static final int TAMANIO_PAGINA_PAYOUTS = 1000;
+
+    private static final Pattern ENLACE_LOTE = Pattern.compile("/v1/payments/payouts/([A-Za-z0-9]+)");
+
+    // Para obtener el token (solo bloquea cuando hay que renovarlo) sin ocupar el hilo de la petición
+    private final ExecutorService ejecutorToken = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Llamadas de fondo y de confirmación (captura, payouts, webhooks) y creación de órdenes en el checkout:
+    // bulkheads separados para que los lotes de payouts no dejen sin huecos a los compradores
+    private Dependencia paypal;
+    private Dependencia paypalCheckout;
+
+    @PostConstruct
+    void iniciar() {
+        paypal = registroResiliencia.obtener(RegistroResiliencia.PAYPAL);
+        paypalCheckout = registroResiliencia.obtener(RegistroResiliencia.PAYPAL_CHECKOUT);
+    }
+
+    @PreDestroy
+    void cerrar() {
+        ejecutorToken.shutdown();
+    }
+
+    // Crea una orden de pago en PayPal para un juego sin bloquear el hilo de la petición.
+    // Si PayPal está fallando (circuit breaker abierto), hay demasiadas órdenes en curso o tarda más
+    // de resiliencia.paypal-checkout.timeout-ms (token incluido), el futuro falla enseguida
     @Override
-    public String crearOrden(Juego juego, String returnUrl, String cancelUrl) throws IOException {
-        // Configurar detalles del monto con breakdown
-        AmountBreakdown breakdown = new AmountBreakdown()
-            .itemTotal(new Money().currencyCode("EUR").value(juego.getPrecio().toString()));
-        
-        AmountWithBreakdown amount = new AmountWithBreakdown()
-            .currencyCode("EUR")
-            .value(juego.getPrecio().toString())
-            .amountBreakdown(breakdown);
-
-        // Configurar item de compra
-        Item item = new Item()
-            .name(juego.getTitulo())
-            .description(juego.getDescripcion() != null ? 
-                juego.getDescripcion().substring(0, Math.min(127, juego.getDescripcion().length())) : 
-                "Juego digital")
-            .unitAmount(new Money().currencyCode("EUR").value(juego.getPrecio().toString()))
-            .quantity("1")
-            .category("DIGITAL_GOODS");
-
-        // Lista de items
-        List<Item> items = new ArrayList<>();
-        items.add(item);
-
-        // Configurar unidad de compra
-        // NO se especifica Payee, por lo que el dinero va a la cuenta de la plataforma
-        PurchaseUnitRequest purchaseUnit = new PurchaseUnitRequest()
-            .referenceId(juego.getId().toString())
-            .description("Compra de juego: " + juego.getTitulo())
-            .amountWithBreakdown(amount)
-            .items(items);  // El dinero va a la plataforma, no al proveedor
-
-        // Configurar contexto de aplicación
-        ApplicationContext applicationContext = new ApplicationContext()
-            .returnUrl(returnUrl)
-            .cancelUrl(cancelUrl)
-            .brandName("PixelShop")
-            .landingPage("BILLING")
-            .shippingPreference("NO_SHIPPING")
-            .userAction("PAY_NOW");
-
-        // Crear request de orden
-        OrderRequest orderRequest = new OrderRequest();
-        orderRequest.checkoutPaymentIntent("CAPTURE");
-        orderRequest.applicationContext(applicationContext);
-        orderRequest.purchaseUnits(List.of(purchaseUnit));
-
-        // Ejecutar request
-        OrdersCreateRequest request = new OrdersCreateRequest();
-        request.requestBody(orderRequest);
+    public CompletableFuture<String> crearOrden(Juego juego, Integer usuarioId) {
+        String cuerpo = obtenerPlantillaOrden(juego).cuerpo(usuarioId);
+        return paypalCheckout.ejecutarAsync(plazo -> CompletableFuture.supplyAsync(this::obtenerToken, ejecutorToken)
+            .thenCompose(token -> enviarOrden(cuerpo, token, plazo)
+                .thenCompose(respuesta -> {
+                    if (respuesta.statusCode() != 401) {
+                        return CompletableFuture.completedFuture(respuesta);
+                    }
+                    // Token revocado o caducado antes de tiempo: se pide otro y se reintenta una vez
+                    tokenPayPal.invalidar(token);
+                    return CompletableFuture.supplyAsync(this::obtenerToken, ejecutorToken)
+                        .thenCompose(nuevo -> enviarOrden(cuerpo, nuevo, plazo));
+                }))
+            .thenApply(respuesta -> {
+                if (respuesta.statusCode() >= 400) {
+                    // Con el código HTTP, el circuit breaker distingue una orden no válida (4xx) de PayPal caído (5xx)
+                    throw new RestClientResponseException("PayPal ha rechazado la orden (HTTP " + respuesta.statusCode()
+                        + "): " + respuesta.body(), HttpStatusCode.valueOf(respuesta.statusCode()), "", null, null, null);
+                }
+                String id = jsonMapper.readTree(respuesta.body()).path("id").asString(null);
+                if (id == null) {
+                    throw new CompletionException(new IOException("Error al crear orden en PayPal: respuesta sin id"));
+                }
+                return id;
+            }))
+            .exceptionally(error -> {
+                Throwable causa = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                String motivo = causa instanceof TimeoutException ? "PayPal no ha respondido a tiempo" : causa.getMessage();
+                throw new CompletionException(causa instanceof DependenciaNoDisponibleException
+                    ? causa
+                    : new IOException("Error al crear orden en PayPal: " + motivo, causa));
+            });
+    }
 
-        try {
-            HttpResponse<Order> response = payPalHttpClient.execute(request);
-            Order order = response.result();
-            
-            return order.id();
-            
-        } catch (IOException e) {
-            throw new IOException("Error al crear orden en PayPal: " + e.getMessage());
+    // Un juego editado (precio, título, descripción) necesita otra plantilla de orden
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogoModificado(EventoCatalogoModificado evento) {
+        synchronized (plantillasOrden) {
+            if (evento.afectaATodos()) {
+                plantillasOrden.clear();
+            } else {
+                plantillasOrden.remove(evento.juegoId());
+            }
         }
     }
 
     // Captura el pago de una orden de PayPal (confirma la transacción)
     @Override
     public Order capturarPago(String orderId) throws IOException {
-        OrdersCaptureRequest request = new OrdersCaptureRequest(orderId);
+        // Con el mismo PayPal-Request-Id, PayPal devuelve la captura ya hecha en vez de capturar otra vez:
+        // por eso se puede reintentar si se corta la conexión. Se pide la orden completa para comprobar juego, comprador e importe
+        OrdersCaptureRequest request = new OrdersCaptureRequest(orderId).payPalRequestId("captura-" + orderId)
+            .prefer("return=representation");
         
         try {
-            HttpResponse<Order> response = payPalHttpClient.execute(request);
+            HttpResponse<Order> response = paypal.ejecutarConReintentos(plazo -> payPalHttpClient.execute(request));
             return response.result();
             
         } catch (IOException e) {
-            throw new IOException("Error al capturar pago en PayPal: " + e.getMessage());
+            throw new IOException("Error al capturar pago en PayPal: " + e.getMessage(), e);
         }
     }
 
@@ -104,11 +175,11 @@ public class ServicioPayPalImpl implements IServicioPayPal {
         OrdersGetRequest request = new OrdersGetRequest(orderId);
         
         try {
-            HttpResponse<Order> response = payPalHttpClient.execute(request);
+            HttpResponse<Order> response = paypal.ejecutarConReintentos(plazo -> payPalHttpClient.execute(request));
             return response.result();
             
         } catch (IOException e) {
-            throw new IOException("Error al obtener detalles de la orden: " + e.getMessage());
+            throw new IOException("Error al obtener detalles de la orden: " + e.getMessage(), e);
         }
     }
 
@@ -121,7 +192,7 @@ public class ServicioPayPalImpl implements IServicioPayPal {
         return "COMPLETED".equals(status);
     }
 
-    // Extrae el monto total pagado de una orden de PayPal
+    // Extrae el monto pagado de una orden de PayPal: lo capturado si la orden trae sus capturas, si no el importe de la orden
     @Override
     public Double extraerMontoPagado(Order order) {
         if (order == null || order.purchaseUnits() == null || order.purchaseUnits().isEmpty()) {
@@ -129,6 +200,10 @@ public class ServicioPayPalImpl implements IServicioPayPal {
         }
         
         PurchaseUnit purchaseUnit = order.purchaseUnits().get(0);
+        if (purchaseUnit.payments() != null && purchaseUnit.payments().captures() != null
+                && !purchaseUnit.payments().captures().isEmpty()) {
+            return sumarCapturasCompletadas(purchaseUnit);
+        }
         if (purchaseUnit.amountWithBreakdown() != null) {
             String value = purchaseUnit.amountWithBreakdown().value();
             return Double.parseDouble(value);
@@ -136,6 +211,22 @@ public class ServicioPayPalImpl implements IServicioPayPal {
         
         return 0.0;
     }
+    
+    // Solo cuenta lo capturado de verdad: sin capturas (la orden no las trae) no se puede saber y se considera no cobrada
+    @Override
+    public boolean estaCobrada(Order order) {
+        if (order == null || order.purchaseUnits() == null || order.purchaseUnits().isEmpty()) {
+            return false;
+        }
+        PurchaseUnit purchaseUnit = order.purchaseUnits().get(0);
+        if (purchaseUnit.amountWithBreakdown() == null || purchaseUnit.payments() == null
+                || purchaseUnit.payments().captures() == null) {
+            return false;
+        }
+        double importe = Double.parseDouble(purchaseUnit.amountWithBreakdown().value());
+        double capturado = sumarCapturasCompletadas(purchaseUnit);
+        return capturado > 0 && capturado + 0.005 >= importe;
+    }
 
     // Extrae el ID del juego desde el reference_id de la orden de PayPal
     @Override
@@ -154,118 +245,303 @@ public class ServicioPayPalImpl implements IServicioPayPal {
         }
     }
     
-    @Value("${paypal.client-id}")
-    private String clientId;
-    
-    @Value("${paypal.client-secret}")
-    private String clientSecret;
-    
-    @Value("${paypal.mode}")
-    private String mode;
+    // Extrae el ID del comprador desde el custom_id de la orden
+    @Override
+    public Integer extraerUsuarioId(Order order) {
+        if (order == null || order.purchaseUnits() == null || order.purchaseUnits().isEmpty()) {
+            return null;
+        }
+        
+        String customId = order.purchaseUnits().get(0).customId();
+        try {
+            return customId != null ? Integer.parseInt(customId) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
     
-    // Envía un pago (payout) a un proveedor mediante PayPal Payouts API
+    // Verifica la firma de un evento de webhook con la API de PayPal (verify-webhook-signature)
     @Override
-    public String enviarPagoProveedor(String emailPaypal, Double monto, String descripcion) throws IOException {
-        // Validar monto
-        if (monto == null || monto <= 0) {
-            throw new IOException("El monto debe ser mayor que 0");
+    public boolean verificarFirmaWebhook(Map<String, String> cabeceras, String cuerpo) throws IOException {
+        if (webhookId == null || webhookId.isBlank()) {
+            throw new IOException("paypal.webhook.id no está configurado");
         }
         
-        // Redondear a 2 decimales para evitar problemas de precisión
-        monto = Math.round(monto * 100.0) / 100.0;
+        Map<String, Object> verificacion = new HashMap<>();
+        verificacion.put("auth_algo", cabeceras.get("paypal-auth-algo"));
+        verificacion.put("cert_url", cabeceras.get("paypal-cert-url"));
+        verificacion.put("transmission_id", cabeceras.get("paypal-transmission-id"));
+        verificacion.put("transmission_sig", cabeceras.get("paypal-transmission-sig"));
+        verificacion.put("transmission_time", cabeceras.get("paypal-transmission-time"));
+        verificacion.put("webhook_id", webhookId);
         
         try {
-            RestTemplate restTemplate = new RestTemplate();
-            
-            // 1. Obtener token de acceso
-            String accessToken = obtenerAccessToken(restTemplate);
+            verificacion.put("webhook_event", jsonMapper.readTree(cuerpo));
+            Map<String, Object> respuesta = enviarConToken("/v1/notifications/verify-webhook-signature", verificacion);
+            return respuesta != null && "SUCCESS".equals(respuesta.get("verification_status"));
             
-            // 2. Crear payout
-            String payoutUrl = mode.equals("sandbox") 
-                ? "https://api-m.sandbox.paypal.com/v1/payments/payouts"
-                : "https://api-m.paypal.com/v1/payments/payouts";
-            
-            // Crear JSON del payout
-            Map<String, Object> payoutRequest = new HashMap<>();
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Error al verificar la firma del webhook: " + e.getMessage(), e);
+        }
+    }
+    
+    // Envía un lote de payouts con PayPal Payouts API: un pago por transacción, todos en una sola petición
+    @Override
+    public String enviarLotePagos(String senderBatchId, List<ItemPago> items) throws IOException {
+        if (items.isEmpty()) {
+            throw new IOException("El lote de pagos está vacío");
+        }
+        
+        try {
             Map<String, String> senderBatchHeader = new HashMap<>();
-            senderBatchHeader.put("sender_batch_id", "Payout_" + System.currentTimeMillis());
+            senderBatchHeader.put("sender_batch_id", senderBatchId);
             senderBatchHeader.put("email_subject", "Has recibido un pago de PixelShop");
-            senderBatchHeader.put("email_message", descripcion);
+            senderBatchHeader.put("email_message", "Pago de tus ganancias por ventas en PixelShop");
             
-            Map<String, Object> item = new HashMap<>();
-            item.put("recipient_type", "EMAIL");
-            item.put("receiver", emailPaypal);
-            Map<String, String> amount = new HashMap<>();
-            // Formatear monto con exactamente 2 decimales usando punto como separador
-            String montoFormateado = String.format(java.util.Locale.US, "%.2f", monto);
-            amount.put("value", montoFormateado);
-            amount.put("currency", "EUR");
-            item.put("amount", amount);
-            item.put("note", descripcion);
-            item.put("sender_item_id", "item_" + System.currentTimeMillis());
+            List<Map<String, Object>> elementos = new ArrayList<>(items.size());
+            double total = 0;
+            for (ItemPago itemPago : items) {
+                // Redondear a 2 decimales y formatear con punto como separador
+                double monto = Math.round(itemPago.importe() * 100.0) / 100.0;
+                total += monto;
+                
+                Map<String, String> amount = new HashMap<>();
+                amount.put("value", String.format(Locale.US, "%.2f", monto));
+                amount.put("currency", "EUR");
+                
+                Map<String, Object> item = new HashMap<>();
+                item.put("recipient_type", "EMAIL");
+                item.put("receiver", itemPago.receptor());
+                item.put("amount", amount);
+                item.put("note", "Ganancia de una venta en PixelShop");
+                item.put("sender_item_id", itemPago.senderItemId());
+                elementos.add(item);
+            }
             
+            Map<String, Object> payoutRequest = new HashMap<>();
             payoutRequest.put("sender_batch_header", senderBatchHeader);
-            payoutRequest.put("items", List.of(item));
+            payoutRequest.put("items", elementos);
             
-            // Log para depuración
-            System.out.println(" Enviando payout a PayPal:");
-            System.out.println("   Email: " + emailPaypal);
-            System.out.println("   Monto: " + montoFormateado + " EUR");
-            System.out.println("   Descripción: " + descripcion);
+            System.out.println(" Enviando lote de payouts " + senderBatchId + " a PayPal: "
+                + items.size() + " pagos, " + String.format(Locale.US, "%.2f", total) + " EUR");
             
-            // Configurar headers
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setBearerAuth(accessToken);
-            
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(payoutRequest, headers);
+            Map<String, Object> responseBody = enviarConToken("/v1/payments/payouts", payoutRequest);
+            if (responseBody != null && responseBody.get("batch_header") instanceof Map<?, ?> batchHeader) {
+                return (String) batchHeader.get("payout_batch_id");
+            }
             
-            // Enviar payout
-            ResponseEntity<Map> response = restTemplate.postForEntity(payoutUrl, entity, Map.class);
+            throw new IOException("Error al crear payout: respuesta sin batch_header");
             
-            if (response.getStatusCode() == HttpStatus.CREATED) {
-                Map<String, Object> responseBody = response.getBody();
-                if (responseBody != null && responseBody.containsKey("batch_header")) {
-                    Map<String, Object> batchHeader = (Map<String, Object>) responseBody.get("batch_header");
-                    return (String) batchHeader.get("payout_batch_id");
+        } catch (IOException e) {
+            // Lote ya enviado antes (la respuesta se perdió): PayPal enlaza el lote original en el error
+            if (e.getCause() instanceof HttpClientErrorException rechazo
+                    && rechazo.getResponseBodyAsString().contains("SENDER_BATCH_ID")) {
+                String original = payoutBatchIdEnlazado(rechazo.getResponseBodyAsString());
+                if (original != null) {
+                    System.out.println(" El lote de payouts " + senderBatchId + " ya estaba en PayPal como " + original);
+                    return original;
                 }
             }
-            
-            throw new IOException("Error al crear payout: " + response.getStatusCode());
-            
+            throw e;
         } catch (Exception e) {
-            throw new IOException("Error al enviar pago a proveedor: " + e.getMessage(), e);
+            throw new IOException("Error al enviar lote de pagos " + senderBatchId + ": " + e.getMessage(), e);
         }
     }
     
-    // Obtiene un token de acceso de PayPal
-    private String obtenerAccessToken(RestTemplate restTemplate) throws IOException {
+    // Recorre las páginas del detalle del lote y devuelve el estado de cada pago
+    @Override
+    public Map<String, String> consultarLotePagos(String payoutBatchId) throws IOException {
+        Map<String, String> estados = new HashMap<>();
         try {
-            String authUrl = mode.equals("sandbox")
-                ? "https://api-m.sandbox.paypal.com/v1/oauth2/token"
-                : "https://api-m.paypal.com/v1/oauth2/token";
-            
-            // Crear credenciales en Base64
-            String auth = clientId + ":" + clientSecret;
-            String encodedAuth = Base64.getEncoder().encodeToString(auth.getBytes(StandardCharsets.UTF_8));
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
-            headers.set("Authorization", "Basic " + encodedAuth);
-            
-            String body = "grant_type=client_credentials";
-            HttpEntity<String> entity = new HttpEntity<>(body, headers);
-            
-            ResponseEntity<Map> response = restTemplate.postForEntity(authUrl, entity, Map.class);
-            
-            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                return (String) response.getBody().get("access_token");
-            }
-            
-            throw new IOException("No se pudo obtener token de acceso");
+            int pagina = 1;
+            int totalPaginas = 1;
+            do {
+                Map<String, Object> respuesta = getConToken("/v1/payments/payouts/" + payoutBatchId
+                    + "?page=" + pagina + "&page_size=" + TAMANIO_PAGINA_PAYOUTS + "&total_required=true");
+                if (respuesta == null || !(respuesta.get("items") instanceof List<?> items) || items.isEmpty()) {
+                    break;
+                }
+                for (Object elemento : items) {
+                    if (elemento instanceof Map<?, ?> item && item.get("payout_item") instanceof Map<?, ?> payoutItem) {
+                        estados.put((String) payoutItem.get("sender_item_id"), (String) item.get("transaction_status"));
+                    }
+                }
+                if (respuesta.get("total_page") instanceof Number n) {
+                    totalPaginas = n.intValue();
+                }
+                pagina++;
+            } while (pagina <= totalPaginas);
+            return estados;
             
+        } catch (IOException e) {
+            throw e;
         } catch (Exception e) {
-            throw new IOException("Error al obtener token de PayPal: " + e.getMessage(), e);
+            throw new IOException("Error al consultar el lote de pagos " + payoutBatchId + ": " + e.getMessage(), e);
+        }
+    }
+    
+    // Suma de las capturas COMPLETED (las PENDING o DECLINED todavía no son dinero cobrado)
+    private static double sumarCapturasCompletadas(PurchaseUnit purchaseUnit) {
+        double capturado = 0;
+        for (Capture captura : purchaseUnit.payments().captures()) {
+            if ("COMPLETED".equals(captura.status()) && captura.amount() != null) {
+                capturado += Double.parseDouble(captura.amount().value());
+            }
+        }
+        return capturado;
+    }
+    
+    // payout_batch_id del lote enlazado en una respuesta de error de PayPal (links[].href), o null si no lo hay
+    private String payoutBatchIdEnlazado(String cuerpoError) {
+        try {
+            for (JsonNode enlace : jsonMapper.readTree(cuerpoError).path("links")) {
+                Matcher matcher = ENLACE_LOTE.matcher(enlace.path("href").asString(""));
+                if (matcher.find()) {
+                    return matcher.group(1);
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Respuesta de error de PayPal no reconocida: " + e.getMessage());
+        }
+        return null;
+    }
+    
+    // POST autenticado a la API REST de PayPal con el token cacheado.
+    // Si PayPal rechaza el token (401, por ejemplo porque se revocó) se pide otro y se repite una vez:
+    // con un 401 la petición no se ha procesado, así que repetirla no duplica el pago. No hay más reintentos
+    // (un POST cortado a medias puede haberse procesado); el token se pide fuera para no ocupar dos huecos del bulkhead
+    private Map<String, Object> enviarConToken(String ruta, Object cuerpo) throws IOException {
+        String accessToken = tokenPayPal.obtener();
+        try {
+            return paypal.ejecutar(plazo -> post(ruta, cuerpo, accessToken));
+        } catch (HttpClientErrorException.Unauthorized e) {
+            tokenPayPal.invalidar(accessToken);
+            String nuevoToken = tokenPayPal.obtener();
+            return paypal.ejecutar(plazo -> post(ruta, cuerpo, nuevoToken));
         }
     }
+    
+    // GET autenticado, con el mismo tratamiento del token que enviarConToken (y reintentos: un GET se puede repetir)
+    private Map<String, Object> getConToken(String ruta) throws IOException {
+        String accessToken = tokenPayPal.obtener();
+        try {
+            return paypal.ejecutarConReintentos(plazo -> get(ruta, accessToken));
+        } catch (HttpClientErrorException.Unauthorized e) {
+            tokenPayPal.invalidar(accessToken);
+            String nuevoToken = tokenPayPal.obtener();
+            return paypal.ejecutarConReintentos(plazo -> get(ruta, nuevoToken));
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> get(String ruta, String accessToken) {
+        return payPalRestClient.get().uri(ruta).headers(headers -> headers.setBearerAuth(accessToken)).retrieve().body(Map.class);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> post(String ruta, Object cuerpo, String accessToken) {
+        return payPalRestClient.post()
+            .uri(ruta)
+            .headers(headers -> headers.setBearerAuth(accessToken))
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(cuerpo)
+            .retrieve()
+            .body(Map.class);
+    }
+
+    // ========== CREACIÓN DE ÓRDENES ==========
+
+    // Plantilla de la orden del juego; se regenera si el juego que llega tiene otro precio, título o descripción
+    // (por ejemplo, si se ha editado justo antes de que llegara el evento de catálogo). Se genera fuera del monitor
+    private PlantillaOrdenPayPal obtenerPlantillaOrden(Juego juego) {
+        PlantillaOrdenPayPal plantilla;
+        synchronized (plantillasOrden) {
+            plantilla = plantillasOrden.get(juego.getId());
+        }
+        if (plantilla == null || !plantilla.vigentePara(juego.getPrecio(), juego.getTitulo(), juego.getDescripcion())) {
+            plantilla = generarPlantillaOrden(juego);
+            synchronized (plantillasOrden) {
+                plantillasOrden.put(juego.getId(), plantilla);
+            }
+        }
+        return plantilla;
+    }
+
+    // Genera el JSON de la orden (mismos datos que OrdersCreateRequest del SDK) con una marca en lugar del comprador
+    private PlantillaOrdenPayPal generarPlantillaOrden(Juego juego) {
+        String precio = String.format(Locale.US, "%.2f", juego.getPrecio());
+        String descripcion = juego.getDescripcion() != null
+            ? recortarCaracteres(juego.getDescripcion(), MAX_DESCRIPCION)
+            : "Juego digital";
+
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("name", juego.getTitulo());
+        item.put("description", descripcion);
+        item.put("unit_amount", Map.of("currency_code", "EUR", "value", precio));
+        item.put("quantity", "1");
+        item.put("category", "DIGITAL_GOODS");
+
+        Map<String, Object> amount = new LinkedHashMap<>();
+        amount.put("currency_code", "EUR");
+        amount.put("value", precio);
+        amount.put("breakdown", Map.of("item_total", Map.of("currency_code", "EUR", "value", precio)));
+
+        // NO se especifica payee, por lo que el dinero va a la cuenta de la plataforma
+        Map<String, Object> purchaseUnit = new LinkedHashMap<>();
+        purchaseUnit.put("reference_id", juego.getId().toString());
+        purchaseUnit.put("description", "Compra de juego: " + juego.getTitulo());
+        purchaseUnit.put("amount", amount);
+        purchaseUnit.put("items", List.of(item));
+        purchaseUnit.put("custom_id", MARCA_COMPRADOR);  // El webhook registra la compra con este comprador
+
+        Map<String, Object> applicationContext = new LinkedHashMap<>();
+        applicationContext.put("return_url", baseUrl + "/paypal/success?juegoId=" + juego.getId());
+        applicationContext.put("cancel_url", baseUrl + "/paypal/cancel?juegoId=" + juego.getId());
+        applicationContext.put("brand_name", "PixelShop");
+        applicationContext.put("landing_page", "BILLING");
+        applicationContext.put("shipping_preference", "NO_SHIPPING");
+        applicationContext.put("user_action", "PAY_NOW");
+
+        Map<String, Object> orden = new LinkedHashMap<>();
+        orden.put("intent", "CAPTURE");
+        orden.put("application_context", applicationContext);
+        orden.put("purchase_units", List.of(purchaseUnit));
+
+        // custom_id es lo último que se serializa: se busca desde el final por si el título o la descripción
+        // contienen la marca
+        String json = jsonMapper.writeValueAsString(orden);
+        int marca = json.lastIndexOf(MARCA_COMPRADOR);
+        return new PlantillaOrdenPayPal(juego.getPrecio(), juego.getTitulo(), juego.getDescripcion(),
+            json.substring(0, marca), json.substring(marca + MARCA_COMPRADOR.length()));
+    }
+
+    // Recorta a un máximo de caracteres sin partir un emoji u otro carácter fuera del BMP (par de surrogates)
+    private static String recortarCaracteres(String texto, int maximo) {
+        if (texto.codePointCount(0, texto.length()) <= maximo) {
+            return texto;
+        }
+        return texto.substring(0, texto.offsetByCodePoints(0, maximo));
+    }
+
+    private String obtenerToken() {
+        try {
+            return tokenPayPal.obtener();
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    // POST asíncrono de la orden: el hilo de la petición queda libre mientras PayPal responde
+    private CompletableFuture<java.net.http.HttpResponse<String>> enviarOrden(String cuerpo, String token, Duration plazo) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(PayPalConfig.urlApi(mode) + "/v2/checkout/orders"))
+            .timeout(plazo)
+            .header("Authorization", "Bearer " + token)
+            .header("Content-Type", "application/json")
+            .header("Prefer", "return=minimal")
+            .POST(HttpRequest.BodyPublishers.ofString(cuerpo))
+            .build();
+        return payPalConexiones.sendAsync(request, java.net.http.HttpResponse.BodyHandlers.ofString());
+    }
 }
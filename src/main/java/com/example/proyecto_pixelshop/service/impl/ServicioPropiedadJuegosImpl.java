@@ -0,0 +1,166 @@
+package com.example.proyecto_pixelshop.service.impl;
+
+import com.example.proyecto_pixelshop.model.Juego;
+import com.example.proyecto_pixelshop.model.Usuario;
+import com.example.proyecto_pixelshop.model.dto.JuegosAdquiridos;
+import com.example.proyecto_pixelshop.repository.CompraRepository;
+import com.example.proyecto_pixelshop.repository.JuegoRepository;
+import com.example.proyecto_pixelshop.service.evento.EventoCatalogoModificado;
+import com.example.proyecto_pixelshop.service.evento.EventoCompraCompletada;
+import com.example.proyecto_pixelshop.service.interfaz.IServicioPropiedadJuegos;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Service
+public class ServicioPropiedadJuegosImpl implements IServicioPropiedadJuegos {
+    
+    @Autowired private CompraRepository compraRepository;
+    @Autowired private JuegoRepository juegoRepository;
+    
+    // Número máximo de usuarios cuya biblioteca se mantiene en memoria (se expulsa el menos usado)
+    @Value("${propiedad.cache.max-usuarios:10000}")
+    private int maxUsuarios;
+    
+    // Mapa LRU usuarioId -> juegos adquiridos
+    private final Map<Integer, JuegosAdquiridos> adquiridosPorUsuario = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, JuegosAdquiridos> eldest) {
+            return size() > maxUsuarios;
+        }
+    };
+    
+    // Bibliotecas que se están cargando desde la BD. Las compras que se confirman durante la carga se apuntan aquí
+    // y se reaplican antes de instalar el resultado, que puede haberse leído antes del commit de la compra.
+    // Protegido por el mismo monitor que adquiridosPorUsuario
+    private final Map<Integer, CargaEnCurso> cargasEnCurso = new HashMap<>();
+    
+    private static final class CargaEnCurso {
+        private int cargadores;
+        private final Set<Integer> adquiridosDuranteLaCarga = new HashSet<>();
+        // Un cambio masivo del catálogo durante la carga: el resultado se devuelve pero no se guarda
+        private boolean descartada;
+    }
+    
+    // Obtiene los juegos que posee un usuario: desde memoria o, la primera vez, desde la BD
+    @Override
+    @Transactional(readOnly = true)
+    public JuegosAdquiridos obtenerAdquiridos(Usuario usuario) {
+        if (usuario == null || usuario.getId() == null) {
+            return JuegosAdquiridos.vacio();
+        }
+        Integer usuarioId = usuario.getId();
+        
+        CargaEnCurso carga;
+        synchronized (adquiridosPorUsuario) {
+            JuegosAdquiridos cacheados = adquiridosPorUsuario.get(usuarioId);
+            if (cacheados != null) {
+                return cacheados;
+            }
+            carga = cargasEnCurso.computeIfAbsent(usuarioId, id -> new CargaEnCurso());
+            carga.cargadores++;
+        }
+        
+        JuegosAdquiridos cargados = null;
+        try {
+            cargados = JuegosAdquiridos.de(cargarIdsAdquiridos(usuarioId));
+        } finally {
+            synchronized (adquiridosPorUsuario) {
+                if (--carga.cargadores == 0) {
+                    cargasEnCurso.remove(usuarioId);
+                }
+                if (cargados != null) {
+                    cargados = cargados.conTodos(carga.adquiridosDuranteLaCarga);
+                    if (carga.descartada) {
+                        return cargados;
+                    }
+                    // Si otro hilo ya la instaló, esa versión recibe también las compras posteriores: se conserva
+                    cargados = adquiridosPorUsuario.merge(usuarioId, cargados, (actual, nuevo) -> actual);
+                }
+            }
+        }
+        return cargados;
+    }
+    
+    // Añade un juego (y los activos con su mismo título) a la biblioteca cacheada o a la que se está cargando.
+    // Si el usuario no está en memoria no hace nada: la próxima carga ya leerá la compra de la BD
+    @Override
+    public void registrarAdquisicion(Integer usuarioId, Integer juegoId) {
+        Set<Integer> adquiridos = new HashSet<>();
+        adquiridos.add(juegoId);
+        juegoRepository.findTituloById(juegoId)
+            .ifPresent(titulo -> adquiridos.addAll(idsActivosConTitulo(List.of(titulo))));
+        
+        synchronized (adquiridosPorUsuario) {
+            adquiridosPorUsuario.computeIfPresent(usuarioId, (id, actual) -> actual.conTodos(adquiridos));
+            CargaEnCurso carga = cargasEnCurso.get(usuarioId);
+            if (carga != null) {
+                carga.adquiridosDuranteLaCarga.addAll(adquiridos);
+            }
+        }
+    }
+    
+    // Actualiza el índice cuando la compra ya está confirmada en la BD
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCompraCompletada(EventoCompraCompletada evento) {
+        registrarAdquisicion(evento.usuarioId(), evento.juegoId());
+    }
+    
+    // Un juego publicado o republicado con el título de otro ya comprado pasa a ser de sus compradores: se añade a las
+    // bibliotecas cacheadas (y a las que se están cargando). Tras un cambio masivo se descarta todo lo cacheado
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogoModificado(EventoCatalogoModificado evento) {
+        if (evento.afectaATodos()) {
+            synchronized (adquiridosPorUsuario) {
+                adquiridosPorUsuario.clear();
+                cargasEnCurso.values().forEach(carga -> carga.descartada = true);
+            }
+            return;
+        }
+        
+        List<Integer> compradores = compraRepository.findUsuariosConTituloAdquirido(evento.juegoId());
+        if (compradores.isEmpty()) {
+            return;
+        }
+        Set<Integer> juego = Set.of(evento.juegoId());
+        synchronized (adquiridosPorUsuario) {
+            for (Integer usuarioId : compradores) {
+                adquiridosPorUsuario.computeIfPresent(usuarioId, (id, actual) -> actual.conTodos(juego));
+                CargaEnCurso carga = cargasEnCurso.get(usuarioId);
+                if (carga != null) {
+                    carga.adquiridosDuranteLaCarga.addAll(juego);
+                }
+            }
+        }
+    }
+    
+    // IDs de los juegos comprados más los activos que comparten título con alguno de ellos (por ejemplo, un juego
+    // republicado). Los títulos se normalizan en Java igual que al guardar, y se buscan por el índice único
+    private Set<Integer> cargarIdsAdquiridos(Integer usuarioId) {
+        Set<Integer> ids = new HashSet<>(compraRepository.findIdsJuegosAdquiridos(usuarioId));
+        if (!ids.isEmpty()) {
+            ids.addAll(idsActivosConTitulo(compraRepository.findTitulosJuegosAdquiridos(usuarioId)));
+        }
+        return ids;
+    }
+    
+    private List<Integer> idsActivosConTitulo(Collection<String> titulos) {
+        Set<String> normalizados = new HashSet<>();
+        for (String titulo : titulos) {
+            if (titulo != null) {
+                normalizados.add(Juego.normalizarTitulo(titulo));
+            }
+        }
+        return normalizados.isEmpty() ? List.of() : juegoRepository.findIdsActivosPorTitulosNormalizados(normalizados);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.proyecto_pixelshop.service.impl;
+
+import com.example.proyecto_pixelshop.model.Compra;
+import com.example.proyecto_pixelshop.model.Usuario;
+import com.example.proyecto_pixelshop.model.VentaPendienteResumen;
+import com.example.proyecto_pixelshop.model.dto.VentasPendientesProveedor;
+import com.example.proyecto_pixelshop.repository.UsuarioRepository;
+import com.example.proyecto_pixelshop.repository.VentaPendienteResumenRepository;
+import com.example.proyecto_pixelshop.service.interfaz.IServicioEmail;
+import com.example.proyecto_pixelshop.service.interfaz.IServicioResumenVentas;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Resumen de ventas por proveedor: cada venta se guarda en venta_pendiente_resumen y, cuando pasan
+ * los minutos de la ventana del proveedor desde la primera venta pendiente, se envía un único email con todas.
+ * Un título popular genera así un email por ventana y no uno por venta.
+ */
+@Service
+public class ServicioResumenVentasImpl implements IServicioResumenVentas {
+    
+    @Autowired private VentaPendienteResumenRepository ventaPendienteRepository;
+    @Autowired private UsuarioRepository usuarioRepository;
+    @Autowired private IServicioEmail emailService;
+    @Autowired private TransactionTemplate transactionTemplate;
+    
+    // Ventana para los proveedores que no han elegido una
+    @Value("${ventas.resumen.minutos-por-defecto:60}")
+    private int minutosPorDefecto;
+    
+    // Se une a la transacción de la compra: si la compra no se confirma, la venta no se notifica
+    @Override
+    @Transactional
+    public void registrarVenta(Compra compra) {
+        Usuario proveedor = compra.getJuego().getProveedor();
+        if (minutosVentana(proveedor) == 0) {
+            emailService.enviarNotificacionVenta(compra);
+        } else {
+            ventaPendienteRepository.save(new VentaPendienteResumen(compra));
+        }
+    }
+    
+    @Override
+    @Scheduled(fixedDelayString = "${ventas.resumen.intervalo-ms:60000}", initialDelayString = "${ventas.resumen.intervalo-ms:60000}")
+    public void enviarResumenesPendientes() {
+        LocalDateTime ahora = LocalDateTime.now();
+        for (VentasPendientesProveedor pendientes : ventaPendienteRepository.findProveedoresConVentasPendientes()) {
+            try {
+                // Una transacción por proveedor: un fallo con uno no retrasa los resúmenes de los demás
+                transactionTemplate.executeWithoutResult(estado -> {
+                    if (!enviarResumen(pendientes, ahora)) {
+                        estado.setRollbackOnly();
+                    }
+                });
+            } catch (Exception e) {
+                System.err.println("Error al enviar el resumen de ventas del proveedor " + pendientes.proveedorId() + ": " + e.getMessage());
+            }
+        }
+    }
+    
+    // ========== MÉTODOS PRIVADOS ==========
+    
+    // Pone en cola el resumen si la ventana del proveedor ha terminado; false si hay que deshacer la transacción
+    private boolean enviarResumen(VentasPendientesProveedor pendientes, LocalDateTime ahora) {
+        Usuario proveedor = usuarioRepository.findById(pendientes.proveedorId()).orElse(null);
+        List<VentaPendienteResumen> ventas = ventaPendienteRepository.findByProveedorIdOrderByFechaVentaAsc(pendientes.proveedorId());
+        List<Integer> ids = ventas.stream().map(VentaPendienteResumen::getId).toList();
+        
+        if (proveedor == null || !proveedor.getActivo()) {
+            // Proveedor eliminado o dado de baja: ya no se le notifica
+            ventaPendienteRepository.eliminarPorIds(ids);
+            return true;
+        }
+        if (pendientes.primeraVenta().plusMinutes(minutosVentana(proveedor)).isAfter(ahora)) {
+            return true;
+        }
+        
+        // Si otra instancia ya las ha enviado, no se borran todas y no se envía un resumen repetido
+        if (ventaPendienteRepository.eliminarPorIds(ids) != ids.size()) {
+            return false;
+        }
+        emailService.enviarResumenVentas(proveedor, ventas);
+        return true;
+    }
+    
+    private int minutosVentana(Usuario proveedor) {
+        Integer minutos = proveedor.getMinutosResumenVentas();
+        return minutos != null ? minutos : minutosPorDefecto;
+    }
+}
@@ -0,0 +1,263 @@
+package com.example.proyecto_pixelshop.service.impl;
+
+import com.example.proyecto_pixelshop.model.Juego;
+import com.example.proyecto_pixelshop.model.SesionSubida;
+import com.example.proyecto_pixelshop.model.dto.PropiedadesBlob;
+import com.example.proyecto_pixelshop.model.dto.SubidaArchivo;
+import com.example.proyecto_pixelshop.model.dto.TicketSubida;
+import com.example.proyecto_pixelshop.model.enums.TipoSubida;
+import com.example.proyecto_pixelshop.repository.SesionSubidaRepository;
+import com.example.proyecto_pixelshop.service.interfaz.FirmaNoDisponibleException;
+import com.example.proyecto_pixelshop.service.interfaz.IAzureBlobStorageService;
+import com.example.proyecto_pixelshop.service.interfaz.IServicioJuego;
+import com.example.proyecto_pixelshop.service.interfaz.IServicioSubidaArchivo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Subida de archivos grandes por bloques directamente desde el cuerpo de la petición.
+ * El contenido no pasa por el multipart de Spring (ni por disco temporal): se corta en bloques que se envían a Azure
+ * en paralelo sin confirmar, y al final se confirma la lista en orden. Si la conexión se corta, el cliente pregunta
+ * cuántos bytes contiguos hay y continúa desde ahí; Azure conserva los bloques sin confirmar durante 7 días.
+ * En la subida directa el servidor ni siquiera ve el contenido: emite una URL SAS de solo escritura para un blob concreto,
+ * el navegador sube a Azure (con los mismos IDs de bloque, así que el estado para reanudar es el mismo) y al terminar
+ * se comprueban el tamaño y los primeros bytes del blob antes de aceptarlo (lo que declara el cliente no se da por bueno).
+ * Las subidas abiertas se guardan en la tabla subida_archivo, así que sobreviven a un reinicio y cualquier instancia
+ * puede reanudarlas o completarlas.
+ */
+@Service
+public class ServicioSubidaArchivoImpl implements IServicioSubidaArchivo {
+    
+    @Autowired private IAzureBlobStorageService azureStorageService;
+    @Autowired private IServicioJuego juegoService;
+    @Autowired private SesionSubidaRepository sesionSubidaRepository;
+    
+    // Validez de las URLs SAS de subida directa (suficiente para 500MB con una conexión lenta)
+    @Value("${azure.storage.sas-validez-minutos:60}")
+    private int sasValidezMinutos;
+    
+    private static final int HORAS_CADUCIDAD = 24;
+    
+    // Bytes del principio del archivo que se leen para reconocer su formato
+    private static final int BYTES_CABECERA = 16;
+    
+    @Override
+    public SubidaArchivo iniciar(Integer proveedorId, String nombreArchivo, long tamanio) {
+        SubidaArchivo subida = nuevaSubida(proveedorId, TipoSubida.ARCHIVO, nombreArchivo, tamanio);
+        sesionSubidaRepository.save(new SesionSubida(subida));
+        return subida;
+    }
+    
+    @Override
+    public long recibir(String subidaId, Integer proveedorId, InputStream contenido, long desde) throws IOException {
+        SubidaArchivo subida = obtener(subidaId, proveedorId);
+        if (subida.confirmada()) {
+            throw new RuntimeException("La subida ya está confirmada");
+        }
+        int tamanioBloque = azureStorageService.getBlockSize();
+        if (desde < 0 || desde % tamanioBloque != 0 || desde > subida.tamanio()) {
+            throw new RuntimeException("La posición de inicio debe ser múltiplo de " + tamanioBloque + " bytes");
+        }
+        return azureStorageService.stageBlocks(subida.blobName(), contenido, (int) (desde / tamanioBloque),
+            subida.tamanio() - desde);
+    }
+    
+    @Override
+    public long bytesRecibidos(String subidaId, Integer proveedorId) {
+        SubidaArchivo subida = obtener(subidaId, proveedorId);
+        if (subida.confirmada()) {
+            return subida.tamanio();
+        }
+        // Solo cuentan los bloques contiguos desde el primero
+        Map<Integer, Long> bloques = azureStorageService.getStagedBlocks(subida.blobName());
+        long bytes = 0;
+        for (int i = 0; bloques.containsKey(i); i++) {
+            bytes += bloques.get(i);
+        }
+        return bytes;
+    }
+    
+    @Override
+    public SubidaArchivo confirmar(String subidaId, Integer proveedorId) throws IOException {
+        SubidaArchivo subida = obtener(subidaId, proveedorId);
+        if (subida.confirmada()) {
+            return subida;
+        }
+        
+        // Comprobar que los bloques cubren exactamente el archivo declarado
+        int tamanioBloque = azureStorageService.getBlockSize();
+        int numBloques = (int) ((subida.tamanio() + tamanioBloque - 1) / tamanioBloque);
+        Map<Integer, Long> bloques = azureStorageService.getStagedBlocks(subida.blobName());
+        long total = 0;
+        for (int i = 0; i < numBloques; i++) {
+            Long tamanio = bloques.get(i);
+            if (tamanio == null) {
+                throw new IOException("Falta el bloque " + i + " del archivo; reanuda la subida");
+            }
+            total += tamanio;
+        }
+        if (total != subida.tamanio()) {
+            throw new IOException("El tamaño recibido (" + total + " bytes) no coincide con el del archivo");
+        }
+        
+        String url = azureStorageService.commitBlocks(subida.blobName(), numBloques, subida.contentType());
+        SubidaArchivo confirmada = subida.conUrl(url);
+        sesionSubidaRepository.marcarConfirmada(subidaId, url);
+        System.out.println(" Archivo subido por bloques: " + subida.nombreArchivo() + " (" + numBloques + " bloques)");
+        return confirmada;
+    }
+    
+    @Override
+    public TicketSubida emitirTicket(Integer proveedorId, TipoSubida tipo, String nombreArchivo, long tamanio)
+            throws FirmaNoDisponibleException {
+        SubidaArchivo subida = nuevaSubida(proveedorId, tipo, nombreArchivo, tamanio);
+        Duration validez = Duration.ofMinutes(sasValidezMinutos);
+        String urlSubida = azureStorageService.generateUploadUrl(subida.blobName(), validez);
+        sesionSubidaRepository.save(new SesionSubida(subida));
+        return new TicketSubida(subida.id(), urlSubida, subida.contentType(), azureStorageService.getBlockSize(),
+            OffsetDateTime.now().plus(validez));
+    }
+    
+    @Override
+    public SubidaArchivo completar(String subidaId, Integer proveedorId) throws IOException {
+        SubidaArchivo subida = obtener(subidaId, proveedorId);
+        if (subida.confirmada()) {
+            return subida;
+        }
+        
+        PropiedadesBlob blob = azureStorageService.getBlobProperties(subida.blobName());
+        if (blob == null) {
+            throw new IOException("El archivo todavía no está en Azure (faltan bloques o no se ha confirmado la lista)");
+        }
+        String error = null;
+        if (blob.tamanio() != subida.tamanio()) {
+            error = "El tamaño del archivo subido (" + blob.tamanio() + " bytes) no coincide con el declarado ("
+                + subida.tamanio() + " bytes)";
+        } else if (!subida.tipo().cabeceraValida(subida.nombreArchivo(), leerInicio(subida, blob.etag()))) {
+            error = "El contenido del archivo no corresponde a un " + subida.tipo().extensionesPermitidas();
+        }
+        if (error != null) {
+            // No es el archivo que se declaró: se descarta para no dejarlo huérfano en Azure
+            sesionSubidaRepository.deleteById(subidaId);
+            try {
+                azureStorageService.deleteFile(azureStorageService.getBlobUrl(subida.blobName()));
+            } catch (IOException e) {
+                System.err.println("No se pudo eliminar el archivo rechazado " + subida.blobName() + ": " + e.getMessage());
+            }
+            throw new IOException(error);
+        }
+        
+        // Las cabeceras que puso el navegador al confirmar los bloques no se dan por buenas
+        azureStorageService.setBlobHeaders(subida.blobName(), subida.contentType(), blob.etag());
+        SubidaArchivo confirmada = subida.conUrl(azureStorageService.getBlobUrl(subida.blobName()));
+        sesionSubidaRepository.marcarConfirmada(subidaId, confirmada.url());
+        System.out.println(" Archivo subido directamente a Azure: " + subida.nombreArchivo() + " (" + subida.tamanio() + " bytes)");
+        return confirmada;
+    }
+    
+    @Override
+    public Juego adjuntar(String subidaId, Integer proveedorId, Integer juegoId) {
+        Juego juego = juegoService.buscarPorId(juegoId)
+            .orElseThrow(() -> new RuntimeException("Juego no encontrado"));
+        if (!juego.getProveedor().getId().equals(proveedorId)) {
+            throw new RuntimeException("Solo el proveedor del juego puede modificarlo");
+        }
+        SubidaArchivo subida = obtenerConfirmada(subidaId, proveedorId);
+        
+        String anterior;
+        if (subida.tipo() == TipoSubida.VIDEO) {
+            anterior = juego.getVideoPromocionalUrl();
+            juego.setVideoPromocionalUrl(subida.url());
+        } else {
+            anterior = juego.getArchivoDescargableUrl();
+            juego.setArchivoDescargableUrl(subida.url());
+            juego.setArchivoNombre(subida.nombreArchivo());
+            juego.setArchivoTamanioBytes((int) (subida.tamanio() / (1024 * 1024))); // Convertir a MB
+        }
+        Juego guardado = juegoService.guardar(juego);
+        sesionSubidaRepository.consumir(subidaId, proveedorId);
+        
+        // El anterior se elimina solo cuando el juego ya apunta al nuevo (deleteFile ignora URLs externas, como YouTube)
+        if (anterior != null && !anterior.equals(subida.url())) {
+            try {
+                azureStorageService.deleteFile(anterior);
+            } catch (IOException e) {
+                System.err.println("Advertencia: No se pudo eliminar el archivo anterior: " + e.getMessage());
+            }
+        }
+        return guardado;
+    }
+    
+    @Override
+    public SubidaArchivo consumir(String subidaId, Integer proveedorId, TipoSubida tipo) {
+        SubidaArchivo subida = obtenerConfirmada(subidaId, proveedorId);
+        if (subida.tipo() != tipo) {
+            throw new RuntimeException("La subida no corresponde a este campo del juego");
+        }
+        if (sesionSubidaRepository.consumir(subidaId, proveedorId) == 0) {
+            throw new RuntimeException("La subida ya se ha usado en otro formulario");
+        }
+        return subida;
+    }
+    
+    @Override
+    public int tamanioBloque() {
+        return azureStorageService.getBlockSize();
+    }
+    
+    // ========== MÉTODOS PRIVADOS ==========
+    
+    private SubidaArchivo obtener(String subidaId, Integer proveedorId) {
+        SubidaArchivo subida = sesionSubidaRepository.findById(subidaId).map(SesionSubida::aSubida).orElse(null);
+        if (subida == null || !subida.proveedorId().equals(proveedorId)) {
+            throw new RuntimeException("Subida no encontrada: " + subidaId);
+        }
+        return subida;
+    }
+    
+    private SubidaArchivo obtenerConfirmada(String subidaId, Integer proveedorId) {
+        SubidaArchivo subida = obtener(subidaId, proveedorId);
+        if (!subida.confirmada()) {
+            throw new RuntimeException("La subida del archivo no se ha completado");
+        }
+        return subida;
+    }
+    
+    // Valida extensión y tamaño y decide el nombre del blob: {carpeta}/{id}.{extensión}
+    private SubidaArchivo nuevaSubida(Integer proveedorId, TipoSubida tipo, String nombreArchivo, long tamanio) {
+        String extension = tipo.extensionDe(nombreArchivo);
+        if (extension == null) {
+            throw new RuntimeException("El archivo debe ser " + tipo.extensionesPermitidas());
+        }
+        if (tamanio <= 0 || tamanio > tipo.getTamanioMaximo()) {
+            throw new RuntimeException("El archivo es demasiado grande. Máximo: " + (tipo.getTamanioMaximo() / 1024 / 1024) + "MB");
+        }
+        purgarCaducadas();
+        
+        String id = UUID.randomUUID().toString();
+        return new SubidaArchivo(id, proveedorId, tipo, tipo.getCarpeta() + "/" + id + "." + extension,
+            nombreArchivo, tipo.contentTypeDe(nombreArchivo), tamanio, null, LocalDateTime.now());
+    }
+    
+    // Primeros bytes del blob ya confirmado, para comprobar la firma del formato
+    private byte[] leerInicio(SubidaArchivo subida, String etag) throws IOException {
+        try (InputStream entrada = azureStorageService.openBlobRange(subida.blobName(), 0,
+                Math.min(BYTES_CABECERA, subida.tamanio()), etag)) {
+            return entrada.readAllBytes();
+        }
+    }
+    
+    // Olvida las subidas abandonadas (Azure descarta por sí mismo los bloques sin confirmar)
+    private void purgarCaducadas() {
+        sesionSubidaRepository.eliminarCaducadas(LocalDateTime.now().minusHours(HORAS_CADUCIDAD));
+    }
+}
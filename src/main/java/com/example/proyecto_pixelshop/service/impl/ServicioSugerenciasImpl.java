@@ -0,0 +1,321 @@
+package com.example.proyecto_pixelshop.service.impl;
+
+import com.example.proyecto_pixelshop.model.Juego;
+import com.example.proyecto_pixelshop.model.dto.JuegoResumen;
+import com.example.proyecto_pixelshop.model.dto.Sugerencia;
+import com.example.proyecto_pixelshop.service.evento.EventoCatalogoModificado;
+import com.example.proyecto_pixelshop.service.interfaz.IServicioJuego;
+import com.example.proyecto_pixelshop.service.interfaz.IServicioSugerencias;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+
+/**
+ * Autocompletado del buscador sobre un trie inmutable de títulos y géneros.
+ * Cada nodo guarda ya calculadas sus mejores MAX_SUGERENCIAS completaciones, así que una consulta
+ * solo recorre los caracteres del prefijo y devuelve una lista ya construida (sin ordenar ni reservar memoria).
+ * El trie publicado no se modifica: cada cambio del catálogo copia solo los caminos de las claves del juego
+ * afectado (recalculando sus mejores a partir de los hijos) y sustituye la raíz de forma atómica.
+ */
+@Service
+public class ServicioSugerenciasImpl implements IServicioSugerencias {
+    
+    @Autowired private IServicioJuego juegoService;
+    
+    // Prioridad de cada tipo de coincidencia (menor = antes)
+    private static final int PRIORIDAD_INICIO_TITULO = 0;
+    private static final int PRIORIDAD_PALABRA_TITULO = 1;
+    private static final int PRIORIDAD_GENERO = 2;
+    
+    // Patrones de normalizar, compilados una sola vez (se llama por cada pulsación del buscador)
+    private static final Pattern DIACRITICOS = Pattern.compile("\\p{M}+");
+    private static final Pattern ESPACIOS = Pattern.compile("\\s+");
+    
+    // Nodo del trie. Una vez publicado no se modifica (los cambios trabajan sobre copias)
+    private static final class Nodo {
+        private final Map<Character, Nodo> hijos;
+        private final List<Candidato> propios;
+        private List<Candidato> mejores = List.of();
+        private List<Sugerencia> sugerencias = List.of();
+        
+        private Nodo() {
+            this(new HashMap<>(4), new ArrayList<>(1));
+        }
+        
+        private Nodo(Map<Character, Nodo> hijos, List<Candidato> propios) {
+            this.hijos = hijos;
+            this.propios = propios;
+        }
+        
+        private Nodo copia() {
+            return new Nodo(new HashMap<>(hijos), new ArrayList<>(propios));
+        }
+    }
+    
+    // Sugerencia con la prioridad de la clave por la que se llega a ella
+    private record Candidato(Sugerencia sugerencia, int prioridad) {}
+    
+    // Clave del trie y candidato que se guarda al final de ella
+    private record Entrada(String clave, Candidato candidato) {}
+    
+    // Género sugerido y cuántos juegos activos lo usan (desaparece cuando llega a cero)
+    private static final class GeneroIndexado {
+        private final Entrada entrada;
+        private int juegos;
+        
+        private GeneroIndexado(Entrada entrada) {
+            this.entrada = entrada;
+        }
+    }
+    
+    private static final Comparator<Candidato> ORDEN_CANDIDATOS = Comparator
+        .comparingInt(Candidato::prioridad)
+        .thenComparing(c -> c.sugerencia().texto(), String.CASE_INSENSITIVE_ORDER);
+    
+    private final AtomicReference<Nodo> raiz = new AtomicReference<>();
+    
+    // Estado de lo indexado, para poder retirar las claves de un juego al cambiar. Protegido por el monitor del servicio
+    private final Map<Integer, JuegoIndexado> juegosIndexados = new HashMap<>();
+    private final Map<String, GeneroIndexado> generosIndexados = new HashMap<>();
+    
+    private record JuegoIndexado(String titulo, String genero) {}
+    
+    @Override
+    public List<Sugerencia> sugerir(String prefijo, int limite) {
+        String clave = normalizar(prefijo);
+        if (clave.isEmpty()) {
+            return List.of();
+        }
+        
+        Nodo nodo = obtenerRaiz();
+        for (int i = 0; i < clave.length() && nodo != null; i++) {
+            nodo = nodo.hijos.get(clave.charAt(i));
+        }
+        if (nodo == null) {
+            return List.of();
+        }
+        
+        List<Sugerencia> mejores = nodo.sugerencias;
+        return mejores.size() <= limite ? mejores : mejores.subList(0, Math.max(0, limite));
+    }
+    
+    // Construye un trie nuevo a partir del catálogo y lo publica de una vez
+    @Override
+    public synchronized void reconstruir() {
+        juegosIndexados.clear();
+        generosIndexados.clear();
+        Nodo nueva = new Nodo();
+        
+        for (JuegoResumen juego : juegoService.listarCatalogo()) {
+            JuegoIndexado indexado = new JuegoIndexado(juego.getTitulo(), juego.getGenero());
+            juegosIndexados.put(juego.getId(), indexado);
+            for (Entrada entrada : entradasDe(juego.getId(), indexado)) {
+                insertar(nueva, entrada);
+            }
+            Entrada genero = sumarGenero(indexado.genero());
+            if (genero != null) {
+                insertar(nueva, genero);
+            }
+        }
+        
+        calcularMejores(nueva);
+        raiz.set(nueva);
+    }
+    
+    // Tras cada cambio confirmado del catálogo se reindexa solo el juego afectado
+    @Order(2)
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public synchronized void onCatalogoModificado(EventoCatalogoModificado evento) {
+        if (raiz.get() == null) {
+            return; // Aún no construido: la primera consulta leerá el catálogo actual
+        }
+        if (evento.afectaATodos()) {
+            reconstruir();
+            return;
+        }
+        
+        Integer juegoId = evento.juegoId();
+        JuegoIndexado anterior = juegosIndexados.remove(juegoId);
+        JuegoIndexado actual = juegoService.buscarPorId(juegoId)
+            .filter(juego -> Boolean.TRUE.equals(juego.getActivo()))
+            .map(ServicioSugerenciasImpl::indexadoDe)
+            .orElse(null);
+        
+        Nodo nueva = raiz.get();
+        if (anterior != null) {
+            for (Entrada entrada : entradasDe(juegoId, anterior)) {
+                nueva = conCambio(nueva, entrada.clave(), 0, entrada.candidato(), null);
+            }
+            Entrada genero = restarGenero(anterior.genero());
+            if (genero != null) {
+                nueva = conCambio(nueva, genero.clave(), 0, genero.candidato(), null);
+            }
+        }
+        if (actual != null) {
+            juegosIndexados.put(juegoId, actual);
+            for (Entrada entrada : entradasDe(juegoId, actual)) {
+                nueva = conCambio(nueva, entrada.clave(), 0, null, entrada.candidato());
+            }
+            Entrada genero = sumarGenero(actual.genero());
+            if (genero != null) {
+                nueva = conCambio(nueva, genero.clave(), 0, null, genero.candidato());
+            }
+        }
+        raiz.set(nueva != null ? nueva : new Nodo());
+    }
+    
+    // ========== MÉTODOS PRIVADOS ==========
+    
+    private Nodo obtenerRaiz() {
+        Nodo actual = raiz.get();
+        if (actual == null) {
+            synchronized (this) {
+                actual = raiz.get();
+                if (actual == null) {
+                    reconstruir();
+                    actual = raiz.get();
+                }
+            }
+        }
+        return actual;
+    }
+    
+    private static JuegoIndexado indexadoDe(Juego juego) {
+        return new JuegoIndexado(juego.getTitulo(), juego.getGenero());
+    }
+    
+    // Claves por las que se llega a un juego: el título completo y cada palabra del título
+    // ("souls" sugiere "Dark Souls")
+    private static List<Entrada> entradasDe(Integer juegoId, JuegoIndexado juego) {
+        Sugerencia sugerencia = new Sugerencia(juego.titulo(), Sugerencia.TIPO_JUEGO, juegoId);
+        String titulo = normalizar(juego.titulo());
+        List<Entrada> entradas = new ArrayList<>();
+        entradas.add(new Entrada(titulo, new Candidato(sugerencia, PRIORIDAD_INICIO_TITULO)));
+        for (int i = 1; i < titulo.length(); i++) {
+            if (titulo.charAt(i - 1) == ' ' && titulo.charAt(i) != ' ') {
+                entradas.add(new Entrada(titulo.substring(i), new Candidato(sugerencia, PRIORIDAD_PALABRA_TITULO)));
+            }
+        }
+        entradas.removeIf(entrada -> entrada.clave().isBlank());
+        return entradas;
+    }
+    
+    // Cuenta un juego más del género; devuelve la entrada a insertar si es el primero
+    private Entrada sumarGenero(String genero) {
+        if (genero == null || genero.isBlank()) {
+            return null;
+        }
+        String clave = normalizar(genero);
+        GeneroIndexado indexado = generosIndexados.computeIfAbsent(clave, c -> new GeneroIndexado(
+            new Entrada(c, new Candidato(new Sugerencia(genero, Sugerencia.TIPO_GENERO, null), PRIORIDAD_GENERO))));
+        return indexado.juegos++ == 0 ? indexado.entrada : null;
+    }
+    
+    // Descuenta un juego del género; devuelve la entrada a retirar si era el último
+    private Entrada restarGenero(String genero) {
+        if (genero == null || genero.isBlank()) {
+            return null;
+        }
+        GeneroIndexado indexado = generosIndexados.get(normalizar(genero));
+        if (indexado == null || --indexado.juegos > 0) {
+            return null;
+        }
+        generosIndexados.remove(indexado.entrada.clave());
+        return indexado.entrada;
+    }
+    
+    // Inserción sobre un trie en construcción (aún no publicado)
+    private static void insertar(Nodo raiz, Entrada entrada) {
+        Nodo nodo = raiz;
+        for (int i = 0; i < entrada.clave().length(); i++) {
+            nodo = nodo.hijos.computeIfAbsent(entrada.clave().charAt(i), c -> new Nodo());
+        }
+        nodo.propios.add(entrada.candidato());
+    }
+    
+    // Devuelve una copia del nodo con el candidato quitado/añadido al final de la clave, copiando solo ese camino
+    // y recalculando sus mejores desde los hijos. Devuelve null si el nodo queda vacío (se poda)
+    private static Nodo conCambio(Nodo nodo, String clave, int posicion, Candidato quitar, Candidato poner) {
+        Nodo copia = nodo != null ? nodo.copia() : new Nodo();
+        if (posicion == clave.length()) {
+            if (quitar != null) {
+                copia.propios.remove(quitar);
+            }
+            if (poner != null) {
+                copia.propios.add(poner);
+            }
+        } else {
+            char caracter = clave.charAt(posicion);
+            Nodo hijo = conCambio(copia.hijos.get(caracter), clave, posicion + 1, quitar, poner);
+            if (hijo != null) {
+                copia.hijos.put(caracter, hijo);
+            } else {
+                copia.hijos.remove(caracter);
+            }
+        }
+        if (copia.propios.isEmpty() && copia.hijos.isEmpty()) {
+            return null;
+        }
+        recalcular(copia);
+        return copia;
+    }
+    
+    // Recorre el trie en postorden y guarda en cada nodo las mejores completaciones de su subárbol
+    private static void calcularMejores(Nodo nodo) {
+        for (Nodo hijo : nodo.hijos.values()) {
+            calcularMejores(hijo);
+        }
+        recalcular(nodo);
+    }
+    
+    // Mejores del nodo a partir de sus candidatos y de las mejores de cada hijo: si una sugerencia está entre las
+    // mejores del subárbol, también lo está entre las de su hijo. Una sugerencia alcanzable por varias claves
+    // se queda con su mejor prioridad
+    private static void recalcular(Nodo nodo) {
+        Map<Sugerencia, Candidato> porSugerencia = new LinkedHashMap<>();
+        for (Candidato candidato : nodo.propios) {
+            porSugerencia.merge(candidato.sugerencia(), candidato, ServicioSugerenciasImpl::mejorDe);
+        }
+        for (Nodo hijo : nodo.hijos.values()) {
+            for (Candidato candidato : hijo.mejores) {
+                porSugerencia.merge(candidato.sugerencia(), candidato, ServicioSugerenciasImpl::mejorDe);
+            }
+        }
+        
+        List<Candidato> mejores = new ArrayList<>(porSugerencia.values());
+        mejores.sort(ORDEN_CANDIDATOS);
+        if (mejores.size() > MAX_SUGERENCIAS) {
+            mejores = mejores.subList(0, MAX_SUGERENCIAS);
+        }
+        nodo.mejores = List.copyOf(mejores);
+        nodo.sugerencias = mejores.stream().map(Candidato::sugerencia).toList();
+    }
+    
+    private static Candidato mejorDe(Candidato a, Candidato b) {
+        return ORDEN_CANDIDATOS.compare(a, b) <= 0 ? a : b;
+    }
+    
+    // Minúsculas, sin acentos y con los espacios compactados
+    private static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        String sinAcentos = DIACRITICOS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return ESPACIOS.matcher(sinAcentos.toLowerCase(Locale.ROOT).trim()).replaceAll(" ");
+    }
+}
@@ -5,7 +5,6 @@ import com.example.proyecto_pixelshop.model.Compra;
 import com.example.proyecto_pixelshop.model.Juego;
 import com.example.proyecto_pixelshop.model.enums.TipoTransaccion;
 import com.example.proyecto_pixelshop.repository.TransaccionPlataformaRepository;
-import com.example.proyecto_pixelshop.repository.CompraRepository;
 import com.example.proyecto_pixelshop.repository.JuegoRepository;
 import com.example.proyecto_pixelshop.service.interfaz.IServicioTransaccionPlataforma;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,7 +21,6 @@ import java.util.Optional;
 public class ServicioTransaccionPlataformaImpl implements IServicioTransaccionPlataforma {
     
     @Autowired private TransaccionPlataformaRepository transaccionRepository;
-    @Autowired private CompraRepository compraRepository;
     @Autowired private JuegoRepository juegoRepository;
     
     // Busca una transacción de plataforma por su ID
@@ -73,10 +71,7 @@ public class ServicioTransaccionPlataformaImpl implements IServicioTransaccionPl
     
     // Registra una comisión de venta (15% de cada compra) en los ingresos de la plataforma
     @Override
-    public TransaccionPlataforma registrarComisionVenta(Integer compraId, Double importe) {
-        Compra compra = compraRepository.findById(compraId)
-            .orElseThrow(() -> new RuntimeException("Compra no encontrada"));
-        
+    public TransaccionPlataforma registrarComisionVenta(Compra compra, Double importe) {
         Double porcentajeComision = 15.0;
         
         // Usa constructor con Compra (relación 1:1)
@@ -21,6 +21,9 @@ public class ServicioTransaccionProveedorImpl implements IServicioTransaccionPro
     
     @Autowired private TransaccionProveedorRepository transaccionRepository;
     
+    // IDs por sentencia UPDATE ... WHERE id IN (...) (evita sentencias y listas de parámetros enormes)
+    private static final int TAMANIO_GRUPO = 1000;
+    
     // ========================================
     // MÉTODOS DE BÚSQUEDA Y LISTADO
     // ========================================
@@ -109,22 +112,39 @@ public class ServicioTransaccionProveedorImpl implements IServicioTransaccionPro
         return transaccionRepository.save(transaccion);
     }
     
-    // Marca múltiples transacciones como pagadas (procesa en lote)
+    // Marca múltiples transacciones como pagadas con un UPDATE por cada grupo de IDs (no carga ni guarda las entidades).
+    // Solo cambian las que siguen en estadoActual, así una transacción ya pagada no se vuelve a marcar
     @Override
-    public List<TransaccionProveedor> marcarComoaPagadas(List<Integer> transaccionIds) {
-        List<TransaccionProveedor> transaccionesPagadas = new ArrayList<>();
-        
-        for (Integer id : transaccionIds) {
-            try {
-                TransaccionProveedor transaccion = marcarComoPagada(id);
-                transaccionesPagadas.add(transaccion);
-            } catch (RuntimeException e) {
-                // Log error pero continuar con las demás transacciones
-                System.err.println("Error al marcar transacción " + id + " como pagada: " + e.getMessage());
-            }
+    public int marcarComoPagadas(List<Integer> transaccionIds, EstadoPago estadoActual, String payoutBatchId) {
+        LocalDateTime fechaPago = LocalDateTime.now();
+        int actualizadas = 0;
+        for (List<Integer> grupo : enGrupos(transaccionIds)) {
+            actualizadas += transaccionRepository.marcarPagadas(grupo, fechaPago, payoutBatchId, estadoActual, EstadoPago.PAGADO);
         }
-        
-        return transaccionesPagadas;
+        if (actualizadas < transaccionIds.size()) {
+            System.err.println("Marcadas como pagadas " + actualizadas + " de " + transaccionIds.size()
+                + " transacciones (las demás no estaban en " + estadoActual + ")");
+        }
+        return actualizadas;
+    }
+    
+    @Override
+    public int devolverAPendientes(List<Integer> transaccionIds) {
+        int actualizadas = 0;
+        for (List<Integer> grupo : enGrupos(transaccionIds)) {
+            actualizadas += transaccionRepository.devolverAPendiente(grupo, EstadoPago.EN_PROCESO, EstadoPago.PENDIENTE);
+        }
+        return actualizadas;
+    }
+    
+    @Override
+    public int apartarDeLiquidacion(List<Integer> transaccionIds, String motivo) {
+        String recortado = motivo != null && motivo.length() > 255 ? motivo.substring(0, 255) : motivo;
+        int actualizadas = 0;
+        for (List<Integer> grupo : enGrupos(transaccionIds)) {
+            actualizadas += transaccionRepository.apartar(grupo, recortado, EstadoPago.PENDIENTE, EstadoPago.PAGADO);
+        }
+        return actualizadas;
     }
     
     @Override
@@ -180,4 +200,12 @@ public class ServicioTransaccionProveedorImpl implements IServicioTransaccionPro
     private Double redondear(Double valor) {
         return Math.round(valor * 100.0) / 100.0;
     }
+    
+    private static List<List<Integer>> enGrupos(List<Integer> ids) {
+        List<List<Integer>> grupos = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += TAMANIO_GRUPO) {
+            grupos.add(ids.subList(i, Math.min(i + TAMANIO_GRUPO, ids.size())));
+        }
+        return grupos;
+    }
 }
@@ -3,8 +3,11 @@ package com.example.proyecto_pixelshop.service.impl;
 import com.example.proyecto_pixelshop.model.Usuario;
 import com.example.proyecto_pixelshop.model.enums.Rol;
 import com.example.proyecto_pixelshop.repository.UsuarioRepository;
+import com.example.proyecto_pixelshop.service.evento.EventoCatalogoModificado;
+import com.example.proyecto_pixelshop.service.interfaz.IServicioEmail;
 import com.example.proyecto_pixelshop.service.interfaz.IServicioUsuario;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -18,6 +21,8 @@ public class ServicioUsuarioImpl implements IServicioUsuario {
     
     @Autowired private UsuarioRepository usuarioRepository;
     @Autowired private PasswordEncoder passwordEncoder;
+    @Autowired private ApplicationEventPublisher eventPublisher;
+    @Autowired private IServicioEmail emailService;
     
     // Busca un usuario por su ID en la base de datos
     @Override
@@ -56,6 +61,14 @@ public class ServicioUsuarioImpl implements IServicioUsuario {
         return usuarioRepository.save(usuario);
     }
     
+    // Registra un nuevo usuario y pone en cola su email de bienvenida (si el registro falla, no se envía)
+    @Override
+    public Usuario registrarConBienvenida(Usuario usuario) {
+        Usuario registrado = registrar(usuario);
+        emailService.enviarEmailBienvenida(registrado);
+        return registrado;
+    }
+    
     // Actualiza los datos de un usuario existente (nombre, email, contraseña, rol, etc.)
     @Override
     public Usuario actualizar(Usuario usuario) {
@@ -81,6 +94,7 @@ public class ServicioUsuarioImpl implements IServicioUsuario {
         existente.setCifNif(usuario.getCifNif());
         existente.setEmailPaypal(usuario.getEmailPaypal());
         existente.setActivo(usuario.getActivo());
+        existente.setMinutosResumenVentas(usuario.getMinutosResumenVentas());
         
         return usuarioRepository.save(existente);
     }
@@ -108,6 +122,7 @@ public class ServicioUsuarioImpl implements IServicioUsuario {
                 System.out.println("    Juego desactivado: " + juego.getTitulo());
             }
             System.out.println("    " + cantidadJuegos + " juegos desactivados (no aparecerán en el catálogo)");
+            eventPublisher.publishEvent(EventoCatalogoModificado.todos());
         }
         
         // Modificar el email para liberar el email original
@@ -0,0 +1,257 @@
+package com.example.proyecto_pixelshop.service.impl;
+
+import com.example.proyecto_pixelshop.model.EventoWebhook;
+import com.example.proyecto_pixelshop.model.Juego;
+import com.example.proyecto_pixelshop.model.Usuario;
+import com.example.proyecto_pixelshop.model.enums.EstadoEventoWebhook;
+import com.example.proyecto_pixelshop.repository.EventoWebhookRepository;
+import com.example.proyecto_pixelshop.service.interfaz.IServicioCompra;
+import com.example.proyecto_pixelshop.service.interfaz.IServicioJuego;
+import com.example.proyecto_pixelshop.service.interfaz.IServicioPayPal;
+import com.example.proyecto_pixelshop.service.interfaz.IServicioUsuario;
+import com.example.proyecto_pixelshop.service.interfaz.IServicioWebhookPayPal;
+import com.paypal.orders.Order;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Webhook de PayPal como alternativa a capturar el pago en la redirección del comprador:
+ * si el navegador no vuelve a /paypal/success, la compra se registra igualmente a partir del evento.
+ * La recepción solo verifica la firma y guarda el evento (responde enseguida); el procesamiento se hace
+ * en segundo plano con un número fijo de hilos, reclamando cada evento igual que la bandeja de salida de emails.
+ * Todo es idempotente: los eventos repetidos no se guardan y una orden ya registrada no se vuelve a procesar.
+ */
+@Service
+public class ServicioWebhookPayPalImpl implements IServicioWebhookPayPal {
+    
+    @Autowired private EventoWebhookRepository eventoRepository;
+    @Autowired private IServicioPayPal payPalService;
+    @Autowired private IServicioCompra compraService;
+    @Autowired private IServicioUsuario usuarioService;
+    @Autowired private IServicioJuego juegoService;
+    @Autowired private JsonMapper jsonMapper;
+    
+    // false solo en local, para reenviar con curl los eventos grabados (src/test/resources/paypal-webhooks)
+    @Value("${paypal.webhook.verificar-firma:true}")
+    private boolean verificarFirma;
+    
+    @Value("${paypal.webhook.id:}")
+    private String webhookId;
+    
+    @Value("${paypal.webhook.hilos:4}")
+    private int hilos;
+    
+    @Value("${paypal.webhook.lote:100}")
+    private int tamanioLote;
+    
+    @Value("${paypal.webhook.max-intentos:8}")
+    private int maxIntentos;
+    
+    private static final String ORDEN_APROBADA = "CHECKOUT.ORDER.APPROVED";
+    private static final String CAPTURA_COMPLETADA = "PAYMENT.CAPTURE.COMPLETED";
+    private static final Set<String> TIPOS_GESTIONADOS = Set.of(ORDEN_APROBADA, CAPTURA_COMPLETADA);
+    
+    private static final int MINUTOS_BLOQUEO = 5;
+    private static final int MAX_MINUTOS_ESPERA = 60;
+    
+    private ExecutorService ejecutor;
+    
+    @PostConstruct
+    void iniciar() {
+        // Sin el ID del webhook no se puede verificar ninguna firma: mejor no arrancar que contestar 503 a todos los eventos
+        if (verificarFirma && (webhookId == null || webhookId.isBlank())) {
+            throw new IllegalStateException("paypal.webhook.id no está configurado (PAYPAL_WEBHOOK_ID); "
+                + "en local se puede desactivar la verificación con paypal.webhook.verificar-firma=false");
+        }
+        ejecutor = Executors.newFixedThreadPool(hilos);
+    }
+    
+    @PreDestroy
+    void cerrar() {
+        ejecutor.shutdown();
+    }
+    
+    @Override
+    public boolean recibir(Map<String, String> cabeceras, String cuerpo) throws IOException {
+        JsonNode evento;
+        try {
+            evento = jsonMapper.readTree(cuerpo);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("El cuerpo del webhook no es JSON válido");
+        }
+        String idEvento = evento.path("id").asString(null);
+        String tipo = evento.path("event_type").asString(null);
+        if (idEvento == null || tipo == null) {
+            throw new IllegalArgumentException("Evento de webhook sin id o event_type");
+        }
+        
+        // Un evento ya guardado se ignora sin volver a pedir a PayPal que verifique la firma (los reenvíos son habituales).
+        // No hace falta verificarlo: la respuesta es la misma y lo guardado ya pasó la verificación
+        if (eventoRepository.existsByIdEvento(idEvento)) {
+            return false;
+        }
+        
+        if (verificarFirma && !payPalService.verificarFirmaWebhook(cabeceras, cuerpo)) {
+            throw new IllegalArgumentException("Firma del webhook no válida");
+        }
+        try {
+            eventoRepository.save(new EventoWebhook(idEvento, tipo, extraerIdOrden(tipo, evento.path("resource")), cuerpo));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            // El mismo evento ha llegado a la vez por otra petición
+            return false;
+        }
+    }
+    
+    // Una pasada cada paypal.webhook.intervalo-ms; la siguiente no empieza hasta que termina esta
+    @Override
+    @Scheduled(fixedDelayString = "${paypal.webhook.intervalo-ms:2000}", initialDelayString = "${paypal.webhook.intervalo-ms:2000}")
+    public void procesarPendientes() {
+        LocalDateTime ahora = LocalDateTime.now();
+        int liberados = eventoRepository.liberarBloqueosCaducados(ahora);
+        if (liberados > 0) {
+            System.out.println("Webhook PayPal: " + liberados + " eventos recuperados de un procesamiento interrumpido");
+        }
+        
+        List<Future<?>> tareas = new ArrayList<>();
+        for (Integer id : eventoRepository.findIdsListos(ahora, PageRequest.of(0, tamanioLote))) {
+            // Solo se procesa si este procesador consigue reclamarlo (evita duplicados entre instancias)
+            if (eventoRepository.reclamar(id, ahora.plusMinutes(MINUTOS_BLOQUEO)) == 1) {
+                tareas.add(ejecutor.submit(() -> procesar(id)));
+            }
+        }
+        for (Future<?> tarea : tareas) {
+            try {
+                tarea.get();
+            } catch (Exception e) {
+                System.err.println("Webhook PayPal: error inesperado al procesar un evento: " + e.getMessage());
+            }
+        }
+    }
+    
+    @Override
+    public Map<String, Object> obtenerEstadisticas() {
+        Map<String, Object> estadisticas = new LinkedHashMap<>();
+        for (EstadoEventoWebhook estado : EstadoEventoWebhook.values()) {
+            estadisticas.put(estado.name(), eventoRepository.countByEstado(estado));
+        }
+        return estadisticas;
+    }
+    
+    // ========== MÉTODOS PRIVADOS ==========
+    
+    // Procesa un evento ya reclamado y guarda el resultado (procesado, descartado, reintento o fallido)
+    private void procesar(Integer id) {
+        EventoWebhook evento = eventoRepository.findById(id).orElse(null);
+        if (evento == null) {
+            return;
+        }
+        try {
+            boolean registrada = TIPOS_GESTIONADOS.contains(evento.getTipo()) && evento.getIdOrden() != null
+                && registrarOrden(evento.getIdOrden());
+            evento.setEstado(registrada ? EstadoEventoWebhook.PROCESADO : EstadoEventoWebhook.DESCARTADO);
+            evento.setFechaProcesado(LocalDateTime.now());
+            evento.setUltimoError(null);
+        } catch (Exception e) {
+            int intentos = evento.getIntentos() + 1;
+            evento.setIntentos(intentos);
+            evento.setUltimoError(recortar(e.getMessage()));
+            if (intentos >= maxIntentos) {
+                evento.setEstado(EstadoEventoWebhook.FALLIDO);
+                System.err.println("Evento de webhook " + evento.getIdEvento() + " FALLIDO tras " + intentos + " intentos: " + e.getMessage());
+            } else {
+                long espera = Math.min(1L << (intentos - 1), MAX_MINUTOS_ESPERA);
+                evento.setEstado(EstadoEventoWebhook.PENDIENTE);
+                evento.setSiguienteIntento(LocalDateTime.now().plusMinutes(espera));
+                System.err.println("Error al procesar el evento de webhook " + evento.getIdEvento()
+                    + " (intento " + intentos + ", reintento en " + espera + " min): " + e.getMessage());
+            }
+        }
+        eventoRepository.save(evento);
+    }
+    
+    // Captura la orden si aún está solo aprobada y registra la compra. false si la orden no es de una compra de PixelShop
+    private boolean registrarOrden(String idOrden) throws IOException {
+        if (compraService.buscarPorOrdenPaypal(idOrden).isPresent()) {
+            return true; // Ya la registró la redirección del comprador u otro evento
+        }
+        
+        Order orden = payPalService.obtenerDetallesOrden(idOrden);
+        if ("APPROVED".equals(orden.status())) {
+            try {
+                payPalService.capturarPago(idOrden);
+            } catch (IOException e) {
+                // Puede haberla capturado a la vez la redirección; el estado actual lo aclara
+                System.out.println("Webhook PayPal: no se pudo capturar la orden " + idOrden + ": " + e.getMessage());
+            }
+            orden = payPalService.obtenerDetallesOrden(idOrden);
+        }
+        if ("VOIDED".equals(orden.status())) {
+            return false;
+        }
+        if (!payPalService.esPaymentCompletado(orden)) {
+            throw new IOException("La orden " + idOrden + " todavía está en estado " + orden.status());
+        }
+        // La orden puede estar COMPLETED con la captura PENDING: se reintenta hasta que lo capturado cubra el importe
+        if (!payPalService.estaCobrada(orden)) {
+            throw new IOException("La orden " + idOrden + " todavía no tiene una captura COMPLETED que cubra su importe");
+        }
+        
+        Integer usuarioId = payPalService.extraerUsuarioId(orden);
+        Integer juegoId = payPalService.extraerJuegoId(orden);
+        if (usuarioId == null || juegoId == null) {
+            System.err.println("Webhook PayPal: la orden " + idOrden + " no indica comprador o juego, se deja a la redirección");
+            return false;
+        }
+        Usuario usuario = usuarioService.buscarPorId(usuarioId)
+            .orElseThrow(() -> new RuntimeException("Usuario no encontrado: " + usuarioId));
+        Juego juego = juegoService.buscarPorId(juegoId)
+            .orElseThrow(() -> new RuntimeException("Juego no encontrado: " + juegoId));
+        
+        try {
+            // Se registra lo capturado: el precio del juego puede haber cambiado desde que se creó la orden
+            compraService.finalizarPagoPayPal(usuario, juego, payPalService.extraerMontoPagado(orden), idOrden);
+            System.out.println("Webhook PayPal: compra registrada para la orden " + idOrden);
+        } catch (DataIntegrityViolationException e) {
+            // La redirección la ha registrado a la vez
+            if (compraService.buscarPorOrdenPaypal(idOrden).isEmpty()) {
+                throw e;
+            }
+        }
+        return true;
+    }
+    
+    // ID de la orden: en CHECKOUT.ORDER.* el recurso es la orden; en PAYMENT.CAPTURE.* es la captura, que la referencia
+    private static String extraerIdOrden(String tipo, JsonNode recurso) {
+        if (tipo.startsWith("CHECKOUT.ORDER.")) {
+            return recurso.path("id").asString(null);
+        }
+        return recurso.path("supplementary_data").path("related_ids").path("order_id").asString(null);
+    }
+    
+    private static String recortar(String mensaje) {
+        if (mensaje == null) {
+            return null;
+        }
+        return mensaje.length() > 500 ? mensaje.substring(0, 500) : mensaje;
+    }
+}
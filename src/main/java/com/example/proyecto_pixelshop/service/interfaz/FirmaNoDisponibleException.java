@@ -0,0 +1,14 @@
+package com.example.proyecto_pixelshop.service.interfaz;
+
+/**
+ * No se pueden firmar URLs SAS con la configuración actual de Azure (el cliente no tiene la clave de la cuenta).
+ * Es comprobada para que quien pide la URL decida qué hacer: usar la subida a través del servidor o el modo proxy
+ */
+public class FirmaNoDisponibleException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    public FirmaNoDisponibleException(String mensaje, Throwable causa) {
+        super(mensaje, causa);
+    }
+}
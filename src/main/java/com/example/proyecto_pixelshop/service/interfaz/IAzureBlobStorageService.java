@@ -1,9 +1,14 @@
 package com.example.proyecto_pixelshop.service.interfaz;
 
+import com.example.proyecto_pixelshop.model.dto.PropiedadesBlob;
+import com.example.proyecto_pixelshop.model.dto.SubidaBlob;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 
 // Interfaz para operaciones de Azure Blob Storage
 public interface IAzureBlobStorageService {
@@ -17,7 +22,20 @@ public interface IAzureBlobStorageService {
     String uploadFile(MultipartFile file, String folder) throws IOException;
     
     /**
-     * Sube múltiples archivos a Azure Blob Storage
+     * Sube un lote de archivos en paralelo (con un máximo de subidas simultáneas).
+     * Es todo o nada: si falla alguna subida se eliminan las que ya habían terminado y se lanza la excepción
+     * @param subidas Archivos a subir (con su nombre de blob ya decidido)
+     * @return URLs públicas, en el mismo orden que las subidas
+     */
+    List<String> uploadBatch(List<SubidaBlob> subidas) throws IOException;
+    
+    /**
+     * URL pública de un blob a partir de su nombre (no comprueba que exista)
+     */
+    String getBlobUrl(String blobName);
+    
+    /**
+     * Sube múltiples archivos a Azure Blob Storage (en paralelo; los que fallen se omiten)
      * @param files Array de archivos
      * @param folder Carpeta dentro del contenedor
      * @return Lista de URLs públicas
@@ -31,13 +49,13 @@ public interface IAzureBlobStorageService {
     void deleteFile(String fileUrl) throws IOException;
     
     /**
-     * Elimina múltiples archivos de Azure Blob Storage
+     * Elimina múltiples archivos de Azure Blob Storage (en paralelo)
      * @param fileUrls Lista de URLs de archivos a eliminar
      */
     void deleteMultipleFiles(List<String> fileUrls);
     
     /**
-     * Verifica si una URL es de Azure Blob Storage
+     * Verifica si una URL es de un blob de nuestro contenedor (en Azure o en el emulador local Azurite)
      */
     boolean isAzureBlobUrl(String url);
     
@@ -49,4 +67,92 @@ public interface IAzureBlobStorageService {
      * @return URL del nuevo archivo
      */
     String updateFile(String oldFileUrl, MultipartFile newFile, String folder) throws IOException;
+    
+    /**
+     * Sube contenido ya generado en memoria con un nombre de blob concreto (por ejemplo, las variantes de una imagen)
+     * @param contenido Bytes del archivo
+     * @param blobName Nombre completo del blob dentro del contenedor (carpeta/archivo)
+     * @param contentType Tipo MIME del contenido
+     * @return URL pública del archivo
+     */
+    String uploadBytes(byte[] contenido, String blobName, String contentType) throws IOException;
+    
+    /**
+     * Obtiene el nombre del blob (carpeta/archivo) a partir de su URL
+     * @return null si la URL no pertenece al contenedor
+     */
+    String getBlobName(String fileUrl);
+    
+    // ========== SUBIDA POR BLOQUES (archivos grandes) ==========
+    
+    /**
+     * Tamaño de cada bloque en la subida por bloques (el último puede ser menor)
+     */
+    int getBlockSize();
+    
+    /**
+     * Lee el stream por bloques y los envía a Azure en paralelo sin confirmarlos (stage),
+     * con un máximo de bloques en memoria y reintentos por bloque
+     * @param blobName Nombre del blob destino
+     * @param data Contenido (por ejemplo, el cuerpo de la petición HTTP)
+     * @param firstBlock Índice del primer bloque que contiene el stream (para reanudar)
+     * @param maxBytes Máximo de bytes que se aceptan del stream
+     * @return Bytes leídos y enviados
+     */
+    long stageBlocks(String blobName, InputStream data, int firstBlock, long maxBytes) throws IOException;
+    
+    /**
+     * Bloques ya enviados y pendientes de confirmar de un blob
+     * @return Índice del bloque -> tamaño en bytes
+     */
+    Map<Integer, Long> getStagedBlocks(String blobName);
+    
+    /**
+     * Confirma los bloques 0..blockCount-1 en orden, formando el blob final
+     * @return URL pública del archivo
+     */
+    String commitBlocks(String blobName, int blockCount, String contentType) throws IOException;
+    
+    // ========== SUBIDA DIRECTA (SAS) ==========
+    
+    /**
+     * URL del blob con una firma SAS que solo permite crearlo/escribirlo (no leer, listar ni borrar otros blobs).
+     * Requiere que el cliente de Azure esté autenticado con la clave de la cuenta (si no, FirmaNoDisponibleException)
+     * @param blobName Nombre del blob destino
+     * @param validez Tiempo durante el que la firma es válida
+     * @return URL completa con la firma en la query
+     */
+    String generateUploadUrl(String blobName, Duration validez) throws FirmaNoDisponibleException;
+    
+    /**
+     * URL del blob con una firma SAS de solo lectura que además fuerza la descarga con el nombre indicado
+     * (Azure responde con Content-Disposition: attachment). Mismos requisitos que generateUploadUrl
+     * @param blobName Nombre del blob
+     * @param validez Tiempo durante el que se puede empezar la descarga (una descarga ya empezada no se corta)
+     * @param nombreDescarga Nombre con el que el navegador guarda el archivo
+     */
+    String generateDownloadUrl(String blobName, Duration validez, String nombreDescarga) throws FirmaNoDisponibleException;
+    
+    /**
+     * Tamaño, tipo de contenido, MD5 y ETag de un blob ya confirmado
+     * @return null si el blob no existe (o solo tiene bloques sin confirmar)
+     */
+    PropiedadesBlob getBlobProperties(String blobName);
+    
+    /**
+     * Sustituye las cabeceras HTTP de un blob (tipo de contenido, disposición inline y caché) por las que decide el servidor,
+     * ignorando las que haya puesto el cliente al subirlo directamente
+     * @param etag Si no es null, falla si el blob ha cambiado desde que se comprobó
+     */
+    void setBlobHeaders(String blobName, String contentType, String etag) throws IOException;
+    
+    // ========== LECTURA ==========
+    
+    /**
+     * Abre un stream con un rango del blob; Azure solo envía ese rango, leído por partes a medida que se consume
+     * @param offset Primer byte
+     * @param count Número de bytes
+     * @param etag Si no es null, la lectura falla si el blob ha cambiado (para no mezclar versiones al reanudar)
+     */
+    InputStream openBlobRange(String blobName, long offset, long count, String etag);
 }
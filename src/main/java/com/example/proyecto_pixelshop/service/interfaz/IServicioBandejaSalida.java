@@ -0,0 +1,16 @@
+package com.example.proyecto_pixelshop.service.interfaz;
+
+import java.util.Map;
+
+// Interfaz del despachador de la bandeja de salida de emails (envío por SMTP en segundo plano, con reintentos)
+public interface IServicioBandejaSalida {
+    
+    // Envía los emails pendientes cuyo momento ha llegado (lo llama el planificador periódicamente)
+    void procesarPendientes();
+    
+    // Vuelve a poner en cola los emails FALLIDOS; devuelve cuántos
+    int reintentarFallidos();
+    
+    // Número de emails por estado (para el panel de administración)
+    Map<String, Object> obtenerEstadisticas();
+}
@@ -0,0 +1,20 @@
+package com.example.proyecto_pixelshop.service.interfaz;
+
+import java.util.List;
+import java.util.Map;
+
+// Interfaz del índice de búsqueda de texto completo del catálogo
+public interface IServicioBusqueda {
+    
+    // Busca juegos activos por texto (título, descripción, género y proveedor) y devuelve sus IDs ordenados por relevancia
+    List<Integer> buscar(String texto, int maxResultados);
+    
+    // Indexa (o reindexa) un juego; si no está activo lo elimina del índice
+    void indexarJuego(Integer juegoId);
+    
+    // Reconstruye el índice completo desde la base de datos
+    void reconstruir();
+    
+    // Devuelve estadísticas del índice (documentos, términos, reconstrucciones...)
+    Map<String, Long> obtenerEstadisticas();
+}
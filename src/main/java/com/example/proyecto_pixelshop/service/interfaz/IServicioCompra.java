@@ -44,6 +44,13 @@ public interface IServicioCompra {
     // Completa una compra (cambia estado a COMPLETADA y crea transacciones)
     Compra completar(Integer compraId);
     
+    // Registra en una transacción una compra ya cobrada en PayPal (compra COMPLETADA, transacciones y emails).
+    // Idempotente por idOrdenPaypal: si la orden ya se registró, devuelve esa compra sin repetir nada
+    Compra finalizarPagoPayPal(Usuario usuario, Juego juego, Double precioPagado, String idOrdenPaypal);
+    
+    // Busca la compra registrada para una orden de PayPal
+    Optional<Compra> buscarPorOrdenPaypal(String idOrdenPaypal);
+    
     // Reembolsa una compra (cambia estado a REEMBOLSADA)
     Compra reembolsar(Integer compraId);
     
@@ -0,0 +1,12 @@
+package com.example.proyecto_pixelshop.service.interfaz;
+
+import com.example.proyecto_pixelshop.model.dto.DerechoDescarga;
+
+import java.util.Optional;
+
+// Interfaz para comprobar si un usuario puede descargar un juego (y dónde está el archivo)
+public interface IServicioDerechoDescarga {
+    
+    // Vacío si el usuario no tiene el juego comprado. Como mucho una consulta; los resultados positivos se guardan en la sesión
+    Optional<DerechoDescarga> comprobar(String email, Integer juegoId);
+}
@@ -2,8 +2,13 @@ package com.example.proyecto_pixelshop.service.interfaz;
 
 import com.example.proyecto_pixelshop.model.Compra;
 import com.example.proyecto_pixelshop.model.Usuario;
+import com.example.proyecto_pixelshop.model.VentaPendienteResumen;
 
-// Interfaz para operaciones de Email
+import java.util.List;
+
+// Interfaz para operaciones de Email.
+// Los métodos no envían nada: renderizan el email y lo dejan en la bandeja de salida dentro de la transacción actual,
+// así que solo sale si el cambio que lo provoca se confirma (lo envía IServicioBandejaSalida en segundo plano)
 public interface IServicioEmail {
     
     // Envía email de bienvenida al registrarse
@@ -14,4 +19,7 @@ public interface IServicioEmail {
     
     // Envía email de notificación de venta al proveedor
     void enviarNotificacionVenta(Compra compra);
+    
+    // Envía al proveedor un único email con todas las ventas acumuladas en su ventana de resumen
+    void enviarResumenVentas(Usuario proveedor, List<VentaPendienteResumen> ventas);
 }
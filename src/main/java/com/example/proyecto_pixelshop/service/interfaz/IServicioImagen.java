@@ -0,0 +1,34 @@
+package com.example.proyecto_pixelshop.service.interfaz;
+
+import com.example.proyecto_pixelshop.model.dto.ImagenCargada;
+import com.example.proyecto_pixelshop.model.dto.ImagenPreparada;
+import com.example.proyecto_pixelshop.model.dto.ImagenSubida;
+import com.example.proyecto_pixelshop.model.dto.MetadatosImagen;
+import com.example.proyecto_pixelshop.model.enums.VarianteImagen;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.Map;
+
+// Interfaz para el procesado de imágenes de juegos (variantes redimensionadas para el catálogo y la ficha)
+public interface IServicioImagen {
+    
+    // Extrae formato y dimensiones leyendo solo el principio del archivo (sin copiarlo a memoria ni decodificar píxeles)
+    ImagenCargada cargar(MultipartFile imagen) throws IOException;
+    
+    // Formato y dimensiones a partir de la cabecera (null si no es JPEG, PNG, GIF o WebP)
+    MetadatosImagen leerMetadatos(byte[] datos);
+    
+    // Genera las variantes (MINIATURA, TARJETA, DETALLE) en JPEG a partir de la imagen original.
+    // Devuelve un mapa vacío si el formato no se puede decodificar
+    Map<VarianteImagen, byte[]> generarVariantes(ImagenCargada original) throws IOException;
+    
+    // Genera las variantes y decide los nombres de blob del original y de cada variante, sin subir nada
+    ImagenPreparada preparar(ImagenCargada imagen, String carpeta) throws IOException;
+    
+    // Sube la imagen original y sus variantes como blobs hermanos (en paralelo, todo o nada)
+    ImagenSubida subirConVariantes(ImagenCargada imagen, String carpeta) throws IOException;
+    
+    // Elimina una imagen y sus variantes
+    void eliminarConVariantes(String url);
+}
@@ -2,8 +2,13 @@ package com.example.proyecto_pixelshop.service.interfaz;
 
 import com.example.proyecto_pixelshop.model.Juego;
 import com.example.proyecto_pixelshop.model.Usuario;
+import com.example.proyecto_pixelshop.model.dto.FiltroCatalogo;
+import com.example.proyecto_pixelshop.model.dto.JuegoResumen;
+import com.example.proyecto_pixelshop.model.dto.PaginaCatalogo;
+import com.example.proyecto_pixelshop.model.dto.ResultadoNormalizacionTitulos;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 // Interfaz de servicio para gestionar juegos
@@ -15,6 +20,15 @@ public interface IServicioJuego {
     // Lista todos los juegos activos
     List<Juego> listarActivos();
     
+    // Lista los resúmenes de los juegos activos para el catálogo (sin cargar entidades)
+    List<JuegoResumen> listarCatalogo();
+    
+    // Busca en el catálogo por texto completo (ordenado por relevancia) y devuelve solo los resúmenes
+    List<JuegoResumen> buscarEnCatalogo(String texto);
+    
+    // Devuelve una página del catálogo filtrado (paginación por clave; cursor null = primera página)
+    PaginaCatalogo listarCatalogoPaginado(FiltroCatalogo filtro, String cursor, int tamanio);
+    
     // Lista todos los juegos (activos e inactivos)
     List<Juego> listarTodos();
     
@@ -59,4 +73,10 @@ public interface IServicioJuego {
     
     // Cuenta el total de juegos activos
     long contarActivos();
+    
+    // Devuelve los contadores de la caché del catálogo (aciertos, fallos, reconstrucciones...)
+    Map<String, Long> obtenerEstadisticasCache();
+    
+    // Rellena el título normalizado (índice único de títulos activos) en los juegos que aún no lo tienen
+    ResultadoNormalizacionTitulos completarTitulosNormalizados();
 }
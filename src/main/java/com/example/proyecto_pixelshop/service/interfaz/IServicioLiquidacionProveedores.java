@@ -0,0 +1,17 @@
+package com.example.proyecto_pixelshop.service.interfaz;
+
+import java.util.List;
+
+// Interfaz del pago de ganancias a proveedores por lotes de PayPal Payouts:
+// muchas transacciones de muchos proveedores en pocas peticiones, y conciliación posterior del resultado
+public interface IServicioLiquidacionProveedores {
+    
+    // Envía a PayPal todas las transacciones pendientes de proveedores con email de PayPal; devuelve cuántas
+    int liquidarPendientes();
+    
+    // Envía a PayPal, en un lote, las transacciones indicadas que sigan pendientes (cobro solicitado por el proveedor)
+    int liquidar(List<Integer> transaccionIds);
+    
+    // Consulta en PayPal los lotes en proceso y marca como pagadas (o devuelve a pendientes) sus transacciones
+    int conciliar();
+}
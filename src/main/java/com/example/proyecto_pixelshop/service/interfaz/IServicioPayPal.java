@@ -1,14 +1,19 @@
 package com.example.proyecto_pixelshop.service.interfaz;
 
 import com.example.proyecto_pixelshop.model.Juego;
+import com.example.proyecto_pixelshop.model.dto.ItemPago;
 import com.paypal.orders.Order;
 import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 // Interfaz para operaciones de PayPal
 public interface IServicioPayPal {
     
-    // Crea una orden de pago en PayPal
-    String crearOrden(Juego juego, String returnUrl, String cancelUrl) throws IOException;
+    // Crea una orden de pago en PayPal (con el ID del comprador, para poder registrarla desde el webhook) y devuelve su ID.
+    // Es asíncrona: el futuro falla con una IOException si PayPal no responde a tiempo o no está disponible
+    CompletableFuture<String> crearOrden(Juego juego, Integer usuarioId);
     
     // Captura el pago de una orden aprobada
     Order capturarPago(String orderId) throws IOException;
@@ -19,12 +24,25 @@ public interface IServicioPayPal {
     // Valida si una orden fue completada exitosamente
     boolean esPaymentCompletado(Order order);
     
-    // Extrae el monto pagado de una orden
+    // Extrae el monto pagado de una orden (lo capturado, si la orden incluye las capturas)
     Double extraerMontoPagado(Order order);
     
+    // Indica si las capturas COMPLETED de la orden cubren su importe (una orden COMPLETED puede tener la captura PENDING)
+    boolean estaCobrada(Order order);
+    
     // Extrae el ID del juego de una orden
     Integer extraerJuegoId(Order order);
     
-    // Envía un pago (payout) a un proveedor por PayPal
-    String enviarPagoProveedor(String emailPaypal, Double monto, String descripcion) throws IOException;
+    // Extrae el ID del comprador de una orden (null si la orden no lo lleva)
+    Integer extraerUsuarioId(Order order);
+    
+    // Comprueba con PayPal que un evento de webhook lo ha enviado PayPal para nuestro webhook (cabeceras PAYPAL-*)
+    boolean verificarFirmaWebhook(Map<String, String> cabeceras, String cuerpo) throws IOException;
+    
+    // Envía un lote de payouts (hasta 15.000 pagos en una petición); devuelve el payout_batch_id de PayPal.
+    // PayPal rechaza un sender_batch_id repetido, así que reenviar el mismo lote no paga dos veces
+    String enviarLotePagos(String senderBatchId, List<ItemPago> items) throws IOException;
+    
+    // Estado de cada pago de un lote: sender_item_id -> transaction_status (SUCCESS, PENDING, UNCLAIMED, FAILED...)
+    Map<String, String> consultarLotePagos(String payoutBatchId) throws IOException;
 }
@@ -0,0 +1,14 @@
+package com.example.proyecto_pixelshop.service.interfaz;
+
+import com.example.proyecto_pixelshop.model.Usuario;
+import com.example.proyecto_pixelshop.model.dto.JuegosAdquiridos;
+
+// Interfaz del índice en memoria de juegos adquiridos por cada usuario
+public interface IServicioPropiedadJuegos {
+    
+    // Obtiene los juegos que posee un usuario (se carga de la BD la primera vez)
+    JuegosAdquiridos obtenerAdquiridos(Usuario usuario);
+    
+    // Añade un juego a la biblioteca cacheada de un usuario
+    void registrarAdquisicion(Integer usuarioId, Integer juegoId);
+}
@@ -0,0 +1,15 @@
+package com.example.proyecto_pixelshop.service.interfaz;
+
+import com.example.proyecto_pixelshop.model.Compra;
+
+// Interfaz de las notificaciones de venta a proveedores: en vez de un email por venta se acumulan
+// y se envía un resumen por proveedor cada cierto tiempo (configurable por proveedor)
+public interface IServicioResumenVentas {
+    
+    // Registra una venta completada (en la transacción de la compra): la acumula o, si el proveedor
+    // tiene el modo inmediato, pone en cola su email en el momento
+    void registrarVenta(Compra compra);
+    
+    // Envía el resumen a los proveedores cuya ventana ha terminado (lo llama el planificador periódicamente)
+    void enviarResumenesPendientes();
+}
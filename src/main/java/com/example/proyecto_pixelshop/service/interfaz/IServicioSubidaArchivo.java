@@ -0,0 +1,43 @@
+package com.example.proyecto_pixelshop.service.interfaz;
+
+import com.example.proyecto_pixelshop.model.Juego;
+import com.example.proyecto_pixelshop.model.dto.SubidaArchivo;
+import com.example.proyecto_pixelshop.model.dto.TicketSubida;
+import com.example.proyecto_pixelshop.model.enums.TipoSubida;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+// Interfaz para la subida de archivos grandes de los juegos (ZIP/RAR/7z de hasta 500MB y vídeos de hasta 100MB):
+// por bloques a través del servidor, o directamente a Azure con una URL SAS
+public interface IServicioSubidaArchivo {
+    
+    // Abre una subida por bloques a través del servidor para el archivo del juego (valida extensión y tamaño)
+    SubidaArchivo iniciar(Integer proveedorId, String nombreArchivo, long tamanio);
+    
+    // Recibe el contenido desde el byte "desde" (múltiplo del tamaño de bloque) y lo envía a Azure por bloques
+    long recibir(String subidaId, Integer proveedorId, InputStream contenido, long desde) throws IOException;
+    
+    // Bytes recibidos de forma contigua desde el principio (para reanudar una subida cortada)
+    long bytesRecibidos(String subidaId, Integer proveedorId);
+    
+    // Confirma los bloques y forma el archivo final; devuelve la subida con su URL
+    SubidaArchivo confirmar(String subidaId, Integer proveedorId) throws IOException;
+    
+    // Abre una subida directa a Azure y devuelve la URL SAS de solo escritura
+    TicketSubida emitirTicket(Integer proveedorId, TipoSubida tipo, String nombreArchivo, long tamanio)
+        throws FirmaNoDisponibleException;
+    
+    // Comprueba el blob subido directamente (tamaño y firma del formato en sus primeros bytes), le pone las cabeceras
+    // que decide el servidor y marca la subida como confirmada. Si no coincide, el blob se elimina y la subida se descarta
+    SubidaArchivo completar(String subidaId, Integer proveedorId) throws IOException;
+    
+    // Asocia una subida confirmada a un juego del proveedor (archivo descargable o vídeo) y elimina el anterior
+    Juego adjuntar(String subidaId, Integer proveedorId, Integer juegoId);
+    
+    // Devuelve una subida confirmada del proveedor y la retira (al asociarla a un juego desde un formulario)
+    SubidaArchivo consumir(String subidaId, Integer proveedorId, TipoSubida tipo);
+    
+    // Tamaño de bloque que deben respetar los clientes al reanudar
+    int tamanioBloque();
+}
@@ -0,0 +1,18 @@
+package com.example.proyecto_pixelshop.service.interfaz;
+
+import com.example.proyecto_pixelshop.model.dto.Sugerencia;
+
+import java.util.List;
+
+// Interfaz del autocompletado del buscador (títulos y géneros por prefijo)
+public interface IServicioSugerencias {
+    
+    // Máximo de sugerencias que se pueden pedir en una llamada
+    int MAX_SUGERENCIAS = 10;
+    
+    // Devuelve hasta "limite" sugerencias para el prefijo escrito
+    List<Sugerencia> sugerir(String prefijo, int limite);
+    
+    // Reconstruye el árbol de prefijos desde el catálogo activo
+    void reconstruir();
+}
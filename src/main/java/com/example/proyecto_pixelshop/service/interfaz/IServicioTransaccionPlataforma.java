@@ -1,5 +1,6 @@
 package com.example.proyecto_pixelshop.service.interfaz;
 
+import com.example.proyecto_pixelshop.model.Compra;
 import com.example.proyecto_pixelshop.model.TransaccionPlataforma;
 import com.example.proyecto_pixelshop.model.enums.TipoTransaccion;
 import org.springframework.data.domain.Page;
@@ -29,8 +30,8 @@ public interface IServicioTransaccionPlataforma {
     // Busca transacciones de publicación por ID de juego
     List<TransaccionPlataforma> buscarPagoPublicacionPorJuego(Integer juegoId);
     
-    // Registra una comisión de venta (15% de la compra)
-    TransaccionPlataforma registrarComisionVenta(Integer compraId, Double monto);
+    // Registra una comisión de venta (15% de la compra); recibe la compra ya cargada para no volver a buscarla
+    TransaccionPlataforma registrarComisionVenta(Compra compra, Double monto);
     
     // Registra un pago de publicación (25€ por publicar juego)
     TransaccionPlataforma registrarPagoPublicacion(Integer juegoId, Double monto);
@@ -35,8 +35,14 @@ public interface IServicioTransaccionProveedor {
     // Marca una transacción como pagada
     TransaccionProveedor marcarComoPagada(Integer transaccionId);
     
-    // Marca múltiples transacciones como pagadas
-    List<TransaccionProveedor> marcarComoaPagadas(List<Integer> transaccionIds);
+    // Marca como pagadas en bloque las transacciones que sigan en estadoActual (UPDATE por grupos de IDs); devuelve cuántas
+    int marcarComoPagadas(List<Integer> transaccionIds, EstadoPago estadoActual, String payoutBatchId);
+    
+    // Devuelve a PENDIENTE en bloque las transacciones EN_PROCESO cuyo pago ha fallado; devuelve cuántas
+    int devolverAPendientes(List<Integer> transaccionIds);
+    
+    // Deja en PENDIENTE, fuera de la liquidación nocturna y con el motivo, transacciones cuyo pago PayPal rechaza; devuelve cuántas
+    int apartarDeLiquidacion(List<Integer> transaccionIds, String motivo);
     
     // Guarda o actualiza una transacción
     TransaccionProveedor guardar(TransaccionProveedor transaccion);
@@ -24,6 +24,9 @@ public interface IServicioUsuario {
     // Registra un nuevo usuario (encripta contraseña)
     Usuario registrar(Usuario usuario);
     
+    // Registra un nuevo usuario y deja su email de bienvenida en la bandeja de salida, en la misma transacción
+    Usuario registrarConBienvenida(Usuario usuario);
+    
     // Actualiza los datos de un usuario existente
     Usuario actualizar(Usuario usuario);
     
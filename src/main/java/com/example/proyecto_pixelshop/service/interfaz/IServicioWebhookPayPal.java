@@ -0,0 +1,18 @@
+package com.example.proyecto_pixelshop.service.interfaz;
+
+import java.io.IOException;
+import java.util.Map;
+
+// Interfaz del webhook de PayPal: recepción (verificación de firma y guardado del evento) y procesamiento en segundo plano
+public interface IServicioWebhookPayPal {
+    
+    // Verifica la firma y guarda el evento para procesarlo; devuelve false si ya se había recibido.
+    // IllegalArgumentException si la firma o el evento no son válidos; IOException si no se ha podido verificar
+    boolean recibir(Map<String, String> cabeceras, String cuerpo) throws IOException;
+    
+    // Procesa los eventos pendientes (lo llama el planificador periódicamente)
+    void procesarPendientes();
+    
+    // Número de eventos por estado (para el panel de administración)
+    Map<String, Object> obtenerEstadisticas();
+}
@@ -0,0 +1,156 @@
+// Sube el archivo del juego antes de enviar el formulario (ver SubidaArchivoController).
+// El archivo no viaja en el multipart: el formulario solo envía el ID de la subida ya confirmada.
+// Primero se intenta subir directamente a Azure con una URL SAS (el servidor no toca el contenido);
+// si no está disponible (sin SAS o sin CORS), se sube por bloques a través del servidor, reanudando si se corta.
+(function () {
+    const MAX_REINTENTOS = 5;
+    const BLOQUES_EN_PARALELO = 4;
+
+    function esperar(ms) {
+        return new Promise(function (resolve) { setTimeout(resolve, ms); });
+    }
+
+    function peticion(metodo, url, cuerpo, alProgresar, cabeceras) {
+        return new Promise(function (resolve, reject) {
+            const xhr = new XMLHttpRequest();
+            xhr.open(metodo, url);
+            if (cuerpo) xhr.setRequestHeader('Content-Type', 'application/octet-stream');
+            Object.entries(cabeceras || {}).forEach(function (c) { xhr.setRequestHeader(c[0], c[1]); });
+            if (alProgresar) xhr.upload.onprogress = function (e) { alProgresar(e.loaded); };
+            xhr.onload = function () {
+                let datos = {};
+                try { datos = JSON.parse(xhr.responseText); } catch (e) { /* respuesta vacía o XML de Azure */ }
+                resolve({ status: xhr.status, datos: datos });
+            };
+            xhr.onerror = function () { reject(new Error('Error de red')); };
+            xhr.send(cuerpo || null);
+        });
+    }
+
+    // Mismo formato de ID de bloque que usa el servidor (Base64 de "000000", "000001"...)
+    function idBloque(indice) {
+        return btoa(String(indice).padStart(6, '0'));
+    }
+
+    // Subida directa a Azure con la URL SAS. Devuelve null si no es posible y hay que usar la del servidor
+    async function subirDirecto(base, archivo, mostrar) {
+        const respuesta = await peticion('POST', base + '/ticket?nombre=' + encodeURIComponent(archivo.name) + '&tamanio=' + archivo.size);
+        if (respuesta.status === 503) return null;
+        if (respuesta.status !== 200) throw new Error(respuesta.datos.error || 'No se pudo iniciar la subida');
+        const ticket = respuesta.datos;
+        const tamanioBloque = ticket.tamanioBloque;
+        const numBloques = Math.ceil(archivo.size / tamanioBloque);
+        const enviados = new Array(numBloques).fill(0);
+
+        async function enviarBloque(indice) {
+            const inicio = indice * tamanioBloque;
+            for (let intento = 1; ; intento++) {
+                try {
+                    const r = await peticion('PUT', ticket.urlSubida + '&comp=block&blockid=' + encodeURIComponent(idBloque(indice)),
+                        archivo.slice(inicio, inicio + tamanioBloque),
+                        function (n) { enviados[indice] = n; mostrar(enviados.reduce(function (a, b) { return a + b; }, 0), archivo.size); });
+                    if (r.status === 201) return true;
+                } catch (e) {
+                    // Si ni siquiera el primer bloque llega (CORS o red), se prueba la subida a través del servidor
+                    if (indice === 0 && intento === 1) return false;
+                }
+                if (intento >= MAX_REINTENTOS) throw new Error('No se pudo subir el archivo a Azure');
+                await esperar(1000 * intento);
+            }
+        }
+
+        if (!(await enviarBloque(0))) return null;
+        let siguiente = 1;
+        async function trabajador() {
+            while (siguiente < numBloques) {
+                await enviarBloque(siguiente++);
+            }
+        }
+        const trabajadores = [];
+        for (let i = 0; i < BLOQUES_EN_PARALELO; i++) trabajadores.push(trabajador());
+        await Promise.all(trabajadores);
+
+        // Confirmar la lista de bloques en orden, con el tipo de contenido que exige el servidor
+        let lista = '<?xml version="1.0" encoding="utf-8"?><BlockList>';
+        for (let i = 0; i < numBloques; i++) lista += '<Latest>' + idBloque(i) + '</Latest>';
+        lista += '</BlockList>';
+        const confirmacion = await peticion('PUT', ticket.urlSubida + '&comp=blocklist', lista, null, {
+            'x-ms-blob-content-type': ticket.contentType,
+            'x-ms-blob-content-disposition': 'inline',
+            'x-ms-blob-cache-control': 'public, max-age=31536000, immutable'
+        });
+        if (confirmacion.status !== 201) throw new Error('No se pudo confirmar el archivo en Azure');
+
+        const completada = await peticion('POST', base + '/' + encodeURIComponent(ticket.subidaId) + '/completar');
+        if (completada.status !== 200) throw new Error(completada.datos.error || 'No se pudo verificar el archivo');
+        return ticket.subidaId;
+    }
+
+    // Subida por bloques a través del servidor, reanudable
+    async function subirPorServidor(base, archivo, mostrar) {
+        const inicio = await peticion('POST', base + '?nombre=' + encodeURIComponent(archivo.name) + '&tamanio=' + archivo.size);
+        if (inicio.status !== 200) throw new Error(inicio.datos.error || 'No se pudo iniciar la subida');
+        const id = inicio.datos.subidaId;
+        const url = base + '/' + encodeURIComponent(id);
+
+        let desde = 0;
+        let reintentos = 0;
+        while (desde < archivo.size) {
+            let estado;
+            try {
+                const base0 = desde;
+                estado = await peticion('PUT', url + '?desde=' + desde, archivo.slice(desde),
+                    function (enviados) { mostrar(base0 + enviados, archivo.size); });
+                if (estado.status === 400) throw new Error(estado.datos.error);
+            } catch (e) {
+                if (estado && estado.status === 400) throw e;
+                estado = await peticion('GET', url).catch(function () { return null; });
+            }
+
+            const recibidos = estado && estado.datos ? estado.datos.bytesRecibidos : undefined;
+            if (recibidos === undefined || recibidos <= desde) {
+                if (++reintentos > MAX_REINTENTOS) throw new Error('No se pudo completar la subida del archivo');
+                await esperar(1000 * reintentos);
+                if (recibidos !== undefined) desde = recibidos;
+                continue;
+            }
+            reintentos = 0;
+            desde = recibidos;
+            mostrar(desde, archivo.size);
+        }
+
+        const confirmacion = await peticion('POST', url + '/confirmar');
+        if (confirmacion.status !== 200) throw new Error(confirmacion.datos.error || 'No se pudo confirmar el archivo');
+        return id;
+    }
+
+    document.querySelectorAll('form[data-subida-archivo]').forEach(function (form) {
+        const input = form.querySelector('input[name="archivoJuego"]');
+        const oculto = form.querySelector('input[name="archivoSubidaId"]');
+        const progreso = form.querySelector('[data-progreso-archivo]');
+        if (!input || !oculto) return;
+
+        function mostrar(enviados, total) {
+            if (!progreso) return;
+            progreso.classList.remove('hidden');
+            progreso.textContent = 'Subiendo archivo del juego... ' + Math.min(100, Math.floor(enviados * 100 / total)) + '%';
+        }
+
+        form.addEventListener('submit', async function (e) {
+            if (oculto.value || !input.files.length) return;
+            e.preventDefault();
+            const botones = form.querySelectorAll('button[type="submit"]');
+            botones.forEach(function (b) { b.disabled = true; });
+            try {
+                const base = form.dataset.subidaArchivo;
+                const archivo = input.files[0];
+                oculto.value = (await subirDirecto(base, archivo, mostrar)) || (await subirPorServidor(base, archivo, mostrar));
+                input.disabled = true; // El archivo ya está en Azure: no reenviarlo en el multipart
+                form.submit();
+            } catch (error) {
+                if (progreso) progreso.textContent = error.message;
+                botones.forEach(function (b) { b.disabled = false; });
+            }
+        });
+    });
+})();
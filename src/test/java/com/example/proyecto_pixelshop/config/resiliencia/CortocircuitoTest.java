@@ -0,0 +1,111 @@
+package com.example.proyecto_pixelshop.config.resiliencia;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CortocircuitoTest {
+
+    @Test
+    void noSeAbreAntesDelMinimoDeLlamadas() {
+        Cortocircuito cortocircuito = new Cortocircuito("prueba", 10, 5, 50, Duration.ofMinutes(1));
+
+        for (int i = 0; i < 4; i++) {
+            cortocircuito.registrarFallo();
+        }
+
+        assertEquals(Cortocircuito.Estado.CERRADO, cortocircuito.getEstado());
+        assertTrue(cortocircuito.permitir());
+    }
+
+    @Test
+    void seAbreAlAlcanzarElPorcentajeDeFallosYRechazaLasLlamadas() {
+        Cortocircuito cortocircuito = new Cortocircuito("prueba", 10, 4, 50, Duration.ofMinutes(1));
+
+        cortocircuito.registrarExito();
+        cortocircuito.registrarExito();
+        cortocircuito.registrarFallo();
+        assertEquals(Cortocircuito.Estado.CERRADO, cortocircuito.getEstado());
+        cortocircuito.registrarFallo();
+
+        assertEquals(Cortocircuito.Estado.ABIERTO, cortocircuito.getEstado());
+        assertFalse(cortocircuito.permitir());
+    }
+
+    @Test
+    void losFallosAntiguosSalenDeLaVentana() {
+        Cortocircuito cortocircuito = new Cortocircuito("prueba", 4, 4, 75, Duration.ofMinutes(1));
+
+        cortocircuito.registrarFallo();
+        cortocircuito.registrarFallo();
+        for (int i = 0; i < 4; i++) {
+            cortocircuito.registrarExito();
+        }
+        // La ventana solo guarda éxitos: dos fallos más son el 50 %, por debajo del 75 %
+        cortocircuito.registrarFallo();
+        cortocircuito.registrarFallo();
+
+        assertEquals(Cortocircuito.Estado.CERRADO, cortocircuito.getEstado());
+    }
+
+    @Test
+    void semiabiertoDejaPasarUnaSolaPruebaYSeCierraSiVaBien() {
+        Cortocircuito cortocircuito = abiertoConPruebaInmediata();
+
+        assertEquals(Cortocircuito.Estado.SEMIABIERTO, cortocircuito.getEstado());
+        assertTrue(cortocircuito.permitir());
+        assertFalse(cortocircuito.permitir());
+
+        cortocircuito.registrarExito();
+
+        assertEquals(Cortocircuito.Estado.CERRADO, cortocircuito.getEstado());
+        assertTrue(cortocircuito.permitir());
+    }
+
+    @Test
+    void semiabiertoSeVuelveAAbrirSiLaPruebaFalla() {
+        Cortocircuito cortocircuito = new Cortocircuito("prueba", 2, 2, 50, Duration.ofMillis(300));
+        cortocircuito.registrarFallo();
+        cortocircuito.registrarFallo();
+        esperar(Duration.ofMillis(350));
+
+        assertTrue(cortocircuito.permitir());
+        cortocircuito.registrarFallo();
+
+        assertEquals(Cortocircuito.Estado.ABIERTO, cortocircuito.getEstado());
+        assertFalse(cortocircuito.permitir());
+    }
+
+    @Test
+    void unaPruebaIgnoradaLiberaElHuecoParaOtra() {
+        Cortocircuito cortocircuito = abiertoConPruebaInmediata();
+
+        assertTrue(cortocircuito.permitir());
+        cortocircuito.registrarIgnorada();
+
+        assertEquals(Cortocircuito.Estado.SEMIABIERTO, cortocircuito.getEstado());
+        assertTrue(cortocircuito.permitir());
+    }
+
+    // ========== MÉTODOS PRIVADOS ==========
+
+    // Abierto con tiempoAbierto cero: la siguiente llamada ya es la de prueba
+    private static Cortocircuito abiertoConPruebaInmediata() {
+        Cortocircuito cortocircuito = new Cortocircuito("prueba", 2, 2, 50, Duration.ZERO);
+        cortocircuito.registrarFallo();
+        cortocircuito.registrarFallo();
+        return cortocircuito;
+    }
+
+    private static void esperar(Duration tiempo) {
+        try {
+            Thread.sleep(tiempo.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
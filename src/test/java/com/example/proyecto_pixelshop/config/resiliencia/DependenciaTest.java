@@ -0,0 +1,226 @@
+package com.example.proyecto_pixelshop.config.resiliencia;
+
+import com.azure.storage.blob.models.BlobStorageException;
+import com.paypal.http.Headers;
+import com.paypal.http.exceptions.HttpException;
+import jakarta.mail.SendFailedException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mail.MailParseException;
+import org.springframework.mail.MailPreparationException;
+import org.springframework.mail.MailSendException;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DependenciaTest {
+
+    // ========== esErrorDelCliente ==========
+
+    @Test
+    void los4xxSonErroresDelClienteSalvo408Y429() {
+        assertTrue(Dependencia.esErrorDelCliente(new HttpClientErrorException(HttpStatus.BAD_REQUEST)));
+        assertTrue(Dependencia.esErrorDelCliente(new HttpClientErrorException(HttpStatus.UNPROCESSABLE_CONTENT)));
+        assertFalse(Dependencia.esErrorDelCliente(new HttpClientErrorException(HttpStatus.REQUEST_TIMEOUT)));
+        assertFalse(Dependencia.esErrorDelCliente(new HttpClientErrorException(HttpStatus.TOO_MANY_REQUESTS)));
+        assertFalse(Dependencia.esErrorDelCliente(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE)));
+    }
+
+    @Test
+    void reconoceLosErroresDelSdkDePayPal() {
+        assertTrue(Dependencia.esErrorDelCliente(new HttpException("{\"name\":\"UNPROCESSABLE_ENTITY\"}", 422, new Headers())));
+        assertFalse(Dependencia.esErrorDelCliente(new HttpException("{\"name\":\"INTERNAL_SERVER_ERROR\"}", 500, new Headers())));
+    }
+
+    @Test
+    void reconoceLosErroresDeAzure() {
+        assertTrue(Dependencia.esErrorDelCliente(blobStorageException(404)));
+        assertFalse(Dependencia.esErrorDelCliente(blobStorageException(503)));
+    }
+
+    @Test
+    void buscaElEstadoEnLaCadenaDeCausas() {
+        IOException envuelta = new IOException("paypal: fallo", new HttpClientErrorException(HttpStatus.NOT_FOUND));
+
+        assertTrue(Dependencia.esErrorDelCliente(envuelta));
+        assertFalse(Dependencia.esErrorDelCliente(new IOException("paypal: fallo", new SocketTimeoutException("Read timed out"))));
+        assertFalse(Dependencia.esErrorDelCliente(null));
+    }
+
+    @Test
+    void unEmailMalFormadoEsErrorDelCliente() {
+        assertTrue(Dependencia.esErrorDelCliente(new MailParseException("Dirección no válida")));
+        assertTrue(Dependencia.esErrorDelCliente(new MailPreparationException("Plantilla no válida")));
+    }
+
+    @Test
+    void unEnvioFallidoSoloEsErrorDelClienteSiTodosLosDestinatariosSeRechazan() {
+        Map<Object, Exception> rechazados = new LinkedHashMap<>();
+        rechazados.put("mensaje-1", new SendFailedException("550 Usuario desconocido"));
+        assertTrue(Dependencia.esErrorDelCliente(new MailSendException(rechazados)));
+
+        Map<Object, Exception> mezclados = new LinkedHashMap<>(rechazados);
+        mezclados.put("mensaje-2", new jakarta.mail.MessagingException("Conexión cerrada"));
+        assertFalse(Dependencia.esErrorDelCliente(new MailSendException(mezclados)));
+
+        // Sin detalle (fallo de conexión o autenticación)
+        assertFalse(Dependencia.esErrorDelCliente(new MailSendException("Mail server connection failed")));
+    }
+
+    // ========== Plazo ==========
+
+    @Test
+    void unaLlamadaQueNoRespondeTerminaAlAgotarseElPlazo() {
+        Dependencia dependencia = new Dependencia("prueba", configuracion(1, 200));
+
+        long inicio = System.nanoTime();
+        IOException error = assertThrows(IOException.class, () -> dependencia.ejecutar(plazo -> {
+            Thread.sleep(10_000);
+            return "tarde";
+        }));
+        long ms = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+
+        assertFalse(error instanceof DependenciaNoDisponibleException);
+        assertTrue(ms < 2_000, "La llamada ha durado " + ms + " ms");
+        assertEquals(1, dependencia.obtenerEstado().timeouts());
+    }
+
+    @Test
+    void elPlazoDeQuienLlamaLimitaElIntento() {
+        Dependencia dependencia = new Dependencia("prueba", configuracion(1, 10_000));
+
+        Plazo.Limite limite = Plazo.limitar(Duration.ofMillis(200));
+        long inicio = System.nanoTime();
+        try {
+            assertThrows(IOException.class, () -> dependencia.ejecutar(plazo -> {
+                Thread.sleep(10_000);
+                return "tarde";
+            }));
+        } finally {
+            limite.close();
+        }
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio) < 2_000);
+    }
+
+    @Test
+    void laOperacionVeElPlazoYDevuelveSuResultado() throws IOException {
+        Dependencia dependencia = new Dependencia("prueba", configuracion(1, 1_000));
+
+        Duration restante = dependencia.ejecutar(plazo -> Plazo.restante());
+
+        assertNotNull(restante);
+        assertTrue(restante.toMillis() <= 1_000);
+    }
+
+    @Test
+    void unIntentoAbandonadoOcupaElBulkheadHastaQueTermina() throws Exception {
+        Dependencia dependencia = new Dependencia("prueba", configuracion(1, 200));
+        CountDownLatch terminar = new CountDownLatch(1);
+        CountDownLatch terminado = new CountDownLatch(1);
+
+        // Un cliente que no atiende la interrupción sigue ocupando su hueco aunque quien llama ya no espere
+        assertThrows(IOException.class, () -> dependencia.ejecutar(plazo -> {
+            try {
+                while (!terminar.await(1, TimeUnit.SECONDS)) {
+                    // Sigue esperando
+                }
+            } catch (InterruptedException e) {
+                terminar.await();
+            } finally {
+                terminado.countDown();
+            }
+            return null;
+        }));
+
+        assertThrows(DependenciaNoDisponibleException.class, () -> dependencia.ejecutar(plazo -> "otra"));
+
+        terminar.countDown();
+        assertTrue(terminado.await(2, TimeUnit.SECONDS));
+        esperarHueco(dependencia);
+        assertEquals("otra", dependencia.ejecutar(plazo -> "otra"));
+    }
+
+    @Test
+    void unPlazoCasiAgotadoNoPierdeHuecosDelBulkhead() throws Exception {
+        // Ventana del circuit breaker mayor que el número de llamadas: aquí los timeouts no deben abrirlo
+        Dependencia dependencia = new Dependencia("prueba", new ConfiguracionDependencia(4, 10, 1_000, 0, 10, 100, 1_000, 1_000, 100, 30));
+
+        // Con 1 ms muchos intentos se abandonan antes de empezar: cada uno debe devolver su hueco una sola vez
+        for (int i = 0; i < 500; i++) {
+            Plazo.Limite limite = Plazo.limitar(Duration.ofMillis(1));
+            try {
+                dependencia.ejecutar(plazo -> "rapida");
+            } catch (IOException e) {
+                // Timeout o plazo agotado antes de llamar
+            } finally {
+                limite.close();
+            }
+        }
+        esperarHueco(dependencia);
+
+        assertEquals(0, dependencia.obtenerEstado().enCurso());
+        for (int i = 0; i < 4; i++) {
+            assertEquals("rapida", dependencia.ejecutar(plazo -> "rapida"));
+        }
+    }
+
+    @Test
+    void sinCorteLaOperacionTerminaAunquePaseElPlazoYCuentaComoTimeout() throws IOException {
+        Dependencia dependencia = new Dependencia("prueba", configuracion(1, 50));
+
+        String resultado = dependencia.ejecutarSinCorte(plazo -> {
+            Thread.sleep(200);
+            return "enviado";
+        });
+
+        assertEquals("enviado", resultado);
+        assertEquals(1, dependencia.obtenerEstado().timeouts());
+        assertEquals(0, dependencia.obtenerEstado().enCurso());
+    }
+
+    @Test
+    void losErroresDeLaOperacionSePropaganSinEnvolver() {
+        Dependencia dependencia = new Dependencia("prueba", configuracion(1, 1_000));
+        HttpClientErrorException error = new HttpClientErrorException(HttpStatus.BAD_REQUEST);
+
+        assertEquals(error, assertThrows(HttpClientErrorException.class, () -> dependencia.ejecutar(plazo -> {
+            throw error;
+        })));
+        assertEquals(1, dependencia.obtenerEstado().erroresCliente());
+    }
+
+    // ========== MÉTODOS PRIVADOS ==========
+
+    private static ConfiguracionDependencia configuracion(int maxConcurrentes, long timeoutMs) {
+        return new ConfiguracionDependencia(maxConcurrentes, 10, timeoutMs, 0, 10, 100, 10, 10, 50, 30);
+    }
+
+    private static BlobStorageException blobStorageException(int estado) {
+        BlobStorageException error = mock(BlobStorageException.class);
+        when(error.getStatusCode()).thenReturn(estado);
+        return error;
+    }
+
+    // El hueco se libera en el finally del intento, justo después de avisar de que ha terminado
+    private static void esperarHueco(Dependencia dependencia) throws InterruptedException {
+        for (int i = 0; i < 100 && dependencia.obtenerEstado().enCurso() > 0; i++) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.proyecto_pixelshop.model.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CursorCatalogoTest {
+
+    @Test
+    void codificarYDecodificarConservaFechaEId() {
+        CursorCatalogo cursor = new CursorCatalogo(LocalDateTime.of(2024, 5, 14, 10, 21, 7), 42);
+
+        assertEquals(cursor, CursorCatalogo.decodificar(cursor.codificar()));
+    }
+
+    @Test
+    void juegoSinFechaSeCodificaConLaFechaVacia() {
+        CursorCatalogo cursor = new CursorCatalogo(null, 7);
+
+        String token = cursor.codificar();
+
+        assertEquals("|7", new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8));
+        assertEquals(cursor, CursorCatalogo.decodificar(token));
+    }
+
+    @Test
+    void elTokenEsSeguroParaUrl() {
+        String token = new CursorCatalogo(LocalDateTime.of(2023, 12, 31, 23, 59, 59, 999_000_000), Integer.MAX_VALUE).codificar();
+
+        assertFalse(token.contains("+") || token.contains("/") || token.contains("="));
+    }
+
+    @Test
+    void tokenVacioEmpiezaDesdeElPrincipio() {
+        assertNull(CursorCatalogo.decodificar(null));
+        assertNull(CursorCatalogo.decodificar(""));
+        assertNull(CursorCatalogo.decodificar("   "));
+    }
+
+    @Test
+    void tokenNoValidoDevuelveNull() {
+        assertNull(CursorCatalogo.decodificar("esto no es base64!"));
+        assertNull(CursorCatalogo.decodificar(codificar("sin-separador")));
+        assertNull(CursorCatalogo.decodificar(codificar("2024-13-45T00:00|1")));
+        assertNull(CursorCatalogo.decodificar(codificar("2024-05-14T10:21:07|abc")));
+        assertNull(CursorCatalogo.decodificar(codificar("|")));
+    }
+
+    private static String codificar(String plano) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(plano.getBytes(StandardCharsets.UTF_8));
+    }
+}
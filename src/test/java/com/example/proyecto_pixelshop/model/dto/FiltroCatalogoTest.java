@@ -0,0 +1,54 @@
+package com.example.proyecto_pixelshop.model.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FiltroCatalogoTest {
+
+    private static final JuegoResumen TITAN = juego("TITAN QUEST", "Acción", 19.99);
+
+    @Test
+    void sinFiltrosAdmiteCualquierJuego() {
+        assertTrue(FiltroCatalogo.sinFiltros().vacio());
+        assertTrue(FiltroCatalogo.sinFiltros().admite(TITAN));
+        assertTrue(new FiltroCatalogo(" ", null, null, "").vacio());
+    }
+
+    @Test
+    void elTituloNoDependeDelIdiomaDelServidor() {
+        Locale original = Locale.getDefault();
+        try {
+            // En turco "I".toLowerCase() es "ı": con el idioma por defecto "titan" no coincidiría con "TITAN"
+            Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+            assertTrue(new FiltroCatalogo(null, null, null, "titan").admite(TITAN));
+        } finally {
+            Locale.setDefault(original);
+        }
+    }
+
+    @Test
+    void tituloYGeneroIgnoranMayusculasYAcentosComoLaBd() {
+        JuegoResumen pokemon = juego("Pokémon Rojo", "Aventura", 29.99);
+
+        assertTrue(new FiltroCatalogo(null, null, null, "pokemon").admite(pokemon));
+        assertTrue(new FiltroCatalogo(null, null, null, "POKÉ").admite(pokemon));
+        assertTrue(new FiltroCatalogo("accion", null, null, null).admite(TITAN));
+        assertFalse(new FiltroCatalogo("Aventura", null, null, null).admite(TITAN));
+    }
+
+    @Test
+    void filtraPorRangoDePrecio() {
+        assertTrue(new FiltroCatalogo(null, 19.99, 19.99, null).admite(TITAN));
+        assertFalse(new FiltroCatalogo(null, 20.0, null, null).admite(TITAN));
+        assertFalse(new FiltroCatalogo(null, null, 10.0, null).admite(TITAN));
+    }
+
+    private static JuegoResumen juego(String titulo, String genero, double precio) {
+        return new JuegoResumen(1, titulo, precio, genero, null, null, LocalDateTime.of(2024, 1, 1, 0, 0), false);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.proyecto_pixelshop.model.dto;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ItemPagoTest {
+
+    @Test
+    void unPagoValidoSePuedeEnviar() {
+        assertNull(new ItemPago(1, "proveedor@example.com", 12.5).motivoRechazo());
+        assertNull(new ItemPago(1, "proveedor@example.com", 0.01).motivoRechazo());
+    }
+
+    @Test
+    void rechazaReceptoresQueNoSonUnEmail() {
+        assertNotNull(new ItemPago(1, null, 10.0).motivoRechazo());
+        assertNotNull(new ItemPago(1, "proveedor", 10.0).motivoRechazo());
+        assertNotNull(new ItemPago(1, "proveedor@example", 10.0).motivoRechazo());
+        assertNotNull(new ItemPago(1, "pro veedor@example.com", 10.0).motivoRechazo());
+        assertNotNull(new ItemPago(1, "a".repeat(120) + "@example.com", 10.0).motivoRechazo());
+    }
+
+    @Test
+    void rechazaImportesPorDebajoDeUnCentimo() {
+        assertNotNull(new ItemPago(1, "proveedor@example.com", null).motivoRechazo());
+        assertNotNull(new ItemPago(1, "proveedor@example.com", 0.0).motivoRechazo());
+        assertNotNull(new ItemPago(1, "proveedor@example.com", 0.004).motivoRechazo());
+        assertNotNull(new ItemPago(1, "proveedor@example.com", -5.0).motivoRechazo());
+    }
+
+    @Test
+    void elSenderItemIdIdentificaLaTransaccion() {
+        ItemPago item = new ItemPago(42, "proveedor@example.com", 10.0);
+
+        assertEquals("TP-42", item.senderItemId());
+        assertEquals(42, ItemPago.transaccionIdDe(item.senderItemId()));
+    }
+
+    @Test
+    void unSenderItemIdAjenoNoSeAsocia() {
+        assertNull(ItemPago.transaccionIdDe(null));
+        assertNull(ItemPago.transaccionIdDe("42"));
+        assertNull(ItemPago.transaccionIdDe("TP-"));
+        assertNull(ItemPago.transaccionIdDe("TP-abc"));
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.proyecto_pixelshop.service.impl;
+
+import com.example.proyecto_pixelshop.model.dto.MetadatosImagen;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class LectorCabeceraImagenTest {
+
+    @Test
+    void leePng() {
+        byte[] png = bytes(0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 0, 0, 0, 0x0D, 'I', 'H', 'D', 'R',
+                           0, 0, 0x07, 0x80, 0, 0, 0x04, 0x38);
+
+        assertEquals(new MetadatosImagen("png", 1920, 1080), LectorCabeceraImagen.leer(png));
+    }
+
+    @Test
+    void leeGif() {
+        byte[] gif = concatenar(ascii("GIF89a"), bytes(0x40, 0x01, 0xF0, 0x00), new byte[4]);
+
+        assertEquals(new MetadatosImagen("gif", 320, 240), LectorCabeceraImagen.leer(gif));
+    }
+
+    @Test
+    void leeJpegSaltandoSegmentosHastaElSof() {
+        byte[] jpeg = concatenar(
+            bytes(0xFF, 0xD8),
+            bytes(0xFF, 0xE0, 0x00, 0x10), new byte[14],              // APP0 (JFIF)
+            bytes(0xFF, 0xFF),                                         // Relleno entre marcadores
+            bytes(0xFF, 0xC2, 0x00, 0x11, 0x08, 0x02, 0xD0, 0x05, 0x00)  // SOF2: alto 720, ancho 1280
+        );
+
+        assertEquals(new MetadatosImagen("jpeg", 1280, 720), LectorCabeceraImagen.leer(jpeg));
+    }
+
+    @Test
+    void jpegSinSofAntesDeLosDatosNoEsValido() {
+        byte[] jpeg = concatenar(bytes(0xFF, 0xD8), bytes(0xFF, 0xE0, 0x00, 0x10), new byte[14], bytes(0xFF, 0xDA, 0x00, 0x0C));
+
+        assertNull(LectorCabeceraImagen.leer(jpeg));
+    }
+
+    @Test
+    void leeWebpExtendido() {
+        byte[] webp = concatenar(cabeceraWebp("VP8X"), new byte[4], bytes(0x7F, 0x07, 0x00, 0x37, 0x04, 0x00));
+
+        assertEquals(new MetadatosImagen("webp", 1920, 1080), LectorCabeceraImagen.leer(webp));
+    }
+
+    @Test
+    void leeWebpSinPerdida() {
+        // Ancho-1 = 99 y alto-1 = 49, empaquetados en 14 bits cada uno
+        int bits = 99 | (49 << 14);
+        byte[] webp = concatenar(cabeceraWebp("VP8L"), bytes(0x2F, bits & 0xFF, (bits >>> 8) & 0xFF, (bits >>> 16) & 0xFF, bits >>> 24),
+                                 new byte[5]);
+
+        assertEquals(new MetadatosImagen("webp", 100, 50), LectorCabeceraImagen.leer(webp));
+    }
+
+    @Test
+    void leeWebpConPerdida() {
+        byte[] webp = concatenar(cabeceraWebp("VP8 "), new byte[3], bytes(0x9D, 0x01, 0x2A), bytes(0x00, 0x03, 0x58, 0x02));
+
+        assertEquals(new MetadatosImagen("webp", 768, 600), LectorCabeceraImagen.leer(webp));
+    }
+
+    @Test
+    void formatoNoAdmitidoDevuelveNull() {
+        assertNull(LectorCabeceraImagen.leer(null));
+        assertNull(LectorCabeceraImagen.leer(ascii("%PDF-1.7 cabecera")));
+        assertNull(LectorCabeceraImagen.leer(concatenar(ascii("RIFF"), new byte[4], ascii("WAVEfmt "))));
+    }
+
+    @Test
+    void cabeceraTruncadaDevuelveNull() {
+        byte[] png = bytes(0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 0, 0, 0, 0x0D, 'I', 'H', 'D', 'R',
+                           0, 0, 0x07, 0x80, 0, 0, 0x04, 0x38);
+
+        assertNull(LectorCabeceraImagen.leer(Arrays.copyOf(png, 11)));
+        assertNull(LectorCabeceraImagen.leer(Arrays.copyOf(png, 20)));
+    }
+
+    @Test
+    void dimensionesCeroNoSonValidas() {
+        byte[] gif = concatenar(ascii("GIF87a"), bytes(0, 0, 0xF0, 0x00), new byte[4]);
+
+        assertNull(LectorCabeceraImagen.leer(gif));
+    }
+
+    // ========== MÉTODOS PRIVADOS ==========
+
+    // RIFF + tamaño + WEBP + tipo del primer chunk + tamaño del chunk
+    private static byte[] cabeceraWebp(String chunk) {
+        return concatenar(ascii("RIFF"), new byte[4], ascii("WEBP"), ascii(chunk), new byte[4]);
+    }
+
+    private static byte[] bytes(int... valores) {
+        byte[] resultado = new byte[valores.length];
+        for (int i = 0; i < valores.length; i++) {
+            resultado[i] = (byte) valores[i];
+        }
+        return resultado;
+    }
+
+    private static byte[] ascii(String texto) {
+        return texto.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] concatenar(byte[]... partes) {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        for (byte[] parte : partes) {
+            salida.writeBytes(parte);
+        }
+        return salida.toByteArray();
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.proyecto_pixelshop.service.impl;
+
+import com.example.proyecto_pixelshop.model.Juego;
+import com.example.proyecto_pixelshop.model.Usuario;
+import com.example.proyecto_pixelshop.repository.JuegoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ServicioBusquedaImplTest {
+
+    @Mock private JuegoRepository juegoRepository;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private ServicioBusquedaImpl servicio;
+
+    private final List<Juego> catalogo = new ArrayList<>();
+
+    @BeforeEach
+    void configurar() {
+        servicio.iniciar();
+        catalogo.add(juego(1, "The Legend of Zelda", "Aventura", "Un clásico de acción en un mundo abierto"));
+        catalogo.add(juego(2, "Hollow Knight", "Metroidvania", "Explora un reino subterráneo lleno de aventuras"));
+        catalogo.add(juego(3, "Celeste", "Plataformas", "Escala una montaña difícil"));
+        // Lenient: el test de tokenizar no llega a construir el índice
+        lenient().when(juegoRepository.findActivosConProveedor()).thenReturn(catalogo);
+    }
+
+    @Test
+    void tokenizarQuitaAcentosMayusculasYPalabrasVacias() {
+        assertEquals(List.of("accion", "rpg", "mundo", "abierto"), ServicioBusquedaImpl.tokenizar("¡Acción RPG en el mundo ABIERTO!"));
+        assertTrue(ServicioBusquedaImpl.tokenizar("  ").isEmpty());
+        assertTrue(ServicioBusquedaImpl.tokenizar(null).isEmpty());
+    }
+
+    @Test
+    void elTituloPesaMasQueLaDescripcion() {
+        catalogo.add(juego(4, "Aventura espacial", "Acción", "Dispara a todo lo que se mueva"));
+
+        // "aventura" está en el título del 4, en el género del 1 y solo por prefijo ("aventuras") en la descripción del 2
+        assertEquals(List.of(4, 1, 2), servicio.buscar("aventura", 10));
+    }
+
+    @Test
+    void todosLosTerminosDebenCoincidir() {
+        assertEquals(List.of(1), servicio.buscar("zelda aventura", 10));
+        assertEquals(List.of(), servicio.buscar("zelda montaña", 10));
+    }
+
+    @Test
+    void coincidePorPrefijoYSinAcentos() {
+        assertEquals(List.of(2), servicio.buscar("subterra", 10));
+        assertEquals(List.of(3), servicio.buscar("MONTANA", 10));
+    }
+
+    @Test
+    void toleraErratasSoloSiNoHayCoincidenciaExacta() {
+        assertEquals(List.of(3), servicio.buscar("celesre", 10));   // Una errata en un término corto
+        assertEquals(List.of(2), servicio.buscar("metrodivania", 10)); // Dos en uno de 8 o más caracteres
+        assertEquals(List.of(), servicio.buscar("cel3stx", 10));    // Dos erratas en un término corto
+    }
+
+    @Test
+    void respetaElMaximoDeResultados() {
+        // Los tres proveedores se llaman "Estudio N"
+        assertEquals(3, servicio.buscar("estudio", 10).size());
+        assertEquals(1, servicio.buscar("estudio", 1).size());
+    }
+
+    @Test
+    void reindexarUnJuegoDesactivadoLoQuitaDelIndice() {
+        assertEquals(List.of(3), servicio.buscar("celeste", 10));
+        when(juegoRepository.findActivoConProveedor(3)).thenReturn(Optional.empty());
+
+        servicio.indexarJuego(3);
+
+        assertEquals(List.of(), servicio.buscar("celeste", 10));
+        assertEquals(List.of(), servicio.buscar("celes", 10)); // Tampoco queda como prefijo
+    }
+
+    @Test
+    void unCambioDuranteLaReconstruccionSeReaplicaAlTerminar() {
+        Juego renombrado = juego(2, "Hollow Knight Silksong", "Metroidvania", "La secuela");
+        // El evento llega mientras se cargan los juegos, que todavía ven la versión anterior
+        when(juegoRepository.findActivosConProveedor()).thenAnswer(invocacion -> {
+            servicio.indexarJuego(2);
+            return catalogo;
+        });
+        when(juegoRepository.findActivoConProveedor(2)).thenReturn(Optional.of(renombrado));
+
+        servicio.reconstruir();
+
+        assertEquals(List.of(2), servicio.buscar("silksong", 10));
+        assertEquals(List.of(), servicio.buscar("subterraneo", 10));
+        assertEquals(1L, servicio.obtenerEstadisticas().get("actualizaciones"));
+    }
+
+    // ========== MÉTODOS PRIVADOS ==========
+
+    private static Juego juego(int id, String titulo, String genero, String descripcion) {
+        Usuario proveedor = new Usuario();
+        proveedor.setNombre("Estudio " + id);
+        Juego juego = new Juego();
+        juego.setId(id);
+        juego.setTitulo(titulo);
+        juego.setGenero(genero);
+        juego.setDescripcion(descripcion);
+        juego.setProveedor(proveedor);
+        return juego;
+    }
+}
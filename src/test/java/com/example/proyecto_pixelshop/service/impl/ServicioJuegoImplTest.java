@@ -0,0 +1,116 @@
+package com.example.proyecto_pixelshop.service.impl;
+
+import com.example.proyecto_pixelshop.model.dto.FiltroCatalogo;
+import com.example.proyecto_pixelshop.model.dto.JuegoResumen;
+import com.example.proyecto_pixelshop.model.dto.PaginaCatalogo;
+import com.example.proyecto_pixelshop.repository.JuegoRepository;
+import com.example.proyecto_pixelshop.service.interfaz.IServicioBusqueda;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ServicioJuegoImplTest {
+
+    @Mock private JuegoRepository juegoRepository;
+    @Mock private IServicioBusqueda busquedaService;
+
+    @InjectMocks
+    private ServicioJuegoImpl servicio;
+
+    private final List<JuegoResumen> activos = new ArrayList<>();
+
+    @BeforeEach
+    void configurar() {
+        ReflectionTestUtils.setField(servicio, "maxJuegosCache", 100);
+        for (int id = 1; id <= 5; id++) {
+            activos.add(new JuegoResumen(id, "Juego " + id, 9.99, id % 2 == 0 ? "RPG" : "Acción", null, null,
+                                         LocalDateTime.of(2024, 1, id, 0, 0), false));
+        }
+    }
+
+    @Test
+    void laPortadaSinCacheReconstruyeLaInstantaneaYLasPaginasSiguientesNoVanALaBd() {
+        when(juegoRepository.findResumenesActivos()).thenReturn(activos);
+
+        PaginaCatalogo primera = servicio.listarCatalogoPaginado(FiltroCatalogo.sinFiltros(), null, 2);
+        PaginaCatalogo segunda = servicio.listarCatalogoPaginado(FiltroCatalogo.sinFiltros(), primera.siguienteCursor(), 2);
+        PaginaCatalogo tercera = servicio.listarCatalogoPaginado(FiltroCatalogo.sinFiltros(), segunda.siguienteCursor(), 2);
+
+        assertEquals(List.of(5, 4), ids(primera));
+        assertEquals(List.of(3, 2), ids(segunda));
+        assertEquals(List.of(1), ids(tercera));
+        assertNull(tercera.siguienteCursor());
+        verify(juegoRepository, times(1)).findResumenesActivos();
+        verify(juegoRepository, never()).buscarPaginaCatalogo(any(), any(), anyInt());
+    }
+
+    @Test
+    void conFiltrosYSinCacheSeUsaLaConsultaKeyset() {
+        FiltroCatalogo rpg = new FiltroCatalogo("RPG", null, null, null);
+        when(juegoRepository.buscarPaginaCatalogo(rpg, null, 11)).thenReturn(List.of(activos.get(3), activos.get(1)));
+
+        PaginaCatalogo pagina = servicio.listarCatalogoPaginado(rpg, null, 10);
+
+        assertEquals(List.of(4, 2), ids(pagina));
+        verify(juegoRepository, never()).findResumenesActivos();
+    }
+
+    @Test
+    void unCatalogoMayorQueLaCacheNoSeGuardaEnMemoria() {
+        ReflectionTestUtils.setField(servicio, "maxJuegosCache", 3);
+        when(juegoRepository.findResumenesActivos()).thenReturn(activos);
+        when(juegoRepository.buscarPaginaCatalogo(any(), any(), anyInt())).thenReturn(List.of(activos.get(2)));
+
+        PaginaCatalogo primera = servicio.listarCatalogoPaginado(FiltroCatalogo.sinFiltros(), null, 2);
+        servicio.listarCatalogoPaginado(FiltroCatalogo.sinFiltros(), primera.siguienteCursor(), 2);
+
+        assertEquals(List.of(5, 4), ids(primera));
+        verify(juegoRepository).buscarPaginaCatalogo(any(), any(), anyInt());
+    }
+
+    @Test
+    void laBusquedaSinCacheSoloLeeLosJuegosEncontrados() {
+        when(busquedaService.buscar("juego", 200)).thenReturn(List.of(3, 1));
+        when(juegoRepository.findResumenesActivosPorIds(List.of(3, 1))).thenReturn(List.of(activos.get(0), activos.get(2)));
+
+        List<JuegoResumen> resultado = servicio.buscarEnCatalogo("juego");
+
+        // En el orden de relevancia del índice, no en el de la consulta
+        assertEquals(List.of(3, 1), resultado.stream().map(JuegoResumen::getId).toList());
+        verify(juegoRepository, never()).findResumenesActivos();
+    }
+
+    @Test
+    void laBusquedaConCacheNoVaALaBd() {
+        when(juegoRepository.findResumenesActivos()).thenReturn(activos);
+        servicio.listarCatalogo();
+        when(busquedaService.buscar("juego", 200)).thenReturn(List.of(2, 5));
+
+        List<JuegoResumen> resultado = servicio.buscarEnCatalogo("juego");
+
+        assertEquals(List.of(2, 5), resultado.stream().map(JuegoResumen::getId).toList());
+        verify(juegoRepository, never()).findResumenesActivosPorIds(any());
+    }
+
+    private static List<Integer> ids(PaginaCatalogo pagina) {
+        return pagina.juegos().stream().map(JuegoResumen::getId).toList();
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.proyecto_pixelshop.service.impl;
+
+import com.example.proyecto_pixelshop.model.Juego;
+import com.example.proyecto_pixelshop.model.dto.PlantillaOrdenPayPal;
+import com.paypal.orders.AmountWithBreakdown;
+import com.paypal.orders.Capture;
+import com.paypal.orders.Money;
+import com.paypal.orders.Order;
+import com.paypal.orders.PaymentCollection;
+import com.paypal.orders.PurchaseUnit;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ServicioPayPalImplTest {
+
+    private final ServicioPayPalImpl servicio = new ServicioPayPalImpl();
+
+    @Test
+    void unaCapturaCompletadaPorElImporteEstaCobrada() {
+        Order orden = orden("19.99", captura("COMPLETED", "19.99"));
+
+        assertTrue(servicio.estaCobrada(orden));
+        assertEquals(19.99, servicio.extraerMontoPagado(orden));
+    }
+
+    @Test
+    void unaCapturaPendienteNoEstaCobrada() {
+        Order orden = orden("19.99", captura("PENDING", "19.99"));
+
+        assertFalse(servicio.estaCobrada(orden));
+        assertEquals(0.0, servicio.extraerMontoPagado(orden));
+    }
+
+    @Test
+    void lasCapturasParcialesSoloCuentanSiCubrenElImporte() {
+        assertFalse(servicio.estaCobrada(orden("19.99", captura("COMPLETED", "10.00"), captura("PENDING", "9.99"))));
+        assertTrue(servicio.estaCobrada(orden("19.99", captura("COMPLETED", "10.00"), captura("COMPLETED", "9.99"))));
+    }
+
+    @Test
+    void sinCapturasNoSePuedeSaberSiEstaCobrada() {
+        Order orden = new Order().status("COMPLETED")
+            .purchaseUnits(List.of(new PurchaseUnit().amountWithBreakdown(new AmountWithBreakdown().currencyCode("EUR").value("19.99"))));
+
+        assertFalse(servicio.estaCobrada(orden));
+        assertFalse(servicio.estaCobrada(null));
+    }
+
+    @Test
+    void laMarcaDelCompradorEnElTituloNoSustituyeAlComprador() {
+        ReflectionTestUtils.setField(servicio, "jsonMapper", JsonMapper.builder().build());
+        Juego juego = new Juego();
+        juego.setId(3);
+        juego.setTitulo("Juego @@comprador@@");
+        juego.setDescripcion("Descripción con @@comprador@@");
+        juego.setPrecio(19.99);
+
+        PlantillaOrdenPayPal plantilla = ReflectionTestUtils.invokeMethod(servicio, "generarPlantillaOrden", juego);
+        JsonNode unidad = JsonMapper.builder().build().readTree(plantilla.cuerpo(7)).path("purchase_units").get(0);
+
+        assertEquals("7", unidad.path("custom_id").asString());
+        assertEquals("Juego @@comprador@@", unidad.path("items").get(0).path("name").asString());
+        assertEquals("Descripción con @@comprador@@", unidad.path("items").get(0).path("description").asString());
+    }
+
+    // ========== MÉTODOS PRIVADOS ==========
+
+    private static Order orden(String importe, Capture... capturas) {
+        PurchaseUnit unidad = new PurchaseUnit()
+            .amountWithBreakdown(new AmountWithBreakdown().currencyCode("EUR").value(importe))
+            .payments(new PaymentCollection().captures(Arrays.asList(capturas)));
+        return new Order().status("COMPLETED").purchaseUnits(List.of(unidad));
+    }
+
+    private static Capture captura(String estado, String importe) {
+        return new Capture().status(estado).amount(new Money().currencyCode("EUR").value(importe));
+    }
+}
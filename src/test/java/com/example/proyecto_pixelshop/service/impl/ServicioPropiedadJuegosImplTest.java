@@ -0,0 +1,98 @@
+package com.example.proyecto_pixelshop.service.impl;
+
+import com.example.proyecto_pixelshop.model.Usuario;
+import com.example.proyecto_pixelshop.model.dto.JuegosAdquiridos;
+import com.example.proyecto_pixelshop.repository.CompraRepository;
+import com.example.proyecto_pixelshop.repository.JuegoRepository;
+import com.example.proyecto_pixelshop.service.evento.EventoCatalogoModificado;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ServicioPropiedadJuegosImplTest {
+
+    @Mock private CompraRepository compraRepository;
+    @Mock private JuegoRepository juegoRepository;
+
+    @InjectMocks
+    private ServicioPropiedadJuegosImpl servicio;
+
+    private final Usuario usuario = new Usuario();
+
+    @BeforeEach
+    void configurar() {
+        ReflectionTestUtils.setField(servicio, "maxUsuarios", 100);
+        usuario.setId(1);
+    }
+
+    @Test
+    void unJuegoRepublicadoConUnTituloYaCompradoPasaASerDelComprador() {
+        cachearBiblioteca(List.of(5), List.of("Celeste"));
+        when(compraRepository.findUsuariosConTituloAdquirido(9)).thenReturn(List.of(1));
+
+        servicio.onCatalogoModificado(new EventoCatalogoModificado(9));
+
+        JuegosAdquiridos adquiridos = servicio.obtenerAdquiridos(usuario);
+        assertTrue(adquiridos.contiene(5));
+        assertTrue(adquiridos.contiene(9));
+        verify(compraRepository, times(1)).findIdsJuegosAdquiridos(1); // Se parchea sin volver a cargar
+    }
+
+    @Test
+    void unJuegoSinCompradoresDelMismoTituloNoCambiaLaBiblioteca() {
+        cachearBiblioteca(List.of(5), List.of("Celeste"));
+        when(compraRepository.findUsuariosConTituloAdquirido(9)).thenReturn(List.of());
+
+        servicio.onCatalogoModificado(new EventoCatalogoModificado(9));
+
+        assertFalse(servicio.obtenerAdquiridos(usuario).contiene(9));
+    }
+
+    @Test
+    void unCambioMasivoDescartaLasBibliotecasCacheadas() {
+        cachearBiblioteca(List.of(5), List.of("Celeste"));
+
+        servicio.onCatalogoModificado(EventoCatalogoModificado.todos());
+        servicio.obtenerAdquiridos(usuario);
+
+        verify(compraRepository, times(2)).findIdsJuegosAdquiridos(1);
+    }
+
+    @Test
+    void unCambioMasivoDuranteLaCargaNoDejaElResultadoEnCache() {
+        when(compraRepository.findIdsJuegosAdquiridos(1)).thenAnswer(invocacion -> {
+            servicio.onCatalogoModificado(EventoCatalogoModificado.todos());
+            return List.of(5);
+        });
+        when(compraRepository.findTitulosJuegosAdquiridos(1)).thenReturn(List.of("Celeste"));
+        when(juegoRepository.findIdsActivosPorTitulosNormalizados(any())).thenReturn(List.of(5));
+
+        assertTrue(servicio.obtenerAdquiridos(usuario).contiene(5));
+        servicio.obtenerAdquiridos(usuario);
+
+        verify(compraRepository, times(2)).findIdsJuegosAdquiridos(1);
+    }
+
+    // ========== MÉTODOS PRIVADOS ==========
+
+    private void cachearBiblioteca(List<Integer> ids, List<String> titulos) {
+        when(compraRepository.findIdsJuegosAdquiridos(1)).thenReturn(ids);
+        when(compraRepository.findTitulosJuegosAdquiridos(1)).thenReturn(titulos);
+        when(juegoRepository.findIdsActivosPorTitulosNormalizados(any())).thenReturn(ids);
+        servicio.obtenerAdquiridos(usuario);
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.proyecto_pixelshop.service.impl;
+
+import com.example.proyecto_pixelshop.model.Compra;
+import com.example.proyecto_pixelshop.model.EventoWebhook;
+import com.example.proyecto_pixelshop.model.Juego;
+import com.example.proyecto_pixelshop.model.Usuario;
+import com.example.proyecto_pixelshop.model.enums.EstadoEventoWebhook;
+import com.example.proyecto_pixelshop.repository.EventoWebhookRepository;
+import com.example.proyecto_pixelshop.service.interfaz.IServicioCompra;
+import com.example.proyecto_pixelshop.service.interfaz.IServicioJuego;
+import com.example.proyecto_pixelshop.service.interfaz.IServicioPayPal;
+import com.example.proyecto_pixelshop.service.interfaz.IServicioUsuario;
+import com.paypal.orders.Order;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Reproduce los eventos grabados en src/test/resources/paypal-webhooks: recepción y procesamiento hasta registrar la compra.
+ */
+@ExtendWith(MockitoExtension.class)
+class ServicioWebhookPayPalImplTest {
+
+    private static final String ID_ORDEN = "5O190127TN364715T";
+    private static final Map<String, String> CABECERAS = Map.of("paypal-transmission-id", "prueba");
+
+    @Mock private EventoWebhookRepository eventoRepository;
+    @Mock private IServicioPayPal payPalService;
+    @Mock private IServicioCompra compraService;
+    @Mock private IServicioUsuario usuarioService;
+    @Mock private IServicioJuego juegoService;
+
+    @InjectMocks
+    private ServicioWebhookPayPalImpl servicio;
+
+    private final Usuario usuario = new Usuario();
+    private final Juego juego = new Juego();
+
+    @BeforeEach
+    void configurar() {
+        ReflectionTestUtils.setField(servicio, "jsonMapper", JsonMapper.builder().build());
+        ReflectionTestUtils.setField(servicio, "verificarFirma", true);
+        ReflectionTestUtils.setField(servicio, "webhookId", "WH-PRUEBA");
+        ReflectionTestUtils.setField(servicio, "hilos", 1);
+        ReflectionTestUtils.setField(servicio, "tamanioLote", 10);
+        ReflectionTestUtils.setField(servicio, "maxIntentos", 8);
+        servicio.iniciar();
+    }
+
+    @AfterEach
+    void cerrar() {
+        servicio.cerrar();
+    }
+
+    @Test
+    void ordenAprobadaSeCapturaYRegistraLaCompra() throws IOException {
+        EventoWebhook evento = recibir("checkout-order-approved.json");
+        assertEquals("WH-7Y7254563A4550640-11V2185806837105M", evento.getIdEvento());
+        assertEquals("CHECKOUT.ORDER.APPROVED", evento.getTipo());
+        assertEquals(ID_ORDEN, evento.getIdOrden());
+
+        Order completada = new Order().status("COMPLETED");
+        when(payPalService.obtenerDetallesOrden(ID_ORDEN)).thenReturn(new Order().status("APPROVED"), completada);
+        prepararCompra(completada);
+
+        procesar(evento);
+
+        verify(payPalService).capturarPago(ID_ORDEN);
+        verify(compraService).finalizarPagoPayPal(usuario, juego, 19.99, ID_ORDEN);
+        assertEquals(EstadoEventoWebhook.PROCESADO, evento.getEstado());
+    }
+
+    @Test
+    void capturaCompletadaRegistraLaCompraSinVolverACapturar() throws IOException {
+        EventoWebhook evento = recibir("payment-capture-completed.json");
+        assertEquals("PAYMENT.CAPTURE.COMPLETED", evento.getTipo());
+        assertEquals(ID_ORDEN, evento.getIdOrden()); // Sale de supplementary_data.related_ids
+
+        Order completada = new Order().status("COMPLETED");
+        when(payPalService.obtenerDetallesOrden(ID_ORDEN)).thenReturn(completada);
+        prepararCompra(completada);
+
+        procesar(evento);
+
+        verify(payPalService, never()).capturarPago(anyString());
+        verify(compraService).finalizarPagoPayPal(usuario, juego, 19.99, ID_ORDEN);
+        assertEquals(EstadoEventoWebhook.PROCESADO, evento.getEstado());
+    }
+
+    @Test
+    void ordenYaRegistradaPorLaRedireccionNoSeVuelveARegistrar() throws IOException {
+        EventoWebhook evento = recibir("payment-capture-completed.json");
+        when(compraService.buscarPorOrdenPaypal(ID_ORDEN)).thenReturn(Optional.of(new Compra()));
+
+        procesar(evento);
+
+        verify(payPalService, never()).obtenerDetallesOrden(anyString());
+        verify(compraService, never()).finalizarPagoPayPal(any(), any(), any(), any());
+        assertEquals(EstadoEventoWebhook.PROCESADO, evento.getEstado());
+    }
+
+    @Test
+    void ordenTodaviaPendienteSeReintentaMasTarde() throws IOException {
+        EventoWebhook evento = recibir("checkout-order-approved.json");
+        Order pendiente = new Order().status("PENDING");
+        when(payPalService.obtenerDetallesOrden(ID_ORDEN)).thenReturn(pendiente);
+        when(payPalService.esPaymentCompletado(pendiente)).thenReturn(false);
+
+        procesar(evento);
+
+        assertEquals(EstadoEventoWebhook.PENDIENTE, evento.getEstado());
+        assertEquals(1, evento.getIntentos());
+        verify(compraService, never()).finalizarPagoPayPal(any(), any(), any(), any());
+    }
+
+    @Test
+    void ordenCompletadaConLaCapturaPendienteNoSeRegistraConCeroEuros() throws IOException {
+        EventoWebhook evento = recibir("checkout-order-approved.json");
+        Order completada = new Order().status("COMPLETED");
+        when(payPalService.obtenerDetallesOrden(ID_ORDEN)).thenReturn(completada);
+        when(payPalService.esPaymentCompletado(completada)).thenReturn(true);
+        when(payPalService.estaCobrada(completada)).thenReturn(false);
+
+        procesar(evento);
+
+        assertEquals(EstadoEventoWebhook.PENDIENTE, evento.getEstado());
+        verify(compraService, never()).finalizarPagoPayPal(any(), any(), any(), any());
+    }
+
+    @Test
+    void unEventoRepetidoSeIgnoraSinVerificarLaFirma() throws IOException {
+        when(eventoRepository.existsByIdEvento("WH-58D329510W468432D-8HN650336L201105X")).thenReturn(true);
+
+        assertFalse(servicio.recibir(CABECERAS, leer("payment-capture-completed.json")));
+
+        verify(payPalService, never()).verificarFirmaWebhook(any(), any());
+        verify(eventoRepository, never()).save(any());
+    }
+
+    @Test
+    void unaFirmaNoValidaNoSeGuarda() throws IOException {
+        String cuerpo = leer("checkout-order-approved.json");
+        when(payPalService.verificarFirmaWebhook(CABECERAS, cuerpo)).thenReturn(false);
+
+        assertThrows(IllegalArgumentException.class, () -> servicio.recibir(CABECERAS, cuerpo));
+
+        verify(eventoRepository, never()).save(any());
+    }
+
+    @Test
+    void sinIdDelWebhookNoArrancaSiSeVerificaLaFirma() {
+        ReflectionTestUtils.setField(servicio, "webhookId", " ");
+
+        assertThrows(IllegalStateException.class, servicio::iniciar);
+    }
+
+    // ========== MÉTODOS PRIVADOS ==========
+
+    // Recibe el evento grabado con la firma aceptada y devuelve lo que se guarda
+    private EventoWebhook recibir(String archivo) throws IOException {
+        String cuerpo = leer(archivo);
+        when(payPalService.verificarFirmaWebhook(CABECERAS, cuerpo)).thenReturn(true);
+
+        assertTrue(servicio.recibir(CABECERAS, cuerpo));
+
+        ArgumentCaptor<EventoWebhook> guardado = ArgumentCaptor.forClass(EventoWebhook.class);
+        verify(eventoRepository).save(guardado.capture());
+        return guardado.getValue();
+    }
+
+    // Una pasada del procesador en la que el evento está listo y se consigue reclamar
+    private void procesar(EventoWebhook evento) {
+        when(eventoRepository.findIdsListos(any(), any())).thenReturn(List.of(1));
+        when(eventoRepository.reclamar(any(), any())).thenReturn(1);
+        when(eventoRepository.findById(1)).thenReturn(Optional.of(evento));
+
+        servicio.procesarPendientes();
+    }
+
+    private void prepararCompra(Order orden) {
+        when(payPalService.esPaymentCompletado(orden)).thenReturn(true);
+        when(payPalService.estaCobrada(orden)).thenReturn(true);
+        when(payPalService.extraerUsuarioId(orden)).thenReturn(1);
+        when(payPalService.extraerJuegoId(orden)).thenReturn(1);
+        when(payPalService.extraerMontoPagado(orden)).thenReturn(19.99);
+        when(usuarioService.buscarPorId(1)).thenReturn(Optional.of(usuario));
+        when(juegoService.buscarPorId(1)).thenReturn(Optional.of(juego));
+    }
+
+    private static String leer(String archivo) throws IOException {
+        try (InputStream entrada = ServicioWebhookPayPalImplTest.class.getResourceAsStream("/paypal-webhooks/" + archivo)) {
+            return new String(entrada.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}